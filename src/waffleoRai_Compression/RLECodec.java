@@ -0,0 +1,291 @@
+package waffleoRai_Compression;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import waffleoRai_Compression.codec.AbstractCodecStage;
+import waffleoRai_Compression.codec.CodecStage;
+import waffleoRai_Compression.codec.StreamCodec;
+
+/**
+ * StreamCodec adapter for byte-aligned RLEncoder settings (see RLEncoder.isByteAligned()).
+ * <br>Runs are detected eight bytes at a time and may continue across calls.
+ * Literal bytes that would be mistaken for a marker are always written as runs.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class RLECodec implements StreamCodec{
+
+	/* Pending runs are written out once they get this long, so the count can't overflow */
+	private static final int RUN_FLUSH_THRESHOLD = 0x10000;
+	private static final int SCRATCH_SIZE = 0x1000;
+
+	private String name;
+	private RLEncoder settings;
+
+	public RLECodec(RLEncoder encoder)
+	{
+		this("rle", encoder);
+	}
+
+	/**
+	 * @param codecName Name to register the codec under.
+	 * @param encoder RLEncoder to take settings from. Its minimumRL() and maximumRL() are used,
+	 * so subclass overrides apply.
+	 * @throws IllegalArgumentException If the encoder settings are not byte-aligned.
+	 */
+	public RLECodec(String codecName, RLEncoder encoder)
+	{
+		if (!encoder.isByteAligned()) throw new IllegalArgumentException("RLE settings are not byte-aligned");
+		name = codecName;
+		settings = encoder;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public RLEncoder getSettings()
+	{
+		return settings;
+	}
+
+	public CodecStage newEncoder()
+	{
+		return new RLEEncodeStage(settings);
+	}
+
+	public CodecStage newDecoder()
+	{
+		return new RLEDecodeStage(settings);
+	}
+
+	/* ----- Shared ----- */
+
+	private static abstract class RLEStage extends AbstractCodecStage
+	{
+		protected int hbytes;
+		protected int mshift;
+		protected int mval;
+		protected int rlBits;
+
+		protected byte[] scratch;
+		protected ByteBuffer scratchView;
+
+		/* Current input window - either the input buffer's backing array or scratch */
+		protected byte[] win;
+		protected int winOff;
+		protected int winLen;
+
+		protected RLEStage(RLEncoder enc)
+		{
+			rlBits = enc.numRunLengthBits();
+			hbytes = (enc.numMarkerBits() + rlBits) >>> 3;
+			mshift = 8 - enc.numMarkerBits();
+			mval = Short.toUnsignedInt(enc.getMarker()) & ((1 << enc.numMarkerBits()) - 1);
+			scratch = new byte[SCRATCH_SIZE];
+			scratchView = ByteBuffer.wrap(scratch);
+		}
+
+		protected boolean isMarker(byte b)
+		{
+			return (Byte.toUnsignedInt(b) >>> mshift) == mval;
+		}
+
+		protected void openWindow(ByteBuffer in)
+		{
+			if (in.hasArray())
+			{
+				win = in.array();
+				winOff = in.arrayOffset() + in.position();
+				winLen = in.remaining();
+			}
+			else
+			{
+				win = scratch;
+				winOff = 0;
+				winLen = in.remaining();
+				if (winLen > scratch.length) winLen = scratch.length;
+				int pos = in.position();
+				in.get(scratch, 0, winLen);
+				in.position(pos);
+			}
+		}
+
+		protected void closeWindow(ByteBuffer in, int consumed)
+		{
+			in.position(in.position() + consumed);
+		}
+	}
+
+	/* ----- Encoder ----- */
+
+	private static class RLEEncodeStage extends RLEStage
+	{
+		private int minRun;
+		private int maxRun;
+
+		private byte rVal;
+		private int counter;
+
+		public RLEEncodeStage(RLEncoder enc)
+		{
+			super(enc);
+			minRun = enc.minimumRL();
+			maxRun = enc.maximumRL();
+			resetState();
+		}
+
+		private void writeRun(ByteBuffer out, byte sym, int count)
+		{
+			boolean collides = isMarker(sym);
+			while (count > 0)
+			{
+				int n = count;
+				if (n > maxRun) n = maxRun;
+				if (n < minRun && !collides) emitFill(out, sym, n);
+				else
+				{
+					int h = (mval << rlBits) | n;
+					if (hbytes == 2) emit(out, (byte)(h >>> 8));
+					emit(out, (byte)h);
+					emit(out, sym);
+				}
+				count -= n;
+			}
+		}
+
+		protected void processInput(ByteBuffer in, ByteBuffer out)
+		{
+			while (in.hasRemaining() && !holding())
+			{
+				openWindow(in);
+				ByteBuffer view = (win == scratch) ? scratchView : ByteBuffer.wrap(win);
+				int end = winOff + winLen;
+				int i = winOff;
+				while (i < end && !holding())
+				{
+					byte cVal = win[i];
+					int j = i + 1;
+					long pattern = (Byte.toUnsignedInt(cVal)) * 0x0101010101010101L;
+					while (j + 8 <= end && view.getLong(j) == pattern) j += 8;
+					while (j < end && win[j] == cVal) j++;
+
+					int len = j - i;
+					if (counter > 0 && cVal == rVal)
+					{
+						counter += len;
+						if (counter >= RUN_FLUSH_THRESHOLD)
+						{
+							int whole = counter - (counter % maxRun);
+							writeRun(out, rVal, whole);
+							counter -= whole;
+						}
+					}
+					else
+					{
+						if (counter > 0) writeRun(out, rVal, counter);
+						rVal = cVal;
+						counter = len;
+					}
+					i = j;
+				}
+				closeWindow(in, i - winOff);
+			}
+		}
+
+		protected boolean finishInput(ByteBuffer out)
+		{
+			if (counter > 0) writeRun(out, rVal, counter);
+			counter = 0;
+			return true;
+		}
+
+		protected void resetState()
+		{
+			rVal = 0;
+			counter = 0;
+		}
+	}
+
+	/* ----- Decoder ----- */
+
+	private static class RLEDecodeStage extends RLEStage
+	{
+		private int cmask;
+		private byte[] rec;
+		private int recLen;
+
+		public RLEDecodeStage(RLEncoder enc)
+		{
+			super(enc);
+			cmask = (1 << rlBits) - 1;
+			rec = new byte[hbytes + 1];
+			recLen = 0;
+		}
+
+		protected void processInput(ByteBuffer in, ByteBuffer out)
+		{
+			while (in.hasRemaining() && !holding())
+			{
+				if (recLen > 0)
+				{
+					/*Finish a marked record*/
+					rec[recLen++] = in.get();
+					if (recLen > hbytes)
+					{
+						int h = Byte.toUnsignedInt(rec[0]);
+						if (hbytes == 2) h = (h << 8) | Byte.toUnsignedInt(rec[1]);
+						emitFill(out, rec[hbytes], h & cmask);
+						recLen = 0;
+					}
+					continue;
+				}
+
+				openWindow(in);
+				int end = winOff + winLen;
+				int i = winOff;
+				while (i < end && !holding())
+				{
+					if (isMarker(win[i]))
+					{
+						if (end - i <= hbytes)
+						{
+							/*Record continues in later input*/
+							while (i < end) rec[recLen++] = win[i++];
+							break;
+						}
+						int h = Byte.toUnsignedInt(win[i]);
+						if (hbytes == 2) h = (h << 8) | Byte.toUnsignedInt(win[i+1]);
+						emitFill(out, win[i + hbytes], h & cmask);
+						i += hbytes + 1;
+					}
+					else
+					{
+						/*Copy the whole literal stretch at once*/
+						int j = i + 1;
+						while (j < end && !isMarker(win[j])) j++;
+						emit(out, win, i, j - i);
+						i = j;
+					}
+				}
+				closeWindow(in, i - winOff);
+			}
+		}
+
+		protected boolean finishInput(ByteBuffer out) throws IOException
+		{
+			//A truncated record at the end is dropped
+			recLen = 0;
+			return true;
+		}
+
+		protected void resetState()
+		{
+			recLen = 0;
+		}
+	}
+
+}
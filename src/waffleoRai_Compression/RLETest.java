@@ -0,0 +1,100 @@
+package waffleoRai_Compression;
+
+import java.util.Random;
+
+import waffleoRai_Image.PCX_RLE;
+import waffleoRai_Utils.FileBuffer;
+
+public class RLETest {
+
+	public static final int WIDTH = 1024;
+	public static final int HEIGHT = 768;
+	public static final int PLANES = 3;
+	public static final int REPS = 20;
+
+	/**
+	 * Generate scanline data that looks like a typical PCX image:
+	 * mostly flat color spans of varying length with some noisy stretches
+	 * and plenty of bytes in the 0xC0-0xFF range.
+	 */
+	public static FileBuffer generatePCXStyleData(long seed)
+	{
+		Random r = new Random(seed);
+		int sz = WIDTH * HEIGHT * PLANES;
+		byte[] data = new byte[sz];
+		int i = 0;
+		while (i < sz)
+		{
+			int len;
+			if (r.nextInt(8) == 0)
+			{
+				//Noise
+				len = 1 + r.nextInt(32);
+				for (int j = 0; j < len && i < sz; j++) data[i++] = (byte)r.nextInt(256);
+			}
+			else
+			{
+				//Flat span
+				len = 1 + r.nextInt(400);
+				byte b = (byte)r.nextInt(256);
+				for (int j = 0; j < len && i < sz; j++) data[i++] = b;
+			}
+		}
+		return new FileBuffer(data);
+	}
+
+	public static void main(String[] args) {
+
+		FileBuffer raw = generatePCXStyleData(0x5043585FL);
+		PCX_RLE codec = new PCX_RLE();
+		long rawsz = raw.getFileSize();
+		System.out.println("Raw size: 0x" + Long.toHexString(rawsz));
+
+		try
+		{
+			FileBuffer comp = null;
+			FileBuffer decomp = null;
+
+			//Warm up
+			for (int i = 0; i < 5; i++)
+			{
+				comp = codec.RLE_Encode(raw, 0, rawsz);
+				decomp = codec.RLE_Decode(comp, 0, comp.getFileSize(), rawsz);
+			}
+
+			long t0 = System.nanoTime();
+			for (int i = 0; i < REPS; i++) comp = codec.RLE_Encode(raw, 0, rawsz);
+			long t1 = System.nanoTime();
+			for (int i = 0; i < REPS; i++) decomp = codec.RLE_Decode(comp, 0, comp.getFileSize(), rawsz);
+			long t2 = System.nanoTime();
+
+			double mb = (double)(rawsz * REPS) / (1024.0 * 1024.0);
+			System.out.println("Compressed size: 0x" + Long.toHexString(comp.getFileSize()));
+			System.out.println("Encode: " + String.format("%.2f", mb / ((t1 - t0) / 1e9)) + " MB/s");
+			System.out.println("Decode: " + String.format("%.2f", mb / ((t2 - t1) / 1e9)) + " MB/s");
+
+			//Round trip check
+			if (decomp.getFileSize() != rawsz)
+			{
+				System.err.println("Size mismatch! Decoded: 0x" + Long.toHexString(decomp.getFileSize()));
+				System.exit(1);
+			}
+			for (long i = 0; i < rawsz; i++)
+			{
+				if (decomp.getByte(i) != raw.getByte(i))
+				{
+					System.err.println("Mismatch at 0x" + Long.toHexString(i));
+					System.exit(1);
+				}
+			}
+			System.out.println("Round trip OK");
+		}
+		catch(Exception e)
+		{
+			e.printStackTrace();
+			System.exit(1);
+		}
+
+	}
+
+}
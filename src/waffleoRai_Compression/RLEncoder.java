@@ -1,12 +1,21 @@
 package waffleoRai_Compression;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+import waffleoRai_Compression.codec.CodecStage;
 import waffleoRai_Utils.BitStreamer;
 import waffleoRai_Utils.FileBuffer;
 
 public class RLEncoder {
 
+	/**
+	 * Number of input bytes pulled from the source buffer at a time by
+	 * the byte-aligned encoder and decoder.
+	 */
+	public static final int BULK_BLOCK_SIZE = 0x10000;
+
 	private boolean hasMarker;
 	private int markerBits;
 	private short marker;
@@ -162,6 +171,24 @@ public class RLEncoder {
 		return ex - 1;
 	}
 	
+	/**
+	 * Check whether this encoder's settings allow the byte-aligned codec path to be used
+	 * instead of the generic bit stream path.
+	 * <br>This is the case when data pieces are 8 bits, there is a marker that fits
+	 * in the top bits of a single byte, toggle mode is off, and the marker plus
+	 * run length field form a whole number of bytes (8 or 16 bits).
+	 * <br>PCX style encoding (2 bit marker, 6 bit run length, 8 bit data) qualifies.
+	 * @return True if RLE_Encode and RLE_Decode will use the byte-aligned path.
+	 */
+	public boolean isByteAligned()
+	{
+		if (this.dataPieceBits != 8) return false;
+		if (!this.hasMarker || this.toggleOff) return false;
+		if (this.markerBits < 1 || this.markerBits > 8) return false;
+		int hbits = this.markerBits + this.runLengthBits;
+		return (hbits == 8 || hbits == 16);
+	}
+	
 	/*** Encoding ***/
 	
 	/**
@@ -174,6 +201,7 @@ public class RLEncoder {
 	 */
 	public FileBuffer RLE_Encode(FileBuffer in, long stPos, long edPos) throws IOException
 	{
+		if (this.isByteAligned()) return this.RLE_EncodeBytes(in, stPos, edPos);
 		long reqSize = edPos - stPos;
 		FileBuffer out = FileBuffer.createWritableBuffer("RLE_enc", reqSize, true);
 		BitStreamer inStream = new BitStreamer(in, stPos, true);
@@ -243,6 +271,7 @@ public class RLEncoder {
 	 */
 	public FileBuffer RLE_Decode(FileBuffer in, long stPos, long edPos, long initCap) throws IOException
 	{
+		if (this.isByteAligned()) return this.RLE_DecodeBytes(in, stPos, edPos, initCap);
 		FileBuffer out = FileBuffer.createWritableBuffer("RLE_dec", initCap, true);
 		
 		BitStreamer inStream = new BitStreamer(in, stPos, true);
@@ -300,4 +329,121 @@ public class RLEncoder {
 		return out;
 	}
 	
+	/*** Byte-Aligned Path ***/
+	
+	/**
+	 * Growable byte array output for the byte-aligned codec.
+	 */
+	private static class ByteSink
+	{
+		private byte[] arr;
+		private int size;
+		
+		public ByteSink(long initCap)
+		{
+			if (initCap < 16) initCap = 16;
+			if (initCap > 0x7FFFFFF0L) initCap = 0x7FFFFFF0L;
+			this.arr = new byte[(int)initCap];
+			this.size = 0;
+		}
+		
+		private void ensure(int more)
+		{
+			int req = this.size + more;
+			if (req < 0) throw new IndexOutOfBoundsException();
+			if (req <= this.arr.length) return;
+			int ncap = this.arr.length << 1;
+			if (ncap < req || ncap < 0) ncap = req;
+			this.arr = Arrays.copyOf(this.arr, ncap);
+		}
+		
+		public void put(byte[] src, int off, int len)
+		{
+			this.ensure(len);
+			System.arraycopy(src, off, this.arr, this.size, len);
+			this.size += len;
+		}
+		
+		public FileBuffer toFileBuffer()
+		{
+			if (this.size == this.arr.length) return new FileBuffer(this.arr);
+			return new FileBuffer(Arrays.copyOf(this.arr, this.size));
+		}
+	}
+	
+	private static void pumpToSink(CodecStage stage, ByteBuffer in, ByteBuffer obuf, ByteSink sink) throws IOException
+	{
+		while (in.hasRemaining())
+		{
+			stage.process(in, obuf);
+			sink.put(obuf.array(), 0, obuf.position());
+			obuf.clear();
+		}
+	}
+	
+	private static void finishToSink(CodecStage stage, ByteBuffer obuf, ByteSink sink) throws IOException
+	{
+		boolean done = false;
+		while (!done)
+		{
+			done = stage.finish(obuf);
+			sink.put(obuf.array(), 0, obuf.position());
+			obuf.clear();
+		}
+	}
+	
+	private FileBuffer runByteStage(CodecStage stage, FileBuffer in, long stPos, long edPos, long initCap) throws IOException
+	{
+		if (stPos < 0) stPos = 0;
+		if (edPos > in.getFileSize()) edPos = in.getFileSize();
+		
+		ByteSink out = new ByteSink(initCap);
+		ByteBuffer obuf = ByteBuffer.allocate(BULK_BLOCK_SIZE);
+		long pos = stPos;
+		while (pos < edPos)
+		{
+			int amt = (int)Math.min(BULK_BLOCK_SIZE, edPos - pos);
+			pumpToSink(stage, ByteBuffer.wrap(in.getBytes(pos, pos + amt)), obuf, out);
+			pos += amt;
+		}
+		finishToSink(stage, obuf, out);
+		
+		return out.toFileBuffer();
+	}
+	
+	/**
+	 * Run length encode a region of a buffer using the byte-aligned path.
+	 * Input is pulled in blocks of BULK_BLOCK_SIZE bytes and pushed through
+	 * an RLECodec encoder stage, which detects runs eight bytes at a time where possible.
+	 * <br>Literal bytes that would be mistaken for a marker by the decoder are
+	 * always written as (single byte) runs.
+	 * @param in Buffer containing data to encode.
+	 * @param stPos Position in buffer of first byte to encode (inclusive).
+	 * @param edPos Position in buffer after last byte to encode (exclusive).
+	 * @return New FileBuffer containing the encoded data.
+	 * @throws UnsupportedOperationException If this encoder is not byte-aligned.
+	 */
+	protected FileBuffer RLE_EncodeBytes(FileBuffer in, long stPos, long edPos) throws IOException
+	{
+		if (!this.isByteAligned()) throw new UnsupportedOperationException();
+		long sz = edPos - stPos;
+		return runByteStage(new RLECodec(this).newEncoder(), in, stPos, edPos, sz + (sz >>> 4));
+	}
+	
+	/**
+	 * Decode run length encoded data from a region of a buffer using the byte-aligned path.
+	 * Input is pulled in blocks of BULK_BLOCK_SIZE bytes and pushed through an RLECodec decoder stage.
+	 * @param in Buffer containing encoded data.
+	 * @param stPos Position in buffer of first encoded byte (inclusive).
+	 * @param edPos Position in buffer after last encoded byte (exclusive).
+	 * @param initCap Initial capacity to allocate for the decoded data.
+	 * @return New FileBuffer containing the decoded data.
+	 * @throws UnsupportedOperationException If this encoder is not byte-aligned.
+	 */
+	protected FileBuffer RLE_DecodeBytes(FileBuffer in, long stPos, long edPos, long initCap) throws IOException
+	{
+		if (!this.isByteAligned()) throw new UnsupportedOperationException();
+		return runByteStage(new RLECodec(this).newDecoder(), in, stPos, edPos, initCap);
+	}
+	
 }
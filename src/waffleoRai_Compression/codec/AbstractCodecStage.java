@@ -0,0 +1,165 @@
+package waffleoRai_Compression.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Base for CodecStage implementations that handles output overflow.
+ * <br>Subclasses write through the emit methods. Anything that doesn't fit in the
+ * output buffer is held internally and written out first on the next call.
+ * Subclasses should stop consuming input as soon as holding() returns true, which keeps
+ * the hold area down to about one record.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public abstract class AbstractCodecStage implements CodecStage{
+
+	public static final int DEFO_HOLD_SIZE = 64;
+
+	private byte[] hold;
+	private int holdPos;
+	private int holdLen;
+
+	private boolean finished;
+
+	protected AbstractCodecStage()
+	{
+		hold = new byte[DEFO_HOLD_SIZE];
+		holdPos = 0;
+		holdLen = 0;
+		finished = false;
+	}
+
+	/* ----- Output ----- */
+
+	/**
+	 * Check whether there is output that didn't fit in the last output buffer.
+	 * @return True if there is held output waiting to be written.
+	 */
+	protected boolean holding()
+	{
+		return holdPos < holdLen;
+	}
+
+	private boolean drain(ByteBuffer out)
+	{
+		if (!holding()) return true;
+		int amt = holdLen - holdPos;
+		if (amt > out.remaining()) amt = out.remaining();
+		out.put(hold, holdPos, amt);
+		holdPos += amt;
+		if (holdPos < holdLen) return false;
+		holdPos = 0;
+		holdLen = 0;
+		return true;
+	}
+
+	private void ensureHold(int more)
+	{
+		if (holdPos > 0 && holdLen + more > hold.length)
+		{
+			System.arraycopy(hold, holdPos, hold, 0, holdLen - holdPos);
+			holdLen -= holdPos;
+			holdPos = 0;
+		}
+		if (holdLen + more > hold.length)
+		{
+			int ncap = hold.length << 1;
+			if (ncap < holdLen + more) ncap = holdLen + more;
+			hold = Arrays.copyOf(hold, ncap);
+		}
+	}
+
+	protected void emit(ByteBuffer out, byte b)
+	{
+		if (!holding() && out.hasRemaining())
+		{
+			out.put(b);
+			return;
+		}
+		ensureHold(1);
+		hold[holdLen++] = b;
+	}
+
+	protected void emit(ByteBuffer out, byte[] src, int off, int len)
+	{
+		int amt = 0;
+		if (!holding())
+		{
+			amt = out.remaining();
+			if (amt > len) amt = len;
+			out.put(src, off, amt);
+		}
+		if (amt < len)
+		{
+			int left = len - amt;
+			ensureHold(left);
+			System.arraycopy(src, off + amt, hold, holdLen, left);
+			holdLen += left;
+		}
+	}
+
+	protected void emitFill(ByteBuffer out, byte b, int count)
+	{
+		int amt = 0;
+		if (!holding())
+		{
+			amt = out.remaining();
+			if (amt > count) amt = count;
+			for (int i = 0; i < amt; i++) out.put(b);
+		}
+		if (amt < count)
+		{
+			int left = count - amt;
+			ensureHold(left);
+			Arrays.fill(hold, holdLen, holdLen + left, b);
+			holdLen += left;
+		}
+	}
+
+	/* ----- Subclass Hooks ----- */
+
+	/**
+	 * Consume input and emit output. Should return once the input is
+	 * drained or holding() becomes true.
+	 */
+	protected abstract void processInput(ByteBuffer in, ByteBuffer out) throws IOException;
+
+	/**
+	 * Emit whatever is left at the end of input. This is called repeatedly (after held output
+	 * has been written) until it returns true.
+	 * @return True if there is nothing left to emit.
+	 */
+	protected abstract boolean finishInput(ByteBuffer out) throws IOException;
+
+	/**
+	 * Clear subclass state.
+	 */
+	protected abstract void resetState();
+
+	/* ----- CodecStage ----- */
+
+	public void process(ByteBuffer in, ByteBuffer out) throws IOException
+	{
+		if (!drain(out)) return;
+		processInput(in, out);
+	}
+
+	public boolean finish(ByteBuffer out) throws IOException
+	{
+		if (!drain(out)) return false;
+		if (!finished) finished = finishInput(out);
+		return drain(out) && finished;
+	}
+
+	public void reset()
+	{
+		holdPos = 0;
+		holdLen = 0;
+		finished = false;
+		resetState();
+	}
+
+}
@@ -0,0 +1,49 @@
+package waffleoRai_Compression.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * An InputStream that reads from another stream and returns the data after
+ * running it through a CodecStage.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class CodecInputStream extends InputStream{
+
+	private CodecReadableChannel channel;
+	private byte[] single;
+
+	public CodecInputStream(InputStream src, CodecStage codec)
+	{
+		this(src, codec, CodecReadableChannel.DEFO_BUFFER_SIZE);
+	}
+
+	public CodecInputStream(InputStream src, CodecStage codec, int bufferSize)
+	{
+		channel = new CodecReadableChannel(Channels.newChannel(src), codec, bufferSize);
+		single = new byte[1];
+	}
+
+	public int read() throws IOException
+	{
+		int r = read(single, 0, 1);
+		if (r <= 0) return -1;
+		return Byte.toUnsignedInt(single[0]);
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if (len == 0) return 0;
+		return channel.read(ByteBuffer.wrap(b, off, len));
+	}
+
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+}
@@ -0,0 +1,82 @@
+package waffleoRai_Compression.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An OutputStream that runs everything written to it through a CodecStage
+ * before passing it on to another stream.
+ * <br>The stage is finished when this stream is closed.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class CodecOutputStream extends OutputStream{
+
+	private OutputStream target;
+	private CodecStage stage;
+	private ByteBuffer outbuf;
+	private byte[] single;
+	private boolean closed;
+
+	public CodecOutputStream(OutputStream dst, CodecStage codec)
+	{
+		this(dst, codec, CodecReadableChannel.DEFO_BUFFER_SIZE);
+	}
+
+	public CodecOutputStream(OutputStream dst, CodecStage codec, int bufferSize)
+	{
+		if (dst == null || codec == null) throw new NullPointerException();
+		if (bufferSize < 16) bufferSize = 16;
+		target = dst;
+		stage = codec;
+		outbuf = ByteBuffer.allocate(bufferSize);
+		single = new byte[1];
+		closed = false;
+	}
+
+	private void flushBuffer() throws IOException
+	{
+		if (outbuf.position() == 0) return;
+		target.write(outbuf.array(), 0, outbuf.position());
+		outbuf.clear();
+	}
+
+	public void write(int b) throws IOException
+	{
+		single[0] = (byte)b;
+		write(single, 0, 1);
+	}
+
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		if (closed) throw new IOException("Stream closed");
+		ByteBuffer in = ByteBuffer.wrap(b, off, len);
+		while (in.hasRemaining())
+		{
+			stage.process(in, outbuf);
+			flushBuffer();
+		}
+	}
+
+	/**
+	 * Write everything the stage has produced so far to the target stream.
+	 * This does not finish the stage.
+	 */
+	public void flush() throws IOException
+	{
+		flushBuffer();
+		target.flush();
+	}
+
+	public void close() throws IOException
+	{
+		if (closed) return;
+		while (!stage.finish(outbuf)) flushBuffer();
+		flushBuffer();
+		closed = true;
+		target.close();
+	}
+
+}
@@ -0,0 +1,99 @@
+package waffleoRai_Compression.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A chain of CodecStages that behaves as a single stage.
+ * <br>Stages are linked by fixed size intermediate buffers, so memory use
+ * does not depend on the size of the data pushed through.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class CodecPipeline implements CodecStage{
+
+	public static final int DEFO_LINK_SIZE = 0x10000;
+
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	private CodecStage[] stages;
+	private ByteBuffer[] links; //Kept in write mode (position at end of pending data)
+	private boolean[] done;
+
+	public CodecPipeline(CodecStage... chain)
+	{
+		this(DEFO_LINK_SIZE, chain);
+	}
+
+	public CodecPipeline(int linkSize, CodecStage... chain)
+	{
+		if (chain == null || chain.length < 1) throw new IllegalArgumentException();
+		if (linkSize < 16) linkSize = 16;
+		stages = chain;
+		links = new ByteBuffer[chain.length - 1];
+		for (int i = 0; i < links.length; i++) links[i] = ByteBuffer.allocate(linkSize);
+		done = new boolean[chain.length];
+	}
+
+	public int countStages()
+	{
+		return stages.length;
+	}
+
+	public CodecStage getStage(int index)
+	{
+		return stages[index];
+	}
+
+	private boolean pump(ByteBuffer in, ByteBuffer out, boolean finishing) throws IOException
+	{
+		int last = stages.length - 1;
+		boolean progress = false;
+		for (int i = 0; i <= last; i++)
+		{
+			ByteBuffer src = (i == 0) ? in : links[i-1];
+			ByteBuffer dst = (i == last) ? out : links[i];
+			if (i > 0) src.flip();
+			int srem = src.remaining();
+			int dpos = dst.position();
+
+			stages[i].process(src, dst);
+			boolean upstreamDone = (i == 0) ? !src.hasRemaining() : (done[i-1] && !src.hasRemaining());
+			if (finishing && upstreamDone && !done[i])
+			{
+				done[i] = stages[i].finish(dst);
+				if (done[i]) progress = true;
+			}
+
+			if (src.remaining() != srem || dst.position() != dpos) progress = true;
+			if (i > 0) src.compact();
+		}
+		return progress;
+	}
+
+	public void process(ByteBuffer in, ByteBuffer out) throws IOException
+	{
+		while (pump(in, out, false));
+	}
+
+	public boolean finish(ByteBuffer out) throws IOException
+	{
+		while (!done[stages.length - 1])
+		{
+			if (!pump(EMPTY, out, true)) return false;
+		}
+		return true;
+	}
+
+	public void reset()
+	{
+		for (int i = 0; i < stages.length; i++)
+		{
+			stages[i].reset();
+			done[i] = false;
+		}
+		for (ByteBuffer b : links) b.clear();
+	}
+
+}
@@ -0,0 +1,95 @@
+package waffleoRai_Compression.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A ReadableByteChannel that pulls data from a source channel and
+ * returns it after running it through a CodecStage.
+ * <br>Only two fixed size buffers are used regardless of stream length.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class CodecReadableChannel implements ReadableByteChannel{
+
+	public static final int DEFO_BUFFER_SIZE = 0x10000;
+
+	private ReadableByteChannel source;
+	private CodecStage stage;
+
+	private ByteBuffer inbuf; //Write mode
+	private ByteBuffer outbuf; //Read mode
+
+	private boolean sourceEnded;
+	private boolean finished;
+	private boolean open;
+
+	public CodecReadableChannel(ReadableByteChannel src, CodecStage codec)
+	{
+		this(src, codec, DEFO_BUFFER_SIZE);
+	}
+
+	public CodecReadableChannel(ReadableByteChannel src, CodecStage codec, int bufferSize)
+	{
+		if (src == null || codec == null) throw new NullPointerException();
+		if (bufferSize < 16) bufferSize = 16;
+		source = src;
+		stage = codec;
+		inbuf = ByteBuffer.allocate(bufferSize);
+		outbuf = ByteBuffer.allocate(bufferSize);
+		outbuf.flip();
+		sourceEnded = false;
+		finished = false;
+		open = true;
+	}
+
+	private void fillOutput() throws IOException
+	{
+		outbuf.compact();
+		while (outbuf.position() == 0 && !finished)
+		{
+			if (!sourceEnded && inbuf.hasRemaining())
+			{
+				if (source.read(inbuf) < 0) sourceEnded = true;
+			}
+			inbuf.flip();
+			stage.process(inbuf, outbuf);
+			inbuf.compact();
+			if (sourceEnded && inbuf.position() == 0) finished = stage.finish(outbuf);
+		}
+		outbuf.flip();
+	}
+
+	public int read(ByteBuffer dst) throws IOException
+	{
+		if (!open) throw new ClosedChannelException();
+		if (!outbuf.hasRemaining())
+		{
+			if (finished) return -1;
+			fillOutput();
+			if (!outbuf.hasRemaining()) return -1;
+		}
+		int amt = outbuf.remaining();
+		if (amt > dst.remaining()) amt = dst.remaining();
+		int lim = outbuf.limit();
+		outbuf.limit(outbuf.position() + amt);
+		dst.put(outbuf);
+		outbuf.limit(lim);
+		return amt;
+	}
+
+	public boolean isOpen()
+	{
+		return open;
+	}
+
+	public void close() throws IOException
+	{
+		open = false;
+		source.close();
+	}
+
+}
@@ -0,0 +1,102 @@
+package waffleoRai_Compression.codec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import waffleoRai_Compression.RLECodec;
+import waffleoRai_Compression.RLEncoder;
+import waffleoRai_Compression.huffman.HuffmanCodec;
+
+/**
+ * Static name to StreamCodec lookup, plus helpers for building encoder/decoder chains
+ * from codec names.
+ * <br>Registered by default:
+ * <br>"delta8" - Byte-wise delta
+ * <br>"rle.pcx" - PCX style RLE (2 bit marker, 6 bit run length, 8 bit data)
+ * <br>"huffman8" - Block-adaptive 8-bit Huffman
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class CodecRegistry {
+
+	private static Map<String, StreamCodec> codecs;
+
+	static
+	{
+		codecs = new ConcurrentHashMap<String, StreamCodec>();
+		registerCodec(new DeltaCodec());
+		registerCodec(new RLECodec("rle.pcx", new RLEncoder(2, (short)0x3, 6, 8)));
+		registerCodec(new HuffmanCodec());
+	}
+
+	public static void registerCodec(StreamCodec codec)
+	{
+		codecs.put(codec.getName(), codec);
+	}
+
+	public static void registerCodec(String name, StreamCodec codec)
+	{
+		codecs.put(name, codec);
+	}
+
+	public static StreamCodec unregisterCodec(String name)
+	{
+		return codecs.remove(name);
+	}
+
+	public static StreamCodec getCodec(String name)
+	{
+		return codecs.get(name);
+	}
+
+	public static List<String> getCodecNames()
+	{
+		List<String> names = new ArrayList<String>(codecs.size() + 1);
+		names.addAll(codecs.keySet());
+		Collections.sort(names);
+		return names;
+	}
+
+	private static StreamCodec requireCodec(String name)
+	{
+		StreamCodec c = codecs.get(name);
+		if (c == null) throw new IllegalArgumentException("Codec not registered: " + name);
+		return c;
+	}
+
+	/**
+	 * Build an encoder that runs the named codecs in the order given
+	 * (eg. "delta8", "rle.pcx", "huffman8").
+	 * @param names Names of registered codecs.
+	 * @return New encoder stage. A single codec is returned as is, otherwise
+	 * the stages are wrapped in a CodecPipeline.
+	 * @throws IllegalArgumentException If any name is not registered.
+	 */
+	public static CodecStage newEncoderChain(String... names)
+	{
+		if (names.length == 1) return requireCodec(names[0]).newEncoder();
+		CodecStage[] stages = new CodecStage[names.length];
+		for (int i = 0; i < names.length; i++) stages[i] = requireCodec(names[i]).newEncoder();
+		return new CodecPipeline(stages);
+	}
+
+	/**
+	 * Build a decoder that undoes an encoder chain. Names should be given in the same order
+	 * as they were for newEncoderChain - they are reversed here.
+	 * @param names Names of registered codecs.
+	 * @return New decoder stage.
+	 * @throws IllegalArgumentException If any name is not registered.
+	 */
+	public static CodecStage newDecoderChain(String... names)
+	{
+		if (names.length == 1) return requireCodec(names[0]).newDecoder();
+		CodecStage[] stages = new CodecStage[names.length];
+		for (int i = 0; i < names.length; i++) stages[names.length - 1 - i] = requireCodec(names[i]).newDecoder();
+		return new CodecPipeline(stages);
+	}
+
+}
@@ -0,0 +1,41 @@
+package waffleoRai_Compression.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A single incremental encoder or decoder.
+ * <br>Stages consume input from one ByteBuffer and write to another, keeping
+ * whatever state they need between calls, so arbitrarily large data can be
+ * pushed through them in fixed size pieces.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public interface CodecStage {
+	
+	/**
+	 * Consume as much of the input as possible, writing output to out.
+	 * Returns when the input has been drained or the output is full.
+	 * @param in Input buffer, read from its position to its limit.
+	 * @param out Output buffer, written from its position.
+	 * @throws IOException If the input is malformed.
+	 */
+	public void process(ByteBuffer in, ByteBuffer out) throws IOException;
+	
+	/**
+	 * Signal that there is no more input and write any remaining output.
+	 * If out fills before everything is written, this returns false and should be
+	 * called again once the output has been drained.
+	 * @param out Output buffer, written from its position.
+	 * @return True if all output has been written, false if more room is needed.
+	 * @throws IOException If the input ended in a bad state.
+	 */
+	public boolean finish(ByteBuffer out) throws IOException;
+	
+	/**
+	 * Clear all state so that the stage can be used for a new stream.
+	 */
+	public void reset();
+
+}
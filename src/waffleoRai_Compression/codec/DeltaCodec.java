@@ -0,0 +1,101 @@
+package waffleoRai_Compression.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Byte-wise delta coding. Each output byte is the difference between an input byte and
+ * the byte stride positions before it.
+ * <br>Doesn't shrink anything by itself, but turns smooth data (images, PCM) into long
+ * runs of small values for RLE or Huffman stages further down a pipeline.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class DeltaCodec implements StreamCodec{
+
+	private int stride;
+
+	public DeltaCodec()
+	{
+		this(1);
+	}
+
+	/**
+	 * @param stride Distance in bytes between the two bytes that are differenced.
+	 * Use the frame/pixel size for interleaved data.
+	 */
+	public DeltaCodec(int stride)
+	{
+		if (stride < 1) stride = 1;
+		this.stride = stride;
+	}
+
+	public int getStride()
+	{
+		return stride;
+	}
+
+	public String getName()
+	{
+		if (stride == 1) return "delta8";
+		return "delta8x" + stride;
+	}
+
+	public CodecStage newEncoder()
+	{
+		return new DeltaStage(stride, false);
+	}
+
+	public CodecStage newDecoder()
+	{
+		return new DeltaStage(stride, true);
+	}
+
+	private static class DeltaStage implements CodecStage
+	{
+		private boolean decode;
+		private byte[] history;
+		private int hpos;
+
+		public DeltaStage(int stride, boolean dec)
+		{
+			decode = dec;
+			history = new byte[stride];
+			hpos = 0;
+		}
+
+		public void process(ByteBuffer in, ByteBuffer out)
+		{
+			int n = in.remaining();
+			if (n > out.remaining()) n = out.remaining();
+			for (int i = 0; i < n; i++)
+			{
+				byte b = in.get();
+				if (decode)
+				{
+					byte v = (byte)(b + history[hpos]);
+					history[hpos] = v;
+					out.put(v);
+				}
+				else
+				{
+					out.put((byte)(b - history[hpos]));
+					history[hpos] = b;
+				}
+				if (++hpos >= history.length) hpos = 0;
+			}
+		}
+
+		public boolean finish(ByteBuffer out)
+		{
+			return true;
+		}
+
+		public void reset()
+		{
+			for (int i = 0; i < history.length; i++) history[i] = 0;
+			hpos = 0;
+		}
+	}
+
+}
@@ -0,0 +1,18 @@
+package waffleoRai_Compression.codec;
+
+/**
+ * A compression scheme that can hand out fresh incremental encoder and decoder stages.
+ * <br>Codec objects themselves hold only settings and can be shared. Each stage
+ * holds the state for a single stream.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public interface StreamCodec {
+	
+	public String getName();
+	
+	public CodecStage newEncoder();
+	public CodecStage newDecoder();
+
+}
@@ -1228,6 +1228,32 @@ public class Huffman
 		return this.HuffTree.searchAndGetLocation(EOF);
 	}
 	
+	/* ~~~~~~~~~~~ Code Export ~~~~~~~~~~~ */
+	
+	/**
+	 * Key used for the EOF marker in the map returned by getLeafCodes().
+	 */
+	static final long EOF_SYMBOL = -2L;
+	
+	/**
+	 * Get the code for every leaf in the tree, so that stream coders can
+	 * build flat lookup tables instead of walking the tree.
+	 * @return Map of symbol to Huffman code string ("0" = left, "1" = right).
+	 * The EOF marker is keyed by EOF_SYMBOL.
+	 */
+	Map<Long, String> getLeafCodes()
+	{
+		Map<Long, String> codes = new HashMap<Long, String>();
+		if (this.HuffTree == null) return codes;
+		for (BinTree.BinNodeInfo<HuffNode> info : this.HuffTree.toList())
+		{
+			HuffNode n = info.getData();
+			if (n.isEOF()) codes.put(EOF_SYMBOL, info.getHuffCode());
+			else if (n.hasData()) codes.put(n.getData(), info.getHuffCode());
+		}
+		return codes;
+	}
+	
 	/* ~~~~~~~~~~~ Constructor ~~~~~~~~~~~ */
  	/**
  	 * Constructor for the Huffman object - generates a tree from the frequency
@@ -0,0 +1,388 @@
+package waffleoRai_Compression.huffman;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import waffleoRai_Compression.codec.AbstractCodecStage;
+import waffleoRai_Compression.codec.CodecStage;
+import waffleoRai_Compression.codec.StreamCodec;
+import waffleoRai_Utils.FileBuffer;
+
+/**
+ * StreamCodec adapter for 8-bit Huffman coding.
+ * <br>Since a Huffman table needs the symbol frequencies up front, the encoder
+ * collects input into blocks (1MB by default) and codes each block with its own table.
+ * Each block is laid out exactly like the output of Huffman.encodeHuff without a file size:
+ * serialized table, codes, EOF code, zero padding to the next byte.
+ * The decoder reads any number of such blocks in a row.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class HuffmanCodec implements StreamCodec{
+
+	public static final int DEFO_BLOCK_SIZE = 0x100000;
+
+	private static final int SYMBOL_COUNT = 256;
+	private static final int EOF_LEAF = SYMBOL_COUNT;
+	private static final int OUT_SCRATCH = 0x1000;
+	private static final int MAX_PACKED_CODE = 56;
+
+	private int blockSize;
+
+	public HuffmanCodec()
+	{
+		this(DEFO_BLOCK_SIZE);
+	}
+
+	public HuffmanCodec(int block_size)
+	{
+		if (block_size < 0x100) block_size = 0x100;
+		blockSize = block_size;
+	}
+
+	public String getName()
+	{
+		return "huffman8";
+	}
+
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+
+	public CodecStage newEncoder()
+	{
+		return new HuffEncodeStage(blockSize);
+	}
+
+	public CodecStage newDecoder()
+	{
+		return new HuffDecodeStage();
+	}
+
+	/* ----- Encoder ----- */
+
+	private static class HuffEncodeStage extends AbstractCodecStage
+	{
+		private byte[] block;
+		private int blockLen;
+
+		private boolean emitting;
+		private byte[] table;
+		private int tblPos;
+		private int symPos;
+		private boolean eofDone;
+
+		private long[] codes;
+		private int[] codeLens;
+		private String[] longCodes;
+		private String eofCode;
+
+		private long acc;
+		private int nbits;
+		private byte[] obytes;
+		private int olen;
+
+		public HuffEncodeStage(int bsize)
+		{
+			block = new byte[bsize];
+			codes = new long[SYMBOL_COUNT];
+			codeLens = new int[SYMBOL_COUNT];
+			longCodes = new String[SYMBOL_COUNT];
+			obytes = new byte[OUT_SCRATCH];
+			resetState();
+		}
+
+		private void startBlock()
+		{
+			long[] freq = new long[SYMBOL_COUNT];
+			for (int i = 0; i < blockLen; i++) freq[Byte.toUnsignedInt(block[i])]++;
+
+			HuffTable tbl = new HuffTable(8);
+			for (int i = 0; i < SYMBOL_COUNT; i++)
+			{
+				if (freq[i] > 0) tbl.setFrequency(i, freq[i]);
+			}
+			Huffman huff = new Huffman(tbl);
+			FileBuffer stbl = huff.serializeTable(false);
+			table = stbl.getBytes(0, stbl.getFileSize());
+
+			for (int i = 0; i < SYMBOL_COUNT; i++)
+			{
+				codeLens[i] = 0;
+				longCodes[i] = null;
+			}
+			Map<Long, String> lc = huff.getLeafCodes();
+			for (Long sym : lc.keySet())
+			{
+				String c = lc.get(sym);
+				if (sym == Huffman.EOF_SYMBOL) {eofCode = c; continue;}
+				int s = (int)(long)sym;
+				codeLens[s] = c.length();
+				if (c.length() > MAX_PACKED_CODE) longCodes[s] = c;
+				else codes[s] = Long.parseLong(c, 2);
+			}
+
+			tblPos = 0;
+			symPos = 0;
+			eofDone = false;
+			emitting = true;
+		}
+
+		private void flushBytes(ByteBuffer out)
+		{
+			if (olen > 0) emit(out, obytes, 0, olen);
+			olen = 0;
+		}
+
+		private void putBits(ByteBuffer out, long code, int len)
+		{
+			acc = (acc << len) | code;
+			nbits += len;
+			while (nbits >= 8)
+			{
+				nbits -= 8;
+				obytes[olen++] = (byte)(acc >>> nbits);
+				if (olen >= obytes.length) flushBytes(out);
+			}
+		}
+
+		private void putCode(ByteBuffer out, String code)
+		{
+			for (int i = 0; i < code.length(); i++) putBits(out, (code.charAt(i) == '1') ? 1 : 0, 1);
+		}
+
+		/* Returns true when the current block has been fully written */
+		private boolean emitBlock(ByteBuffer out)
+		{
+			if (tblPos < table.length)
+			{
+				emit(out, table, tblPos, table.length - tblPos);
+				tblPos = table.length;
+			}
+			while (symPos < blockLen)
+			{
+				if (holding()) return false;
+				int end = symPos + OUT_SCRATCH;
+				if (end > blockLen) end = blockLen;
+				for (int i = symPos; i < end; i++)
+				{
+					int s = Byte.toUnsignedInt(block[i]);
+					if (longCodes[s] != null) putCode(out, longCodes[s]);
+					else putBits(out, codes[s], codeLens[s]);
+				}
+				symPos = end;
+				flushBytes(out);
+			}
+			if (!eofDone)
+			{
+				if (eofCode != null) putCode(out, eofCode);
+				if (nbits > 0) putBits(out, 0, 8 - nbits);
+				flushBytes(out);
+				eofDone = true;
+			}
+			emitting = false;
+			blockLen = 0;
+			return true;
+		}
+
+		protected void processInput(ByteBuffer in, ByteBuffer out)
+		{
+			while (!holding())
+			{
+				if (emitting)
+				{
+					if (!emitBlock(out)) return;
+					continue;
+				}
+				if (!in.hasRemaining()) return;
+				int amt = block.length - blockLen;
+				if (amt > in.remaining()) amt = in.remaining();
+				in.get(block, blockLen, amt);
+				blockLen += amt;
+				if (blockLen >= block.length) startBlock();
+			}
+		}
+
+		protected boolean finishInput(ByteBuffer out)
+		{
+			if (!emitting && blockLen > 0) startBlock();
+			if (emitting) return emitBlock(out);
+			return true;
+		}
+
+		protected void resetState()
+		{
+			blockLen = 0;
+			emitting = false;
+			table = null;
+			eofCode = null;
+			acc = 0;
+			nbits = 0;
+			olen = 0;
+		}
+	}
+
+	/* ----- Decoder ----- */
+
+	private static class HuffDecodeStage extends AbstractCodecStage
+	{
+		private static final int TABLE_HEADER_SIZE = 12;
+
+		private boolean inTable;
+		private byte[] thead;
+		private int theadLen;
+		private int theadTarget;
+
+		/* Flat tree. Children are node indices, leaf holds -1 for internal nodes */
+		private int[] left;
+		private int[] right;
+		private int[] leaf;
+		private int node;
+
+		private byte[] obytes;
+		private int olen;
+
+		public HuffDecodeStage()
+		{
+			thead = new byte[TABLE_HEADER_SIZE + 8 + (SYMBOL_COUNT * 9)];
+			obytes = new byte[OUT_SCRATCH];
+			resetState();
+		}
+
+		private int newNode(int count)
+		{
+			left[count] = -1;
+			right[count] = -1;
+			leaf[count] = -1;
+			return count;
+		}
+
+		private void buildTree() throws IOException
+		{
+			HuffTable tbl = Huffman.readHuffTable(new FileBuffer(Arrays.copyOf(thead, theadLen)), 0);
+			if (tbl == null || tbl.getBitDepth() != 8) throw new IOException("HuffmanCodec: Unreadable or non 8-bit table");
+			Huffman huff = new Huffman(tbl);
+			Map<Long, String> lc = huff.getLeafCodes();
+
+			int maxNodes = (lc.size() * 2) + 1;
+			left = new int[maxNodes];
+			right = new int[maxNodes];
+			leaf = new int[maxNodes];
+			int count = 0;
+			newNode(count++);
+			for (Long sym : lc.keySet())
+			{
+				String c = lc.get(sym);
+				int n = 0;
+				for (int i = 0; i < c.length(); i++)
+				{
+					int[] side = (c.charAt(i) == '1') ? right : left;
+					if (side[n] < 0) side[n] = newNode(count++);
+					n = side[n];
+				}
+				leaf[n] = (sym == Huffman.EOF_SYMBOL) ? EOF_LEAF : (int)(long)sym;
+			}
+			node = 0;
+		}
+
+		private void collectTable(ByteBuffer in) throws IOException
+		{
+			int amt = theadTarget - theadLen;
+			if (amt > in.remaining()) amt = in.remaining();
+			in.get(thead, theadLen, amt);
+			theadLen += amt;
+			if (theadLen < theadTarget) return;
+
+			if (theadTarget == TABLE_HEADER_SIZE)
+			{
+				if (thead[0] != 0x14 || thead[1] != 0x02 || thead[2] != 0x0C || thead[3] != 0x05)
+				{
+					throw new IOException("HuffmanCodec: Table magic number not found");
+				}
+				int sizeBytes = thead[4];
+				int bitD = thead[5];
+				int freqDepth = thead[6];
+				int nEntries = Byte.toUnsignedInt(thead[8]) | (Byte.toUnsignedInt(thead[9]) << 8)
+						| (Byte.toUnsignedInt(thead[10]) << 16) | (Byte.toUnsignedInt(thead[11]) << 24);
+				if (bitD != 8 || nEntries < 0 || nEntries > SYMBOL_COUNT) throw new IOException("HuffmanCodec: Unsupported table");
+				if (sizeBytes != 0 && sizeBytes != 4 && sizeBytes != 8) throw new IOException("HuffmanCodec: Unsupported table");
+				int entrySize = 1 + (freqDepth / 8);
+				theadTarget = TABLE_HEADER_SIZE + sizeBytes + (nEntries * entrySize);
+				if (theadTarget > TABLE_HEADER_SIZE) return;
+			}
+
+			buildTree();
+			inTable = false;
+		}
+
+		private void flushBytes(ByteBuffer out)
+		{
+			if (olen > 0) emit(out, obytes, 0, olen);
+			olen = 0;
+		}
+
+		protected void processInput(ByteBuffer in, ByteBuffer out) throws IOException
+		{
+			while (in.hasRemaining() && !holding())
+			{
+				if (inTable)
+				{
+					collectTable(in);
+					continue;
+				}
+				int n = node;
+				boolean eof = false;
+				while (in.hasRemaining() && olen < obytes.length - 8)
+				{
+					int b = Byte.toUnsignedInt(in.get());
+					for (int bit = 7; bit >= 0; bit--)
+					{
+						n = (((b >>> bit) & 0x1) != 0) ? right[n] : left[n];
+						if (n < 0) throw new IOException("HuffmanCodec: Invalid code");
+						int l = leaf[n];
+						if (l >= 0)
+						{
+							n = 0;
+							if (l == EOF_LEAF)
+							{
+								/*Rest of this byte is padding*/
+								eof = true;
+								break;
+							}
+							obytes[olen++] = (byte)l;
+						}
+					}
+					if (eof) break;
+				}
+				node = n;
+				flushBytes(out);
+				if (eof)
+				{
+					inTable = true;
+					theadLen = 0;
+					theadTarget = TABLE_HEADER_SIZE;
+				}
+			}
+		}
+
+		protected boolean finishInput(ByteBuffer out) throws IOException
+		{
+			flushBytes(out);
+			return true;
+		}
+
+		protected void resetState()
+		{
+			inTable = true;
+			theadLen = 0;
+			theadTarget = TABLE_HEADER_SIZE;
+			node = 0;
+			olen = 0;
+		}
+	}
+
+}
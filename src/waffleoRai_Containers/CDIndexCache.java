@@ -0,0 +1,517 @@
+package waffleoRai_Containers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+
+import waffleoRai_Containers.CDTable.CDInvalidRecordException;
+import waffleoRai_Containers.ISO9660Table.ISO9660Entry;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
+import waffleoRai_Containers.XATable.XAEntry;
+import waffleoRai_Containers.XATable.XASectorHeader;
+import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.FileBuffer.UnsupportedFileTypeException;
+
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Cache misses can report parse progress (setMonitor)
+ */
+
+/**
+ * Saves the parsed structure of CD images so that opening the same image again doesn't
+ * need to re-read the volume descriptor, walk the directory records or scan XA subheaders.
+ * <br>An index holds the volume information, every table entry (start sector, size, flags,
+ * XA attributes), the recorded XA subheaders, and the table's sector range. The directory tree is
+ * rebuilt from the entries' full paths. On load the index is memory mapped and the image is opened
+ * in lazy mode, so no sectors are parsed at all.
+ * <br>Indices are keyed by absolute image path, size, modification time and a hash of a handful of
+ * samples spread across the image. If any of these don't match, the index is stale and the image is
+ * parsed (and the index rewritten) as usual.
+ * <br>Indices are kept in a cache directory (one file per image, named from a hash of its path),
+ * or as a sidecar file next to the image if no directory is set.
+ * @author Blythe Hospelhorn
+ * @version 1.1.0
+ * @since October 19, 2026
+ */
+public class CDIndexCache {
+
+	/* ----- Constants ----- */
+
+	public static final String MAGIC = "CDIX";
+	public static final int FORMAT_VERSION = 1;
+	public static final String EXTENSION = ".cdidx";
+
+	public static final int HASH_SAMPLES = 64;
+	public static final int HASH_SAMPLE_SIZE = 4096;
+
+	public static final int TYPE_ISO9660 = 0;
+	public static final int TYPE_XA = 1;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private static final int EFLAG_DIR = 0x01;
+	private static final int EFLAG_RAW = 0x02;
+	private static final int EFLAG_DATE = 0x04;
+	private static final int EFLAG_XA = 0x08;
+
+	/* ----- Instance Variables ----- */
+
+	private File cacheDir;
+	private ProgressMonitor monitor;
+
+	private int hits;
+	private int misses;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Create a cache that writes indices as sidecar files next to their images.
+	 */
+	public CDIndexCache()
+	{
+		cacheDir = null;
+	}
+
+	/**
+	 * Create a cache that keeps its indices in a directory.
+	 * @param dir Cache directory. Created when the first index is written.
+	 * Null to use sidecar files.
+	 */
+	public CDIndexCache(String dir)
+	{
+		if (dir != null) cacheDir = new File(dir);
+	}
+
+	/* ----- Settings ----- */
+
+	/**
+	 * Set a monitor to report progress to and check for cancellation when an image
+	 * has to be parsed. Index loads are too quick to report.
+	 * @param mon Monitor, or null for none.
+	 */
+	public void setMonitor(ProgressMonitor mon)
+	{
+		monitor = mon;
+	}
+
+	/* ----- Getters ----- */
+
+	/**
+	 * @return Number of opens that were served from an index.
+	 */
+	public int getHitCount()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return Number of opens that had to parse the image.
+	 */
+	public int getMissCount()
+	{
+		return misses;
+	}
+
+	/**
+	 * Get the path of the index file for an image.
+	 * @param imagePath Path to image.
+	 * @return Index path, whether or not it exists.
+	 */
+	public String getIndexPath(String imagePath)
+	{
+		String abs = new File(imagePath).getAbsolutePath();
+		if (cacheDir == null) return abs + EXTENSION;
+		long h = FNV_OFFSET;
+		byte[] b = abs.getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < b.length; i++)
+		{
+			h ^= (b[i] & 0xFF);
+			h *= FNV_PRIME;
+		}
+		return new File(cacheDir, String.format("%016x", h) + EXTENSION).getAbsolutePath();
+	}
+
+	/* ----- Key ----- */
+
+	/**
+	 * Hash a fixed number of evenly spaced samples of a file, plus its size.
+	 * The first and last blocks are always included. Cost doesn't depend on file size.
+	 * @param path File to hash.
+	 * @return 64-bit FNV-1a hash of the samples.
+	 * @throws IOException If the file can't be read.
+	 */
+	public static long sampleHash(String path) throws IOException
+	{
+		FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try
+		{
+			long size = ch.size();
+			long h = FNV_OFFSET;
+			for (int i = 0; i < 8; i++)
+			{
+				h ^= (size >>> (i << 3)) & 0xFF;
+				h *= FNV_PRIME;
+			}
+
+			ByteBuffer buff = ByteBuffer.allocate(HASH_SAMPLE_SIZE);
+			byte[] arr = buff.array();
+			long span = size - HASH_SAMPLE_SIZE;
+			int n = HASH_SAMPLES;
+			if (span <= 0) n = 1;
+			for (int i = 0; i < n; i++)
+			{
+				long pos = (n == 1) ? 0 : (span / (n - 1)) * i;
+				if (i == n - 1 && n > 1) pos = span;
+				buff.clear();
+				while (buff.hasRemaining())
+				{
+					if (ch.read(buff, pos + buff.position()) < 0) break;
+				}
+				int len = buff.position();
+				for (int j = 0; j < len; j++)
+				{
+					h ^= (arr[j] & 0xFF);
+					h *= FNV_PRIME;
+				}
+			}
+			return h;
+		}
+		finally
+		{
+			ch.close();
+		}
+	}
+
+	/* ----- Serialization ----- */
+
+	private static void writeString(DataOutputStream out, String s) throws IOException
+	{
+		if (s == null) s = "";
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(b.length);
+		out.write(b);
+	}
+
+	private static String readString(ByteBuffer in)
+	{
+		int len = Short.toUnsignedInt(in.getShort());
+		byte[] b = new byte[len];
+		in.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	private static void writeEntry(DataOutputStream out, ISO9660Entry e) throws IOException
+	{
+		int flags = 0;
+		if (e.isDirectory()) flags |= EFLAG_DIR;
+		if (e.isRawFile()) flags |= EFLAG_RAW;
+		Calendar date = e.getDate();
+		if (date != null) flags |= EFLAG_DATE;
+		if (e instanceof XAEntry) flags |= EFLAG_XA;
+
+		out.writeByte(flags);
+		writeString(out, e.getName());
+		out.writeInt(e.getStartBlock());
+		out.writeLong(e.getFileSize());
+		out.writeShort(e.getVolumeSequenceNumber());
+		if (date != null)
+		{
+			out.writeLong(date.getTimeInMillis());
+			writeString(out, date.getTimeZone().getID());
+		}
+		if (e instanceof XAEntry)
+		{
+			XAEntry x = (XAEntry)e;
+			out.writeShort(x.getOwnerGroupID());
+			out.writeShort(x.getOwnerUserID());
+			int attr = 0;
+			if (x.ownerRead()) attr |= 0x001;
+			if (x.ownerExecute()) attr |= 0x002;
+			if (x.groupRead()) attr |= 0x004;
+			if (x.groupExecute()) attr |= 0x008;
+			if (x.AllRead()) attr |= 0x010;
+			if (x.AllExecute()) attr |= 0x020;
+			if (x.isMode2()) attr |= 0x040;
+			if (x.isForm2()) attr |= 0x080;
+			if (x.isInterleaved()) attr |= 0x100;
+			if (x.isCDDA()) attr |= 0x200;
+			if (x.isDirectory()) attr |= 0x400;
+			out.writeShort(attr);
+			out.writeByte(x.getFileNumber());
+		}
+	}
+
+	private static ISO9660Entry readEntry(ByteBuffer in)
+	{
+		int flags = Byte.toUnsignedInt(in.get());
+		String name = readString(in);
+		int start = in.getInt();
+		ISO9660Entry e = null;
+		XAEntry x = null;
+		if ((flags & EFLAG_XA) != 0)
+		{
+			x = new XAEntry(name, start);
+			e = x;
+		}
+		else e = new ISO9660Entry(name, start);
+		e.setName(name);
+		e.setFileSize(in.getLong());
+		e.setVolumeSequenceNumber(Short.toUnsignedInt(in.getShort()));
+		e.setIsDirectory((flags & EFLAG_DIR) != 0);
+		e.setRawFile((flags & EFLAG_RAW) != 0);
+		if ((flags & EFLAG_DATE) != 0)
+		{
+			long millis = in.getLong();
+			GregorianCalendar c = FileBuffer.getVanillaTimestamp();
+			c.setTimeZone(TimeZone.getTimeZone(readString(in)));
+			c.setTimeInMillis(millis);
+			e.setDate(c);
+		}
+		if (x != null)
+		{
+			x.setOwnerGroupID(Short.toUnsignedInt(in.getShort()));
+			x.setOwnerUserID(Short.toUnsignedInt(in.getShort()));
+			int attr = Short.toUnsignedInt(in.getShort());
+			x.setOwnerRead((attr & 0x001) != 0);
+			x.setOwnerExecute((attr & 0x002) != 0);
+			x.setGroupRead((attr & 0x004) != 0);
+			x.setGroupExecute((attr & 0x008) != 0);
+			x.setAllRead((attr & 0x010) != 0);
+			x.setAllExecute((attr & 0x020) != 0);
+			x.setMode2((attr & 0x040) != 0);
+			x.setForm2((attr & 0x080) != 0);
+			x.setInterleaved((attr & 0x100) != 0);
+			x.setCDDA((attr & 0x200) != 0);
+			x.setDirectory((attr & 0x400) != 0);
+			x.setFileNumber(Byte.toUnsignedInt(in.get()));
+		}
+		return e;
+	}
+
+	/**
+	 * Write an index for a parsed image.
+	 * @param imagePath Path of the image file the image was parsed from.
+	 * @param img Parsed image.
+	 * @throws IOException If the image can't be hashed or the index can't be written.
+	 */
+	public void writeIndex(String imagePath, ISO9660Image img) throws IOException
+	{
+		File f = new File(imagePath);
+		String idxPath = getIndexPath(imagePath);
+		File idx = new File(idxPath);
+		File parent = idx.getParentFile();
+		if (parent != null && !parent.exists())
+		{
+			if (!parent.mkdirs()) throw new IOException("CDIndexCache: Could not create " + parent.getPath());
+		}
+
+		ISO9660Table t = img.getTable();
+		boolean xa = (img instanceof ISOXAImage);
+		//Write to a temp file and move over, so a reader never sees half an index
+		File tmp = new File(idxPath + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try
+		{
+			out.write(MAGIC.getBytes(StandardCharsets.US_ASCII));
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, f.getAbsolutePath());
+			out.writeLong(f.length());
+			out.writeLong(f.lastModified());
+			out.writeLong(sampleHash(imagePath));
+
+			out.writeByte(xa ? TYPE_XA : TYPE_ISO9660);
+			out.writeInt(t.getFirstSectorIndex());
+			out.writeInt(t.getNumberSectors());
+
+			//In start sector order, so the table's sector index is rebuilt pre-sorted
+			List<ISO9660Entry> entries = t.getSectorMap();
+			out.writeInt(entries.size());
+			for (ISO9660Entry e : entries) writeEntry(out, e);
+
+			if (xa)
+			{
+				Map<Integer, XASectorHeader> shmap = ((XATable)t).getSubHeaderMap();
+				out.writeInt(shmap.size());
+				for (Entry<Integer, XASectorHeader> sh : shmap.entrySet())
+				{
+					out.writeInt(sh.getKey());
+					out.writeInt(sh.getValue().serialize());
+				}
+			}
+			img.writeInformation(out);
+		}
+		finally
+		{
+			out.close();
+		}
+		Files.move(tmp.toPath(), idx.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Load an image's structure from its index.
+	 * @param imagePath Path of the image file.
+	 * @param image Contents of the image file.
+	 * @return Image rebuilt from the index.
+	 * <br>null if there is no index for this image, or the index is stale or unreadable.
+	 */
+	public ISO9660Image loadIndex(String imagePath, FileBuffer image)
+	{
+		String idxPath = getIndexPath(imagePath);
+		File idx = new File(idxPath);
+		if (!idx.isFile()) return null;
+		File f = new File(imagePath);
+		try
+		{
+			MappedByteBuffer in;
+			FileChannel ch = FileChannel.open(idx.toPath(), StandardOpenOption.READ);
+			try
+			{
+				in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+			}
+			finally
+			{
+				ch.close();
+			}
+
+			//Key
+			byte[] magic = new byte[4];
+			in.get(magic);
+			if (!MAGIC.equals(new String(magic, StandardCharsets.US_ASCII))) return null;
+			if (in.getInt() != FORMAT_VERSION) return null;
+			if (!f.getAbsolutePath().equals(readString(in))) return null;
+			if (in.getLong() != f.length()) return null;
+			if (in.getLong() != f.lastModified()) return null;
+			if (in.getLong() != sampleHash(imagePath)) return null;
+
+			//Table
+			int type = Byte.toUnsignedInt(in.get());
+			int firstSec = in.getInt();
+			int nSecs = in.getInt();
+
+			ISO9660Table t = (type == TYPE_XA) ? new XATable() : new ISO9660Table();
+			t.setFirstSecIndex(firstSec);
+			t.setNumberSecs(nSecs);
+			int nEntries = in.getInt();
+			for (int i = 0; i < nEntries; i++)
+			{
+				ISO9660Entry e = readEntry(in);
+				t.addEntry(e, e.getName());
+			}
+			if (type == TYPE_XA)
+			{
+				XATable xt = (XATable)t;
+				int nsh = in.getInt();
+				for (int i = 0; i < nsh; i++)
+				{
+					int sec = in.getInt();
+					xt.addSubHeader(in.getInt(), sec);
+				}
+			}
+
+			//Image - lazy, so only the first sector is looked at
+			ISO iso = new ISO(image, false, true);
+			ISO9660Image img;
+			if (type == TYPE_XA) img = new ISOXAImage(iso, (XATable)t);
+			else img = new ISO9660Image(iso, t);
+			img.loadInformation(in);
+			return img;
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return null;
+		}
+		catch (RuntimeException e)
+		{
+			//Truncated or corrupt index - treat as a miss
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/* ----- Open ----- */
+
+	/**
+	 * Check whether a disc image has the XA signature in its primary volume descriptor.
+	 * @param iso Parsed image.
+	 * @return True if the image is ISO9660 with XA extensions.
+	 */
+	public static boolean isXA(ISO iso)
+	{
+		ISO.Sector pvd = iso.getSectorRelative(ISO9660Table.VOLDESCSEC);
+		if (pvd == null) return false;
+		FileBuffer dat = pvd.getData();
+		if (dat == null || dat.getFileSize() < 0x408) return false;
+		return "CD-XA001".equals(dat.getASCII_string(0x400, 8));
+	}
+
+	/**
+	 * Open a disc image, from its index if there is a valid one. Otherwise the image is
+	 * parsed and an index is written for next time.
+	 * @param imagePath Path to image file.
+	 * @return Parsed image - an ISOXAImage if the volume is XA, an ISO9660Image otherwise.
+	 * @throws IOException If the image can't be read.
+	 * @throws CDInvalidRecordException If the image has to be parsed and a directory record is invalid.
+	 * @throws UnsupportedFileTypeException If the image has to be parsed and the volume descriptor is invalid.
+	 */
+	public ISO9660Image open(String imagePath) throws IOException, CDInvalidRecordException, UnsupportedFileTypeException
+	{
+		return open(imagePath, FileBuffer.createBuffer(imagePath));
+	}
+
+	/**
+	 * Open a disc image that has already been loaded, from its index if there is a valid one.
+	 * Otherwise the image is parsed and an index is written for next time.
+	 * @param imagePath Path to image file. Used to find and check the index.
+	 * @param image Contents of the image file.
+	 * @return Parsed image - an ISOXAImage if the volume is XA, an ISO9660Image otherwise.
+	 * @throws IOException If the image can't be read.
+	 * @throws CDInvalidRecordException If the image has to be parsed and a directory record is invalid.
+	 * @throws UnsupportedFileTypeException If the image has to be parsed and the volume descriptor is invalid.
+	 */
+	public ISO9660Image open(String imagePath, FileBuffer image) throws IOException, CDInvalidRecordException, UnsupportedFileTypeException
+	{
+		ISO9660Image img = loadIndex(imagePath, image);
+		if (img != null)
+		{
+			hits++;
+			return img;
+		}
+		misses++;
+
+		ISO iso = new ISO(image, false, true);
+		if (isXA(iso)) img = new ISOXAImage(iso, monitor);
+		else img = new ISO9660Image(iso, monitor);
+		iso.clearSectorCache();
+		try
+		{
+			writeIndex(imagePath, img);
+		}
+		catch (IOException e)
+		{
+			//Not being able to cache isn't fatal
+			e.printStackTrace();
+		}
+		return img;
+	}
+
+}
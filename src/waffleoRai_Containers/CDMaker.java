@@ -1,14 +1,1160 @@
 package waffleoRai_Containers;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import waffleoRai_Containers.ISO9660Table.ISO9660Entry;
+import waffleoRai_Containers.ISOProgressEvents.Phase;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
+import waffleoRai_Containers.XATable.XAEntry;
+
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Optional progress reporting and cancellation (setMonitor)
+ * 2026.10.19 | 1.1.0 -> 1.1.1
+ * 	Names that fit unchanged are assigned before collision suffixes, so a suffix can't take one
+ */
+
+/**
+ * Masters an ISO9660 image from a directory on disk.
+ * <br>The pipeline has three stages:
+ * <br>1. The directory tree is walked level by level, with the directories on each level
+ * listed and stat'd in parallel. Levels come out in path table order.
+ * <br>2. Sectors are allocated in one pass - descriptors, path tables, directory extents, then file
+ * data in directory order - and recorded in an ISO9660Table.
+ * <br>3. The image is written front to back. Metadata is generated in memory. File data is streamed.
+ * For FORMAT_ISO (Mode 1, 2048 byte sectors) it goes straight from each source file to the output
+ * with FileChannel.transferTo. For FORMAT_XA (Mode 2 Form 1, raw 2352 byte sectors) it is read
+ * into sector batches, and EDC/ECC is computed for each batch before it is written.
+ * <br>File and directory names are mapped to ISO9660 Level 2 identifiers (upper case d-characters,
+ * up to 30 characters for files and 31 for directories). Names that collide after mapping get a
+ * numbered suffix.
+ * @author Blythe Hospelhorn
+ * @version 1.1.1
+ * @since October 19, 2026
+ */
 public class CDMaker {
 
+	/* ----- Constants ----- */
+
+	public static final int FORMAT_ISO = 0; //Mode 1, data only (2048 bytes per sector)
+	public static final int FORMAT_XA = 1; //Mode 2 Form 1 XA, raw (2352 bytes per sector)
+
+	public static final int SYSTEM_AREA_SECTORS = 16;
+	public static final int DEFO_BATCH_SECTORS = 512;
+
+	private static final int MAX_FILE_IDENT = 30;
+	private static final int MAX_DIR_IDENT = 31;
+
+	private static final int RECORD_BASE_SIZE = 33;
+	private static final int XA_SYSUSE_SIZE = 14;
+	private static final int XA_ATTR_FILE = 0x0D55; //All read/execute, Mode 2 Form 1
+	private static final int XA_ATTR_DIR = 0x8D55;
+
+	private static final int SUBMODE_EOR = 0x01;
+	private static final int SUBMODE_DATA = 0x08;
+	private static final int SUBMODE_EOF = 0x80;
+
+	/* ----- Instance Variables ----- */
+
+	private int format;
+	private int walkThreads;
+	private int codingThreads;
+	private int batchSectors;
+
+	private String systemID;
+	private String volumeID;
+	private String publisherID;
+	private String preparerID;
+	private String applicationID;
+
+	private ProgressMonitor monitor;
+
+	//Results of last master()
+	private ISO9660Table table;
+	private int fileCount;
+	private int dirCount;
+	private int sectorCount;
+	private long walkTime;
+	private long layoutTime;
+	private long writeTime;
+
+	/* ----- Inner Classes ----- */
+
+	private static class Node
+	{
+		public File src;
+		public String ident; //ISO identifier as written to the disc (files include ";1")
+		public String path; //Path in the table
+		public boolean dir;
+		public long size;
+		public long modified;
+
+		public Node parent;
+		public List<Node> children;
+
+		public int dirNumber; //1 based path table index
+		public int sector;
+		public int sectors;
+
+		public ISO9660Entry entry;
+	}
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private String name;
+		private int count = 0;
+
+		public DaemonFactory(String threadName)
+		{
+			name = threadName;
+		}
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, name + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	private static class IdentComparator implements Comparator<Node>
+	{
+		public int compare(Node o1, Node o2)
+		{
+			return o1.ident.compareTo(o2.ident);
+		}
+	}
+
+	/**
+	 * Collects raw Mode 2 sectors into batches, fills in their error coding and writes them out.
+	 */
+	private class RawSink
+	{
+		private FileChannel out;
+		private ByteBuffer direct;
+		private byte[] batch;
+		private int count;
+		private int nextSector;
+		private ExecutorService pool;
+
+		public RawSink(FileChannel target, ExecutorService coders)
+		{
+			out = target;
+			pool = coders;
+			batch = new byte[batchSectors * ISO.SECSIZE];
+			direct = ByteBuffer.allocateDirect(batch.length);
+			count = 0;
+			nextSector = ISO.DEFO_FIRSTSEC;
+		}
+
+		public void put(byte[] data, int off, int len, int submode) throws IOException
+		{
+			int base = count * ISO.SECSIZE;
+			System.arraycopy(ISO.SYNC, 0, batch, base, ISO.SYNC.length);
+			batch[base + 0x0C] = ISO.getBCDminute(nextSector);
+			batch[base + 0x0D] = ISO.getBCDsecond(nextSector);
+			batch[base + 0x0E] = ISO.getBCDsector(nextSector);
+			batch[base + 0x0F] = 2;
+			for (int i = 0; i < 2; i++)
+			{
+				int sh = base + 0x10 + (i * 4);
+				batch[sh] = 0;
+				batch[sh + 1] = 0;
+				batch[sh + 2] = (byte)submode;
+				batch[sh + 3] = 0;
+			}
+			int dst = base + 0x18;
+			if (len > 0) System.arraycopy(data, off, batch, dst, len);
+			for (int i = len; i < ISO.F1SIZE; i++) batch[dst + i] = 0;
+			nextSector++;
+			count++;
+			if (count >= batchSectors) flush();
+		}
+
+		public void flush() throws IOException
+		{
+			if (count <= 0) return;
+			if (pool == null)
+			{
+				for (int i = 0; i < count; i++) CDSectorCoding.encodeMode2(batch, i * ISO.SECSIZE);
+			}
+			else
+			{
+				List<Future<?>> jobs = new LinkedList<Future<?>>();
+				int per = (count + codingThreads - 1) / codingThreads;
+				for (int st = 0; st < count; st += per)
+				{
+					final int a = st;
+					final int b = Math.min(count, st + per);
+					jobs.add(pool.submit(new Runnable(){
+						public void run()
+						{
+							for (int i = a; i < b; i++) CDSectorCoding.encodeMode2(batch, i * ISO.SECSIZE);
+						}
+					}));
+				}
+				waitAll(jobs);
+			}
+			direct.clear();
+			direct.put(batch, 0, count * ISO.SECSIZE);
+			direct.flip();
+			while (direct.hasRemaining()) out.write(direct);
+			count = 0;
+		}
+	}
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Create a mastering pipeline with default settings: FORMAT_ISO output, one walker thread
+	 * per processor and error coding on the writing thread.
+	 */
+	public CDMaker()
+	{
+		format = FORMAT_ISO;
+		walkThreads = Runtime.getRuntime().availableProcessors();
+		codingThreads = 0;
+		batchSectors = DEFO_BATCH_SECTORS;
+		systemID = "";
+		volumeID = null;
+		publisherID = "";
+		preparerID = "";
+		applicationID = "";
+	}
+
+	/* ----- Settings ----- */
+
+	/**
+	 * Set the output format.
+	 * @param f FORMAT_ISO for a Mode 1 data image, FORMAT_XA for a raw Mode 2/XA image.
+	 */
+	public void setFormat(int f)
+	{
+		if (f != FORMAT_ISO && f != FORMAT_XA) throw new IllegalArgumentException("Unknown format: " + f);
+		format = f;
+	}
+
+	/**
+	 * Set how many threads list and stat directories during the tree walk.
+	 * @param threads Number of walker threads. Values below 1 are treated as 1.
+	 */
+	public void setWalkThreads(int threads)
+	{
+		if (threads < 1) threads = 1;
+		walkThreads = threads;
+	}
+
+	/**
+	 * Set how many threads compute EDC/ECC for FORMAT_XA output.
+	 * @param threads Number of coding threads. 0 or less codes on the writing thread.
+	 */
+	public void setCodingThreads(int threads)
+	{
+		if (threads < 0) threads = 0;
+		codingThreads = threads;
+	}
+
+	/**
+	 * Set how many sectors are buffered before each write in FORMAT_XA output.
+	 * @param sectors Sectors per batch.
+	 */
+	public void setBatchSize(int sectors)
+	{
+		if (sectors < 1) sectors = 1;
+		if (sectors > 0x10000) sectors = 0x10000;
+		batchSectors = sectors;
+	}
+
+	/**
+	 * Set the volume identifier. If not set, the name of the input directory is used.
+	 * @param id Volume identifier. Mapped to d-characters and cut to 32 characters.
+	 */
+	public void setVolumeID(String id)
+	{
+		volumeID = id;
+	}
+
+	public void setSystemID(String id)
+	{
+		systemID = (id == null) ? "" : id;
+	}
+
+	public void setPublisherID(String id)
+	{
+		publisherID = (id == null) ? "" : id;
+	}
+
+	public void setDataPreparerID(String id)
+	{
+		preparerID = (id == null) ? "" : id;
+	}
+
+	public void setApplicationID(String id)
+	{
+		applicationID = (id == null) ? "" : id;
+	}
+
+	/**
+	 * Set a monitor to report progress to and check for cancellation during master().
+	 * Phases are MASTER_WALK (units are directories), MASTER_LAYOUT and MASTER_WRITE (units are sectors).
+	 * <br>If cancelled, master() throws a CancellationException and the partial output is left as is.
+	 * @param mon Monitor, or null for none.
+	 */
+	public void setMonitor(ProgressMonitor mon)
+	{
+		monitor = mon;
+	}
+
+	/* ----- Results ----- */
+
+	/**
+	 * Get the table describing the layout of the last mastered image.
+	 * @return Table (an XATable for FORMAT_XA), or null if nothing has been mastered.
+	 */
+	public ISO9660Table getTable()
+	{
+		return table;
+	}
+
+	public int getFileCount()
+	{
+		return fileCount;
+	}
+
+	public int getDirectoryCount()
+	{
+		return dirCount;
+	}
+
+	public int getSectorCount()
+	{
+		return sectorCount;
+	}
+
+	/**
+	 * @return Time in nanoseconds spent walking the input tree during the last master().
+	 */
+	public long getWalkTime()
+	{
+		return walkTime;
+	}
+
+	/**
+	 * @return Time in nanoseconds spent allocating sectors during the last master().
+	 */
+	public long getLayoutTime()
+	{
+		return layoutTime;
+	}
+
+	/**
+	 * @return Time in nanoseconds spent writing the image during the last master().
+	 */
+	public long getWriteTime()
+	{
+		return writeTime;
+	}
+
+	/* ----- Names ----- */
+
+	private static String dChars(String s, boolean allowDot)
+	{
+		StringBuilder sb = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = Character.toUpperCase(s.charAt(i));
+			if (ISO9660Entry.isValidCharacter(c) || (allowDot && c == '.')) sb.append(c);
+			else sb.append('_');
+		}
+		return sb.toString();
+	}
+
+	private static String fileIdent(String name, String suffix)
+	{
+		String stem = name;
+		String ext = "";
+		int dot = name.lastIndexOf('.');
+		if (dot >= 0)
+		{
+			stem = name.substring(0, dot);
+			ext = name.substring(dot + 1);
+		}
+		stem = dChars(stem, false);
+		ext = dChars(ext, false);
+		if (ext.length() > 8) ext = ext.substring(0, 8);
+		int max = MAX_FILE_IDENT - 1 - ext.length() - suffix.length();
+		if (stem.length() > max) stem = stem.substring(0, max);
+		if (stem.isEmpty() && ext.isEmpty() && suffix.isEmpty()) stem = "_";
+		return stem + suffix + "." + ext;
+	}
+
+	private static String dirIdent(String name, String suffix)
+	{
+		String s = dChars(name, false);
+		int max = MAX_DIR_IDENT - suffix.length();
+		if (s.length() > max) s = s.substring(0, max);
+		if (s.isEmpty() && suffix.isEmpty()) s = "_";
+		return s + suffix;
+	}
+
+	/* 0 - identifier is the host name in upper case
+	 * 1 - identifier is the whole host name, but with characters replaced
+	 * 2 - host name had to be truncated */
+	private static int identRank(String name, boolean dir)
+	{
+		if (dir)
+		{
+			if (name.isEmpty() || name.length() > MAX_DIR_IDENT) return 2;
+			return dChars(name, false).equals(name.toUpperCase()) ? 0 : 1;
+		}
+		String stem = name;
+		String ext = "";
+		int dot = name.lastIndexOf('.');
+		if (dot >= 0)
+		{
+			stem = name.substring(0, dot);
+			ext = name.substring(dot + 1);
+		}
+		if (stem.isEmpty() && ext.isEmpty()) return 2;
+		if (ext.length() > 8 || stem.length() + 1 + ext.length() > MAX_FILE_IDENT) return 2;
+		if (!dChars(stem, false).equals(stem.toUpperCase())) return 1;
+		if (!dChars(ext, false).equals(ext.toUpperCase())) return 1;
+		return 0;
+	}
+
+	private static String uniqueIdent(String name, boolean dir, Set<String> used, Map<String, Integer> nextSuffix)
+	{
+		String base = dir ? dirIdent(name, "") : fileIdent(name, "");
+		if (used.add(base)) return base;
+
+		//Suffixes for the same base pick up where the last one left off
+		Integer next = nextSuffix.get(base);
+		int n = (next == null) ? 1 : next;
+		String id = null;
+		do
+		{
+			String suf = "_" + (n++);
+			id = dir ? dirIdent(name, suf) : fileIdent(name, suf);
+		}
+		while (!used.add(id));
+		nextSuffix.put(base, n);
+		return id;
+	}
+
+	private static String padTo(String s, int len)
+	{
+		if (s == null) s = "";
+		s = dChars(s, true);
+		if (s.length() > len) return s.substring(0, len);
+		StringBuilder sb = new StringBuilder(len);
+		sb.append(s);
+		while (sb.length() < len) sb.append(' ');
+		return sb.toString();
+	}
+
+	/* ----- Walk ----- */
+
+	private static void waitAll(List<Future<?>> jobs) throws IOException
+	{
+		for (Future<?> f : jobs)
+		{
+			try
+			{
+				f.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("CDMaker: Interrupted", e);
+			}
+			catch (ExecutionException e)
+			{
+				throw new IOException("CDMaker: Worker failed", e.getCause());
+			}
+		}
+	}
+
+	private static void listDirectory(Node d)
+	{
+		File[] list = d.src.listFiles();
+		d.children = new ArrayList<Node>((list == null) ? 0 : list.length);
+		if (list == null) return;
+
+		//Names that fit unchanged are assigned first so a collision suffix can never take one.
+		//Then names that only had characters replaced, then truncated names.
+		//Host name order within each group keeps the suffixes the same every run.
+		String[] names = new String[list.length];
+		final int[] ranks = new int[list.length];
+		boolean[] isDir = new boolean[list.length];
+		List<Integer> order = new ArrayList<Integer>(list.length);
+		for (int i = 0; i < list.length; i++)
+		{
+			File f = list[i];
+			if (f.isDirectory()) isDir[i] = true;
+			else if (!f.isFile()) continue; //Broken links, devices etc.
+			names[i] = f.getName();
+			ranks[i] = identRank(names[i], isDir[i]);
+			order.add(i);
+		}
+		final String[] fnames = names;
+		Collections.sort(order, new Comparator<Integer>(){
+			public int compare(Integer o1, Integer o2)
+			{
+				if (ranks[o1] != ranks[o2]) return ranks[o1] - ranks[o2];
+				return fnames[o1].compareTo(fnames[o2]);
+			}
+		});
+
+		Set<String> used = new HashSet<String>();
+		Map<String, Integer> nextSuffix = new HashMap<String, Integer>();
+		for (Integer i : order)
+		{
+			File f = list[i];
+			Node n = new Node();
+			n.src = f;
+			n.parent = d;
+			n.dir = isDir[i];
+			if (!n.dir) n.size = f.length();
+			n.ident = uniqueIdent(names[i], n.dir, used, nextSuffix);
+			n.modified = f.lastModified();
+			if (d.path.isEmpty()) n.path = n.ident;
+			else n.path = d.path + "\\" + n.ident;
+			if (!n.dir) n.ident += ";1";
+			d.children.add(n);
+		}
+		Collections.sort(d.children, new IdentComparator());
+	}
+
+	/* Returns directories in path table order (breadth first, by parent, then by name) */
+	private List<Node> walk(File rootDir) throws IOException
+	{
+		Node root = new Node();
+		root.src = rootDir;
+		root.dir = true;
+		root.ident = "";
+		root.path = "";
+		root.parent = root;
+		root.modified = rootDir.lastModified();
+
+		List<Node> dirs = new ArrayList<Node>();
+		List<Node> level = new ArrayList<Node>();
+		level.add(root);
+		dirs.add(root);
+
+		ExecutorService pool = Executors.newFixedThreadPool(walkThreads, new DaemonFactory("CDMaker.Walker"));
+		try
+		{
+			while (!level.isEmpty())
+			{
+				List<Future<?>> jobs = new LinkedList<Future<?>>();
+				for (final Node d : level)
+				{
+					jobs.add(pool.submit(new Runnable(){
+						public void run()
+						{
+							listDirectory(d);
+						}
+					}));
+				}
+				waitAll(jobs);
+				if (monitor != null) monitor.step(level.size());
+
+				List<Node> next = new ArrayList<Node>();
+				for (Node d : level)
+				{
+					for (Node c : d.children)
+					{
+						if (c.dir) next.add(c);
+					}
+				}
+				dirs.addAll(next);
+				level = next;
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+
+		for (int i = 0; i < dirs.size(); i++) dirs.get(i).dirNumber = i + 1;
+		return dirs;
+	}
+
+	/* ----- Layout ----- */
+
+	private static int sectorsFor(long bytes)
+	{
+		long s = (bytes + ISO.F1SIZE - 1) / ISO.F1SIZE;
+		if (s > Integer.MAX_VALUE) throw new IllegalArgumentException("Extent too large");
+		return (int)s;
+	}
+
+	private int recordSize(int identLen)
+	{
+		int sz = RECORD_BASE_SIZE + identLen;
+		if ((identLen & 0x1) == 0) sz++;
+		if (format == FORMAT_XA) sz += XA_SYSUSE_SIZE;
+		return sz;
+	}
+
+	private int directorySectors(Node d)
+	{
+		int secs = 1;
+		int pos = 2 * recordSize(1); // "." and ".."
+		for (Node c : d.children)
+		{
+			int sz = recordSize(c.ident.length());
+			if (pos + sz > ISO.F1SIZE)
+			{
+				secs++;
+				pos = 0;
+			}
+			pos += sz;
+		}
+		return secs;
+	}
+
+	private static int pathTableSize(List<Node> dirs)
+	{
+		int sz = 0;
+		for (Node d : dirs)
+		{
+			int len = d.ident.isEmpty() ? 1 : d.ident.length();
+			sz += 8 + len + (len & 0x1);
+		}
+		return sz;
+	}
+
+	private ISO9660Entry newEntry(Node n)
+	{
+		ISO9660Entry e;
+		if (format == FORMAT_XA)
+		{
+			XAEntry xe = new XAEntry(n.path, n.sector);
+			xe.setMode2(true);
+			xe.setDirectory(n.dir);
+			e = xe;
+		}
+		else e = new ISO9660Entry(n.path, n.sector);
+		e.setIsDirectory(n.dir);
+		e.setFileSize(n.dir ? (long)n.sectors * ISO.F1SIZE : n.size);
+		e.setVolumeSequenceNumber(1);
+		GregorianCalendar c = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		c.setTimeInMillis(n.modified);
+		e.setDate(c);
+		return e;
+	}
+
+	private void claim(Node n)
+	{
+		if (n.sectors > 0 && !table.isSectorFree(n.sector)) throw new IllegalStateException("Sector " + n.sector + " allocated twice");
+		n.entry = newEntry(n);
+		if (!n.path.isEmpty()) table.addEntry(n.entry, n.path);
+	}
+
+	private void reserve(String name, int sector, int count)
+	{
+		ISO9660Entry e = new ISO9660Entry(name, sector);
+		e.setFileSize((long)count * ISO.F1SIZE);
+		e.setRawFile(true);
+		table.addEntry(e, name);
+	}
+
+	/* Returns {L path table sector, M path table sector, path table size, first file sector} */
+	private int[] layout(List<Node> dirs)
+	{
+		table = (format == FORMAT_XA) ? new XATable() : new ISO9660Table();
+		table.setFirstSecIndex((format == FORMAT_XA) ? ISO.DEFO_FIRSTSEC : 0);
+		fileCount = 0;
+
+		//System area and volume descriptors (PVD + terminator)
+		int cur = 0;
+		reserve(".RAW0", cur, ISO9660Table.VOLDESCSEC + 2);
+		cur += ISO9660Table.VOLDESCSEC + 2;
+
+		int ptSize = pathTableSize(dirs);
+		int ptSecs = sectorsFor(ptSize);
+		int lpt = cur;
+		reserve(".RAW" + cur, cur, ptSecs * 2);
+		cur += ptSecs;
+		int mpt = cur;
+		cur += ptSecs;
+
+		for (Node d : dirs)
+		{
+			d.sectors = directorySectors(d);
+			d.sector = cur;
+			claim(d);
+			cur += d.sectors;
+		}
+		int firstFile = cur;
+
+		//File data in directory order, so writing reads the source tree in the order it was walked
+		for (Node d : dirs)
+		{
+			for (Node c : d.children)
+			{
+				if (c.dir) continue;
+				if (c.size > 0xFFFFFFFFL) throw new IllegalArgumentException("File too large for ISO9660: " + c.src.getPath());
+				c.sectors = sectorsFor(c.size);
+				c.sector = cur;
+				claim(c);
+				fileCount++;
+				cur += c.sectors;
+				if (cur < 0) throw new IllegalArgumentException("Image too large");
+			}
+		}
+		table.setNumberSecs(cur);
+		return new int[]{lpt, mpt, ptSize, firstFile};
+	}
+
+	/* ----- Metadata ----- */
+
+	private static void putBoth16(ByteBuffer bb, int v)
+	{
+		bb.order(ByteOrder.LITTLE_ENDIAN).putShort((short)v);
+		bb.order(ByteOrder.BIG_ENDIAN).putShort((short)v);
+	}
+
+	private static void putBoth32(ByteBuffer bb, int v)
+	{
+		bb.order(ByteOrder.LITTLE_ENDIAN).putInt(v);
+		bb.order(ByteOrder.BIG_ENDIAN).putInt(v);
+	}
+
+	private static void putASCII(ByteBuffer bb, String s)
+	{
+		bb.put(s.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static void putRecordDate(ByteBuffer bb, long millis)
+	{
+		GregorianCalendar c = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		c.setTimeInMillis(millis);
+		bb.put((byte)(c.get(Calendar.YEAR) - 1900));
+		bb.put((byte)(c.get(Calendar.MONTH) + 1));
+		bb.put((byte)c.get(Calendar.DAY_OF_MONTH));
+		bb.put((byte)c.get(Calendar.HOUR_OF_DAY));
+		bb.put((byte)c.get(Calendar.MINUTE));
+		bb.put((byte)c.get(Calendar.SECOND));
+		bb.put((byte)0); //UTC
+	}
+
+	private static void putVolumeDate(ByteBuffer bb, long millis)
+	{
+		if (millis < 0)
+		{
+			putASCII(bb, "0000000000000000");
+			bb.put((byte)0);
+			return;
+		}
+		GregorianCalendar c = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+		c.setTimeInMillis(millis);
+		putASCII(bb, String.format("%04d%02d%02d%02d%02d%02d%02d", c.get(Calendar.YEAR), c.get(Calendar.MONTH) + 1,
+				c.get(Calendar.DAY_OF_MONTH), c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE),
+				c.get(Calendar.SECOND), c.get(Calendar.MILLISECOND) / 10));
+		bb.put((byte)0);
+	}
+
+	private void putRecord(ByteBuffer bb, Node target, byte[] ident)
+	{
+		int start = bb.position();
+		int len = recordSize(ident.length);
+		bb.put((byte)len);
+		bb.put((byte)0);
+		putBoth32(bb, target.sector);
+		putBoth32(bb, target.dir ? target.sectors * ISO.F1SIZE : (int)target.size);
+		putRecordDate(bb, target.modified);
+		bb.put((byte)(target.dir ? 0x02 : 0x00));
+		bb.put((byte)0);
+		bb.put((byte)0);
+		putBoth16(bb, 1);
+		bb.put((byte)ident.length);
+		bb.put(ident);
+		if ((ident.length & 0x1) == 0) bb.put((byte)0);
+		if (format == FORMAT_XA)
+		{
+			bb.order(ByteOrder.BIG_ENDIAN);
+			bb.putShort((short)0); //Group ID
+			bb.putShort((short)0); //User ID
+			bb.putShort((short)(target.dir ? XA_ATTR_DIR : XA_ATTR_FILE));
+			bb.put((byte)'X');
+			bb.put((byte)'A');
+			bb.put((byte)0); //File number
+			for (int i = 0; i < 5; i++) bb.put((byte)0);
+		}
+		bb.position(start + len);
+	}
+
+	private void writeDirectory(byte[] meta, Node d)
+	{
+		ByteBuffer bb = ByteBuffer.wrap(meta, d.sector * ISO.F1SIZE, d.sectors * ISO.F1SIZE);
+		int secEnd = bb.position() + ISO.F1SIZE;
+		putRecord(bb, d, new byte[]{0});
+		putRecord(bb, d.parent, new byte[]{1});
+		for (Node c : d.children)
+		{
+			byte[] id = c.ident.getBytes(StandardCharsets.US_ASCII);
+			if (bb.position() + recordSize(id.length) > secEnd)
+			{
+				//Records don't cross sector boundaries
+				bb.position(secEnd);
+				secEnd += ISO.F1SIZE;
+			}
+			putRecord(bb, c, id);
+		}
+	}
+
+	private static void writePathTable(byte[] meta, int sector, List<Node> dirs, ByteOrder order)
+	{
+		ByteBuffer bb = ByteBuffer.wrap(meta, sector * ISO.F1SIZE, meta.length - (sector * ISO.F1SIZE));
+		bb.order(order);
+		for (Node d : dirs)
+		{
+			byte[] id = d.ident.isEmpty() ? new byte[]{0} : d.ident.getBytes(StandardCharsets.US_ASCII);
+			bb.put((byte)id.length);
+			bb.put((byte)0);
+			bb.putInt(d.sector);
+			bb.putShort((short)d.parent.dirNumber);
+			bb.put(id);
+			if ((id.length & 0x1) != 0) bb.put((byte)0);
+		}
+	}
+
+	private void writeVolumeDescriptors(byte[] meta, Node root, String vid, int[] lay, int totalSectors)
+	{
+		long now = System.currentTimeMillis();
+		ByteBuffer bb = ByteBuffer.wrap(meta, ISO9660Table.VOLDESCSEC * ISO.F1SIZE, ISO.F1SIZE);
+		bb.put((byte)1);
+		putASCII(bb, "CD001");
+		bb.put((byte)1);
+		bb.put((byte)0);
+		putASCII(bb, padTo(systemID, 32));
+		putASCII(bb, padTo(vid, 32));
+		bb.position(bb.position() + 8);
+		putBoth32(bb, totalSectors);
+		bb.position(bb.position() + 32);
+		putBoth16(bb, 1); //Volume set size
+		putBoth16(bb, 1); //Volume sequence number
+		putBoth16(bb, ISO.F1SIZE);
+		putBoth32(bb, lay[2]);
+		bb.order(ByteOrder.LITTLE_ENDIAN).putInt(lay[0]);
+		bb.putInt(0);
+		bb.order(ByteOrder.BIG_ENDIAN).putInt(lay[1]);
+		bb.putInt(0);
+
+		//Root record is always 34 bytes here - no system use field
+		int rstart = bb.position();
+		bb.put((byte)34);
+		bb.put((byte)0);
+		putBoth32(bb, root.sector);
+		putBoth32(bb, root.sectors * ISO.F1SIZE);
+		putRecordDate(bb, root.modified);
+		bb.put((byte)0x02);
+		bb.put((byte)0);
+		bb.put((byte)0);
+		putBoth16(bb, 1);
+		bb.put((byte)1);
+		bb.put((byte)0);
+		bb.position(rstart + 34);
+
+		putASCII(bb, padTo(vid, 128)); //Volume set
+		putASCII(bb, padTo(publisherID, 128));
+		putASCII(bb, padTo(preparerID, 128));
+		putASCII(bb, padTo(applicationID, 128));
+		putASCII(bb, padTo("", 37 * 3));
+		putVolumeDate(bb, now); //Created
+		putVolumeDate(bb, now); //Modified
+		putVolumeDate(bb, -1); //Expires
+		putVolumeDate(bb, -1); //Effective
+		bb.put((byte)1);
+		if (format == FORMAT_XA)
+		{
+			bb.position((ISO9660Table.VOLDESCSEC * ISO.F1SIZE) + 0x400);
+			putASCII(bb, "CD-XA001");
+		}
+
+		//Terminator
+		bb = ByteBuffer.wrap(meta, (ISO9660Table.VOLDESCSEC + 1) * ISO.F1SIZE, ISO.F1SIZE);
+		bb.put((byte)0xFF);
+		putASCII(bb, "CD001");
+		bb.put((byte)1);
+	}
+
+	/* ----- Output ----- */
+
+	private static FileChannel openOutput(String path) throws IOException
+	{
+		File parent = new File(path).getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists())
+		{
+			if (!parent.mkdirs()) throw new IOException("Could not create " + parent.getPath());
+		}
+		return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	private static void writeZeros(FileChannel out, ByteBuffer zeros, long amt) throws IOException
+	{
+		while (amt > 0)
+		{
+			zeros.clear();
+			if (amt < zeros.capacity()) zeros.limit((int)amt);
+			amt -= zeros.remaining();
+			while (zeros.hasRemaining()) out.write(zeros);
+		}
+	}
+
+	private void writeCooked(FileChannel out, byte[] meta, List<Node> dirs) throws IOException
+	{
+		ByteBuffer bb = ByteBuffer.wrap(meta);
+		while (bb.hasRemaining()) out.write(bb);
+
+		ByteBuffer zeros = ByteBuffer.allocateDirect(ISO.F1SIZE * 16);
+		for (Node d : dirs)
+		{
+			for (Node c : d.children)
+			{
+				if (c.dir) continue;
+				long extent = (long)c.sectors * ISO.F1SIZE;
+				long done = 0;
+				if (c.size > 0)
+				{
+					FileChannel in = FileChannel.open(c.src.toPath(), StandardOpenOption.READ);
+					try
+					{
+						while (done < c.size)
+						{
+							long n = in.transferTo(done, c.size - done, out);
+							if (n <= 0) break; //File shrank since the walk
+							done += n;
+						}
+					}
+					finally
+					{
+						in.close();
+					}
+				}
+				writeZeros(out, zeros, extent - done);
+				if (monitor != null) monitor.step(c.sectors);
+			}
+		}
+	}
+
+	private static void putExtent(RawSink sink, byte[] data, int off, int len, int lastFlags) throws IOException
+	{
+		int nsec = sectorsFor(len);
+		for (int i = 0; i < nsec; i++)
+		{
+			int p = off + (i * ISO.F1SIZE);
+			int amt = Math.min(ISO.F1SIZE, (off + len) - p);
+			int sm = SUBMODE_DATA;
+			if (i == nsec - 1) sm |= lastFlags;
+			sink.put(data, p, amt, sm);
+		}
+	}
+
+	private void writeRaw(FileChannel out, byte[] meta, List<Node> dirs, int[] lay) throws IOException
+	{
+		ExecutorService pool = null;
+		if (codingThreads > 0) pool = Executors.newFixedThreadPool(codingThreads, new DaemonFactory("CDMaker.Coder"));
+		try
+		{
+			RawSink sink = new RawSink(out, pool);
+
+			//System area, descriptors, path tables
+			for (int s = 0; s < SYSTEM_AREA_SECTORS; s++) sink.put(meta, s * ISO.F1SIZE, ISO.F1SIZE, 0);
+			sink.put(meta, ISO9660Table.VOLDESCSEC * ISO.F1SIZE, ISO.F1SIZE, SUBMODE_DATA);
+			sink.put(meta, (ISO9660Table.VOLDESCSEC + 1) * ISO.F1SIZE, ISO.F1SIZE, SUBMODE_DATA | SUBMODE_EOR | SUBMODE_EOF);
+			int ptSecs = lay[1] - lay[0];
+			putExtent(sink, meta, lay[0] * ISO.F1SIZE, ptSecs * ISO.F1SIZE, SUBMODE_EOR);
+			putExtent(sink, meta, lay[1] * ISO.F1SIZE, ptSecs * ISO.F1SIZE, SUBMODE_EOR);
+
+			for (Node d : dirs)
+			{
+				putExtent(sink, meta, d.sector * ISO.F1SIZE, d.sectors * ISO.F1SIZE, SUBMODE_EOR | SUBMODE_EOF);
+			}
+
+			byte[] buff = new byte[ISO.F1SIZE * 64];
+			ByteBuffer bb = ByteBuffer.wrap(buff);
+			for (Node d : dirs)
+			{
+				for (Node c : d.children)
+				{
+					if (c.dir || c.sectors <= 0) continue;
+					int left = c.sectors;
+					FileChannel in = FileChannel.open(c.src.toPath(), StandardOpenOption.READ);
+					try
+					{
+						long remain = c.size;
+						while (left > 0)
+						{
+							int nsec = Math.min(left, buff.length / ISO.F1SIZE);
+							int want = (int)Math.min((long)nsec * ISO.F1SIZE, remain);
+							bb.clear();
+							bb.limit(want);
+							while (bb.hasRemaining())
+							{
+								if (in.read(bb) < 0) break; //File shrank since the walk
+							}
+							int got = bb.position();
+							for (int i = got; i < nsec * ISO.F1SIZE; i++) buff[i] = 0;
+							remain -= got;
+							for (int i = 0; i < nsec; i++)
+							{
+								int sm = SUBMODE_DATA;
+								if (left - i == 1) sm |= SUBMODE_EOR | SUBMODE_EOF;
+								sink.put(buff, i * ISO.F1SIZE, ISO.F1SIZE, sm);
+							}
+							left -= nsec;
+							if (monitor != null) monitor.step(nsec);
+						}
+					}
+					finally
+					{
+						in.close();
+					}
+				}
+			}
+			sink.flush();
+		}
+		finally
+		{
+			if (pool != null) pool.shutdownNow();
+		}
+	}
+
+	/* ----- Mastering ----- */
+
+	/**
+	 * Build an image of a directory tree.
+	 * @param inDir Directory whose contents become the root of the image.
+	 * @param outISO Path to write the image to. Parent directories are created if needed.
+	 * @return Table describing the layout of the new image.
+	 * @throws IOException If the input can't be read or the output can't be written.
+	 * @throws IllegalArgumentException If the tree doesn't fit in an ISO9660 image (a file is 4GB
+	 * or bigger, or there are more than 2^31 sectors).
+	 */
+	public ISO9660Table master(String inDir, String outISO) throws IOException
+	{
+		File root = new File(inDir);
+		if (!root.isDirectory()) throw new IOException("Not a directory: " + inDir);
+
+		long t = System.nanoTime();
+		if (monitor != null) monitor.startPhase(Phase.MASTER_WALK, -1);
+		List<Node> dirs = walk(root);
+		walkTime = System.nanoTime() - t;
+
+		t = System.nanoTime();
+		if (monitor != null) monitor.startPhase(Phase.MASTER_LAYOUT, -1);
+		int[] lay = layout(dirs);
+		sectorCount = table.getNumberSectors();
+		dirCount = dirs.size();
+		layoutTime = System.nanoTime() - t;
+		if (monitor != null)
+		{
+			monitor.step(sectorCount);
+			monitor.startPhase(Phase.MASTER_WRITE, sectorCount);
+		}
+
+		t = System.nanoTime();
+		String vid = volumeID;
+		if (vid == null) vid = root.getAbsoluteFile().getName();
+		byte[] meta = new byte[lay[3] * ISO.F1SIZE];
+		writeVolumeDescriptors(meta, dirs.get(0), vid, lay, sectorCount);
+		writePathTable(meta, lay[0], dirs, ByteOrder.LITTLE_ENDIAN);
+		writePathTable(meta, lay[1], dirs, ByteOrder.BIG_ENDIAN);
+		for (Node d : dirs) writeDirectory(meta, d);
+
+		FileChannel out = openOutput(outISO);
+		try
+		{
+			if (monitor != null) monitor.step(lay[3]);
+			if (format == FORMAT_XA) writeRaw(out, meta, dirs, lay);
+			else writeCooked(out, meta, dirs);
+		}
+		finally
+		{
+			out.close();
+		}
+		writeTime = System.nanoTime() - t;
+		if (monitor != null) monitor.endPhase();
+
+		return table;
+	}
+
+	/**
+	 * Master a Mode 1 ISO9660 image from a directory with default settings.
+	 * @param inDir Directory whose contents become the root of the image.
+	 * @param outISO Path to write the image to.
+	 */
 	public static void CDMe(String inDir, String outISO)
 	{
-		
+		try
+		{
+			new CDMaker().master(inDir, outISO);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
 	}
-	
+
 	public static void main(String[] args) {
-		
+
+		if (args.length < 2)
+		{
+			System.err.println("Usage: CDMaker [-xa] [-threads n] indir outimage");
+			return;
+		}
+		CDMaker maker = new CDMaker();
+		int i = 0;
+		while (i < args.length - 2)
+		{
+			if (args[i].equals("-xa")) maker.setFormat(FORMAT_XA);
+			else if (args[i].equals("-threads"))
+			{
+				int n = Integer.parseInt(args[++i]);
+				maker.setWalkThreads(n);
+				maker.setCodingThreads(n);
+			}
+			i++;
+		}
+		try
+		{
+			maker.master(args[args.length - 2], args[args.length - 1]);
+			System.out.println("Files: " + maker.getFileCount() + " | Directories: " + maker.getDirectoryCount()
+								+ " | Sectors: " + maker.getSectorCount());
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
 
 	}
 
@@ -0,0 +1,244 @@
+package waffleoRai_Containers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.VirDirectory;
+import waffleoRai_Utils.VirFile;
+
+public class CDMakerTest {
+
+	public static final int[] DEFO_TREE_SIZES = {1000, 10000, 100000};
+	public static final int FILES_PER_DIR = 100;
+	public static final int MAX_FILE_SIZE = 8192;
+	public static final int LONG_NAME_FILES = 119;
+
+	/**
+	 * Generate a tree of small files, FILES_PER_DIR to a directory, with directories nested two levels deep.
+	 * @return Total bytes written.
+	 */
+	public static long buildTree(File root, int nFiles, Random r) throws IOException
+	{
+		byte[] buff = new byte[MAX_FILE_SIZE];
+		long total = 0;
+		for (int i = 0; i < nFiles; i++)
+		{
+			int d = i / FILES_PER_DIR;
+			File dir = new File(root, "grp" + (d / 32) + File.separator + "dir" + d);
+			if (i % FILES_PER_DIR == 0) dir.mkdirs();
+			int sz = r.nextInt(MAX_FILE_SIZE);
+			r.nextBytes(buff);
+			FileOutputStream out = new FileOutputStream(new File(dir, "f" + i + ".bin"));
+			out.write(buff, 0, sz);
+			out.close();
+			total += sz;
+		}
+		return total;
+	}
+
+	/**
+	 * Add files and directories whose names have to be truncated, with the truncated names colliding
+	 * with each other and with names that fit as they are.
+	 */
+	public static void buildLongNames(File root, Random r) throws IOException
+	{
+		byte[] buff = new byte[MAX_FILE_SIZE];
+		File dir = new File(root, "long");
+		dir.mkdirs();
+		for (int i = 1; i <= LONG_NAME_FILES; i++)
+		{
+			int sz = r.nextInt(MAX_FILE_SIZE);
+			r.nextBytes(buff);
+			FileOutputStream out = new FileOutputStream(new File(dir, "longer_file_name_number_" + i + ".txt"));
+			out.write(buff, 0, sz);
+			out.close();
+		}
+		for (int i = 1; i <= 2; i++)
+		{
+			File sub = new File(dir, "a_directory_name_that_is_too_long_" + i);
+			sub.mkdirs();
+			r.nextBytes(buff);
+			FileOutputStream out = new FileOutputStream(new File(sub, "f.bin"));
+			out.write(buff, 0, 100 * i);
+			out.close();
+		}
+	}
+
+	public static void deleteTree(File f)
+	{
+		File[] list = f.listFiles();
+		if (list != null)
+		{
+			for (File c : list) deleteTree(c);
+		}
+		f.delete();
+	}
+
+	/* Whether a test tree name comes out on the disc unchanged apart from case */
+	private static boolean fits(String name, boolean dir)
+	{
+		if (dir) return name.length() <= 31;
+		int dot = name.lastIndexOf('.');
+		int ext = (dot < 0) ? 0 : name.length() - dot - 1;
+		int stem = (dot < 0) ? name.length() : dot;
+		return ext <= 8 && stem + 1 + ext <= 30;
+	}
+
+	private static ByteBuffer readAll(FileBuffer f)
+	{
+		long sz = f.getFileSize();
+		if (sz <= 0) return ByteBuffer.allocate(0);
+		return ByteBuffer.wrap(f.getBytes(0, sz));
+	}
+
+	private static void collectDisc(VirDirectory d, String path, Map<String, FileBuffer> out)
+	{
+		for (VirFile f : d.getFiles())
+		{
+			if (path.isEmpty() && f.getName().startsWith(".RAW")) continue; //Whole image pseudo file
+			out.put(path + f.getName(), f.getFile());
+		}
+		for (VirDirectory c : d.getDirectories()) collectDisc(c, path + c.getName() + "\\", out);
+	}
+
+	/* Source files with names that fit are looked up by name. The rest are matched by content. */
+	private static int collectSource(File d, String path, boolean natural, Map<String, FileBuffer> disc, Map<ByteBuffer, Integer> leftover) throws IOException
+	{
+		int bad = 0;
+		File[] list = d.listFiles();
+		if (list == null) return 0;
+		for (File f : list)
+		{
+			String name = f.getName();
+			boolean nat = natural && fits(name, f.isDirectory());
+			String dpath = path + name.toUpperCase();
+			if (f.isDirectory())
+			{
+				bad += collectSource(f, dpath + "\\", nat, disc, leftover);
+				continue;
+			}
+			ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(f.toPath()));
+			if (nat)
+			{
+				FileBuffer fb = disc.remove(dpath);
+				if (fb == null || !readAll(fb).equals(data))
+				{
+					if (bad < 5) System.out.println("\t\t" + dpath + ": " + ((fb == null) ? "missing" : "wrong data"));
+					bad++;
+				}
+			}
+			else
+			{
+				Integer c = leftover.get(data);
+				leftover.put(data, (c == null) ? 1 : c + 1);
+			}
+		}
+		return bad;
+	}
+
+	/**
+	 * Read an image back and compare every file on it to the source tree.
+	 * @return Number of files missing, extra or with the wrong data.
+	 */
+	public static int verify(File img, File src, boolean xa) throws Exception
+	{
+		ISO iso = new ISO(FileBuffer.createBuffer(img.getAbsolutePath()), false, true);
+		ISO9660Image image = xa ? new ISOXAImage(iso) : new ISO9660Image(iso);
+		Map<String, FileBuffer> disc = new HashMap<String, FileBuffer>();
+		collectDisc(image.getRootDirectory(), "", disc);
+		int total = disc.size();
+
+		Map<ByteBuffer, Integer> leftover = new HashMap<ByteBuffer, Integer>();
+		int bad = collectSource(src, "", true, disc, leftover);
+		for (Map.Entry<String, FileBuffer> e : disc.entrySet())
+		{
+			ByteBuffer data = readAll(e.getValue());
+			Integer c = leftover.get(data);
+			if (c == null)
+			{
+				if (bad < 5) System.out.println("\t\t" + e.getKey() + ": not in source tree");
+				bad++;
+			}
+			else if (c == 1) leftover.remove(data);
+			else leftover.put(data, c - 1);
+		}
+		for (Integer c : leftover.values()) bad += c;
+		System.out.println("\tverify: " + total + " files, " + ((bad == 0) ? "all match" : (bad + " FAILED")));
+		return bad;
+	}
+
+	private static void report(String label, CDMaker m, File img)
+	{
+		double ms = (m.getWalkTime() + m.getLayoutTime() + m.getWriteTime()) / 1e6;
+		double mb = img.length() / (1024.0 * 1024.0);
+		System.out.println("\t" + label + ": walk " + (m.getWalkTime() / 1000000) + " ms | layout " + (m.getLayoutTime() / 1000000)
+				+ " ms | write " + (m.getWriteTime() / 1000000) + " ms | " + String.format("%.0f", m.getFileCount() / (ms / 1000.0))
+				+ " files/s | " + String.format("%.1f", mb / (m.getWriteTime() / 1e9)) + " MB/s | " + m.getSectorCount() + " sectors");
+	}
+
+	public static void main(String[] args)
+	{
+		int failed = 0;
+		int[] sizes = DEFO_TREE_SIZES;
+		if (args.length > 0)
+		{
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+		}
+
+		Random r = new Random(0x43444D4BL);
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int n : sizes)
+		{
+			File root = null;
+			try
+			{
+				root = Files.createTempDirectory("cdmaker").toFile();
+				File src = new File(root, "src");
+				long bytes = buildTree(src, n, r);
+				buildLongNames(src, r);
+				System.out.println("Tree: " + n + " files (" + String.format("%.1f", bytes / (1024.0 * 1024.0)) + " MB)");
+
+				File iso = new File(root, "out.iso");
+				CDMaker m = new CDMaker();
+				m.master(src.getAbsolutePath(), iso.getAbsolutePath());
+				report("ISO", m, iso);
+				failed += verify(iso, src, false);
+				iso.delete();
+
+				File bin = new File(root, "out.bin");
+				m.setFormat(CDMaker.FORMAT_XA);
+				m.master(src.getAbsolutePath(), bin.getAbsolutePath());
+				report("XA (1 thread)", m, bin);
+				failed += verify(bin, src, true);
+
+				m.setCodingThreads(threads);
+				m.master(src.getAbsolutePath(), bin.getAbsolutePath());
+				report("XA (" + threads + " threads)", m, bin);
+				failed += verify(bin, src, true);
+			}
+			catch (Exception e)
+			{
+				e.printStackTrace();
+				failed++;
+			}
+			finally
+			{
+				if (root != null) deleteTree(root);
+			}
+		}
+		if (failed > 0)
+		{
+			System.out.println("Verification failed: " + failed);
+			System.exit(1);
+		}
+	}
+
+}
@@ -0,0 +1,449 @@
+package waffleoRai_Containers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import waffleoRai_Utils.FileBuffer;
+
+/**
+ * CD-ROM sector error detection and correction codes (ECMA-130).
+ * <br>EDC is a reflected CRC-32 (polynomial 0x8001801B), computed eight bytes at a time
+ * (slice-by-8) and stored little-endian.
+ * <br>ECC is the Reed-Solomon product code (RSPC) over GF(2^8): 172 bytes of P parity
+ * followed by 104 bytes of Q parity.
+ * <br>Coverage by sector type:
+ * <br>Mode 1 - EDC over 0x000-0x80F at 0x810. ECC over header + data.
+ * <br>Mode 2 Form 1 - EDC over 0x010-0x817 at 0x818. ECC computed with the header zeroed.
+ * <br>Mode 2 Form 2 - EDC over 0x010-0x92B at 0x92C. No ECC.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class CDSectorCoding {
+
+	/* ----- Constants ----- */
+
+	public static final int EDC_POLY = 0xD8018001; //Reflected 0x8001801B
+
+	public static final int ECC_SIZE = 0x114;
+	public static final int ECC_P_OFFSET = 0x81C;
+	public static final int ECC_Q_OFFSET = 0x8C8;
+
+	public static final int STATUS_OK = 0;
+	public static final int STATUS_BAD_EDC = 0x1;
+	public static final int STATUS_BAD_ECC = 0x2;
+	public static final int STATUS_NOT_CODED = 0x4; //Mode 0, audio, or no sync
+
+	private static final int P_SIZE = 86 * 2;
+
+	public static final int DEFO_VERIFY_BATCH = 1024;
+
+	/* ----- Static Tables ----- */
+
+	private static final int[][] EDC_TABLE;
+	private static final int[] ECC_F_LUT;
+	private static final int[] ECC_B_LUT;
+
+	static
+	{
+		EDC_TABLE = new int[8][256];
+		for (int i = 0; i < 256; i++)
+		{
+			int edc = i;
+			for (int j = 0; j < 8; j++) edc = (edc >>> 1) ^ (((edc & 1) != 0) ? EDC_POLY : 0);
+			EDC_TABLE[0][i] = edc;
+		}
+		for (int k = 1; k < 8; k++)
+		{
+			for (int i = 0; i < 256; i++)
+			{
+				int prev = EDC_TABLE[k-1][i];
+				EDC_TABLE[k][i] = (prev >>> 8) ^ EDC_TABLE[0][prev & 0xFF];
+			}
+		}
+
+		ECC_F_LUT = new int[256];
+		ECC_B_LUT = new int[256];
+		for (int i = 0; i < 256; i++)
+		{
+			int j = (i << 1) ^ (((i & 0x80) != 0) ? 0x11D : 0);
+			ECC_F_LUT[i] = j;
+			ECC_B_LUT[i ^ j] = i;
+		}
+	}
+
+	/* ----- EDC ----- */
+
+	/**
+	 * Compute the CD-ROM EDC of a run of bytes.
+	 * @param data Array holding bytes.
+	 * @param off Offset of first byte.
+	 * @param len Number of bytes.
+	 * @return EDC value. Written to a sector little-endian.
+	 */
+	public static int computeEDC(byte[] data, int off, int len)
+	{
+		return computeEDC(0, data, off, len);
+	}
+
+	/**
+	 * Continue an EDC computation over more bytes.
+	 * @param edc Value returned for the bytes before these (0 to start).
+	 * @param data Array holding bytes.
+	 * @param off Offset of first byte.
+	 * @param len Number of bytes.
+	 * @return Updated EDC value.
+	 */
+	public static int computeEDC(int edc, byte[] data, int off, int len)
+	{
+		final int[] t0 = EDC_TABLE[0], t1 = EDC_TABLE[1], t2 = EDC_TABLE[2], t3 = EDC_TABLE[3];
+		final int[] t4 = EDC_TABLE[4], t5 = EDC_TABLE[5], t6 = EDC_TABLE[6], t7 = EDC_TABLE[7];
+		int c = edc;
+		int i = off;
+		int end = off + len;
+		int end8 = end - 7;
+		while (i < end8)
+		{
+			c ^= (data[i] & 0xFF) | ((data[i+1] & 0xFF) << 8) | ((data[i+2] & 0xFF) << 16) | ((data[i+3] & 0xFF) << 24);
+			c = t7[c & 0xFF] ^ t6[(c >>> 8) & 0xFF] ^ t5[(c >>> 16) & 0xFF] ^ t4[c >>> 24]
+					^ t3[data[i+4] & 0xFF] ^ t2[data[i+5] & 0xFF] ^ t1[data[i+6] & 0xFF] ^ t0[data[i+7] & 0xFF];
+			i += 8;
+		}
+		while (i < end)
+		{
+			c = (c >>> 8) ^ t0[(c ^ data[i]) & 0xFF];
+			i++;
+		}
+		return c;
+	}
+
+	private static void putEDC(byte[] sector, int pos, int edc)
+	{
+		sector[pos] = (byte)edc;
+		sector[pos+1] = (byte)(edc >>> 8);
+		sector[pos+2] = (byte)(edc >>> 16);
+		sector[pos+3] = (byte)(edc >>> 24);
+	}
+
+	private static int readEDC(byte[] sector, int pos)
+	{
+		return (sector[pos] & 0xFF) | ((sector[pos+1] & 0xFF) << 8) | ((sector[pos+2] & 0xFF) << 16) | ((sector[pos+3] & 0xFF) << 24);
+	}
+
+	/* ----- ECC ----- */
+
+	private static void computeBlock(byte[] src, int srcOff, int majorCount, int minorCount, int majorMult, int minorInc, byte[] dst, int dstOff)
+	{
+		final int size = majorCount * minorCount;
+		for (int major = 0; major < majorCount; major++)
+		{
+			int index = (major >>> 1) * majorMult + (major & 1);
+			int a = 0;
+			int b = 0;
+			for (int minor = 0; minor < minorCount; minor++)
+			{
+				int t = src[srcOff + index] & 0xFF;
+				index += minorInc;
+				if (index >= size) index -= size;
+				a ^= t;
+				b ^= t;
+				a = ECC_F_LUT[a];
+			}
+			a = ECC_B_LUT[ECC_F_LUT[a] ^ b];
+			dst[dstOff + major] = (byte)a;
+			dst[dstOff + major + majorCount] = (byte)(a ^ b);
+		}
+	}
+
+	/**
+	 * Compute the P and Q parity of a raw sector.
+	 * @param sector Array holding the raw sector.
+	 * @param off Offset of the sector sync pattern.
+	 * @param zeroAddress Whether the 4 header bytes are treated as zero (Mode 2 Form 1).
+	 * They are restored before returning.
+	 * @param dst Array to write the 276 parity bytes to. Can be the sector array itself
+	 * (at off + ECC_P_OFFSET) to write in place.
+	 * @param dstOff Offset in dst to write P parity at. Q parity follows immediately.
+	 */
+	public static void computeECC(byte[] sector, int off, boolean zeroAddress, byte[] dst, int dstOff)
+	{
+		int h0 = 0, h1 = 0, h2 = 0, h3 = 0;
+		int hp = off + 0xC;
+		if (zeroAddress)
+		{
+			h0 = sector[hp]; h1 = sector[hp+1]; h2 = sector[hp+2]; h3 = sector[hp+3];
+			sector[hp] = 0; sector[hp+1] = 0; sector[hp+2] = 0; sector[hp+3] = 0;
+		}
+
+		//Q covers the P parity bytes of the sector itself. When writing in place, those are
+		//the ones just computed. Otherwise they are the stored ones, which is what a verifier wants.
+		computeBlock(sector, hp, 86, 24, 2, 86, dst, dstOff);
+		computeBlock(sector, hp, 52, 43, 86, 88, dst, dstOff + P_SIZE);
+
+		if (zeroAddress)
+		{
+			sector[hp] = (byte)h0; sector[hp+1] = (byte)h1; sector[hp+2] = (byte)h2; sector[hp+3] = (byte)h3;
+		}
+	}
+
+	/* ----- Encoding ----- */
+
+	/**
+	 * Fill in the EDC, zero field and ECC of a Mode 1 raw sector.
+	 * Sync, header and data must already be in place.
+	 * @param sector Array holding the raw sector.
+	 * @param off Offset of the sector sync pattern.
+	 */
+	public static void encodeMode1(byte[] sector, int off)
+	{
+		putEDC(sector, off + 0x810, computeEDC(sector, off, 0x810));
+		for (int i = 0x814; i < 0x81C; i++) sector[off + i] = 0;
+		computeECC(sector, off, false, sector, off + ECC_P_OFFSET);
+	}
+
+	/**
+	 * Fill in the EDC (and ECC if Form 1) of a Mode 2 raw sector.
+	 * The form is read from the submode byte of the first subheader copy.
+	 * Sync, header, subheader and data must already be in place.
+	 * @param sector Array holding the raw sector.
+	 * @param off Offset of the sector sync pattern.
+	 */
+	public static void encodeMode2(byte[] sector, int off)
+	{
+		if (isForm2(sector, off))
+		{
+			putEDC(sector, off + 0x92C, computeEDC(sector, off + 0x10, 0x91C));
+		}
+		else
+		{
+			putEDC(sector, off + 0x818, computeEDC(sector, off + 0x10, 0x808));
+			computeECC(sector, off, true, sector, off + ECC_P_OFFSET);
+		}
+	}
+
+	/**
+	 * Fill in the error coding fields of a raw sector according to the mode in its header.
+	 * Mode 0 and unknown modes are left alone.
+	 * @param sector Array holding the raw sector.
+	 * @param off Offset of the sector sync pattern.
+	 */
+	public static void encodeSector(byte[] sector, int off)
+	{
+		switch (sector[off + 0xF])
+		{
+		case 1: encodeMode1(sector, off); break;
+		case 2: encodeMode2(sector, off); break;
+		default: break;
+		}
+	}
+
+	private static boolean isForm2(byte[] sector, int off)
+	{
+		return (sector[off + 0x12] & 0x20) != 0;
+	}
+
+	private static boolean hasSync(byte[] sector, int off)
+	{
+		for (int i = 0; i < ISO.SYNC.length; i++)
+		{
+			if (sector[off + i] != ISO.SYNC[i]) return false;
+		}
+		return true;
+	}
+
+	/* ----- Verification ----- */
+
+	/**
+	 * Check the error coding fields of a raw sector.
+	 * @param sector Array holding the raw sector. Left unchanged.
+	 * @param off Offset of the sector sync pattern.
+	 * @param scratch Array of at least ECC_SIZE bytes for working space, or null to allocate one.
+	 * @return STATUS_OK if everything matches, STATUS_NOT_CODED if the sector has no error coding
+	 * (no sync, Mode 0, or unknown mode), otherwise STATUS_BAD_EDC and/or STATUS_BAD_ECC.
+	 */
+	public static int verifySector(byte[] sector, int off, byte[] scratch)
+	{
+		if (!hasSync(sector, off)) return STATUS_NOT_CODED;
+		int mode = sector[off + 0xF];
+		int status = STATUS_OK;
+		boolean checkECC = false;
+		boolean zeroAddr = false;
+		if (mode == 1)
+		{
+			if (computeEDC(sector, off, 0x810) != readEDC(sector, off + 0x810)) status |= STATUS_BAD_EDC;
+			checkECC = true;
+		}
+		else if (mode == 2)
+		{
+			if (isForm2(sector, off))
+			{
+				int stored = readEDC(sector, off + 0x92C);
+				//Form 2 EDC is optional - zero means not present
+				if (stored != 0 && computeEDC(sector, off + 0x10, 0x91C) != stored) status |= STATUS_BAD_EDC;
+			}
+			else
+			{
+				if (computeEDC(sector, off + 0x10, 0x808) != readEDC(sector, off + 0x818)) status |= STATUS_BAD_EDC;
+				checkECC = true;
+				zeroAddr = true;
+			}
+		}
+		else return STATUS_NOT_CODED;
+
+		if (checkECC)
+		{
+			if (scratch == null || scratch.length < ECC_SIZE) scratch = new byte[ECC_SIZE];
+			computeECC(sector, off, zeroAddr, scratch, 0);
+			for (int i = 0; i < ECC_SIZE; i++)
+			{
+				if (scratch[i] != sector[off + ECC_P_OFFSET + i])
+				{
+					status |= STATUS_BAD_ECC;
+					break;
+				}
+			}
+		}
+		return status;
+	}
+
+	/**
+	 * Results of a full image scan.
+	 */
+	public static class VerifyReport
+	{
+		private long sectorCount;
+		private long uncodedCount;
+		private List<Long> badEDC;
+		private List<Long> badECC;
+		private long nanos;
+
+		private VerifyReport()
+		{
+			badEDC = new ArrayList<Long>();
+			badECC = new ArrayList<Long>();
+		}
+
+		/** @return Number of sectors scanned. */
+		public long getSectorCount(){return sectorCount;}
+
+		/** @return Number of sectors with no error coding to check (Mode 0, audio, no sync). */
+		public long getUncodedCount(){return uncodedCount;}
+
+		/** @return Sorted indices (relative to scan start) of sectors with a bad EDC. */
+		public List<Long> getBadEDCSectors(){return badEDC;}
+
+		/** @return Sorted indices (relative to scan start) of sectors with bad ECC. */
+		public List<Long> getBadECCSectors(){return badECC;}
+
+		/** @return True if no sector had a bad EDC or ECC. */
+		public boolean allGood(){return badEDC.isEmpty() && badECC.isEmpty();}
+
+		/** @return Time the scan took in nanoseconds. */
+		public long getTimeNanos(){return nanos;}
+	}
+
+	private static class ChunkResult
+	{
+		public long uncoded;
+		public List<Long> badEDC = new LinkedList<Long>();
+		public List<Long> badECC = new LinkedList<Long>();
+	}
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "CDSectorCoding.Verifier" + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Scan a raw (2352 byte sector) image and report sectors with bad EDC or ECC.
+	 * Sectors are checked in batches on a pool of worker threads. Reads from the image
+	 * are serialized, so any FileBuffer type (including streamed ones) can be used.
+	 * @param image Buffer holding the image.
+	 * @param stPos Offset of the first sector in the image.
+	 * @param threads Number of worker threads. Values below 1 use one per processor.
+	 * @return Report listing bad sectors.
+	 * @throws InterruptedException If interrupted while waiting on workers.
+	 * @throws IOException If a batch of sectors couldn't be checked (so the report would be incomplete).
+	 */
+	public static VerifyReport verifyImage(final FileBuffer image, final long stPos, int threads) throws InterruptedException, IOException
+	{
+		if (threads < 1) threads = Runtime.getRuntime().availableProcessors();
+		long t0 = System.nanoTime();
+		VerifyReport report = new VerifyReport();
+		final long nSecs = (image.getFileSize() - stPos) / ISO.SECSIZE;
+		report.sectorCount = nSecs;
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new DaemonFactory());
+		List<Future<ChunkResult>> results = new LinkedList<Future<ChunkResult>>();
+		try
+		{
+			for (long first = 0; first < nSecs; first += DEFO_VERIFY_BATCH)
+			{
+				final long fSec = first;
+				final int count = (int)Math.min(DEFO_VERIFY_BATCH, nSecs - first);
+				results.add(pool.submit(new Callable<ChunkResult>(){
+					public ChunkResult call()
+					{
+						long st = stPos + (fSec * ISO.SECSIZE);
+						byte[] data;
+						synchronized(image)
+						{
+							data = image.getBytes(st, st + ((long)count * ISO.SECSIZE));
+						}
+						byte[] scratch = new byte[ECC_SIZE];
+						ChunkResult r = new ChunkResult();
+						for (int i = 0; i < count; i++)
+						{
+							int status = verifySector(data, i * ISO.SECSIZE, scratch);
+							if (status == STATUS_OK) continue;
+							if ((status & STATUS_NOT_CODED) != 0) r.uncoded++;
+							if ((status & STATUS_BAD_EDC) != 0) r.badEDC.add(fSec + i);
+							if ((status & STATUS_BAD_ECC) != 0) r.badECC.add(fSec + i);
+						}
+						return r;
+					}
+				}));
+			}
+			for (Future<ChunkResult> f : results)
+			{
+				ChunkResult r;
+				try
+				{
+					r = f.get();
+				}
+				catch (ExecutionException e)
+				{
+					throw new IOException("CDSectorCoding: Verify worker failed", e.getCause());
+				}
+				report.uncodedCount += r.uncoded;
+				report.badEDC.addAll(r.badEDC);
+				report.badECC.addAll(r.badECC);
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		Collections.sort(report.badEDC);
+		Collections.sort(report.badECC);
+		report.nanos = System.nanoTime() - t0;
+		return report;
+	}
+
+}
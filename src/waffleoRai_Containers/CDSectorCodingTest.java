@@ -0,0 +1,102 @@
+package waffleoRai_Containers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import waffleoRai_Utils.FileBuffer;
+
+public class CDSectorCodingTest {
+
+	public static final int FULL_DISC_SECTORS = 333000; //74 minutes
+	public static final int BATCH = 1024;
+
+	/**
+	 * Fill a batch with raw sectors: two thirds Mode 1, the rest Mode 2 alternating Form 1 and Form 2.
+	 */
+	public static void fillBatch(byte[] batch, int count, int firstSector, Random r)
+	{
+		r.nextBytes(batch);
+		for (int i = 0; i < count; i++)
+		{
+			int off = i * ISO.SECSIZE;
+			int sec = firstSector + i;
+			System.arraycopy(ISO.SYNC, 0, batch, off, ISO.SYNC.length);
+			batch[off + 0x0C] = ISO.getBCDminute(sec);
+			batch[off + 0x0D] = ISO.getBCDsecond(sec);
+			batch[off + 0x0E] = ISO.getBCDsector(sec);
+			if (sec % 3 != 0) batch[off + 0x0F] = 1;
+			else
+			{
+				batch[off + 0x0F] = 2;
+				byte sm = (sec % 2 == 0) ? (byte)0x08 : (byte)0x24;
+				batch[off + 0x12] = sm;
+				batch[off + 0x16] = sm;
+			}
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		int nSecs = FULL_DISC_SECTORS;
+		if (args.length > 0) nSecs = Integer.parseInt(args[0]);
+		double mb = ((double)nSecs * ISO.SECSIZE) / (1024.0 * 1024.0);
+		System.out.println("Sectors: " + nSecs + " (" + String.format("%.1f", mb) + " MB)");
+
+		try
+		{
+			File tmp = File.createTempFile("cdcoding", ".bin");
+			tmp.deleteOnExit();
+			Random r = new Random(0x43444543L);
+			byte[] batch = new byte[BATCH * ISO.SECSIZE];
+
+			//Encode (sector generation is timed separately so it can be subtracted)
+			long genTime = 0;
+			long encTime = 0;
+			FileChannel out = FileChannel.open(Paths.get(tmp.getAbsolutePath()), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			for (int s = 0; s < nSecs; s += BATCH)
+			{
+				int count = Math.min(BATCH, nSecs - s);
+				long t = System.nanoTime();
+				fillBatch(batch, count, ISO.DEFO_FIRSTSEC + s, r);
+				genTime += System.nanoTime() - t;
+
+				t = System.nanoTime();
+				for (int i = 0; i < count; i++) CDSectorCoding.encodeSector(batch, i * ISO.SECSIZE);
+				encTime += System.nanoTime() - t;
+
+				ByteBuffer bb = ByteBuffer.wrap(batch, 0, count * ISO.SECSIZE);
+				while (bb.hasRemaining()) out.write(bb);
+			}
+			out.close();
+			System.out.println("Generate: " + (genTime / 1000000) + " ms");
+			System.out.println("Encode (1 thread): " + (encTime / 1000000) + " ms | "
+					+ String.format("%.1f", mb / (encTime / 1e9)) + " MB/s");
+
+			//Verify
+			FileBuffer img = FileBuffer.createBuffer(tmp.getAbsolutePath());
+			int[] threadCounts = {1, Runtime.getRuntime().availableProcessors()};
+			for (int t : threadCounts)
+			{
+				CDSectorCoding.VerifyReport rep = CDSectorCoding.verifyImage(img, 0, t);
+				double secs = rep.getTimeNanos() / 1e9;
+				System.out.println("Verify (" + t + " threads): " + (rep.getTimeNanos() / 1000000) + " ms | "
+						+ String.format("%.1f", mb / secs) + " MB/s | bad EDC: " + rep.getBadEDCSectors().size()
+						+ " | bad ECC: " + rep.getBadECCSectors().size());
+			}
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -3,10 +3,15 @@ package waffleoRai_Containers;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import waffleoRai_Containers.ISOProgressEvents.Phase;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
 import waffleoRai_Containers.XATable.XASubmode;
 import waffleoRai_Utils.BitStreamer;
 import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.ROSubFileBuffer;
 
 /*UPDATE: 2017.08.31
  * 	Tweaked for compatibility with StreamBuffer class and FileBuffer alterations
@@ -16,13 +21,33 @@ import waffleoRai_Utils.FileBuffer;
  * 	Added requirement for data-only write to not have any M2F2 sectors.
  * 2017.11.18 | 2.0.1 -> 2.1.0
  * 	For Java 9 compatibility, removed all Observer/Observable pieces
+ * 2026.10.19 | 2.1.0 -> 2.2.0
+ * 	Added lazy mode - only the sector layout is recorded on parse,
+ * 	and Sector objects are created as they are requested.
+ * 2026.10.19 | 2.2.0 -> 2.3.0
+ * 	Serialized Mode 1 and Mode 2 sectors now get real EDC/ECC (see CDSectorCoding)
+ * 	Fixed toBCD and the Mode 2 submode byte, which were always encoded wrong
+ * 	SectorM1.generateEDC/generateECC take the sector number (no-argument versions assume sector 0)
+ * 2026.10.19 | 2.3.0 -> 2.4.0
+ * 	Sector.serializeInto for allocation-free serialization
+ * 	Image writers now stream through ISOStreamWriter instead of building the whole image in memory
+ * 	peekSectorAbsolute reads lazy sectors without caching them (for streaming writes)
+ * 2026.10.19 | 2.4.0 -> 2.5.0
+ * 	Source image is kept in all parse modes
+ * 	createDataView for reading a run of sector payloads without going through Sector objects
+ * 2026.10.19 | 2.5.0 -> 2.5.1
+ * 	createDataView covers runs of mixed sector layouts instead of giving up on them
+ * 2026.10.19 | 2.5.1 -> 2.6.0
+ * 	Source image layout accessors (for tools that scan the image directly, eg. XADemuxer)
+ * 2026.10.19 | 2.6.0 -> 2.7.0
+ * 	Optional progress reporting and cancellation for full parses (ISOProgressEvents.ProgressMonitor)
  * */
 
 /**
  * Class to hold basic ISO image information - split by sector.
  * This does not parse the directory tree or file information at all.
  * @author Blythe Hospelhorn
- * @version 2.1.0
+ * @version 2.7.0
  * @since November 18, 2017
  */
 public class ISO {
@@ -45,6 +70,17 @@ public class ISO {
 	
 	private boolean loosedata;
 	
+	/* Source image layout - recorded in all modes except rawMode parsing */
+	private FileBuffer image;
+	private long imageStart;
+	private int imageSecSize;
+	private int imageSecCount;
+	
+	/* Lazy mode - sectors are located arithmetically and built on request */
+	private boolean lazy;
+	private boolean lazyRaw;
+	private Map<Integer, Sector> touched;
+	
 	/* ----- Helper Objects ----- */
 	
 	/**
@@ -63,6 +99,17 @@ public class ISO {
 		 */
 		public FileBuffer serializeSector(int sectornum);
 		
+		/**
+		 * Write the full 2352 byte (0x930) raw sector into an array, without allocating
+		 * a new buffer.
+		 * @param raw Array to write to. Needs SECSIZE bytes from off.
+		 * @param off Offset in array to write sector at.
+		 * @param sectornum Absolute sector number (for ISO sector header)
+		 * @param errorCoding Whether to fill in EDC/ECC. If false, those fields are left
+		 * for the caller to fill (eg. with CDSectorCoding.encodeSector on another thread).
+		 */
+		public void serializeInto(byte[] raw, int off, int sectornum, boolean errorCoding);
+		
 		/**
 		 * Gets a FileBuffer containing only the data from this sector. Typically, this will
 		 * be 2048 bytes, though because this is also meant to handle Mode 2, it may be slightly larger.
@@ -125,6 +172,12 @@ public class ISO {
 			return mySector;
 		}
 		
+		public void serializeInto(byte[] raw, int off, int sectornum, boolean errorCoding)
+		{
+			writeSectorHeader(raw, off, sectornum, ZERO);
+			for (int i = 0x10; i < SECSIZE; i++) raw[off + i] = ZERO;
+		}
+		
 		public FileBuffer getData()
 		{
 			return zeroSector;
@@ -166,31 +219,32 @@ public class ISO {
 		
 		public FileBuffer serializeSector(int sectornum)
 		{
-			FileBuffer mySector = new FileBuffer(SECSIZE, true);
-			//12 bytes sync
-			for (int i = 0; i < SYNC.length; i++) mySector.addToFile(SYNC[i]);
-			
-			//4 bytes header
-			mySector.addToFile(getBCDminute(sectornum));
-			mySector.addToFile(getBCDsecond(sectornum));
-			mySector.addToFile(getBCDsector(sectornum));
-			mySector.addToFile((byte)0x01);
+			byte[] raw = new byte[SECSIZE];
+			this.serializeInto(raw, 0, sectornum);
+			return FileBuffer.wrap(raw, true);
+		}
+		
+		/**
+		 * Write the full raw sector (sync, header, data, EDC, ECC) into an array.
+		 * @param raw Array to write to. Needs SECSIZE bytes from off.
+		 * @param off Offset in array to write sector at.
+		 * @param sectornum Absolute sector number (for ISO sector header)
+		 */
+		public void serializeInto(byte[] raw, int off, int sectornum)
+		{
+			this.serializeInto(raw, off, sectornum, true);
+		}
+		
+		public void serializeInto(byte[] raw, int off, int sectornum, boolean errorCoding)
+		{
+			//12 bytes sync, 4 bytes header
+			writeSectorHeader(raw, off, sectornum, (byte)0x01);
 			
 			//2048 bytes data
-			mySector.addToFile(this.data);
-			
-			//4 bytes EDC
-			//(Right now just adds 4 ZERO bytes)
-			mySector.addToFile(this.generateEDC());
-			
-			//8 bytes ZERO
-			for (int i = 0; i < 8; i++) mySector.addToFile(ZERO);
+			copyDataBytes(this.data, raw, off + 0x10, F1SIZE);
 			
-			//276 bytes ECC
-			//(Right now just adds ZERO bytes)
-			mySector.addToFile(this.generateECC());
-			
-			return mySector;
+			//4 bytes EDC, 8 bytes ZERO, 276 bytes ECC
+			if (errorCoding) CDSectorCoding.encodeMode1(raw, off);
 		}
 		
 		public FileBuffer getData()
@@ -237,18 +291,52 @@ public class ISO {
 			
 		}
 		
+		/**
+		 * Calculate the EDC this sector would have if serialized.
+		 * The EDC covers the header, so the sector number is needed.
+		 * @param sectornum Absolute sector number (for ISO sector header)
+		 * @return EDC as an int. It is written to the sector little-endian.
+		 */
+		public int generateEDC(int sectornum)
+		{
+			byte[] raw = new byte[SECSIZE];
+			this.serializeInto(raw, 0, sectornum);
+			return CDSectorCoding.computeEDC(raw, 0, 0x810);
+		}
+		
+		/**
+		 * Calculate the EDC this sector would have if serialized as sector 0.
+		 * @return EDC as an int.
+		 */
+		@Deprecated
 		public int generateEDC()
 		{
-			int EDC = 0;
-			return EDC;
+			return this.generateEDC(0);
 		}
 		
-		public FileBuffer generateECC()
+		/**
+		 * Calculate the ECC (P and Q parity) this sector would have if serialized.
+		 * @param sectornum Absolute sector number (for ISO sector header)
+		 * @return FileBuffer containing the 276 (0x114) bytes of ECC.
+		 */
+		public FileBuffer generateECC(int sectornum)
 		{
-			FileBuffer ECC = new FileBuffer(0x114, true);
-			for (int i = 0; i < 0x114; i++) ECC.addToFile(ZERO);
+			byte[] raw = new byte[SECSIZE];
+			this.serializeInto(raw, 0, sectornum);
+			FileBuffer ECC = new FileBuffer(CDSectorCoding.ECC_SIZE, true);
+			for (int i = 0; i < CDSectorCoding.ECC_SIZE; i++) ECC.addToFile(raw[CDSectorCoding.ECC_P_OFFSET + i]);
 			return ECC;
 		}
+		
+		/**
+		 * Calculate the ECC this sector would have if serialized as sector 0.
+		 * @return FileBuffer containing the 276 (0x114) bytes of ECC.
+		 */
+		@Deprecated
+		public FileBuffer generateECC()
+		{
+			return this.generateECC(0);
+		}
 	}
 	
 	/**
@@ -496,41 +584,45 @@ public class ISO {
 		
 		public FileBuffer serializeSector(int sectornum)
 		{
-			FileBuffer mySector = new FileBuffer(SECSIZE);
-			
-			//Sync pattern
-			for (int i = 0; i < SYNC.length; i++) mySector.addToFile(SYNC[i]);
-			
-			//Header
-			mySector.addToFile(getBCDminute(sectornum));
-			mySector.addToFile(getBCDsecond(sectornum));
-			mySector.addToFile(getBCDsector(sectornum));
-			mySector.addToFile((byte)0x02);
+			byte[] raw = new byte[SECSIZE];
+			this.serializeInto(raw, 0, sectornum);
+			return FileBuffer.wrap(raw, true);
+		}
+		
+		/**
+		 * Write the full raw sector (sync, header, subheader, data, EDC, and ECC if Form 1)
+		 * into an array.
+		 * @param raw Array to write to. Needs SECSIZE bytes from off.
+		 * @param off Offset in array to write sector at.
+		 * @param sectornum Absolute sector number (for ISO sector header)
+		 */
+		public void serializeInto(byte[] raw, int off, int sectornum)
+		{
+			this.serializeInto(raw, off, sectornum, true);
+		}
+		
+		public void serializeInto(byte[] raw, int off, int sectornum, boolean errorCoding)
+		{
+			//Sync pattern, Header
+			writeSectorHeader(raw, off, sectornum, (byte)0x02);
 			
 			byte SM = generateSMbyte();
 			
 			//Subheader (x2)
 			for (int i = 0; i < 2; i++)
 			{
-				mySector.addToFile((byte)fileNumber);
-				mySector.addToFile((byte)channelNumber);
-				mySector.addToFile(SM);
-				mySector.addToFile(this.CI);
+				int sh = off + 0x10 + (i << 2);
+				raw[sh] = (byte)fileNumber;
+				raw[sh + 1] = (byte)channelNumber;
+				raw[sh + 2] = SM;
+				raw[sh + 3] = this.CI;
 			}
 
 			//Data
-			mySector.addToFile(this.data);
+			copyDataBytes(this.data, raw, off + 0x18, dataSize());
 			
-			//EDC
-			for (int i = 0; i < 4; i++) mySector.addToFile(ZERO);
-			
-			//ECC (if form 1)
-			if (!this.isForm2)
-			{
-				for (int i = 0; i < 0x114; i++) mySector.addToFile(ZERO);
-			}
-			
-			return mySector;
+			//EDC, ECC (if form 1)
+			if (errorCoding) CDSectorCoding.encodeMode2(raw, off);
 		}
 		
 		/**
@@ -542,25 +634,28 @@ public class ISO {
 		{
 			byte SM = 0;
 			
-			if (isEOR) BitStreamer.writeABit(SM, true, 0);
-			if (trigger) BitStreamer.writeABit(SM, true, 4);
-			if (isForm2) BitStreamer.writeABit(SM, true, 5);
-			if (isRealTime) BitStreamer.writeABit(SM, true, 6);
-			if (isEOF) BitStreamer.writeABit(SM, true, 7);
+			if (isEOR) SM = BitStreamer.writeABit(SM, true, 0);
+			if (trigger) SM = BitStreamer.writeABit(SM, true, 4);
+			if (isForm2) SM = BitStreamer.writeABit(SM, true, 5);
+			if (isRealTime) SM = BitStreamer.writeABit(SM, true, 6);
+			if (isEOF) SM = BitStreamer.writeABit(SM, true, 7);
 			
-			switch(this.submode)
+			if (this.submode != null)
 			{
-			case VIDEO:
-				BitStreamer.writeABit(SM, true, 1);
-				break;
-			case AUDIO:
-				BitStreamer.writeABit(SM, true, 2);
-				break;
-			case DATA:
-				BitStreamer.writeABit(SM, true, 3);
-				break;
-			default:
-				break;
+				switch(this.submode)
+				{
+				case VIDEO:
+					SM = BitStreamer.writeABit(SM, true, 1);
+					break;
+				case AUDIO:
+					SM = BitStreamer.writeABit(SM, true, 2);
+					break;
+				case DATA:
+					SM = BitStreamer.writeABit(SM, true, 3);
+					break;
+				default:
+					break;
+				}
 			}
 			
 			return SM;
@@ -568,6 +663,40 @@ public class ISO {
 
 	}
 
+	/**
+	 * Write the sync pattern and 4 byte header of a raw sector into an array.
+	 * @param raw Array to write to.
+	 * @param off Offset of sector in array.
+	 * @param sectornum Absolute sector number.
+	 * @param mode Mode byte.
+	 */
+	private static void writeSectorHeader(byte[] raw, int off, int sectornum, byte mode)
+	{
+		System.arraycopy(SYNC, 0, raw, off, SYNC.length);
+		raw[off + 0x0C] = getBCDminute(sectornum);
+		raw[off + 0x0D] = getBCDsecond(sectornum);
+		raw[off + 0x0E] = getBCDsector(sectornum);
+		raw[off + 0x0F] = mode;
+	}
+	
+	/**
+	 * Copy sector data into an array, zero filling anything the data buffer doesn't cover.
+	 * @param data Sector data. May be null.
+	 * @param raw Array to copy to.
+	 * @param off Offset in array to copy to.
+	 * @param size Number of bytes the sector data should take up.
+	 */
+	private static void copyDataBytes(FileBuffer data, byte[] raw, int off, int size)
+	{
+		int len = 0;
+		if (data != null)
+		{
+			len = (int)Math.min(data.getFileSize(), (long)size);
+			if (len > 0) System.arraycopy(data.getBytes(0, len), 0, raw, off, len);
+		}
+		for (int i = len; i < size; i++) raw[off + i] = ZERO;
+	}
+	
 	/**
 	 * Raw Sector - Contains a reference to a 2352 byte FileBuffer containing a CD or ISO image's
 	 * sector's raw data.
@@ -592,6 +721,14 @@ public class ISO {
 			return this.data;
 		}
 		
+		/**
+		 * Raw sectors are copied as they are - nothing is generated.
+		 */
+		public void serializeInto(byte[] raw, int off, int sectornum, boolean errorCoding)
+		{
+			copyDataBytes(this.data, raw, off, SECSIZE);
+		}
+		
 		public FileBuffer getData()
 		{
 			return this.data;
@@ -636,6 +773,19 @@ public class ISO {
 		}
 	}
 	
+	/**
+	 * Read-only reference to a piece of an image, used by lazy mode and data views.
+	 * Unlike FileBuffer.createReadOnlyCopy, the view is not registered as a child
+	 * of the image, so views that are no longer used can be collected.
+	 */
+	private static class SectorView extends ROSubFileBuffer
+	{
+		public SectorView(FileBuffer image, long stPos, long edPos)
+		{
+			super(image, stPos, edPos);
+		}
+	}
+	
 	/* ----- Constructors ----- */
 	
 	/**
@@ -657,10 +807,61 @@ public class ISO {
 	 * @throws IOException If there is an error creating the read-only references for sector data.
 	 */
 	public ISO(FileBuffer myISO, long stPos, boolean rawMode) throws IOException
+	{
+		this(myISO, stPos, rawMode, false);
+	}
+	
+	/**
+	 * Construct ISO object from full loaded file, optionally in lazy mode.
+	 * @param myISO The image to parse into sectors.
+	 * @param rawMode Whether to look at only data in sectors or full sectors.
+	 * @param lazyMode Whether to only record the sector layout and build Sector objects
+	 * as they are requested.
+	 * @throws IOException If there is an error creating the read-only references for sector data.
+	 */
+	public ISO(FileBuffer myISO, boolean rawMode, boolean lazyMode) throws IOException
+	{
+		this(myISO, 0, rawMode, lazyMode);
+	}
+	
+	/**
+	 * Construct ISO object from loaded file starting at the specified offset.
+	 * <br>In lazy mode, parsing only looks at the first sector to work out the sector size,
+	 * first sector number and layout. Sectors are located arithmetically and built when
+	 * getSectorAbsolute/getSectorRelative asks for them, with their data referencing the image
+	 * through views that are not registered as image children. Parse time is constant
+	 * and memory use is proportional to the number of sectors actually touched.
+	 * @param myISO The image to parse into sectors.
+	 * @param stPos Position in FileBuffer to start reading.
+	 * @param rawMode Whether to look at only data in sectors or full sectors.
+	 * @param lazyMode Whether to only record the sector layout and build Sector objects
+	 * as they are requested.
+	 * @throws IOException If there is an error creating the read-only references for sector data.
+	 */
+	public ISO(FileBuffer myISO, long stPos, boolean rawMode, boolean lazyMode) throws IOException
+	{
+		this(myISO, stPos, rawMode, lazyMode, null);
+	}
+	
+	/**
+	 * Construct ISO object from loaded file starting at the specified offset, reporting
+	 * progress as sectors are parsed.
+	 * <br>Lazy parsing is constant time and reports no progress.
+	 * @param myISO The image to parse into sectors.
+	 * @param stPos Position in FileBuffer to start reading.
+	 * @param rawMode Whether to look at only data in sectors or full sectors.
+	 * @param lazyMode Whether to only record the sector layout and build Sector objects
+	 * as they are requested.
+	 * @param monitor Progress monitor for the ISO_SECTORS phase. May be null.
+	 * @throws IOException If there is an error creating the read-only references for sector data.
+	 * @throws java.util.concurrent.CancellationException If the monitor's token is cancelled during the parse.
+	 */
+	public ISO(FileBuffer myISO, long stPos, boolean rawMode, boolean lazyMode, ProgressMonitor monitor) throws IOException
 	{
 		this.constructorCore();
-		if (rawMode) this.parseRAW(myISO, stPos);
-		else this.parseISO(myISO, stPos);
+		if (lazyMode) this.parseLazy(myISO, stPos, rawMode);
+		else if (rawMode) this.parseRAW(myISO, stPos, monitor);
+		else this.parseISO(myISO, stPos, monitor);
 	}
 	
 	private void constructorCore()
@@ -699,6 +900,16 @@ public class ISO {
 	{
 		return this.firstSector;
 	}
+	
+	/**
+	 * Get whether this image was parsed in lazy mode.
+	 * @return True if Sector objects are built on request. False if they were all
+	 * built on parse.
+	 */
+	public boolean isLazy()
+	{
+		return this.lazy;
+	}
 
 	/**
 	 * Get the sector correlated with the given absolute index.
@@ -709,8 +920,38 @@ public class ISO {
 	public Sector getSectorAbsolute(int absNum)
 	{
 		if (absNum < 0) return null;
-		if (absNum >= this.sectors.length) return null;
-		return this.sectors[absNum];
+		if (!this.lazy)
+		{
+			if (absNum >= this.sectors.length) return null;
+			return this.sectors[absNum];
+		}
+		
+		if (absNum < this.firstSector) return null;
+		if (absNum >= this.firstSector + this.imageSecCount) return null;
+		Sector s = this.touched.get(absNum);
+		if (s != null) return s;
+		s = this.buildLazySector(absNum);
+		if (s == null) return null;
+		Sector other = this.touched.putIfAbsent(absNum, s);
+		if (other != null) return other;
+		return s;
+	}
+	
+	/**
+	 * Get the sector at an absolute index without keeping it around. In lazy mode, a sector
+	 * that hasn't been requested yet is built and returned but not added to the touched
+	 * sector map, so a pass over the whole image takes constant memory.
+	 * @param absNum The index of the desired sector in absolute coordinates.
+	 * @return A Sector at the specified absolute index, or null if the index is invalid.
+	 */
+	Sector peekSectorAbsolute(int absNum)
+	{
+		if (!this.lazy) return this.getSectorAbsolute(absNum);
+		if (absNum < this.firstSector) return null;
+		if (absNum >= this.firstSector + this.imageSecCount) return null;
+		Sector s = this.touched.get(absNum);
+		if (s != null) return s;
+		return this.buildLazySector(absNum);
 	}
 	
 	/**
@@ -733,6 +974,7 @@ public class ISO {
 	 */
 	public int getNumberSectorsAbsolute()
 	{
+		if (this.lazy) return this.firstSector + this.imageSecCount;
 		return this.sectors.length;
 	}
 	
@@ -744,7 +986,7 @@ public class ISO {
 	 */
 	public int getNumberSectorsRelative()
 	{
-		int abs = this.sectors.length;
+		int abs = this.getNumberSectorsAbsolute();
 		return abs - this.firstSector;
 	}
 	
@@ -758,7 +1000,14 @@ public class ISO {
 	{
 		long CDmem = 0;
 		Collection<FileBuffer> counted = new LinkedList<FileBuffer>();
-		for (Sector s : this.sectors)
+		Collection<Sector> all = null;
+		if (this.lazy) all = this.touched.values();
+		else
+		{
+			all = new LinkedList<Sector>();
+			for (Sector s : this.sectors) all.add(s);
+		}
+		for (Sector s : all)
 		{
 			if (s != null)
 			{
@@ -839,7 +1088,7 @@ public class ISO {
 		int valR = val % 10;
 		int valL = val / 10;
 		
-		byte b = (byte)(valL + valR);
+		byte b = (byte)((valL << 4) | valR);
 		
 		return b;
 	}
@@ -867,9 +1116,10 @@ public class ISO {
 	 * Parse image into raw sectors.
 	 * @param myISO Image file in memory to parse.
 	 * @param stPos Position at which to start parsing.
+	 * @param monitor Progress monitor, or null.
 	 * @throws IOException If there is an error creating read-only reference buffers for sectors.
 	 */
-	private void parseRAW(FileBuffer myISO, long stPos) throws IOException
+	private void parseRAW(FileBuffer myISO, long stPos, ProgressMonitor monitor) throws IOException
 	{
 		int numSecs = 0;
 		int secSize = 0;
@@ -882,24 +1132,26 @@ public class ISO {
 		
 		this.firstSector = 0;
 		this.sectors = new Sector[numSecs];
-		//if (this.eventContainer != null) this.eventContainer.fireNewEvent(EventType.ISO_NUMSECSCALCULATED, this.getNumberSectorsRelative());
+		if (monitor != null) monitor.startPhase(Phase.ISO_SECTORS, numSecs);
 		
 		for (int s = 0; s < numSecs; s++)
 		{
-			long sSt = stPos + (s * secSize);
+			long sSt = stPos + ((long)s * secSize);
 			this.sectors[s] = new RawSector();
 			this.sectors[s].setData(myISO.createReadOnlyCopy(sSt, sSt + secSize));
-			//if (this.eventContainer != null) eventContainer.fireNewEvent(EventType.ISO_SECTORREAD, s);
+			if (monitor != null) monitor.tick();
 		}
+		if (monitor != null) monitor.endPhase();
 	}
 	
 	/**
 	 * Parse image and data out of sectors.
 	 * @param myISO FileBuffer of disk image to parse.
 	 * @param stPos Offset from buffer start to begin parsing.
+	 * @param monitor Progress monitor, or null.
 	 * @throws IOException If there is an error creating read-only references to buffer.
 	 */
-	private void parseISO(FileBuffer myISO, long stPos) throws IOException
+	private void parseISO(FileBuffer myISO, long stPos, ProgressMonitor monitor) throws IOException
 	{
 		boolean datOnly = false;
 		int numSecs = 0;
@@ -925,10 +1177,14 @@ public class ISO {
 		numSecs = (int)((myISO.getFileSize() - stPos) / secSize);
 		this.loosedata = (((myISO.getFileSize() - stPos) % secSize) != 0);
 		//System.out.println("ISO.parseISO || numSecs = " + numSecs);
+		this.image = myISO;
+		this.imageStart = stPos;
+		this.imageSecSize = secSize;
+		this.imageSecCount = numSecs;
 		
 		numSecs += this.firstSector;
 		this.sectors = new Sector[numSecs];
-		//if (this.eventContainer != null) this.eventContainer.fireNewEvent(EventType.ISO_NUMSECSCALCULATED, this.getNumberSectorsRelative());
+		if (monitor != null) monitor.startPhase(Phase.ISO_SECTORS, this.imageSecCount);
 		
 		long cPos = stPos;
 		
@@ -936,10 +1192,151 @@ public class ISO {
 		{
 			//System.out.println("ISO.parseISO || Parsing Sector " + s + " at 0x" + Long.toHexString(cPos));
 			this.sectors[s] = parseSector(myISO, cPos);
-			//if (this.eventContainer != null) eventContainer.fireNewEvent(EventType.ISO_SECTORREAD, s);
+			if (monitor != null) monitor.tick();
 			cPos += secSize;
 		}
+		if (monitor != null) monitor.endPhase();
+	}
+	
+	/**
+	 * Record the sector layout of an image without building any Sector objects.
+	 * Only the first sector header is read.
+	 * @param myISO FileBuffer of disk image.
+	 * @param stPos Offset from buffer start to begin parsing.
+	 * @param rawMode Whether sectors should be treated as raw sectors.
+	 */
+	private void parseLazy(FileBuffer myISO, long stPos, boolean rawMode)
+	{
+		this.lazy = true;
+		this.lazyRaw = rawMode;
+		this.image = myISO;
+		this.imageStart = stPos;
+		this.touched = new ConcurrentHashMap<Integer, Sector>();
+		
+		long imgSize = myISO.getFileSize() - stPos;
+		if (rawMode)
+		{
+			//Same size rule as parseRAW
+			if (imgSize % F1SIZE == 0) this.imageSecSize = F1SIZE;
+			else this.imageSecSize = SECSIZE;
+			this.firstSector = 0;
+		}
+		else
+		{
+			boolean datOnly = (imgSize < SYNC.length) || !checkSyncPattern(myISO, stPos);
+			if (!datOnly)
+			{
+				this.imageSecSize = SECSIZE;
+				this.firstSector = readSecNumber(myISO, stPos);
+			}
+			else
+			{
+				this.imageSecSize = F1SIZE;
+				this.firstSector = DEFO_FIRSTSEC;
+			}
+		}
+		
+		this.imageSecCount = (int)(imgSize / this.imageSecSize);
+		this.loosedata = ((imgSize % this.imageSecSize) != 0);
+	}
+	
+	/**
+	 * Build the Sector object for a sector of a lazily parsed image.
+	 * @param absNum Absolute index of sector. Must be in range.
+	 * @return New Sector, or null if it could not be built.
+	 */
+	private Sector buildLazySector(int absNum)
+	{
+		long secSt = this.imageStart + ((long)(absNum - this.firstSector) * (long)this.imageSecSize);
+		try
+		{
+			if (this.lazyRaw)
+			{
+				Sector s = new RawSector();
+				s.setData(referenceData(this.image, secSt, secSt + this.imageSecSize, true));
+				return s;
+			}
+			return parseSector(this.image, secSt, true);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Get a read-only view of the data in a run of sectors as one contiguous buffer.
+	 * <br>Data-only images get a single slice of the image. Raw images get a RawSectorBuffer that
+	 * skips sector headers and error coding arithmetically. Each sector contributes its own payload
+	 * (2048 bytes for Mode 1 and Mode 2 Form 1, 2324 for Form 2), so interleaved files work too. Either way, no Sector objects are touched
+	 * and reads are bulk copies from the image.
+	 * <br>The view reads the original image, so data set on sectors with setData or copyData
+	 * is not reflected.
+	 * @param relSector Relative index of the first sector.
+	 * @param len Number of data bytes to view. Cut short if the image ends first.
+	 * @return View of the sector data.
+	 * <br>null if the image was parsed in raw mode or the range is invalid.
+	 */
+	public FileBuffer createDataView(int relSector, long len)
+	{
+		if (this.image == null || this.lazyRaw) return null;
+		if (len <= 0 || relSector < 0 || relSector >= this.imageSecCount) return null;
+		long secSt = this.imageStart + ((long)relSector * (long)this.imageSecSize);
+		
+		if (this.imageSecSize == F1SIZE)
+		{
+			long ed = secSt + len;
+			if (ed > this.image.getFileSize()) ed = this.image.getFileSize();
+			return new SectorView(this.image, secSt, ed);
+		}
 		
+		return RawSectorBuffer.createView(this.image, secSt, len);
+	}
+	
+	/**
+	 * Get the image this ISO was parsed from.
+	 * @return Source image.
+	 * <br>null if the sectors were not parsed from an image.
+	 */
+	public FileBuffer getSourceImage()
+	{
+		return this.image;
+	}
+	
+	/**
+	 * Get the size of each sector in the source image.
+	 * @return ISO.SECSIZE for raw images, ISO.F1SIZE for data-only images.
+	 * <br>0 if there is no source image.
+	 */
+	public int getSourceSectorSize()
+	{
+		if (this.image == null) return 0;
+		return this.imageSecSize;
+	}
+	
+	/**
+	 * Get the position in the source image of the start of a sector.
+	 * @param relSector Relative index of the sector.
+	 * @return Position of the first byte of the sector in the source image.
+	 * <br>-1 if there is no source image or the index is invalid.
+	 */
+	public long getSourceSectorPosition(int relSector)
+	{
+		if (this.image == null) return -1;
+		if (relSector < 0 || relSector >= this.imageSecCount) return -1;
+		return this.imageStart + ((long)relSector * (long)this.imageSecSize);
+	}
+	
+	/**
+	 * Drop all Sector objects built so far in lazy mode.
+	 * Sectors are rebuilt from the image if requested again, so any data set on them
+	 * with setData or copyData is lost.
+	 * <br>Does nothing if the image was not parsed in lazy mode.
+	 */
+	public void clearSectorCache()
+	{
+		if (this.lazy) this.touched.clear();
 	}
 	
 	/**
@@ -1011,6 +1408,36 @@ public class ISO {
 	 * FileBuffers).
 	 */
 	private static Sector parseSector(FileBuffer myISO, long secStPos) throws IOException
+	{
+		return parseSector(myISO, secStPos, false);
+	}
+	
+	/**
+	 * Get a read-only reference to a piece of an image.
+	 * @param myISO Image.
+	 * @param stPos Start of reference (inclusive).
+	 * @param edPos End of reference (exclusive).
+	 * @param flyweight Whether to use an unregistered view (lazy mode) rather than a child buffer.
+	 * @return Read-only FileBuffer referencing the image.
+	 * @throws IOException If there is an error creating a child buffer.
+	 */
+	private static FileBuffer referenceData(FileBuffer myISO, long stPos, long edPos, boolean flyweight) throws IOException
+	{
+		if (flyweight) return new SectorView(myISO, stPos, edPos);
+		return myISO.createReadOnlyCopy(stPos, edPos);
+	}
+	
+	/**
+	 * Parse the rudimentary sector information of a raw sector.
+	 * @param myISO FileBuffer containing disk image to parse sector from.
+	 * @param secStPos Position of the sector start relative to the start of the image FileBuffer.
+	 * @param flyweight Whether sector data should reference the image through unregistered views.
+	 * @return A Sector containing the sector data separate from the header and/or subheader information
+	 * (if present).
+	 * @throws IOException If there is an error creating a readonly reference buffer (for streamed
+	 * FileBuffers).
+	 */
+	private static Sector parseSector(FileBuffer myISO, long secStPos, boolean flyweight) throws IOException
 	{
 		//int cPos = secStPos;
 		Sector s = null;
@@ -1030,7 +1457,7 @@ public class ISO {
 			s = new SectorM1();
 			if (dataOnly) datSt = secStPos;
 			else datSt = secStPos + 0x10;
-			s.setData(myISO.createReadOnlyCopy(datSt, datSt + F1SIZE));
+			s.setData(referenceData(myISO, datSt, datSt + F1SIZE, flyweight));
 			break;
 		case 2:
 			SectorM2 s2 = new SectorM2();
@@ -1043,12 +1470,12 @@ public class ISO {
 			s2.setSubModeInfo(SM);
 			s2.setCI(CI);
 			datSt = secStPos + 0x18;
-			s2.setData(myISO.createReadOnlyCopy(datSt, datSt + s2.dataSize()));
+			s2.setData(referenceData(myISO, datSt, datSt + s2.dataSize(), flyweight));
 			s = s2;
 			break;
 		default:
 			s = new RawSector();
-			s.setData(myISO.createReadOnlyCopy(secStPos, secStPos + SECSIZE));
+			s.setData(referenceData(myISO, secStPos, secStPos + SECSIZE, flyweight));
 			break;
 		}
 		
@@ -1066,28 +1493,24 @@ public class ISO {
 	 * <br> False if raw sectors are desired.
 	 * @return The size in bytes this image would take up if written to disk.
 	 */
-	public int calculateImageSize(boolean datOnly)
+	public long calculateImageSize(boolean datOnly)
 	{
-		int s = this.sectors.length - this.firstSector;
+		long s = this.getNumberSectorsRelative();
 		if (datOnly) return s*F1SIZE;
 		
 		return s*SECSIZE;
 	}
 	
 	/**
-	 * Serialize and write image to disk. Sectors will be full raw sectors.
-	 * <br> Error coding regions will be all zero.
+	 * Serialize and write image to disk. Sectors will be full raw sectors
+	 * with EDC/ECC filled in.
+	 * <br>Sectors are streamed to disk, so memory use doesn't depend on image size.
 	 * @param path Path on disk to write ISO image to.
 	 * @throws IOException If there is an error writing to disk.
 	 */
 	public void writeFullImage(String path) throws IOException
 	{
-		FileBuffer isoOut = new FileBuffer(this.calculateImageSize(false));
-		for(int s = this.firstSector; s < this.sectors.length; s++)
-		{
-			isoOut.addToFile(this.sectors[s].serializeSector(s));
-		}
-		isoOut.writeFile(path);
+		new ISOStreamWriter(this).writeFullImage(path);
 	}
 	
 	/**
@@ -1100,14 +1523,7 @@ public class ISO {
 	 */
 	public void writeDataImage(String path) throws IOException
 	{
-		int[] sectorCounts = countSectorTypes();
-		if (sectorCounts[3] > 0) throw new UnsupportedOperationException(); //There are M2F2 sectors
-		FileBuffer isoOut = new FileBuffer(this.calculateImageSize(true));
-		for(int s = this.firstSector; s < this.sectors.length; s++)
-		{
-			isoOut.addToFile(this.sectors[s].getData());
-		}
-		isoOut.writeFile(path);
+		new ISOStreamWriter(this).writeDataImage(path);
 	}
 	
 	/* ----- Event ----- */
@@ -1129,8 +1545,13 @@ public class ISO {
 	public int[] countSectorTypes()
 	{
 		int[] count = new int[5];
-		for (Sector s : this.sectors)
+		int end = this.getNumberSectorsAbsolute();
+		for (int i = 0; i < end; i++)
 		{
+			//Lazy images are scanned without keeping the sectors around
+			Sector s = null;
+			if (!this.lazy) s = this.sectors[i];
+			else s = this.peekSectorAbsolute(i);
 			if (s != null)
 			{
 				if (s instanceof SectorM0) count[0]++;
@@ -1,6 +1,9 @@
 package waffleoRai_Containers;
 
+import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.TimeZone;
@@ -10,6 +13,8 @@ import javax.swing.tree.TreeModel;
 import waffleoRai_Containers.CDTable.CDInvalidRecordException;
 import waffleoRai_Containers.ISO.Sector;
 import waffleoRai_Containers.ISO9660Table.ISO9660Entry;
+import waffleoRai_Containers.ISOProgressEvents.Phase;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
 import waffleoRai_Utils.CompositeBuffer;
 import waffleoRai_Utils.FDBuffer;
 import waffleoRai_Utils.FileBuffer;
@@ -33,6 +38,13 @@ import waffleoRai_Utils.VirFile;
  * 	Added accessibility methods, especially for child classes
  * 2017.11.18 | 1.3.0 -> 1.4.0
  * 	For compatibility with Java 9, took out all Observer/Observable usage
+ * 2026.10.19 | 1.4.0 -> 1.5.0
+ * 	Files are single views over the image (ISO.createDataView) instead of per-sector composites
+ * 	getSectorData passes an end offset (not a length) to createReadOnlyCopy
+ * 2026.10.19 | 1.5.0 -> 1.6.0
+ * 	Construction from an already parsed table, and volume information serialization (for CDIndexCache)
+ * 2026.10.19 | 1.6.0 -> 1.7.0
+ * 	Optional progress reporting and cancellation while parsing (replaces the Observer constructor)
  */
 
 /**
@@ -41,7 +53,7 @@ import waffleoRai_Utils.VirFile;
  * <br>This class allows for quick access to contents of CD by referencing either the file path or
  * the sector index.
  * @author Blythe Hospelhorn
- * @version 1.4.0
+ * @version 1.7.0
  * @since November 18, 2017
  *
  */
@@ -95,48 +107,59 @@ public class ISO9660Image implements CDImage{
 	 */
 	public ISO9660Image(ISO myISO) throws CDInvalidRecordException, IOException, UnsupportedFileTypeException
 	{
-		this.constructorCore(myISO);
+		this.constructorCore(myISO, null);
 	}
 	
 	/**
-	 * Construct a parsed ISO9660 image from a raw ISO image object.
-	 * Include a set of Observers to monitor parsing progress.
+	 * Construct an image from a table that has already been parsed (eg. loaded from an index)
+	 * without reading the directory records again.
+	 * <br>Volume information is not read - use loadInformation to set it.
+	 * @param myISO Image to take file data from.
+	 * @param t Parsed table for the image.
+	 * @throws IOException If there is an error creating file buffers.
+	 */
+	protected ISO9660Image(ISO myISO, ISO9660Table t) throws IOException
+	{
+		table = t;
+		rootDir = new VirDirectory("", '\\');
+		this.generateRootDirectory(myISO, table);
+	}
+	
+	/**
+	 * Construct a parsed ISO9660 image from a raw ISO image object, reporting progress
+	 * as the table is parsed and files are mapped.
 	 * @param myISO Raw image to parse.
-	 * @param obs Array of Observers (listeners) to include. 
+	 * @param mon Progress monitor for the TABLE_DIRECTORIES and IMAGE_FILES phases. May be null.
 	 * @throws CDInvalidRecordException If a record in one of the directory tables is unreadable
 	 * or invalid. This can occur from bad formatting or from erroneous offset calculations.
 	 * @throws IOException If there is an error creating parsing buffers.
 	 * @throws UnsupportedFileTypeException If there is an error parsing volume information. 
+	 * @throws java.util.concurrent.CancellationException If the monitor's token is cancelled during the parse.
 	 */
-	/*public ISO9660Image(ISO myISO, Observer[] obs) throws CDInvalidRecordException, IOException, UnsupportedFileTypeException
+	public ISO9660Image(ISO myISO, ProgressMonitor mon) throws CDInvalidRecordException, IOException, UnsupportedFileTypeException
 	{
-		this.eventContainer = myISO.getEventContainer();
-		if (this.eventContainer == null) this.eventContainer = new ISOReadEvent();
-		for (Observer o : obs) this.eventContainer.addObserver(o);
-		this.constructorCore(myISO);
-	}*/
+		this.constructorCore(myISO, mon);
+	}
 	
 	/**
 	 * Set and instantiate instance variable defaults. Defers image to parsing method.
 	 * Generate table and use for further parsing.
 	 * @param myISO Raw image to parse.
+	 * @param mon Progress monitor, or null.
 	 * @throws CDInvalidRecordException If a record in one of the directory tables is unreadable
 	 * or invalid. This can occur from bad formatting or from erroneous offset calculations.
 	 * @throws IOException If an internal file is large enough to require disk-aided streaming and there
 	 * is an error creating the buffer necessary.
 	 * @throws UnsupportedFileTypeException If there is an error parsing volume information.
 	 */
-	private void constructorCore(ISO myISO) throws CDInvalidRecordException, IOException, UnsupportedFileTypeException
+	private void constructorCore(ISO myISO, ProgressMonitor mon) throws CDInvalidRecordException, IOException, UnsupportedFileTypeException
 	{
-		table = new ISO9660Table(myISO);
-		//if (eventContainer != null) eventContainer.fireNewEvent(EventType.IMG9660_TABLEGENERATED, 0);
+		table = new ISO9660Table(myISO, mon);
 		System.out.println("ISO9660Image.constructorCore || Image table parsed.");
 		rootDir = new VirDirectory("", '\\');
-		this.generateRootDirectory(myISO, table);
-		//if (eventContainer != null) eventContainer.fireNewEvent(EventType.IMG9660_VIRDIRPOPULATED, 0);
+		this.generateRootDirectory(myISO, table, mon);
 		System.out.println("ISO9660Image.constructorCore || Image directory tree parsed.");
 		this.readInformation(myISO);
-		//if (eventContainer != null) eventContainer.fireNewEvent(EventType.IMG9660_INFOREAD, 0, this.volIdent);
 		System.out.println("ISO9660Image.constructorCore || Information read.");
 	}
 	
@@ -149,61 +172,69 @@ public class ISO9660Image implements CDImage{
 	 * is an error creating the buffer necessary.
 	 */
 	protected void generateRootDirectory(ISO myISO, ISO9660Table t) throws IOException
+	{
+		generateRootDirectory(myISO, t, null);
+	}
+	
+	/**
+	 * Once table has been parsed, extract the files to a virtual directory whose
+	 * structure mimics the image's original file structure, reporting progress per entry.
+	 * @param myISO Raw image to parse.
+	 * @param t Image's table - use to locate and extract files and directories.
+	 * @param mon Progress monitor for the IMAGE_FILES phase, or null.
+	 * @throws IOException If an internal file is large enough to require disk-aided streaming and there
+	 * is an error creating the buffer necessary.
+	 */
+	protected void generateRootDirectory(ISO myISO, ISO9660Table t, ProgressMonitor mon) throws IOException
 	{
 		Collection<ISO9660Entry> c = t.getAllEntries();
-		//if (eventContainer != null) eventContainer.fireNewEvent(EventType.IMG9660_TBLLISTED, c.size());
+		int nSecs = myISO.getNumberSectorsRelative();
+		if (mon != null) mon.startPhase(Phase.IMAGE_FILES, c.size());
 		for (ISO9660Entry e : c)
 		{
-			if (!e.isDirectory() && e.getStartBlock() < myISO.getNumberSectorsRelative()) 
+			if (mon != null) mon.tick();
+			if (e.isDirectory() || e.getStartBlock() >= nSecs) continue;
+			//One view per file - sector payloads are mapped, not copied or wrapped individually
+			FileBuffer f = myISO.createDataView(e.getStartBlock(), e.getFileSize());
+			if (f == null) f = assembleFromSectors(myISO, e);
+			this.rootDir.addItem(f, e.getName());
+		}
+		if (mon != null) mon.endPhase();
+	}
+	
+	/**
+	 * Build a file out of its individual sectors' data.
+	 * Only used when the image can't provide a single view of the file (eg. it was
+	 * parsed in raw mode).
+	 * @param myISO Raw image.
+	 * @param e Entry of file to assemble.
+	 * @return CompositeBuffer referencing the data of each sector.
+	 * @throws IOException If there is an error creating reference buffers.
+	 */
+	protected FileBuffer assembleFromSectors(ISO myISO, ISO9660Entry e) throws IOException
+	{
+		CompositeBuffer compBuffer = new CompositeBuffer(e.sizeInSectors());
+		int nSecs = myISO.getNumberSectorsRelative();
+		long left = e.getFileSize();
+		for (int s = e.getStartBlock(); left > 0 && s < nSecs; s++)
+		{
+			FileBuffer dat = myISO.getSectorRelative(s).getData();
+			if (dat == null) break;
+			long sz = dat.getFileSize();
+			if (sz <= 0) continue;
+			if (sz > left)
+			{
+				compBuffer.addToFile(dat.createReadOnlyCopy(0, left));
+				left = 0;
+			}
+			else
 			{
-				//System.out.println("ISO9660Image.generateRootDirectory || File " + e.getName() + " is not a directory.");
-				//Generate new file
-				//FileBuffer compFile = FileBuffer.createWritableBuffer("ISO9660Image.generateRootDirectory", e.getFileSize(), true);
-				CompositeBuffer compBuffer = new CompositeBuffer(e.sizeInSectors());
-				int s = e.getStartBlock();
-				//System.out.println("ISO9660Image.generateRootDirectory || Start block: " + s);
-				long left = e.getFileSize();
-				Sector sec = myISO.getSectorRelative(s);
-				//Nab full sectors
-				//System.out.println("ISO9660Image.generateRootDirectory || Entry information... ");
-				e.printMe();
-				//System.out.println("ISO9660Image.generateRootDirectory || s = " + s + " left = " + left);
-				while (left >= sec.getData().getFileSize())
-				{
-					//System.out.println("ISO9660Image.generateRootDirectory || While loop: s = " + s + " left = " + left);
-					//compFile.addToFile(sec.getData());
-					compBuffer.addToFile(sec.getData());
-					//System.out.println("ISO9660Image.generateRootDirectory || Sector added to composite.");
-					s++;
-					//left = e.getFileSize() - compFile.getFileSize();
-					left = e.getFileSize() - compBuffer.getFileSize();
-					
-					if (s < myISO.getNumberSectorsRelative()) sec = myISO.getSectorRelative(s);
-					else break;
-					//System.out.println("ISO9660Image.generateRootDirectory || Next sector retrieved.");
-				}
-				//System.out.println("ISO9660Image.generateRootDirectory || Full sectors copied...");
-				//System.out.println("ISO9660Image.generateRootDirectory || Last sector: " + s);
-				/*If the amount left is less than a full sector (breaking above loop,
-				 * but the amount currently copied to the buffer is still less than the full file size.
-				 * ie. if there is a partial sector at the end*/
-				//if (compFile.getFileSize() < e.getFileSize())
-				if (compBuffer.getFileSize() < e.getFileSize())
-				{
-					//System.out.println("Current comp size: " + compFile.getFileSize() + " Target size: " + e.getFileSize());
-					FileBuffer lastDat = myISO.getSectorRelative(e.lastSector()).getData();
-					long lastPos = e.getFileSize() - compBuffer.getFileSize();
-					FileBuffer subSec = lastDat.createReadOnlyCopy(0, lastPos);
-					compBuffer.addToFile(subSec);
-				}
-				//System.out.println("ISO9660Image.generateRootDirectory || Partial sectors copied...");
-				//this.rootDir.addItem(compFile, e.getName());
-				compBuffer.updateFileSize();
-				this.rootDir.addItem(compBuffer, e.getName());
-				//if (eventContainer != null) eventContainer.fireNewEvent(EventType.IMG9660_FILEADDED, 0, e.getName());
-				//System.out.println("ISO9660Image.generateRootDirectory || File " + e.getName() + " added to virtual directory.");
+				compBuffer.addToFile(dat);
+				left -= sz;
 			}
 		}
+		compBuffer.updateFileSize();
+		return compBuffer;
 	}
 	
 	/**
@@ -305,6 +336,93 @@ public class ISO9660Image implements CDImage{
 		this.CDXAtag = pvd.getASCII_string(cPos, 8);	
 	}
 	
+	private static void writeString(DataOutput out, String s) throws IOException
+	{
+		if (s == null) s = "";
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		out.writeShort(b.length);
+		out.write(b);
+	}
+	
+	private static String readString(ByteBuffer in)
+	{
+		int len = Short.toUnsignedInt(in.getShort());
+		byte[] b = new byte[len];
+		in.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Write the volume information read from the primary volume descriptor so that it
+	 * can later be restored by loadInformation.
+	 * @param out Stream to write to.
+	 * @throws IOException If the stream can't be written to.
+	 */
+	protected void writeInformation(DataOutput out) throws IOException
+	{
+		writeString(out, stdIdent);
+		writeString(out, sysIdent);
+		writeString(out, volIdent);
+		out.writeInt(volSize);
+		out.writeInt(volSetSize);
+		out.writeInt(volSeqNumber);
+		out.writeInt(datBlockSize);
+		out.writeInt(pathTblSize);
+		out.writeInt(pathTbl1);
+		out.writeInt(pathTbl2);
+		out.writeInt(pathTbl3);
+		out.writeInt(pathTbl4);
+		writeString(out, volSetIdent);
+		writeString(out, publisherIdent);
+		writeString(out, dataPrepIdent);
+		writeString(out, applicationIdent);
+		if (dateCreated != null)
+		{
+			out.writeLong(dateCreated.getTimeInMillis());
+			writeString(out, dateCreated.getTimeZone().getID());
+		}
+		else
+		{
+			out.writeLong(Long.MIN_VALUE);
+			writeString(out, "");
+		}
+		writeString(out, CDXAtag);
+	}
+	
+	/**
+	 * Restore volume information written by writeInformation.
+	 * @param in Buffer to read from, positioned at the start of the information.
+	 */
+	protected void loadInformation(ByteBuffer in)
+	{
+		stdIdent = readString(in);
+		sysIdent = readString(in);
+		volIdent = readString(in);
+		volSize = in.getInt();
+		volSetSize = in.getInt();
+		volSeqNumber = in.getInt();
+		datBlockSize = in.getInt();
+		pathTblSize = in.getInt();
+		pathTbl1 = in.getInt();
+		pathTbl2 = in.getInt();
+		pathTbl3 = in.getInt();
+		pathTbl4 = in.getInt();
+		volSetIdent = readString(in);
+		publisherIdent = readString(in);
+		dataPrepIdent = readString(in);
+		applicationIdent = readString(in);
+		long millis = in.getLong();
+		String tz = readString(in);
+		dateCreated = null;
+		if (millis != Long.MIN_VALUE)
+		{
+			dateCreated = FileBuffer.getVanillaTimestamp();
+			dateCreated.setTimeZone(TimeZone.getTimeZone(tz));
+			dateCreated.setTimeInMillis(millis);
+		}
+		CDXAtag = readString(in);
+	}
+	
 	/* --- Getters --- */
 	
 	/**
@@ -344,8 +462,10 @@ public class ISO9660Image implements CDImage{
 		long sOff = this.getTable().calcFileOffsetOfSector(e.getName(), sector);
 		FileBuffer mySec = this.getFile(e.getName());
 		if (mySec == null) return null;
-		if (sOff > mySec.getFileSize() || sOff < 0) return null;
-		mySec = mySec.createReadOnlyCopy(sOff, this.getTable().sectorDataSize(sector));
+		if (sOff >= mySec.getFileSize() || sOff < 0) return null;
+		long edOff = sOff + this.getTable().sectorDataSize(sector);
+		if (edOff > mySec.getFileSize()) edOff = mySec.getFileSize();
+		mySec = mySec.createReadOnlyCopy(sOff, edOff);
 		
 		return mySec;
 	}
@@ -1,15 +1,19 @@
 package waffleoRai_Containers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 
 import waffleoRai_Containers.ISO.Sector;
+import waffleoRai_Containers.ISOProgressEvents.Phase;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
 import waffleoRai_Utils.BitStreamer;
 import waffleoRai_Utils.FileBuffer;
 
@@ -23,13 +27,19 @@ import waffleoRai_Utils.FileBuffer;
  * 	Fixed some parsing issues, especially with timestamp
  * 2017.11.18 | 1.3.0 -> 1.4.0
  * 	Updated for compatibility with Java 9 (removed Observer/Observable usage)
+ * 2026.10.19 | 1.4.0 -> 1.5.0
+ * 	Sector lookups go through a sorted index (binary search) and an occupancy bitmap
+ * 	instead of walking the entry list. Entries are no longer re-sorted on every insert.
+ * 	Directories spanning more than one sector are read in full
+ * 2026.10.19 | 1.5.0 -> 1.6.0
+ * 	Optional progress reporting and cancellation while parsing (ISOProgressEvents.ProgressMonitor)
  */
 
 /**
  * CDTable class specific to ISO9660 standard (no extensions).
  * Can parse an ISO object upon construction to deduce a ISO9660 encoded CD image's file structure.
  * @author Blythe Hospelhorn
- * @version 1.4.0
+ * @version 1.6.0
  * @since November 18, 2017
  *
  */
@@ -48,11 +58,13 @@ public class ISO9660Table implements CDTable
 	public static final String[] badNames = {"", ".", "..", "/", null, "\\", " "};
 	
 	private Map<String, ISO9660Entry> itemMap;
-	private List<ISO9660Entry> sectorMap;
+	private SectorIndex sectorMap;
 	
 	private int firstSector;
 	private int numSectors;
 	
+	private ProgressMonitor monitor; //Only set while parsing
+	
 	/* --- Objects --- */
 	
 	/**
@@ -403,6 +415,140 @@ public class ISO9660Table implements CDTable
 		}
 	}
 
+	/**
+	 * Sector to entry lookup.
+	 * <br>Entries are appended as they come in and only sorted (once) when a lookup needs it.
+	 * The sorted form is a set of parallel primitive arrays searched by binary search.
+	 * A bitmap of occupied sectors is kept up to date on every insert, so free sector
+	 * queries never need the sorted form.
+	 * <br>Entry start sectors and sizes are read when the entry is added - entries should not be resized
+	 * after being put in the index.
+	 * @author Blythe Hospelhorn
+	 * @version 1.0.0
+	 * @since October 19, 2026
+	 */
+	private static class SectorIndex
+	{
+		private List<ISO9660Entry> entries;
+		private BitSet occupied;
+		
+		private volatile SortedView sorted; //null when entries have been added since last sort
+		
+		private static class SortedView
+		{
+			public ISO9660Entry[] entries;
+			public int[] starts;
+			public int[] maxEnds; //Highest last sector of any entry at or before each index
+			
+			public SortedView(List<ISO9660Entry> list)
+			{
+				int n = list.size();
+				entries = list.toArray(new ISO9660Entry[n]);
+				starts = new int[n];
+				maxEnds = new int[n];
+				int max = Integer.MIN_VALUE;
+				for (int i = 0; i < n; i++)
+				{
+					ISO9660Entry e = entries[i];
+					starts[i] = e.getStartBlock();
+					int last = e.lastSector();
+					if (last > max) max = last;
+					maxEnds[i] = max;
+				}
+			}
+			
+			public ISO9660Entry find(int sector)
+			{
+				//Last entry starting at or before the sector
+				int lo = 0;
+				int hi = starts.length - 1;
+				int cand = -1;
+				while (lo <= hi)
+				{
+					int mid = (lo + hi) >>> 1;
+					if (starts[mid] <= sector)
+					{
+						cand = mid;
+						lo = mid + 1;
+					}
+					else hi = mid - 1;
+				}
+				if (cand < 0 || maxEnds[cand] < sector) return null;
+				
+				//First entry in [0, cand] reaching the sector. maxEnds is non-decreasing, so this is
+				//the same entry a front to back scan of the sorted list would hit first.
+				lo = 0;
+				hi = cand;
+				while (lo < hi)
+				{
+					int mid = (lo + hi) >>> 1;
+					if (maxEnds[mid] >= sector) hi = mid;
+					else lo = mid + 1;
+				}
+				return entries[lo];
+			}
+		}
+		
+		public SectorIndex()
+		{
+			entries = new ArrayList<ISO9660Entry>();
+			occupied = new BitSet();
+		}
+		
+		public synchronized void add(ISO9660Entry e)
+		{
+			entries.add(e);
+			sorted = null;
+			int st = e.getStartBlock();
+			int ed = e.lastSector() + 1;
+			if (st < 0) st = 0;
+			if (ed > st) occupied.set(st, ed);
+		}
+		
+		private SortedView getSorted()
+		{
+			SortedView v = sorted;
+			if (v != null) return v;
+			synchronized(this)
+			{
+				if (sorted == null)
+				{
+					Collections.sort(entries); //Stable - equal starts keep insertion order
+					sorted = new SortedView(entries);
+				}
+				return sorted;
+			}
+		}
+		
+		public ISO9660Entry find(int sector)
+		{
+			return getSorted().find(sector);
+		}
+		
+		public List<ISO9660Entry> getSortedList()
+		{
+			return Collections.unmodifiableList(Arrays.asList(getSorted().entries));
+		}
+		
+		public synchronized boolean isOccupied(int sector)
+		{
+			if (sector < 0) return false;
+			return occupied.get(sector);
+		}
+		
+		public synchronized int nextFree(int from)
+		{
+			if (from < 0) from = 0;
+			return occupied.nextClearBit(from);
+		}
+		
+		public synchronized int nextOccupied(int from)
+		{
+			if (from < 0) from = 0;
+			return occupied.nextSetBit(from);
+		}
+	}
+	
 	/* --- Construction --- */
 	
 	/**
@@ -413,7 +559,7 @@ public class ISO9660Table implements CDTable
 	{
 		//System.out.println("ISO9660Table Primary Constructor Called");
 		itemMap = new HashMap<String, ISO9660Entry>();
-		sectorMap = new LinkedList<ISO9660Entry>();
+		sectorMap = new SectorIndex();
 		firstSector = 150;
 		//this.eventContainer = null;
 	}
@@ -427,9 +573,30 @@ public class ISO9660Table implements CDTable
 	 * (ie. An apparent record is found that cannot be read).
 	 */
 	public ISO9660Table(ISO myISO) throws CDInvalidRecordException
+	{
+		this(myISO, null);
+	}
+	
+	/**
+	 * Construct an ISO9660 table from the provided image, reporting progress as
+	 * directory sectors are read.
+	 * @param myISO Image to generate table of.
+	 * @param mon Progress monitor for the TABLE_DIRECTORIES phase. May be null.
+	 * @throws CDInvalidRecordException If there is an error parsing or finding the table.
+	 * @throws java.util.concurrent.CancellationException If the monitor's token is cancelled during the parse.
+	 */
+	public ISO9660Table(ISO myISO, ProgressMonitor mon) throws CDInvalidRecordException
 	{
 		this();
-		this.parseFromISO(myISO);
+		this.monitor = mon;
+		try
+		{
+			this.parseFromISO(myISO);
+		}
+		finally
+		{
+			this.monitor = null;
+		}
 	}
 	
 	/**
@@ -479,16 +646,9 @@ public class ISO9660Table implements CDTable
 	
 	public CDTEntry getEntry(int sector)
 	{
-		//When checking file sizes, don't forget ignore directory sizes!
-		for (ISO9660Entry e : this.sectorMap)
-		{
-			if (sector < e.getStartBlock()) return null;
-			else if (sector >= e.getStartBlock())
-			{
-				if (sector <= e.lastSector()) return e;
-			}
-		}
-		return null;
+		//Fast reject from the bitmap, then binary search
+		if (!this.sectorMap.isOccupied(sector)) return null;
+		return this.sectorMap.find(sector);
 	}
 	
 	public int getNumberSectors()
@@ -527,18 +687,30 @@ public class ISO9660Table implements CDTable
 		return ISO.F1SIZE;
 	}
 	
+	/**
+	 * Get all entries ordered by start sector.
+	 * @return Read-only list of entries sorted by start sector.
+	 */
 	protected List<ISO9660Entry> getSectorMap()
 	{
-		return sectorMap;
+		return sectorMap.getSortedList();
 	}
 
 	
+	/**
+	 * Get the progress monitor for a parse in progress.
+	 * @return Monitor, or null if there is none or the table is not being parsed.
+	 */
+	protected ProgressMonitor getMonitor()
+	{
+		return this.monitor;
+	}
+	
 	/* --- Setters --- */
 	
 	protected void putInSectorMap(ISO9660Entry e)
 	{
 		this.sectorMap.add(e);
-		Collections.sort(this.sectorMap);
 	}
 	
 	protected void putInMainMap(ISO9660Entry e, String path)
@@ -556,6 +728,11 @@ public class ISO9660Table implements CDTable
 		this.numSectors = nSecs;
 	}
 	
+	protected void setMonitor(ProgressMonitor mon)
+	{
+		this.monitor = mon;
+	}
+	
 	public void addEntry(ISO9660Entry e, String path)
 	{
 		putInMainMap(e, path);
@@ -566,23 +743,17 @@ public class ISO9660Table implements CDTable
 	
 	protected int nextUncoveredSector()
 	{
-		for (int i = 0; i < this.numSectors; i++)
-		{
-			if (this.getEntry(i) == null) return i;
-		}
-		return -1;
+		int s = this.sectorMap.nextFree(0);
+		if (s >= this.numSectors) return -1;
+		return s;
 	}
 	
 	protected int calculateSectorsToNextCovered(int sector)
 	{
-		if (this.getEntry(sector) != null) return 0;
-		int s = sector;
-		
-		while (this.getEntry(s) == null && s < this.numSectors)
-		{
-			s++;
-		}
-		
+		if (this.sectorMap.isOccupied(sector)) return 0;
+		int s = this.sectorMap.nextOccupied(sector);
+		if (s < 0 || s > this.numSectors) s = this.numSectors;
+		if (s < sector) return 0;
 		return s - sector;
 	}
 	
@@ -595,7 +766,7 @@ public class ISO9660Table implements CDTable
 	public boolean isSectorFree(int sector)
 	{
 		if (sector <= 16) return false;
-		return (this.getEntry(sector) == null);
+		return !this.sectorMap.isOccupied(sector);
 	}
 	
 	/* --- Parsing/ Conversion --- */
@@ -620,11 +791,11 @@ public class ISO9660Table implements CDTable
 		sDat.setEndian(true);
 		int rdsoff = 0x9C + 0x02 + 0x04;
 		int rootDirSec = sDat.intFromFile(rdsoff);
-		//if (this.eventContainer != null) eventContainer.fireNewEvent(EventType.TBL9660_ROOTDIRSECFOUND, rootDirSec);
+		int rootDirSize = sDat.intFromFile(rdsoff + 8);
 		//System.out.println("ISO9660Table.parseFromISO || rootDirSec found: " + rootDirSec);
 		
-		this.parseDirectory(myISO, rootDirSec, "");
-		//if (eventContainer != null) eventContainer.fireNewEvent(EventType.TBL9660_ROOTDIRPARSED, 0);
+		if (monitor != null) monitor.startPhase(Phase.TABLE_DIRECTORIES, -1);
+		this.parseDirectory(myISO, rootDirSec, directorySectors(rootDirSize), "");
 		//System.out.println("ISO9660Table.parseFromISO || root directory parsed ");
 		
 		//Create "RAW" entries to cover any sectors not explicitly included in a file.
@@ -646,16 +817,40 @@ public class ISO9660Table implements CDTable
 			//if (eventContainer != null) eventContainer.fireNewEvent(EventType.TBL9660_UCSECFOUND, us);
 		}
 		//System.out.println("ISO9660Table.parseFromISO || Uncovered sectors handled ");
-		//if (eventContainer != null) eventContainer.fireNewEvent(EventType.TBL9660_UCSECSHANDLED, 0);
+		if (monitor != null) monitor.endPhase();
 		//System.out.println("ISO9660Table.parseFromISO || Table parsed");
 	}
 	
-	private void parseDirectory(ISO myISO, int secRel, String dName) throws CDInvalidRecordException
+	/**
+	 * Get the number of sectors a directory extent spans.
+	 * @param size Directory data length from its record.
+	 * @return Number of sectors to read (at least 1).
+	 */
+	protected static int directorySectors(long size)
+	{
+		long n = (size + ISO.F1SIZE - 1) / ISO.F1SIZE;
+		if (n < 1) return 1;
+		if (n > Integer.MAX_VALUE) return Integer.MAX_VALUE;
+		return (int)n;
+	}
+	
+	private void parseDirectory(ISO myISO, int secRel, int nSecs, String dName) throws CDInvalidRecordException
+	{
+		//Records never cross a sector boundary - a 0 length byte means the rest of the sector is padding
+		for (int s = 0; s < nSecs; s++)
+		{
+			Sector dirTable = myISO.getSectorRelative(secRel + s);
+			if (dirTable == null) break;
+			if (monitor != null) monitor.tick();
+			parseDirectorySector(myISO, dirTable, dName);
+		}
+	}
+	
+	private void parseDirectorySector(ISO myISO, Sector dirTable, String dName) throws CDInvalidRecordException
 	{
 		//System.out.println("ISO9660Table.parseDirectory || Entered -- secRel = " + secRel);
 		int cPos = 0;
 		boolean ignore = false;
-		Sector dirTable = myISO.getSectorRelative(secRel);
 		//System.out.println("ISO9660Table.parseDirectory || root directory parsed ");
 		//int c = 0;
 		
@@ -685,7 +880,7 @@ public class ISO9660Table implements CDTable
 				this.putInSectorMap(e);
 				if (e.isDirectory())
 				{
-					parseDirectory(myISO, e.getStartBlock(), e.getName() + "\\");
+					parseDirectory(myISO, e.getStartBlock(), directorySectors(e.getFileSize()), e.getName() + "\\");
 				}
 			}
 			//System.out.println("ISO9660Table.parseDirectory || Entry found: " + e.getName());
@@ -725,7 +920,7 @@ public class ISO9660Table implements CDTable
  		System.out.println("Number sectors: " + this.numSectors);
  		System.out.println();
  		System.out.println("ENTRIES (As ordered in sectorMap --- \n");
- 		for (ISO9660Entry e : this.sectorMap)
+ 		for (ISO9660Entry e : this.getSectorMap())
  		{
  			e.printMe();
  			System.out.println();
@@ -1,83 +1,272 @@
 package waffleoRai_Containers;
 
-import java.util.Observable;
+import java.util.concurrent.CancellationException;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 2.0.0
+ * 	Replaced the Observable event containers (never fired) with a batched progress listener,
+ * 	a cancellation token and per-phase timing
+ */
+
+/**
+ * Progress reporting and cancellation for long container operations (image parsing, table
+ * parsing, image writing, mastering, demuxing).
+ * <br>Operations that support it take a ProgressMonitor. The monitor counts work units (usually sectors)
+ * and only calls its listener and checks its cancellation token every N units, so the per-unit cost is
+ * a counter decrement. Operations given a null monitor skip reporting entirely.
+ * <br>Cancellation is cooperative - when the token is cancelled, the next check throws a
+ * java.util.concurrent.CancellationException out of the operation.
+ * @author Blythe Hospelhorn
+ * @version 2.0.0
+ * @since October 19, 2026
+ */
 public class ISOProgressEvents {
 
-	public static enum EventType
+	/**
+	 * Stages of the operations that report progress.
+	 */
+	public static enum Phase
+	{
+		ISO_SECTORS,
+		TABLE_DIRECTORIES,
+		TABLE_SUBHEADERS,
+		IMAGE_FILES,
+		IMAGE_WRITE,
+		MASTER_WALK,
+		MASTER_LAYOUT,
+		MASTER_WRITE,
+		XA_DEMUX;
+	}
+
+	/**
+	 * Receives batched progress updates.
+	 * <br>Callbacks run on the thread doing the work, so they should return quickly.
+	 */
+	public static interface ProgressListener
 	{
-		ISO_ZEROSECTORCONSTRUCTION,
-		ISO_NUMSECSCALCULATED,
-		ISO_SECTORREAD,
-		TBL9660_BASECONSTRUCTION,
-		TBL9660_ROOTDIRSECFOUND,
-		TBL9660_PARSEDIRENTERED,
-		TBL9660_ENTRYPARSESTART,
-		TBL9660_ENTRYPARSEEND,
-		TBL9660_PARSEDIREND,
-		TBL9660_ENTRYIGNORED,
-		TBL9660_UCSECFOUND,
-		TBL9660_ROOTDIRPARSED,
-		TBL9660_UCSECSHANDLED,
-		IMG9660_TABLEGENERATED,
-		IMG9660_VIRDIRPOPULATED,
-		IMG9660_INFOREAD,
-		IMG9660_TBLLISTED,
-		IMG9660_FILEADDED;
+		/**
+		 * @param phase Phase starting.
+		 * @param total Number of units the phase is expected to take, or -1 if unknown.
+		 */
+		public void onPhaseStart(Phase phase, long total);
+
+		/**
+		 * @param phase Current phase.
+		 * @param done Units done so far in this phase.
+		 * @param total Units expected, or -1 if unknown.
+		 */
+		public void onProgress(Phase phase, long done, long total);
+
+		/**
+		 * @param phase Phase ending.
+		 * @param done Units done in the phase.
+		 * @param nanos Time spent in the phase.
+		 */
+		public void onPhaseEnd(Phase phase, long done, long nanos);
 	}
-	
-	public static class ISOReadEvent extends Observable
+
+	/**
+	 * Flag used to ask a running operation to stop. Can be set from any thread.
+	 */
+	public static class CancelToken
 	{
-		private int val;
-		private EventType type;
-		private String details;
-		
-		public ISOReadEvent()
+		private volatile boolean cancelled;
+
+		public void cancel()
 		{
-			this.val = -1;
-			this.type = null;
-			this.details = null;
+			cancelled = true;
 		}
-		
-		public int getValue()
+
+		public boolean isCancelled()
+		{
+			return cancelled;
+		}
+
+		/**
+		 * @throws CancellationException If the token has been cancelled.
+		 */
+		public void check()
+		{
+			if (cancelled) throw new CancellationException();
+		}
+	}
+
+	/**
+	 * Counts work for an operation, reports it to a listener in batches, checks for cancellation
+	 * and times each phase.
+	 * <br>A monitor should only be driven by one thread at a time. Operations that work in parallel
+	 * report from the thread collecting results.
+	 */
+	public static class ProgressMonitor
+	{
+		public static final int DEFO_INTERVAL = 256;
+
+		private ProgressListener listener;
+		private CancelToken token;
+		private int interval;
+
+		private Phase phase;
+		private long total;
+		private long done;
+		private int countdown;
+		private long phaseStart;
+
+		private long[] phaseTime;
+		private long[] phaseUnits;
+
+		/**
+		 * @param l Listener to report to. May be null (timing and cancellation only).
+		 * @param t Cancellation token. May be null.
+		 */
+		public ProgressMonitor(ProgressListener l, CancelToken t)
 		{
-			return this.val;
+			this(l, t, DEFO_INTERVAL);
 		}
-		
-		public EventType getType()
+
+		/**
+		 * @param l Listener to report to. May be null (timing and cancellation only).
+		 * @param t Cancellation token. May be null.
+		 * @param units Number of units between reports and cancellation checks.
+		 */
+		public ProgressMonitor(ProgressListener l, CancelToken t, int units)
 		{
-			return this.type;
+			listener = l;
+			token = t;
+			interval = (units < 1) ? 1 : units;
+			phaseTime = new long[Phase.values().length];
+			phaseUnits = new long[Phase.values().length];
 		}
-	
-		public String getDetails()
+
+		/* --- Reporting --- */
+
+		/**
+		 * Start a phase. A phase that is still open is ended first.
+		 * @param p Phase.
+		 * @param expected Expected units, or -1 if unknown.
+		 * @throws CancellationException If the operation has been cancelled.
+		 */
+		public void startPhase(Phase p, long expected)
 		{
-			return this.details;
+			if (phase != null) endPhase();
+			checkCancelled();
+			phase = p;
+			total = expected;
+			done = 0;
+			countdown = interval;
+			phaseStart = System.nanoTime();
+			if (listener != null) listener.onPhaseStart(p, expected);
 		}
-		
-		public void fireNewEvent(EventType t, int value)
+
+		/**
+		 * Count one unit of work.
+		 * @throws CancellationException If this is a check point and the operation has been cancelled.
+		 */
+		public void tick()
 		{
-			this.fireNewEvent(t, value, null);
+			done++;
+			if (--countdown <= 0) report();
 		}
-		
-		public void fireNewEvent(EventType t, int value, String details)
+
+		/**
+		 * Count several units of work at once.
+		 * @param units Units done.
+		 * @throws CancellationException If this is a check point and the operation has been cancelled.
+		 */
+		public void step(long units)
 		{
-			this.val = value;
-			this.type = t;
-			this.details = details;
-			this.setChanged();
-			this.notifyObservers();
+			done += units;
+			countdown -= units;
+			if (countdown <= 0) report();
+		}
+
+		private void report()
+		{
+			countdown = interval;
+			checkCancelled();
+			if (listener != null) listener.onProgress(phase, done, total);
+		}
+
+		/**
+		 * End the current phase and add its time to the phase counters.
+		 * Does nothing if no phase is open.
+		 */
+		public void endPhase()
+		{
+			if (phase == null) return;
+			long t = System.nanoTime() - phaseStart;
+			Phase p = phase;
+			phase = null;
+			phaseTime[p.ordinal()] += t;
+			phaseUnits[p.ordinal()] += done;
+			if (listener != null) listener.onPhaseEnd(p, done, t);
+		}
+
+		/**
+		 * @throws CancellationException If the operation has been cancelled.
+		 */
+		public void checkCancelled()
+		{
+			if (token != null) token.check();
+		}
+
+		/* --- Counters --- */
+
+		public CancelToken getCancelToken()
+		{
+			return token;
+		}
+
+		/**
+		 * @return Phase currently open, or null.
+		 */
+		public Phase getCurrentPhase()
+		{
+			return phase;
+		}
+
+		/**
+		 * @param p Phase.
+		 * @return Total time spent in completed runs of the phase, in nanoseconds.
+		 */
+		public long getPhaseTime(Phase p)
+		{
+			return phaseTime[p.ordinal()];
+		}
+
+		/**
+		 * @param p Phase.
+		 * @return Total units counted in completed runs of the phase.
+		 */
+		public long getPhaseUnits(Phase p)
+		{
+			return phaseUnits[p.ordinal()];
+		}
+
+		/**
+		 * Clear the phase counters.
+		 */
+		public void resetCounters()
+		{
+			for (int i = 0; i < phaseTime.length; i++)
+			{
+				phaseTime[i] = 0;
+				phaseUnits[i] = 0;
+			}
+		}
+
+		/**
+		 * Print time spent in each phase that has run to stdout.
+		 */
+		public void printTimes()
+		{
+			for (Phase p : Phase.values())
+			{
+				if (phaseTime[p.ordinal()] == 0 && phaseUnits[p.ordinal()] == 0) continue;
+				System.out.println(p + ": " + (phaseTime[p.ordinal()] / 1000000) + " ms (" + phaseUnits[p.ordinal()] + " units)");
+			}
 		}
-		
-	}
-	
-	public static class TableReadEvent extends Observable
-	{
-		
-	}
-	
-	public static class ImageReadEvent extends Observable
-	{
-		
 	}
-	
+
 }
@@ -0,0 +1,367 @@
+package waffleoRai_Containers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import waffleoRai_Containers.ISO.Sector;
+import waffleoRai_Containers.ISOProgressEvents.Phase;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
+import waffleoRai_Utils.FileBuffer;
+
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Optional progress reporting and cancellation (setMonitor)
+ * 	Batches written through a wrapping ByteBuffer instead of being copied to a direct one
+ */
+
+/**
+ * Writes an ISO image to disk a batch of sectors at a time.
+ * <br>Sectors are serialized straight into a reused batch array, which is written through a
+ * FileChannel as a wrapping ByteBuffer. Memory use depends only on the batch size,
+ * and images over 2GB are fine.
+ * <br>With coding threads set, EDC/ECC for a batch is computed on a worker pool while the
+ * next batch is being serialized.
+ * @author Blythe Hospelhorn
+ * @version 1.1.0
+ * @since October 19, 2026
+ */
+public class ISOStreamWriter {
+
+	/* ----- Constants ----- */
+
+	public static final int DEFO_BATCH_SECTORS = 512;
+
+	/* ----- Instance Variables ----- */
+
+	private ISO image;
+	private int batchSectors;
+	private int codingThreads;
+
+	private ProgressMonitor monitor;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * @param iso Image to write. Sectors are requested as they are written, so lazy
+	 * images don't need to be fully built first, and sectors built for the write aren't kept.
+	 */
+	public ISOStreamWriter(ISO iso)
+	{
+		image = iso;
+		batchSectors = DEFO_BATCH_SECTORS;
+		codingThreads = 0;
+	}
+
+	/* ----- Settings ----- */
+
+	public int getBatchSize()
+	{
+		return batchSectors;
+	}
+
+	public int getCodingThreads()
+	{
+		return codingThreads;
+	}
+
+	/**
+	 * Set how many sectors are serialized before each write to disk.
+	 * @param sectors Sectors per batch.
+	 */
+	public void setBatchSize(int sectors)
+	{
+		if (sectors < 1) sectors = 1;
+		if (sectors > 0x10000) sectors = 0x10000;
+		batchSectors = sectors;
+	}
+
+	/**
+	 * Set the number of threads used to compute EDC/ECC for full images.
+	 * @param threads Number of worker threads. 0 or less computes error coding
+	 * on the writing thread as sectors are serialized.
+	 */
+	public void setCodingThreads(int threads)
+	{
+		if (threads < 0) threads = 0;
+		codingThreads = threads;
+	}
+
+	/**
+	 * Set a monitor to report progress to and check for cancellation while writing.
+	 * Writes report an IMAGE_WRITE phase counted in sectors, once per batch.
+	 * <br>If cancelled, the write throws a CancellationException and the partial output is left as is.
+	 * @param mon Monitor, or null for none.
+	 */
+	public void setMonitor(ProgressMonitor mon)
+	{
+		monitor = mon;
+	}
+
+	/* ----- Internal ----- */
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "ISOStreamWriter.Coder" + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	private static FileChannel openOutput(String path) throws IOException
+	{
+		if (path == null) throw new IOException();
+		File parent = new File(path).getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.exists())
+		{
+			if (!parent.mkdirs()) throw new IOException();
+		}
+		return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/* view wraps a batch array, so the batch goes to the channel without a copy of our own. */
+	private static void flush(ByteBuffer view, int len, FileChannel out) throws IOException
+	{
+		view.clear();
+		view.limit(len);
+		while (view.hasRemaining()) out.write(view);
+	}
+
+	private Sector sectorOrBlank(int s, Sector blank)
+	{
+		Sector sec = image.peekSectorAbsolute(s);
+		if (sec == null) return blank;
+		return sec;
+	}
+
+	/* Serialize sectors [first, first+count) into batch. Returns number of bytes. */
+	private int fillRawBatch(byte[] batch, int first, int count, boolean coding, Sector blank)
+	{
+		for (int i = 0; i < count; i++)
+		{
+			int s = first + i;
+			sectorOrBlank(s, blank).serializeInto(batch, i * ISO.SECSIZE, s, coding);
+		}
+		return count * ISO.SECSIZE;
+	}
+
+	private List<Future<?>> submitCoding(ExecutorService pool, final byte[] batch, int count, final int[] skip)
+	{
+		List<Future<?>> jobs = new LinkedList<Future<?>>();
+		int per = (count + codingThreads - 1) / codingThreads;
+		for (int st = 0; st < count; st += per)
+		{
+			final int a = st;
+			final int b = Math.min(count, st + per);
+			jobs.add(pool.submit(new Runnable(){
+				public void run()
+				{
+					for (int i = a; i < b; i++)
+					{
+						if (skip[i] != 0) continue;
+						CDSectorCoding.encodeSector(batch, i * ISO.SECSIZE);
+					}
+				}
+			}));
+		}
+		return jobs;
+	}
+
+	private static void waitAll(List<Future<?>> jobs) throws IOException
+	{
+		if (jobs == null) return;
+		for (Future<?> f : jobs)
+		{
+			try
+			{
+				f.get();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IOException("ISOStreamWriter: Interrupted while waiting on coder", e);
+			}
+			catch (ExecutionException e)
+			{
+				throw new IOException("ISOStreamWriter: Coder failed", e.getCause());
+			}
+		}
+	}
+
+	/* ----- Full Image ----- */
+
+	/**
+	 * Write full raw (2352 byte) sectors with EDC/ECC to a file.
+	 * @param path Path to write to. Parent directories are created if needed.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void writeFullImage(String path) throws IOException
+	{
+		FileChannel out = openOutput(path);
+		try
+		{
+			writeFullImage(out);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Write full raw (2352 byte) sectors with EDC/ECC to a channel, starting at its current position.
+	 * @param out Channel to write to. Not closed.
+	 * @throws IOException If the channel can't be written to.
+	 */
+	public void writeFullImage(FileChannel out) throws IOException
+	{
+		int first = image.firstSector();
+		int end = image.getNumberSectorsAbsolute();
+		Sector blank = new ISO.SectorM0();
+		if (monitor != null) monitor.startPhase(Phase.IMAGE_WRITE, end - first);
+
+		if (codingThreads <= 0)
+		{
+			byte[] batch = new byte[batchSectors * ISO.SECSIZE];
+			ByteBuffer view = ByteBuffer.wrap(batch);
+			for (int s = first; s < end; s += batchSectors)
+			{
+				int count = Math.min(batchSectors, end - s);
+				int len = fillRawBatch(batch, s, count, true, blank);
+				flush(view, len, out);
+				if (monitor != null) monitor.step(count);
+			}
+			if (monitor != null) monitor.endPhase();
+			return;
+		}
+
+		//Two batches - one being coded while the other is filled
+		byte[][] batches = {new byte[batchSectors * ISO.SECSIZE], new byte[batchSectors * ISO.SECSIZE]};
+		ByteBuffer[] views = {ByteBuffer.wrap(batches[0]), ByteBuffer.wrap(batches[1])};
+		int[][] skips = {new int[batchSectors], new int[batchSectors]};
+		int[] lens = new int[2];
+		List<List<Future<?>>> jobs = new ArrayList<List<Future<?>>>(2);
+		jobs.add(null);
+		jobs.add(null);
+		ExecutorService pool = Executors.newFixedThreadPool(codingThreads, new DaemonFactory());
+		try
+		{
+			int cur = 0;
+			for (int s = first; s < end; s += batchSectors)
+			{
+				int count = Math.min(batchSectors, end - s);
+				byte[] batch = batches[cur];
+				int[] skip = skips[cur];
+				for (int i = 0; i < count; i++)
+				{
+					Sector sec = sectorOrBlank(s + i, blank);
+					//Raw sectors already have whatever coding they came with
+					skip[i] = (sec instanceof ISO.RawSector) ? 1 : 0;
+					sec.serializeInto(batch, i * ISO.SECSIZE, s + i, false);
+				}
+				lens[cur] = count * ISO.SECSIZE;
+				jobs.set(cur, submitCoding(pool, batch, count, skip));
+
+				int prev = cur ^ 1;
+				if (jobs.get(prev) != null)
+				{
+					waitAll(jobs.get(prev));
+					flush(views[prev], lens[prev], out);
+					jobs.set(prev, null);
+					if (monitor != null) monitor.step(lens[prev] / ISO.SECSIZE);
+				}
+				cur = prev;
+			}
+			int last = cur ^ 1;
+			if (jobs.get(last) != null)
+			{
+				waitAll(jobs.get(last));
+				flush(views[last], lens[last], out);
+				if (monitor != null) monitor.step(lens[last] / ISO.SECSIZE);
+			}
+			if (monitor != null) monitor.endPhase();
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	/* ----- Data Image ----- */
+
+	/**
+	 * Write a data-only (2048 bytes per sector, no headers or error coding) image to a file.
+	 * @param path Path to write to. Parent directories are created if needed.
+	 * @throws IOException If the file can't be written.
+	 * @throws UnsupportedOperationException If the image contains Mode 2 Form 2 sectors.
+	 */
+	public void writeDataImage(String path) throws IOException
+	{
+		int[] sectorCounts = image.countSectorTypes();
+		if (sectorCounts[3] > 0) throw new UnsupportedOperationException(); //There are M2F2 sectors
+		FileChannel out = openOutput(path);
+		try
+		{
+			writeDataImage(out);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Write a data-only image to a channel, starting at its current position.
+	 * Each sector takes up exactly 2048 bytes - sector data is zero padded or cut to fit.
+	 * This method does not check for Form 2 sectors.
+	 * @param out Channel to write to. Not closed.
+	 * @throws IOException If the channel can't be written to.
+	 */
+	public void writeDataImage(FileChannel out) throws IOException
+	{
+		int first = image.firstSector();
+		int end = image.getNumberSectorsAbsolute();
+		byte[] batch = new byte[batchSectors * ISO.F1SIZE];
+		ByteBuffer view = ByteBuffer.wrap(batch);
+		if (monitor != null) monitor.startPhase(Phase.IMAGE_WRITE, end - first);
+
+		for (int s = first; s < end; s += batchSectors)
+		{
+			int count = Math.min(batchSectors, end - s);
+			for (int i = 0; i < count; i++)
+			{
+				int off = i * ISO.F1SIZE;
+				int len = 0;
+				Sector sec = image.peekSectorAbsolute(s + i);
+				FileBuffer dat = (sec == null) ? null : sec.getData();
+				if (dat != null)
+				{
+					len = (int)Math.min(dat.getFileSize(), (long)ISO.F1SIZE);
+					if (len > 0) System.arraycopy(dat.getBytes(0, len), 0, batch, off, len);
+				}
+				for (int j = len; j < ISO.F1SIZE; j++) batch[off + j] = 0;
+			}
+			flush(view, count * ISO.F1SIZE, out);
+			if (monitor != null) monitor.step(count);
+		}
+		if (monitor != null) monitor.endPhase();
+	}
+
+}
@@ -3,6 +3,7 @@ package waffleoRai_Containers;
 import java.io.IOException;
 
 import waffleoRai_Containers.CDTable.CDInvalidRecordException;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
 import waffleoRai_Containers.XATable.XAEntry;
 import waffleoRai_Containers.XATable.XASectorHeader;
 import waffleoRai_Utils.CompositeBuffer;
@@ -19,19 +20,33 @@ import waffleoRai_Utils.FileBuffer.UnsupportedFileTypeException;
  * 	Added empty constructor for child classes
  * 2017.11.05 | 1.2.1 -> 1.3.0
  * 	Added further accessibility, especially for child classes
+ * 2026.10.19 | 1.3.0 -> 1.3.1
+ * 	getSectorData passes an end offset (not a length) to createReadOnlyCopy
+ * 2026.10.19 | 1.3.1 -> 1.4.0
+ * 	Keeps the source image layout so raw sectors can be scanned directly (XADemuxer)
+ * 2026.10.19 | 1.4.0 -> 1.5.0
+ * 	Construction from an already parsed table (for CDIndexCache)
+ * 2026.10.19 | 1.5.0 -> 1.6.0
+ * 	Optional progress reporting and cancellation while parsing
  */
 
 /**
  * Child class of ISO9660 image extended to include information from the eXtended Architecture
  * specification. Includes specialized handling of Mode 2 sectors.
  * @author Blythe Hospelhorn
- * @version 1.3.0
+ * @version 1.6.0
  * @since November 5, 2017
  */
 public class ISOXAImage extends ISO9660Image {
 
 	private XATable table;
 	
+	/* Source image - not set if the image wasn't parsed from one */
+	private FileBuffer srcImage;
+	private long srcStart;
+	private int srcSecSize;
+	private int srcSecCount;
+	
 	/* --- Construction --- */
 	
 	/**
@@ -42,11 +57,43 @@ public class ISOXAImage extends ISO9660Image {
 	 * @throws UnsupportedFileTypeException If there is an error parsing primary volume descriptor.
 	 */
 	public ISOXAImage(ISO myISO) throws CDInvalidRecordException, IOException, UnsupportedFileTypeException 
+	{
+		this(myISO, (ProgressMonitor)null);
+	}
+	
+	/**
+	 * Construct a fully parsed ISO-XA image from a sector-parsed ISO image, reporting progress
+	 * as the table is parsed, sub-headers are scanned and files are mapped.
+	 * @param myISO Image to parse and extract files from.
+	 * @param mon Progress monitor for the TABLE_DIRECTORIES, TABLE_SUBHEADERS and IMAGE_FILES phases. May be null.
+	 * @throws CDInvalidRecordException If there is an error reading a record in a directory table.
+	 * @throws IOException If there is an error creating streaming buffers.
+	 * @throws UnsupportedFileTypeException If there is an error parsing primary volume descriptor.
+	 * @throws java.util.concurrent.CancellationException If the monitor's token is cancelled during the parse.
+	 */
+	public ISOXAImage(ISO myISO, ProgressMonitor mon) throws CDInvalidRecordException, IOException, UnsupportedFileTypeException 
 	{
 		super();
-		this.table = new XATable(myISO);
+		this.table = new XATable(myISO, mon);
 		super.readInformation(myISO);
+		super.generateRootDirectory(myISO, this.table, mon);
+		this.recordSource(myISO);
+	}
+	
+	/**
+	 * Construct an ISO-XA image from a table that has already been parsed (eg. loaded from an index)
+	 * without reading the directory records or scanning subheaders again.
+	 * <br>Volume information is not read - use loadInformation to set it.
+	 * @param myISO Image to take file data from.
+	 * @param t Parsed table for the image.
+	 * @throws IOException If there is an error creating file buffers.
+	 */
+	protected ISOXAImage(ISO myISO, XATable t) throws IOException
+	{
+		super();
+		this.table = t;
 		super.generateRootDirectory(myISO, this.table);
+		this.recordSource(myISO);
 	}
 	
 	/**
@@ -59,6 +106,25 @@ public class ISOXAImage extends ISO9660Image {
 		table = new XATable();
 	}
 	
+	/**
+	 * Note where the sectors of an ISO sit in its source image, if it has one.
+	 * @param myISO Image parsed from.
+	 */
+	protected void recordSource(ISO myISO)
+	{
+		this.srcImage = myISO.getSourceImage();
+		this.srcSecSize = myISO.getSourceSectorSize();
+		this.srcStart = myISO.getSourceSectorPosition(0);
+		this.srcSecCount = 0;
+		if (this.srcImage == null || this.srcStart < 0)
+		{
+			this.srcImage = null;
+			return;
+		}
+		this.srcSecCount = (int)((this.srcImage.getFileSize() - this.srcStart) / this.srcSecSize);
+		if (this.srcSecCount > myISO.getNumberSectorsRelative()) this.srcSecCount = myISO.getNumberSectorsRelative();
+	}
+	
 	/* --- Getters --- */
 	
 	public ISO9660Table getTable()
@@ -73,8 +139,10 @@ public class ISOXAImage extends ISO9660Image {
 		long sOff = this.getTable().calcFileOffsetOfSector(e.getName(), sector);
 		FileBuffer mySec = this.getFile(e.getName());
 		if (mySec == null) return null;
-		if (sOff > mySec.getFileSize() || sOff < 0) return null;
-		mySec = mySec.createReadOnlyCopy(sOff, this.getTable().sectorDataSize(sector));
+		if (sOff >= mySec.getFileSize() || sOff < 0) return null;
+		long edOff = sOff + this.getTable().sectorDataSize(sector);
+		if (edOff > mySec.getFileSize()) edOff = mySec.getFileSize();
+		mySec = mySec.createReadOnlyCopy(sOff, edOff);
 		
 		return mySec;
 	}
@@ -140,6 +208,38 @@ public class ISOXAImage extends ISO9660Image {
 		return this.table;
 	}
 
+	/**
+	 * @return Image this was parsed from, or null if unknown.
+	 */
+	protected FileBuffer getSourceImage()
+	{
+		return this.srcImage;
+	}
+	
+	/**
+	 * @return Position in the source image of relative sector 0.
+	 */
+	protected long getSourceStart()
+	{
+		return this.srcStart;
+	}
+	
+	/**
+	 * @return Size of sectors in the source image (ISO.SECSIZE or ISO.F1SIZE).
+	 */
+	protected int getSourceSectorSize()
+	{
+		return this.srcSecSize;
+	}
+	
+	/**
+	 * @return Number of sectors available in the source image.
+	 */
+	protected int getSourceSectorCount()
+	{
+		return this.srcSecCount;
+	}
+
 	/* --- Setters --- */
 	
 	
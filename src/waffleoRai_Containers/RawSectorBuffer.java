@@ -0,0 +1,420 @@
+package waffleoRai_Containers;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+
+import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.ROSubFileBuffer;
+
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Sectors with different layouts (Mode 1, Mode 2 Form 1/Form 2) can be mixed in one view
+ * 	Layout detection from sector headers (createView)
+ * 	Bulk reads pull several raw sectors from the image at a time
+ *
+ * 2026.10.19 | 1.1.0 -> 1.2.0
+ * 	Gather views over sectors that aren't consecutive (createGatherView)
+ */
+
+/**
+ * Read-only view of the user data in a run of raw (2352 byte) CD sectors.
+ * <br>The payloads of consecutive sectors are presented as one contiguous buffer. Logical
+ * positions are mapped to the image arithmetically - sector headers, subheaders and
+ * EDC/ECC are skipped without creating any per-sector objects.
+ * <br>Sectors are grouped into runs that share a layout. Within a run, a position maps to
+ * (pos / payload) * 2352 + header + (pos % payload). A view over sectors that are all the same
+ * (the usual case) has a single run. Runs don't have to follow one another in the image, so
+ * a view can also gather a scattered set of sectors (eg. one channel of an interleaved stream).
+ * @author Blythe Hospelhorn
+ * @version 1.2.0
+ * @since October 19, 2026
+ */
+public class RawSectorBuffer extends ROSubFileBuffer{
+
+	/* ----- Constants ----- */
+
+	public static final int MODE1_HEADER = 0x10;
+	public static final int MODE2_HEADER = 0x18;
+	public static final int MODE0_PAYLOAD = 0x920;
+
+	private static final int READ_SECTORS = 32; //Max raw sectors pulled from the image per read
+
+	/* ----- Instance Variables ----- */
+
+	private FileBuffer source;
+	private long rawStart; //Position in source of the first sector
+
+	//Runs of sectors with the same layout
+	private int[] runSector; //First sector of run, relative to rawStart
+	private long[] runData; //Logical position of first byte of run
+	private int[] runHeader;
+	private int[] runPayload;
+	private long totalData;
+
+	private long dataStart; //Logical position of byte 0 of this buffer
+	private long dataSize;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Create a view of the payloads of a run of raw sectors that all have the same layout.
+	 * @param src Raw image.
+	 * @param firstSectorPos Position in src of the first byte (sync pattern) of the first sector.
+	 * @param headerSize Bytes before the payload in each sector (MODE1_HEADER or MODE2_HEADER).
+	 * @param payloadSize Bytes of user data in each sector (ISO.F1SIZE or ISO.F2SIZE).
+	 * @param offset Offset into the concatenated payloads to start the view at.
+	 * @param len Length of the view in bytes. Cut short if the image ends first.
+	 * @throws IllegalArgumentException If the layout doesn't fit in a raw sector.
+	 */
+	public RawSectorBuffer(FileBuffer src, long firstSectorPos, int headerSize, int payloadSize, long offset, long len)
+	{
+		super(src, firstSectorPos + ((offset / payloadSize) * ISO.SECSIZE), src.getFileSize());
+		if (headerSize < 0 || payloadSize <= 0 || headerSize + payloadSize > ISO.SECSIZE) throw new IllegalArgumentException("Invalid sector layout");
+		source = src;
+		rawStart = firstSectorPos;
+		runSector = new int[]{0};
+		runData = new long[]{0};
+		runHeader = new int[]{headerSize};
+		runPayload = new int[]{payloadSize};
+		long secAvail = (src.getFileSize() - firstSectorPos) / ISO.SECSIZE;
+		totalData = secAvail * payloadSize;
+		setRange(offset, len);
+	}
+
+	private RawSectorBuffer(RawSectorBuffer other, long offset, long len)
+	{
+		super(other.source, other.mapPosition(offset - other.dataStart), other.source.getFileSize());
+		source = other.source;
+		rawStart = other.rawStart;
+		runSector = other.runSector;
+		runData = other.runData;
+		runHeader = other.runHeader;
+		runPayload = other.runPayload;
+		totalData = other.totalData;
+		setEndian(other.isBigEndian());
+		setRange(offset, len);
+	}
+
+	private RawSectorBuffer(FileBuffer src, long firstSectorPos, long firstByte, List<int[]> runs, long total, long len)
+	{
+		super(src, firstByte, src.getFileSize());
+		source = src;
+		rawStart = firstSectorPos;
+		int n = runs.size();
+		runSector = new int[n];
+		runData = new long[n];
+		runHeader = new int[n];
+		runPayload = new int[n];
+		long d = 0;
+		for (int i = 0; i < n; i++)
+		{
+			int[] r = runs.get(i);
+			runSector[i] = r[0];
+			runHeader[i] = r[2];
+			runPayload[i] = r[3];
+			runData[i] = d;
+			d += (long)r[1] * r[3];
+		}
+		totalData = total;
+		setRange(0, len);
+	}
+
+	private void setRange(long offset, long len)
+	{
+		if (offset < 0) offset = 0;
+		if (offset > totalData) offset = totalData;
+		if (len > totalData - offset) len = totalData - offset;
+		if (len < 0) len = 0;
+		dataStart = offset;
+		dataSize = len;
+	}
+
+	/**
+	 * Get the payload layout of a raw sector from its header.
+	 * @param src Image.
+	 * @param secPos Position of the sector sync pattern.
+	 * @return {header size, payload size}
+	 */
+	public static int[] readLayout(FileBuffer src, long secPos)
+	{
+		int mode = Byte.toUnsignedInt(src.getByte(secPos + 0x0F));
+		if (mode == 2)
+		{
+			if ((src.getByte(secPos + 0x12) & 0x20) != 0) return new int[]{MODE2_HEADER, ISO.F2SIZE};
+			return new int[]{MODE2_HEADER, ISO.F1SIZE};
+		}
+		if (mode == 0) return new int[]{MODE1_HEADER, MODE0_PAYLOAD};
+		return new int[]{MODE1_HEADER, ISO.F1SIZE};
+	}
+
+	/**
+	 * Create a view of the payloads of consecutive raw sectors, reading each sector's
+	 * header to find its layout. Sectors are scanned only as far as needed to cover len bytes.
+	 * @param src Raw image.
+	 * @param firstSectorPos Position in src of the first sector's sync pattern.
+	 * @param len Number of payload bytes to view. Cut short if the image ends first.
+	 * @return New view.
+	 */
+	public static RawSectorBuffer createView(FileBuffer src, long firstSectorPos, long len)
+	{
+		List<int[]> runs = new ArrayList<int[]>(); //{first sector, count, header, payload}
+		long secAvail = (src.getFileSize() - firstSectorPos) / ISO.SECSIZE;
+		long total = 0;
+		int[] cur = null;
+		for (int s = 0; s < secAvail && total < len; s++)
+		{
+			int[] lay = readLayout(src, firstSectorPos + ((long)s * ISO.SECSIZE));
+			if (cur != null && cur[2] == lay[0] && cur[3] == lay[1]) cur[1]++;
+			else
+			{
+				cur = new int[]{s, 1, lay[0], lay[1]};
+				runs.add(cur);
+			}
+			total += lay[1];
+		}
+		if (runs.isEmpty()) runs.add(new int[]{0, 0, MODE1_HEADER, ISO.F1SIZE});
+		return new RawSectorBuffer(src, firstSectorPos, firstSectorPos, runs, total, len);
+	}
+
+	/**
+	 * Create a view of the payloads of a list of raw sectors, in the order given.
+	 * The sectors don't need to be consecutive - consecutive stretches with the same layout
+	 * become one run, and reads within a run are still bulk reads.
+	 * @param src Raw image.
+	 * @param firstSectorPos Position in src that sector indices are relative to.
+	 * @param sectors Index of each sector, relative to firstSectorPos.
+	 * @param headers Header size of each sector (MODE1_HEADER or MODE2_HEADER).
+	 * @param payloads Payload size of each sector.
+	 * @param count Number of sectors to take from the arrays.
+	 * @return New view.
+	 */
+	public static RawSectorBuffer createGatherView(FileBuffer src, long firstSectorPos, int[] sectors, int[] headers, int[] payloads, int count)
+	{
+		List<int[]> runs = new ArrayList<int[]>(); //{first sector, count, header, payload}
+		long total = 0;
+		int[] cur = null;
+		for (int i = 0; i < count; i++)
+		{
+			int s = sectors[i];
+			if (cur != null && cur[0] + cur[1] == s && cur[2] == headers[i] && cur[3] == payloads[i]) cur[1]++;
+			else
+			{
+				cur = new int[]{s, 1, headers[i], payloads[i]};
+				runs.add(cur);
+			}
+			total += payloads[i];
+		}
+		if (runs.isEmpty()) runs.add(new int[]{0, 0, MODE1_HEADER, ISO.F1SIZE});
+		long firstByte = firstSectorPos + ((long)runs.get(0)[0] * ISO.SECSIZE);
+		return new RawSectorBuffer(src, firstSectorPos, firstByte, runs, total, total);
+	}
+
+	/* ----- Getters ----- */
+
+	/**
+	 * @return Number of runs of same-layout sectors this view spans.
+	 */
+	public int getRunCount()
+	{
+		return runSector.length;
+	}
+
+	private int findRun(long p)
+	{
+		int lo = 0;
+		int hi = runData.length - 1;
+		while (lo < hi)
+		{
+			int mid = (lo + hi + 1) >>> 1;
+			if (runData[mid] <= p) lo = mid;
+			else hi = mid - 1;
+		}
+		return lo;
+	}
+
+	/**
+	 * Get the position in the source image a logical position maps to.
+	 * @param position Position in this buffer.
+	 * @return Position in the source image.
+	 */
+	public long mapPosition(long position)
+	{
+		long p = dataStart + position;
+		int r = findRun(p);
+		long rel = p - runData[r];
+		int pay = runPayload[r];
+		long sec = rel / pay;
+		return rawStart + ((runSector[r] + sec) * ISO.SECSIZE) + runHeader[r] + (rel - (sec * pay));
+	}
+
+	/* ----- Internal ----- */
+
+	private void copyOut(long stPos, byte[] dst, int dstOff, int len)
+	{
+		long p = dataStart + stPos;
+		int r = findRun(p);
+		while (len > 0)
+		{
+			int pay = runPayload[r];
+			int hdr = runHeader[r];
+			long runEnd = (r + 1 < runData.length) ? runData[r + 1] : totalData;
+			long rel = p - runData[r];
+			long sec = rel / pay;
+			int secOff = (int)(rel - (sec * pay));
+
+			//Pull a span of raw sectors in one read, then pick the payloads out of it
+			long want = Math.min((long)len, runEnd - p);
+			int nsec = (int)Math.min((secOff + want + pay - 1) / pay, READ_SECTORS);
+			long rawSt = rawStart + ((runSector[r] + sec) * ISO.SECSIZE);
+			long rawEd = rawSt + ((long)(nsec - 1) * ISO.SECSIZE) + hdr + pay;
+			byte[] raw = source.getBytes(rawSt, rawEd);
+			for (int i = 0; i < nsec && len > 0; i++)
+			{
+				int amt = pay - secOff;
+				if (amt > len) amt = len;
+				System.arraycopy(raw, (i * ISO.SECSIZE) + hdr + secOff, dst, dstOff, amt);
+				dstOff += amt;
+				len -= amt;
+				p += amt;
+				secOff = 0;
+			}
+			if (p >= runEnd) r++;
+		}
+	}
+
+	/* --- GETTER OVERRIDE --- */
+
+	public long getFileSize()
+	{
+		return dataSize;
+	}
+
+	public boolean offsetValid(int off)
+	{
+		return offsetValid((long)off);
+	}
+
+	public boolean offsetValid(long off)
+	{
+		return (off >= 0 && off < dataSize);
+	}
+
+	public byte getByte(int position)
+	{
+		return getByte(Integer.toUnsignedLong(position));
+	}
+
+	public byte getByte(long position)
+	{
+		if (position < 0 || position >= dataSize) throw new IndexOutOfBoundsException();
+		return source.getByte(mapPosition(position));
+	}
+
+	public byte[] getBytes()
+	{
+		return getBytes(0, dataSize);
+	}
+
+	public byte[] getBytes(long stpos, long edpos)
+	{
+		if (stpos < 0 || edpos > dataSize || edpos < stpos) throw new IndexOutOfBoundsException();
+		if (edpos - stpos > 0x7FFFFFFFL) throw new IndexOutOfBoundsException();
+		byte[] out = new byte[(int)(edpos - stpos)];
+		copyOut(stpos, out, 0, out.length);
+		return out;
+	}
+
+	/* --- READING OVERRIDE --- */
+
+	public String readEncoded_string(String charset, long stPos, long edPos)
+	{
+		if (charset == null) throw new NullPointerException();
+		if (stPos < 0 || edPos > dataSize || stPos >= edPos) throw new IndexOutOfBoundsException();
+		CharBuffer cb = Charset.forName(charset).decode(toByteBuffer(stPos, edPos));
+		return cb.toString();
+	}
+
+	/* --- OTHER OVERRIDE --- */
+
+	public ByteBuffer toByteBuffer()
+	{
+		return toByteBuffer(0, dataSize);
+	}
+
+	public ByteBuffer toByteBuffer(int stPos, int edPos)
+	{
+		return toByteBuffer((long)stPos, (long)edPos);
+	}
+
+	public ByteBuffer toByteBuffer(long stPos, long edPos)
+	{
+		return ByteBuffer.wrap(getBytes(stPos, edPos));
+	}
+
+	public FileBuffer createCopy(long stPos, long edPos) throws IOException
+	{
+		return FileBuffer.wrap(getBytes(stPos, edPos), isBigEndian());
+	}
+
+	/**
+	 * Reference a piece of the payload data. The new buffer maps straight to the image too.
+	 */
+	public FileBuffer createReadOnlyCopy(long stPos, long edPos) throws IOException
+	{
+		if (stPos < 0 || edPos > dataSize || stPos >= edPos) throw new IndexOutOfBoundsException();
+		return new RawSectorBuffer(this, dataStart + stPos, edPos - stPos);
+	}
+
+	private void writeOut(String path, long stPos, long edPos, boolean append) throws IOException
+	{
+		if (stPos < 0) stPos = 0;
+		if (edPos > dataSize) edPos = dataSize;
+		if (stPos >= edPos) throw new IndexOutOfBoundsException();
+
+		final int chunk = ISO.F1SIZE * READ_SECTORS * 2;
+		byte[] buff = new byte[chunk];
+		FileOutputStream out = new FileOutputStream(path, append);
+		try
+		{
+			long pos = stPos;
+			while (pos < edPos)
+			{
+				int amt = chunk;
+				if (edPos - pos < amt) amt = (int)(edPos - pos);
+				copyOut(pos, buff, 0, amt);
+				out.write(buff, 0, amt);
+				pos += amt;
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	public void writeFile(String path, long stPos, long edPos) throws IOException
+	{
+		if (path == null) throw new IOException();
+		writeOut(path, stPos, edPos, false);
+	}
+
+	public void appendToFile(String path, long stPos, long edPos) throws IOException, NoSuchFileException
+	{
+		if (!FileBuffer.fileExists(path)) throw new NoSuchFileException(path);
+		writeOut(path, stPos, edPos, true);
+	}
+
+	public String typeString()
+	{
+		return "Raw Sector Payload FileBuffer";
+	}
+
+}
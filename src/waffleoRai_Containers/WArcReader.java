@@ -0,0 +1,433 @@
+package waffleoRai_Containers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import waffleoRai_Containers.WArcTable.WSDir;
+import waffleoRai_Containers.WArcTable.WSRecord;
+import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.ParserType;
+
+/**
+ * Lazy reader for WinkyArc archives.
+ * <br>Only the top level pointer table is read on construction (into primitive arrays).
+ * Top level entries are probed for inner directories the first time they are requested, so listing
+ * an archive or pulling a single entry out of it doesn't require walking the whole thing.
+ * <br>Probing reads pointer tables straight out of the archive buffer at absolute offsets - no
+ * sub-buffers are created. Top level entries are independent of each other, so when the whole archive
+ * is needed they are probed in parallel on a bounded pool.
+ * <br>Record offsets follow WArcTable: top level offsets are relative to the archive, and offsets
+ * of records in inner directories are relative to the start of their directory.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class WArcReader {
+
+	/* ----- Instance Variables ----- */
+
+	private FileBuffer archive;
+	private int arcType;
+	private String arcName;
+
+	private int[] starts;
+	private int[] ends;
+
+	private WSDir root;
+	private boolean rootBuilt;
+	private WSRecord[] entries;
+	private boolean[] probed;
+	private List<Future<Probe>> pending;
+
+	private int threads;
+	private ExecutorService pool;
+
+	/* ----- Inner Classes ----- */
+
+	/**
+	 * Flattened (preorder) result of probing one top level entry.
+	 * Each node has an offset relative to its parent, a size and a child count (-1 for files).
+	 */
+	private static class Probe
+	{
+		private int[] offset;
+		private int[] size;
+		private int[] kids;
+		private int n;
+
+		private Probe()
+		{
+			offset = new int[16];
+			size = new int[16];
+			kids = new int[16];
+		}
+
+		private int add(int off, int sz)
+		{
+			if (n >= offset.length)
+			{
+				int cap = n << 1;
+				offset = Arrays.copyOf(offset, cap);
+				size = Arrays.copyOf(size, cap);
+				kids = Arrays.copyOf(kids, cap);
+			}
+			offset[n] = off;
+			size[n] = sz;
+			kids[n] = -1;
+			return n++;
+		}
+	}
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "WArcReader.Prober" + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Read the top level pointer table of an archive. Nothing else is read until entries are requested.
+	 * @param wsarchive Archive data. Set to Little-Endian.
+	 * @param arc_type WinkyArc type (see WSArchive). Only TYPE_2 archives have inner directories.
+	 * @param name Archive name. Record names are derived from it.
+	 */
+	@SuppressWarnings("unchecked")
+	public WArcReader(FileBuffer wsarchive, int arc_type, String name)
+	{
+		archive = wsarchive;
+		arcType = arc_type;
+		arcName = name;
+		threads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+		archive.setEndian(false);
+
+		int fsize = (int)archive.getFileSize();
+		int ptr = archive.intFromFile(0);
+		int filecount = ptr/4;
+		if (filecount < 0) filecount = 0;
+		int[] pointers = new int[filecount];
+		if (filecount > 0) pointers[0] = ptr;
+		for (int i = 1; i < filecount; i++)
+		{
+			//Offset from start to file - so table position is added
+			pointers[i] = archive.intFromFile(i << 2) + (i << 2);
+		}
+
+		starts = new int[filecount];
+		ends = new int[filecount];
+		for (int i = 0; i < filecount; i++)
+		{
+			int p1 = pointers[i];
+			int p2 = (i + 1 >= filecount) ? fsize : pointers[i+1];
+			if (p1 >= fsize || p1 >= p2)
+			{
+				//Empty
+				starts[i] = p1;
+				ends[i] = p1;
+				continue;
+			}
+			starts[i] = p1;
+			ends[i] = p2;
+		}
+
+		root = new WSDir(filecount, null);
+		root.setName(arcName);
+		entries = new WSRecord[filecount];
+		probed = new boolean[filecount];
+		pending = new ArrayList<Future<Probe>>(filecount);
+		for (int i = 0; i < filecount; i++) pending.add(null);
+	}
+
+	/* ----- Getters ----- */
+
+	public String getArchiveName()
+	{
+		return arcName;
+	}
+
+	public int getType()
+	{
+		return arcType;
+	}
+
+	/**
+	 * @return Number of slots in the top level pointer table (including empty ones).
+	 */
+	public int getEntryCount()
+	{
+		return starts.length;
+	}
+
+	/**
+	 * @param index Top level entry index.
+	 * @return Whether the entry has no data. Empty entries don't get records.
+	 */
+	public boolean isEmpty(int index)
+	{
+		return ends[index] <= starts[index];
+	}
+
+	/**
+	 * @return Number of threads used to probe entries in parallel.
+	 */
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	/**
+	 * Get the record for a top level entry, probing it (and everything under it) if it hasn't been yet.
+	 * <br>The record's parent is the root directory, but it is only added to the root's record
+	 * list by getRootDirectory.
+	 * @param index Top level entry index.
+	 * @return Record for the entry - a WSDir if it's an inner directory.
+	 * <br>null if the entry is empty.
+	 * @throws IOException If the entry can't be read, or an earlier parallel probe failed.
+	 */
+	public synchronized WSRecord getEntry(int index) throws IOException
+	{
+		if (probed[index]) return entries[index];
+		Probe p = null;
+		Future<Probe> f = pending.get(index);
+		if (f != null)
+		{
+			p = await(f);
+			pending.set(index, null);
+		}
+		else p = probeEntry(index);
+		entries[index] = build(p, index);
+		probed[index] = true;
+		return entries[index];
+	}
+
+	/**
+	 * Get a view of a top level entry's data.
+	 * For TYPE_1 archives the size header is skipped.
+	 * @param index Top level entry index.
+	 * @return Read only view of the entry, or null if it is empty.
+	 * @throws IOException If the view can't be created.
+	 */
+	public FileBuffer getEntryData(int index) throws IOException
+	{
+		WSRecord r = getEntry(index);
+		if (r == null) return null;
+		return archive.createReadOnlyCopy(r.getStartOffset(), r.getStartOffset() + r.getSize());
+	}
+
+	/**
+	 * Probe every top level entry (in parallel if more than one thread is set) and
+	 * get the root directory holding them, in table order.
+	 * @return Root directory of the archive.
+	 * @throws IOException If an entry can't be read.
+	 */
+	public synchronized WSDir getRootDirectory() throws IOException
+	{
+		if (rootBuilt) return root;
+		prefetch(0, starts.length);
+		try
+		{
+			for (int i = 0; i < starts.length; i++)
+			{
+				WSRecord r = getEntry(i);
+				if (r != null) root.addRecord(r);
+			}
+			rootBuilt = true;
+		}
+		finally
+		{
+			shutdown();
+		}
+		return root;
+	}
+
+	/**
+	 * Probe every entry and wrap the result in a table.
+	 * @return Fully parsed table for the archive.
+	 * @throws IOException If an entry can't be read.
+	 */
+	public WArcTable toTable() throws IOException
+	{
+		return new WArcTable(arcName, arcType, getRootDirectory());
+	}
+
+	/* ----- Setters ----- */
+
+	/**
+	 * @param n Number of threads used to probe top level entries in parallel.
+	 * 1 or less probes on the calling thread.
+	 */
+	public synchronized void setThreads(int n)
+	{
+		if (n < 1) n = 1;
+		threads = n;
+	}
+
+	/* ----- Probing ----- */
+
+	/**
+	 * Start probing a range of top level entries in the background.
+	 * Does nothing if only one thread is set. Entries that have already been probed are skipped.
+	 * @param first First entry index.
+	 * @param end Entry index to stop before.
+	 */
+	public synchronized void prefetch(int first, int end)
+	{
+		if (threads <= 1 || arcType != WSArchive.TYPE_2) return;
+		if (first < 0) first = 0;
+		if (end > starts.length) end = starts.length;
+		if (end - first < 2) return;
+		if (pool == null) pool = Executors.newFixedThreadPool(threads, new DaemonFactory());
+		for (int i = first; i < end; i++)
+		{
+			if (probed[i] || pending.get(i) != null || isEmpty(i)) continue;
+			final int idx = i;
+			pending.set(i, pool.submit(new Callable<Probe>(){
+				public Probe call()
+				{
+					return probeEntry(idx);
+				}
+			}));
+		}
+	}
+
+	/**
+	 * Stop the probing pool. Probes still queued are cancelled and will be redone on
+	 * the calling thread if their entries are requested.
+	 */
+	public synchronized void shutdown()
+	{
+		if (pool == null) return;
+		pool.shutdownNow();
+		pool = null;
+		for (int i = 0; i < pending.size(); i++)
+		{
+			Future<Probe> f = pending.get(i);
+			if (f != null && !f.isDone()) pending.set(i, null);
+		}
+	}
+
+	private static Probe await(Future<Probe> f) throws IOException
+	{
+		try
+		{
+			return f.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("WArcReader: Interrupted while waiting on prober", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("WArcReader: Probe failed", e.getCause());
+		}
+	}
+
+	private Probe probeEntry(int index)
+	{
+		if (isEmpty(index)) return null;
+		int p1 = starts[index];
+		int p2 = ends[index];
+		Probe p = new Probe();
+		if (arcType == WSArchive.TYPE_1)
+		{
+			//There's some padding at the end. The size is noted before the file.
+			int sz = archive.intFromFile(p1);
+			p2 = p1 + sz;
+			p1 += 0x14;
+			p.add(p1, p2 - p1);
+		}
+		else if (arcType == WSArchive.TYPE_2) probeDirectory(p, p1, p1, p2 - p1);
+		else p.add(p1, p2 - p1);
+		return p;
+	}
+
+	/**
+	 * Count the entries in what may be an inner directory's pointer table.
+	 * The table must end with a zero word, and every pointer (word plus its own position) must
+	 * land inside the data.
+	 * @return Number of pointers, or -1 if this can't be a directory.
+	 */
+	private int innerDirFileCount(long base, int len)
+	{
+		int count = 0;
+		int cpos = 0;
+		while (cpos + 4 <= len)
+		{
+			int word = archive.intFromFile(base + cpos);
+			if (word == 0) return count;
+			int ptr = cpos + word;
+			if (ptr <= 0 || ptr >= len) return -1;
+			count++;
+			cpos += 4;
+		}
+		return -1;
+	}
+
+	private void probeDirectory(Probe p, int relOffset, long base, int len)
+	{
+		int node = p.add(relOffset, len);
+		int filecount = innerDirFileCount(base, len);
+		if (filecount <= 0) return;
+
+		int[] ptrtbl = new int[filecount];
+		for (int i = 0; i < filecount; i++)
+		{
+			int cpos = i << 2;
+			ptrtbl[i] = archive.intFromFile(base + cpos) + cpos;
+		}
+		Arrays.sort(ptrtbl);
+
+		p.kids[node] = filecount;
+		for (int i = 0; i < filecount; i++)
+		{
+			int stpos = ptrtbl[i];
+			int edpos = (i + 1 >= filecount) ? len : ptrtbl[i+1];
+			probeDirectory(p, stpos, base + stpos, edpos - stpos);
+		}
+	}
+
+	/* ----- Record Building ----- */
+
+	private WSRecord build(Probe p, int index)
+	{
+		if (p == null) return null;
+		int[] pos = {0};
+		return buildNode(p, pos, root, arcName, index);
+	}
+
+	private WSRecord buildNode(Probe p, int[] pos, WSDir parent, String upperName, int index)
+	{
+		int node = pos[0]++;
+		String name = upperName + "_" + String.format("%04d", index);
+		int nkids = p.kids[node];
+		WSRecord r = null;
+		if (nkids >= 0)
+		{
+			WSDir d = new WSDir(nkids, parent);
+			for (int i = 0; i < nkids; i++) d.addRecord(buildNode(p, pos, d, name, i));
+			r = d;
+		}
+		else r = new WSRecord(parent);
+		r.setName(name);
+		r.setParserType(ParserType.BINARY_UNKNOWN);
+		r.setStartOffset(p.offset[node]);
+		r.setSize(p.size[node]);
+		return r;
+	}
+
+}
@@ -2,7 +2,6 @@ package waffleoRai_Containers;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,6 +19,24 @@ import waffleoRai_Utils.ParserType;
 import waffleoRai_Utils.SerializedString;
 import waffleoRai_Utils.Treenumeration;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Raw archives are parsed through WArcReader (primitive pointer tables, no sub-buffers,
+ * 	parallel probing of top level entries)
+ * 	Records no longer add themselves to their parent on construction (every record was being added twice)
+ * 2026.10.19 | 1.1.0 -> 1.2.0
+ * 	Uncompressed, memory mapped index format (WArcTableIndex) - loaded automatically by the path constructor
+ * 	Directory flag is set when serializing records (saved tables lost their directories)
+ */
+
+/**
+ * Table of records in a WinkyArc archive, either parsed from the raw archive or
+ * loaded from a saved (warctbl) table.
+ * @author Blythe Hospelhorn
+ * @version 1.2.0
+ */
 public class WArcTable {
 	
 	/* ----- Constants ----- */
@@ -39,83 +56,40 @@ public class WArcTable {
 	
 	/* ----- Constructors ----- */
 	
+	/**
+	 * Parse the table out of a raw archive. Every entry is probed for inner directories
+	 * (in parallel for TYPE_2 archives). To only read what is needed, use WArcReader.
+	 * @param wsarchive Archive data.
+	 * @param arc_type WinkyArc type (see WSArchive).
+	 * @param name Archive name.
+	 * @throws IOException If the archive can't be read.
+	 */
 	public WArcTable(FileBuffer wsarchive, int arc_type, String name) throws IOException
 	{
 		arcName = name;
 		winkyarc_type = arc_type;
-		//System.err.println("WArcTable.<init> || -DEBUG- Params read. arcName = " + arcName);
-		
-		//Try to parse out from the raw archive
-		wsarchive.setEndian(false);
-		long cpos = 0;
-		
-		//Read pointer table
-		//System.err.println("WArcTable.<init> || -DEBUG- Reading pointer table!");
-		int ptr = wsarchive.intFromFile(cpos); cpos+=4;
-		int filecount = ptr/4;
-		int[] pointers = new int[filecount];
-		pointers[0] = ptr;
-		for (int i = 1; i < filecount; i++)
-		{
-			//Offset from start to file - so cpos is already added
-			int p = wsarchive.intFromFile(cpos);
-			pointers[i] = p + (int)cpos;
-			cpos += 4;
-		}
-		
-		//System.err.println("WArcTable.<init> || -DEBUG- Generating directory tree...");
-		rootRecord = new WSDir(filecount, null);
-		for (int i = 0; i < filecount; i++)
-		{
-			//System.err.println("WArcTable.<init> || -DEBUG- RECORD " + i);
-			int fsize = (int)wsarchive.getFileSize();
-			int p1 = pointers[i];
-			int p2 = -1;
-			if (p1 >= fsize) continue;
-			if (i+1 >= filecount) p2 = fsize;
-			else p2 = pointers[i+1];
-			//System.err.println("WArcTable.<init> || -DEBUG- \tPointer 1: 0x" + Integer.toHexString(p1));
-			//System.err.println("WArcTable.<init> || -DEBUG- \tPointer 2: 0x" + Integer.toHexString(p2));
-			if (p1 >= p2)
-			{
-				//System.err.println("WArcTable.<init> || -DEBUG- File " + i + " is empty. Continuing...");
-				continue;
-			}
-			
-			//Check if it's a type 1.
-			//If so, there's some padding at the end. The size is noted before the file.
-			if (arc_type == WSArchive.TYPE_1)
-			{
-				//System.err.println("WArcTable.<init> || -DEBUG- \t(Parse as winkyarcS)...");
-				int sz = wsarchive.intFromFile(p1);
-				//System.err.println("WArcTable.<init> || -DEBUG- \tFile Size Read: 0x" + Integer.toHexString(sz));
-				p2 = p1 + sz;
-				p1 += 0x14;
-				//System.err.println("WArcTable.<init> || -DEBUG- \tNew Pointer 1: 0x" + Integer.toHexString(p1));
-				//System.err.println("WArcTable.<init> || -DEBUG- \tNew Pointer 2: 0x" + Integer.toHexString(p2));
-			}
-			
-			//See if could be a directory...
-			if (arc_type == WSArchive.TYPE_2)
-			{
-				FileBuffer subdata = wsarchive.createReadOnlyCopy(p1, p2);
-				WSRecord r = parseAsPotentialDirectory(rootRecord, arcName, i, p1, p2, subdata);
-				rootRecord.addRecord(r);
-			}
-			else
-			{
-				//Assume it's a file
-				WSRecord r = getNewFileRecord(rootRecord, arcName, i, p1, p2);
-				rootRecord.addRecord(r);
-			}
-		}
-		//System.err.println("WArcTable.<init> || -DEBUG- Done!");
-		
+		WArcReader reader = new WArcReader(wsarchive, arc_type, name);
+		rootRecord = reader.getRootDirectory();
+	}
+	
+	protected WArcTable(String name, int arc_type, WSDir root)
+	{
+		arcName = name;
+		winkyarc_type = arc_type;
+		rootRecord = root;
 	}
 	
 	public WArcTable(String tableFilePath) throws IOException, UnsupportedFileTypeException
 	{
 		//Read in a table previously saved
+		if (WArcTableIndex.isIndexFile(tableFilePath))
+		{
+			WArcTableIndex idx = new WArcTableIndex(tableFilePath);
+			arcName = idx.getArchiveName();
+			winkyarc_type = idx.getType();
+			rootRecord = idx.buildTree();
+			return;
+		}
 		
 		//warctbl format
 		
@@ -181,6 +155,7 @@ public class WArcTable {
 			//System.err.println("WArcTable.<init> || -DEBUG- Position: 0x" + Long.toHexString(cpos));
 			WSRecord r = parseFromWARCTBL(file, cpos, rootRecord);
 			cpos += r.getSerializedSize();
+			rootRecord.addRecord(r);
 		}
 	}
 	
@@ -404,7 +379,6 @@ public class WArcTable {
 			size = -1;
 			parser_type = null;
 			parent = parentDir;
-			if(parent != null) parent.addRecord(this);
 		}
 		
 		public String getName()
@@ -490,7 +464,7 @@ public class WArcTable {
 			FileBuffer fb = new FileBuffer(getSerializedSize() + 4, true);
 			fb.addToFile(startPos);
 			fb.addToFile(size);
-			fb.addToFile(0);
+			fb.addToFile(isDirectory() ? 0x1 : 0);
 			if (this.parser_type == null) fb.addToFile(ParserType.BINARY_UNKNOWN.getNumber());
 			else fb.addToFile(parser_type.getNumber());
 			fb.addVariableLengthString(name, BinFieldSize.WORD, 2);
@@ -585,89 +559,6 @@ public class WArcTable {
 	
 	/* ----- Parsing ----- */
 	
-	private WSRecord getNewFileRecord(WSDir parent, String dirname, int index, int startPtr, int endPtr)
-	{
-		WSRecord r = new WSRecord(parent);
-		r.setName(dirname + "_" + String.format("%04d", index));
-		r.setParserType(ParserType.BINARY_UNKNOWN);
-		r.setStartOffset(startPtr);
-		r.setSize(endPtr-startPtr);
-		return r;
-	}
-	
-	private int innerDirFileCount(FileBuffer data)
-	{
-		//Assumed data is already trimmed.
-		int count = 0;
-		long cpos = 0;
-		int word = data.intFromFile(cpos);
-		while (word != 0)
-		{
-			//Check pointer
-			int ptr = (int)cpos + word;
-			if (ptr >= data.getFileSize()) return -1;
-			
-			count++;
-			cpos += 4;
-			word = data.intFromFile(cpos);
-		}
-		
-		return count;
-	}
-	
-	private WSRecord parseAsPotentialDirectory(WSDir parent, String upperdir_name, int upperdir_index, int startPtr, int endPtr, FileBuffer data) throws IOException
-	{
-		//What would qualify as a directory?
-		//Must start with pointer table, but this time it seems the pointer table is out of order
-		//Instead, it ends with a 0x00000000 word? Is that just padding?
-		
-		//So, start scanning the data word by word.
-		//	If every word value plus its offset from the start of the potential dir
-		//  is within the provided dir/file up to the terminating word, this is read
-		//	as a pointer table for an inner dir.
-		//Otherwise, data treated as a file.
-		
-		int filecount = innerDirFileCount(data);
-		if (filecount <= 0)
-		{
-			return getNewFileRecord(parent, upperdir_name, upperdir_index, startPtr, endPtr);
-		}
-		
-		//Make dir record...
-		WSDir mydir = new WSDir(filecount, parent);
-		String myname = upperdir_name + "_" + String.format("%04d", upperdir_index);
-		mydir.setName(myname);
-		mydir.setParserType(ParserType.BINARY_UNKNOWN);
-		mydir.setStartOffset(startPtr);
-		mydir.setSize(endPtr-startPtr);
-		
-		//Scan directory table and sort
-		List<Integer> ptrtbl = new ArrayList<Integer>(filecount);
-		long cpos = 0;
-		for (int i = 0; i < filecount; i++)
-		{
-			int word = data.intFromFile(cpos);
-			ptrtbl.add(word + (int)cpos);
-			cpos += 4;
-		}
-		Collections.sort(ptrtbl);
-		
-		//Populate directory (recursively)
-		for (int i = 0; i < filecount; i++)
-		{
-			int stpos = ptrtbl.get(i);
-			int edpos = -1;
-			if (i + 1 >= filecount) edpos = (int)data.getFileSize();
-			else edpos = ptrtbl.get(i+1);
-			
-			FileBuffer subdata = data.createReadOnlyCopy(stpos, edpos);
-			WSRecord sub = parseAsPotentialDirectory(mydir, myname, i, stpos, edpos, subdata);
-			mydir.addRecord(sub);
-		}
-		
-		return mydir;
-	}
-	
 	private WSRecord parseFromWARCTBL(FileBuffer data, long pos, WSDir parentDir)
 	{
 		long cpos = pos;
@@ -753,6 +644,11 @@ public class WArcTable {
 	
 	/* ----- Serialization ----- */
 	
+	/**
+	 * Write the table in the compact (Huffman coded) format.
+	 * @param outpath Path to write to.
+	 * @throws IOException If the file can't be written.
+	 */
 	public void writeToFile(String outpath) throws IOException
 	{
 		int filecount = rootRecord.getRecordCount();
@@ -776,5 +672,16 @@ public class WArcTable {
 		//Write
 		enc.writeFile(outpath);
 	}
+	
+	/**
+	 * Write the table in the uncompressed index format (see WArcTableIndex),
+	 * which is much faster to load and can be searched without loading.
+	 * @param outpath Path to write to.
+	 * @throws IOException If the file can't be written.
+	 */
+	public void writeToIndexFile(String outpath) throws IOException
+	{
+		WArcTableIndex.write(this, outpath);
+	}
 
 }
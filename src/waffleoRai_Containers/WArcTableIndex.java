@@ -0,0 +1,403 @@
+package waffleoRai_Containers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import waffleoRai_Containers.WArcTable.WSDir;
+import waffleoRai_Containers.WArcTable.WSRecord;
+import waffleoRai_Utils.ParserType;
+
+/**
+ * Uncompressed, memory mapped WArcTable format.
+ * <br>Records are stored as a fixed width array, so any record can be read in constant time
+ * without touching the rest of the file. Names live in a separate string pool, and an index
+ * of record numbers sorted by name allows binary search by name straight out of the mapping.
+ * <br>Records are in breadth first order with the root (named for the archive) at 0, so the
+ * children of a directory are always a contiguous run of records.
+ * <br>Layout (Big-Endian):
+ * <br>Header [32]: Magic [8], Version [4], Archive type [4], Record count [4], String pool size [4], Reserved [8]
+ * <br>Records [32 each]: Start [4], Size [4], Parent [4], First child [4], Child count [4],
+ * Name offset [4], Name length [2], Flags [2], Parser type [4]
+ * <br>Name index [4 each]: Record numbers in name order (unsigned UTF-8 byte order)
+ * <br>String pool: UTF-8 names, not terminated
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class WArcTableIndex {
+
+	/* ----- Constants ----- */
+
+	public static final String MAGIC = "WARCTBLX";
+	public static final String EXT = "warcidx";
+	public static final int CURRENT_VERSION = 1;
+
+	public static final int HEADER_SIZE = 32;
+	public static final int RECORD_SIZE = 32;
+
+	public static final int FLAG_DIR = 0x1;
+
+	private static final int R_START = 0;
+	private static final int R_SIZE = 4;
+	private static final int R_PARENT = 8;
+	private static final int R_FIRSTCHILD = 12;
+	private static final int R_CHILDCOUNT = 16;
+	private static final int R_NAMEOFF = 20;
+	private static final int R_NAMELEN = 24;
+	private static final int R_FLAGS = 26;
+	private static final int R_PTYPE = 28;
+
+	/* ----- Instance Variables ----- */
+
+	private ByteBuffer map;
+	private int arcType;
+	private int recordCount;
+
+	private int recBase;
+	private int nameIdxBase;
+	private int poolBase;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Map an index file. Only the header is read.
+	 * @param path Path to index file.
+	 * @throws IOException If the file can't be read or isn't an index.
+	 */
+	public WArcTableIndex(String path) throws IOException
+	{
+		FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try
+		{
+			map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}
+		finally
+		{
+			ch.close();
+		}
+		if (!isIndex(map)) throw new IOException("WArcTableIndex: " + path + " is not a table index");
+		int ver = map.getInt(8);
+		if (ver > CURRENT_VERSION) throw new IOException("WArcTableIndex: Unsupported version " + ver);
+		arcType = map.getInt(12);
+		recordCount = map.getInt(16);
+		int poolSize = map.getInt(20);
+
+		recBase = HEADER_SIZE;
+		nameIdxBase = recBase + (recordCount * RECORD_SIZE);
+		poolBase = nameIdxBase + (recordCount << 2);
+		if (recordCount < 1 || (long)poolBase + poolSize > map.capacity()) throw new IOException("WArcTableIndex: " + path + " is truncated");
+	}
+
+	private static boolean isIndex(ByteBuffer buff)
+	{
+		if (buff.capacity() < HEADER_SIZE) return false;
+		for (int i = 0; i < MAGIC.length(); i++)
+		{
+			if (buff.get(i) != (byte)MAGIC.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether a file starts with the index magic number.
+	 * @param path Path to file.
+	 * @return True if the file looks like a table index.
+	 * @throws IOException If the file can't be read.
+	 */
+	public static boolean isIndexFile(String path) throws IOException
+	{
+		FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try
+		{
+			ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE);
+			while (head.hasRemaining())
+			{
+				if (ch.read(head) < 0) return false;
+			}
+			return isIndex(head);
+		}
+		finally
+		{
+			ch.close();
+		}
+	}
+
+	/* ----- Getters ----- */
+
+	public int getType()
+	{
+		return arcType;
+	}
+
+	/**
+	 * @return Number of records, including the root.
+	 */
+	public int getRecordCount()
+	{
+		return recordCount;
+	}
+
+	public String getArchiveName()
+	{
+		return getName(0);
+	}
+
+	private int recPos(int rec)
+	{
+		if (rec < 0 || rec >= recordCount) throw new IndexOutOfBoundsException();
+		return recBase + (rec * RECORD_SIZE);
+	}
+
+	public int getStartOffset(int rec)
+	{
+		return map.getInt(recPos(rec) + R_START);
+	}
+
+	public int getSize(int rec)
+	{
+		return map.getInt(recPos(rec) + R_SIZE);
+	}
+
+	/**
+	 * @param rec Record number.
+	 * @return Record number of parent, or -1 for the root.
+	 */
+	public int getParent(int rec)
+	{
+		return map.getInt(recPos(rec) + R_PARENT);
+	}
+
+	/**
+	 * @param rec Record number.
+	 * @return Record number of first child, or -1 if the record isn't a directory.
+	 */
+	public int getFirstChild(int rec)
+	{
+		return map.getInt(recPos(rec) + R_FIRSTCHILD);
+	}
+
+	public int getChildCount(int rec)
+	{
+		return map.getInt(recPos(rec) + R_CHILDCOUNT);
+	}
+
+	public boolean isDirectory(int rec)
+	{
+		return (map.getShort(recPos(rec) + R_FLAGS) & FLAG_DIR) != 0;
+	}
+
+	public ParserType getParserType(int rec)
+	{
+		return ParserType.getType(map.getInt(recPos(rec) + R_PTYPE));
+	}
+
+	public String getName(int rec)
+	{
+		int pos = recPos(rec);
+		int off = map.getInt(pos + R_NAMEOFF);
+		int len = Short.toUnsignedInt(map.getShort(pos + R_NAMELEN));
+		byte[] b = new byte[len];
+		for (int i = 0; i < len; i++) b[i] = map.get(poolBase + off + i);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/* ----- Search ----- */
+
+	private int compareName(int rec, byte[] key)
+	{
+		int pos = recPos(rec);
+		int off = poolBase + map.getInt(pos + R_NAMEOFF);
+		int len = Short.toUnsignedInt(map.getShort(pos + R_NAMELEN));
+		int n = Math.min(len, key.length);
+		for (int i = 0; i < n; i++)
+		{
+			int c = Byte.toUnsignedInt(map.get(off + i)) - Byte.toUnsignedInt(key[i]);
+			if (c != 0) return c;
+		}
+		return len - key.length;
+	}
+
+	/**
+	 * Find a record by name with a binary search of the name index.
+	 * @param name Record name (without extension).
+	 * @return Record number of the first record with the name, or -1 if there is none.
+	 */
+	public int findRecord(String name)
+	{
+		if (name == null) return -1;
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		int lo = 0;
+		int hi = recordCount;
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+			if (compareName(map.getInt(nameIdxBase + (mid << 2)), key) < 0) lo = mid + 1;
+			else hi = mid;
+		}
+		if (lo >= recordCount) return -1;
+		int rec = map.getInt(nameIdxBase + (lo << 2));
+		if (compareName(rec, key) != 0) return -1;
+		return rec;
+	}
+
+	/* ----- Conversion ----- */
+
+	/**
+	 * Build a record tree from the index.
+	 * @return Root directory, named for the archive.
+	 */
+	public WSDir buildTree()
+	{
+		WSRecord[] recs = new WSRecord[recordCount];
+		for (int i = 0; i < recordCount; i++)
+		{
+			WSDir parent = null;
+			int p = getParent(i);
+			if (p >= 0 && p < i) parent = (WSDir)recs[p];
+			WSRecord r = null;
+			if (isDirectory(i)) r = new WSDir(getChildCount(i), parent);
+			else r = new WSRecord(parent);
+			r.setName(getName(i));
+			r.setParserType(getParserType(i));
+			r.setStartOffset(getStartOffset(i));
+			r.setSize(getSize(i));
+			//Breadth first, so siblings are appended in order
+			if (parent != null) parent.addRecord(r);
+			recs[i] = r;
+		}
+		WSRecord root = recs[0];
+		if (!root.isDirectory()) return null;
+		return (WSDir)root;
+	}
+
+	/**
+	 * @return Table built from the index.
+	 */
+	public WArcTable toTable()
+	{
+		return new WArcTable(getArchiveName(), arcType, buildTree());
+	}
+
+	/* ----- Serialization ----- */
+
+	/**
+	 * Write a table in the index format.
+	 * The file is written to a temp file first and moved into place.
+	 * @param table Table to write.
+	 * @param outpath Path to write to.
+	 * @throws IOException If the file can't be written.
+	 */
+	public static void write(WArcTable table, String outpath) throws IOException
+	{
+		//Breadth first order
+		List<WSRecord> order = new ArrayList<WSRecord>();
+		List<Integer> parents = new ArrayList<Integer>();
+		WSDir root = table.getRootDirectory();
+		order.add(root);
+		parents.add(-1);
+		int[] firstChild = new int[16];
+		for (int i = 0; i < order.size(); i++)
+		{
+			WSRecord r = order.get(i);
+			if (i >= firstChild.length) firstChild = Arrays.copyOf(firstChild, firstChild.length << 1);
+			if (!r.isDirectory())
+			{
+				firstChild[i] = -1;
+				continue;
+			}
+			firstChild[i] = order.size();
+			int ccount = r.getRecordCount();
+			for (int j = 0; j < ccount; j++)
+			{
+				order.add(r.getRecord(j));
+				parents.add(i);
+			}
+		}
+		int n = order.size();
+
+		//String pool
+		final byte[][] names = new byte[n][];
+		int[] nameOff = new int[n];
+		int poolSize = 0;
+		for (int i = 0; i < n; i++)
+		{
+			String s = (i == 0) ? table.getArchiveName() : order.get(i).getName();
+			if (s == null) s = "";
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			if (b.length > 0xFFFF) b = Arrays.copyOf(b, 0xFFFF);
+			names[i] = b;
+			nameOff[i] = poolSize;
+			poolSize += b.length;
+		}
+
+		//Name index
+		Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++) sorted[i] = i;
+		Arrays.sort(sorted, new Comparator<Integer>(){
+			public int compare(Integer a, Integer b)
+			{
+				byte[] x = names[a];
+				byte[] y = names[b];
+				int len = Math.min(x.length, y.length);
+				for (int i = 0; i < len; i++)
+				{
+					int c = Byte.toUnsignedInt(x[i]) - Byte.toUnsignedInt(y[i]);
+					if (c != 0) return c;
+				}
+				if (x.length != y.length) return x.length - y.length;
+				return a - b;
+			}
+		});
+
+		File out = new File(outpath);
+		File tmp = new File(outpath + ".tmp");
+		DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+		try
+		{
+			for (int i = 0; i < MAGIC.length(); i++) dos.writeByte(MAGIC.charAt(i));
+			dos.writeInt(CURRENT_VERSION);
+			dos.writeInt(table.getType());
+			dos.writeInt(n);
+			dos.writeInt(poolSize);
+			dos.writeLong(0L);
+
+			for (int i = 0; i < n; i++)
+			{
+				WSRecord r = order.get(i);
+				ParserType pt = r.getParserType();
+				dos.writeInt(r.getStartOffset());
+				dos.writeInt(r.getSize());
+				dos.writeInt(parents.get(i));
+				dos.writeInt(firstChild[i]);
+				dos.writeInt(r.isDirectory() ? r.getRecordCount() : 0);
+				dos.writeInt(nameOff[i]);
+				dos.writeShort(names[i].length);
+				dos.writeShort(r.isDirectory() ? FLAG_DIR : 0);
+				dos.writeInt((pt == null) ? ParserType.BINARY_UNKNOWN.getNumber() : pt.getNumber());
+			}
+
+			for (int i = 0; i < n; i++) dos.writeInt(sorted[i]);
+			for (int i = 0; i < n; i++) dos.write(names[i]);
+		}
+		finally
+		{
+			dos.close();
+		}
+		Files.move(tmp.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+}
@@ -0,0 +1,128 @@
+package waffleoRai_Containers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import waffleoRai_Containers.WArcTable.WSDir;
+import waffleoRai_Containers.WArcTable.WSRecord;
+import waffleoRai_Utils.FileBuffer.UnsupportedFileTypeException;
+import waffleoRai_Utils.ParserType;
+
+public class WArcTableTest {
+
+	public static final int DEFO_RECORDS = 100000;
+	public static final int RECORDS_PER_DIR = 100;
+	public static final int LOAD_REPS = 5;
+
+	/**
+	 * Generate a table with one level of inner directories, RECORDS_PER_DIR records to a directory.
+	 */
+	public static WArcTable buildTable(int nRecords)
+	{
+		WSDir root = new WSDir(nRecords / RECORDS_PER_DIR + 1, null);
+		root.setName("BENCH");
+		int ndirs = (nRecords + RECORDS_PER_DIR - 1) / RECORDS_PER_DIR;
+		int made = 0;
+		int pos = ndirs * 4;
+		for (int d = 0; d < ndirs && made < nRecords; d++)
+		{
+			WSDir dir = new WSDir(RECORDS_PER_DIR, root);
+			String dname = "BENCH_" + String.format("%04d", d);
+			dir.setName(dname);
+			dir.setParserType(ParserType.BINARY_UNKNOWN);
+			dir.setStartOffset(pos);
+			made++;
+			int inner = RECORDS_PER_DIR * 4;
+			for (int i = 0; i < RECORDS_PER_DIR - 1 && made < nRecords; i++)
+			{
+				WSRecord r = new WSRecord(dir);
+				r.setName(dname + "_" + String.format("%04d", i));
+				r.setParserType(ParserType.BINARY_UNKNOWN);
+				r.setStartOffset(inner);
+				r.setSize(0x800);
+				dir.addRecord(r);
+				inner += 0x800;
+				made++;
+			}
+			dir.setSize(inner);
+			pos += inner;
+			root.addRecord(dir);
+		}
+		return new WArcTable("BENCH", WSArchive.TYPE_2, root);
+	}
+
+	private static long timeLoad(String path) throws IOException, UnsupportedFileTypeException
+	{
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < LOAD_REPS; i++)
+		{
+			long t = System.nanoTime();
+			WArcTable tbl = new WArcTable(path);
+			t = System.nanoTime() - t;
+			if (tbl.getRootDirectory().getRecordCount() == 0) System.err.println("Empty table loaded from " + path);
+			if (t < best) best = t;
+		}
+		return best;
+	}
+
+	public static void main(String[] args)
+	{
+		int n = DEFO_RECORDS;
+		if (args.length > 0) n = Integer.parseInt(args[0]);
+
+		File root = null;
+		try
+		{
+			root = Files.createTempDirectory("warctbl").toFile();
+			WArcTable tbl = buildTable(n);
+			System.out.println("Table: " + n + " records");
+
+			String huffPath = new File(root, "bench." + WArcTable.EXT).getAbsolutePath();
+			String idxPath = new File(root, "bench." + WArcTableIndex.EXT).getAbsolutePath();
+			long t = System.nanoTime();
+			tbl.writeToFile(huffPath);
+			long huffWrite = System.nanoTime() - t;
+			t = System.nanoTime();
+			tbl.writeToIndexFile(idxPath);
+			long idxWrite = System.nanoTime() - t;
+
+			long huffLoad = timeLoad(huffPath);
+			long idxLoad = timeLoad(idxPath);
+
+			t = System.nanoTime();
+			WArcTableIndex idx = new WArcTableIndex(idxPath);
+			long mapTime = System.nanoTime() - t;
+			String[] keys = new String[10000];
+			int ndirs = Math.max(n / RECORDS_PER_DIR, 1);
+			for (int i = 0; i < keys.length; i++)
+			{
+				keys[i] = "BENCH_" + String.format("%04d", (i * 7) % ndirs) + "_" + String.format("%04d", i % (RECORDS_PER_DIR - 1));
+			}
+			int found = 0;
+			t = System.nanoTime();
+			for (String k : keys)
+			{
+				if (idx.findRecord(k) >= 0) found++;
+			}
+			long findTime = System.nanoTime() - t;
+
+			System.out.println("\tHuffman: " + new File(huffPath).length() + " bytes | write " + (huffWrite / 1000000) + " ms | load " + (huffLoad / 1000000) + " ms");
+			System.out.println("\tIndex: " + new File(idxPath).length() + " bytes | write " + (idxWrite / 1000000) + " ms | load (full tree) " + (idxLoad / 1000000) + " ms | map " + (mapTime / 1000) + " us");
+			System.out.println("\tName lookups: " + found + "/10000 found | " + (findTime / 10000) + " ns each");
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		catch (UnsupportedFileTypeException e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			if (root != null) CDMakerTest.deleteTree(root);
+		}
+	}
+
+}
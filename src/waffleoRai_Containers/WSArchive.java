@@ -9,6 +9,19 @@ import waffleoRai_Utils.FileBuffer;
 import waffleoRai_Utils.VirDirectory;
 import waffleoRai_Utils.VirFile;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Lazy opening through WArcReader
+ * 	Record views are made directly on the archive instead of on a view per directory
+ */
+
+/**
+ * Loads WinkyArc archives into virtual directory trees.
+ * @author Blythe Hospelhorn
+ * @version 1.1.0
+ */
 public class WSArchive {
 
 	public static final int TYPE_UNKNOWN = 0; //All I know is that it has the ptr table - .winkyarcx
@@ -26,33 +39,61 @@ public class WSArchive {
 	public static VirDirectory parseArchive(FileBuffer file, WArcTable table) throws IOException
 	{
 		if (table == null) return null;
-		
-		String arcName = table.getArchiveName();
-		VirDirectory root = new VirDirectory(arcName);
-		
-		WSDir rawdir = table.getRootDirectory();
+		return parseDirectory(file, table.getArchiveName(), table.getRootDirectory());
+	}
+	
+	/**
+	 * Open an archive without parsing it - only its top level pointer table is read.
+	 * Entries are probed for inner directories as they are requested from the reader.
+	 * @param filepath Path to archive.
+	 * @param type WinkyArc type of the archive.
+	 * @param name Name of archive.
+	 * @return Lazy reader for the archive.
+	 * @throws IOException If the archive can't be opened.
+	 */
+	public static WArcReader openArchive(String filepath, int type, String name) throws IOException
+	{
+		FileBuffer file = FileBuffer.createBuffer(filepath, false);
+		return new WArcReader(file, type, name);
+	}
+	
+	/**
+	 * Build a virtual directory for a whole archive from a lazy reader.
+	 * Any entries that haven't been probed yet are probed in parallel.
+	 * @param file Archive data (the same buffer the reader was created on).
+	 * @param reader Reader for the archive.
+	 * @return Virtual directory tree.
+	 * @throws IOException If an entry can't be read.
+	 */
+	public static VirDirectory parseArchive(FileBuffer file, WArcReader reader) throws IOException
+	{
+		if (reader == null) return null;
+		return parseDirectory(file, reader.getArchiveName(), reader.getRootDirectory());
+	}
+	
+	private static VirDirectory parseDirectory(FileBuffer file, String name, WSDir rawdir) throws IOException
+	{
+		VirDirectory root = new VirDirectory(name);
 		int fcount = rawdir.getRecordCount();
-		
 		for (int i = 0; i < fcount; i++)
 		{
-			FDBuffer element = parseElement(file, rawdir.getRecord(i));
+			FDBuffer element = parseElement(file, 0, rawdir.getRecord(i));
 			root.addItem(element);
 		}
-		
 		return root;
 	}
 	
-	private static FDBuffer parseElement(FileBuffer rawDir, WSRecord rec) throws IOException
+	private static FDBuffer parseElement(FileBuffer archive, long dirBase, WSRecord rec) throws IOException
 	{
+		//Offsets are relative to the containing directory. Views are all made on the archive itself.
+		long stpos = dirBase + rec.getStartOffset();
 		if (rec.isDirectory())
 		{
-			//Make sub-buffer
-			FileBuffer dir = rawDir.createReadOnlyCopy(rec.getStartOffset(), rec.getStartOffset() + rec.getSize());
 			VirDirectory vd = new VirDirectory(rec.getName());
 			int filecount = rec.getRecordCount();
 			for (int i = 0; i < filecount; i++)
 			{
-				FDBuffer element = parseElement(dir, rec.getRecord(i));
+				FDBuffer element = parseElement(archive, stpos, rec.getRecord(i));
 				vd.addItem(element);
 			}
 			return vd;
@@ -60,9 +101,8 @@ public class WSArchive {
 		else
 		{
 			//Grab file
-			int stpos = rec.getStartOffset();
-			int edpos = stpos + rec.getSize();
-			FileBuffer file = rawDir.createReadOnlyCopy(stpos, edpos);
+			long edpos = stpos + rec.getSize();
+			FileBuffer file = archive.createReadOnlyCopy(stpos, edpos);
 			VirFile vf = new VirFile(file, rec.getName());
 			vf.setParserType(rec.getParserType());
 			return vf;
@@ -0,0 +1,706 @@
+package waffleoRai_Containers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import waffleoRai_Containers.ISO9660Table.ISO9660Entry;
+import waffleoRai_Containers.ISOProgressEvents.Phase;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
+import waffleoRai_Containers.XATable.XASectorHeader;
+import waffleoRai_Utils.FileBuffer;
+
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Optional progress reporting and cancellation (setMonitor)
+ */
+
+/**
+ * Splits interleaved XA files (STR/XA streams) into their component streams in a single pass.
+ * <br>Sectors are routed by the (file number, channel number) pair in their Mode 2 subheaders.
+ * The sector range is cut into chunks that are scanned in parallel, then merged in order, so
+ * every channel of a file is found with one read of the file instead of one read per channel.
+ * <br>Each stream is available as a FileBuffer view gathering its sector payloads out of the image
+ * (nothing is copied), or can be written out to a channel during the pass. The result also keeps
+ * an index of which stream every sector was routed to.
+ * <br>Payloads are taken whole - 2048 bytes for Form 1 sectors and 2324 for Form 2. Mode 1 sectors
+ * and data-only (2048 byte sector) images have no subheaders, and are routed to file 0, channel 0.
+ * @author Blythe Hospelhorn
+ * @version 1.1.0
+ * @since October 19, 2026
+ */
+public class XADemuxer {
+
+	/* ----- Constants ----- */
+
+	public static final int DEFO_CHUNK_SECTORS = 1024;
+
+	/* ----- Instance Variables ----- */
+
+	private ISOXAImage image;
+	private int threads;
+	private int chunkSectors;
+	private ProgressMonitor monitor;
+
+	/* ----- Inner Classes ----- */
+
+	/**
+	 * Provides output channels for streams as they are found during a pass.
+	 */
+	public static interface StreamSink
+	{
+		/**
+		 * Called once per stream, the first time a sector from it is found.
+		 * @param stream Stream found. Only the file number, channel number and
+		 * first subheader are set at this point.
+		 * @return Channel to write the stream's data to, or null to skip the stream.
+		 * Channels are not closed by the demuxer.
+		 * @throws IOException If the channel can't be opened.
+		 */
+		public WritableByteChannel openStream(XAStream stream) throws IOException;
+	}
+
+	/**
+	 * One (file number, channel number) stream pulled out of an interleaved file.
+	 * @author Blythe Hospelhorn
+	 * @version 1.0.0
+	 * @since October 19, 2026
+	 */
+	public static class XAStream
+	{
+		private DemuxResult parent;
+		private int index;
+		private int fileNumber;
+		private int channel;
+		private XASectorHeader header;
+
+		private int[] sectors; //Relative to image start
+		private int[] headers;
+		private int[] payloads;
+		private int count;
+		private long dataSize;
+
+		private int audioSectors;
+		private int videoSectors;
+		private int dataSectors;
+
+		private WritableByteChannel out;
+
+		private XAStream(DemuxResult res, int idx, int fn, int cn, XASectorHeader sh)
+		{
+			parent = res;
+			index = idx;
+			fileNumber = fn;
+			channel = cn;
+			header = sh;
+			sectors = new int[16];
+			headers = new int[16];
+			payloads = new int[16];
+		}
+
+		private void addSector(int sector, int hdr, int pay, byte submode)
+		{
+			if (count >= sectors.length)
+			{
+				int nlen = sectors.length << 1;
+				int[] ns = new int[nlen];
+				int[] nh = new int[nlen];
+				int[] np = new int[nlen];
+				System.arraycopy(sectors, 0, ns, 0, count);
+				System.arraycopy(headers, 0, nh, 0, count);
+				System.arraycopy(payloads, 0, np, 0, count);
+				sectors = ns;
+				headers = nh;
+				payloads = np;
+			}
+			sectors[count] = sector;
+			headers[count] = hdr;
+			payloads[count] = pay;
+			count++;
+			dataSize += pay;
+			if ((submode & 0x04) != 0) audioSectors++;
+			else if ((submode & 0x02) != 0) videoSectors++;
+			else dataSectors++;
+		}
+
+		/**
+		 * @return Index of this stream in its result (order of first appearance).
+		 */
+		public int getIndex()
+		{
+			return index;
+		}
+
+		public int getFileNumber()
+		{
+			return fileNumber;
+		}
+
+		public int getChannelNumber()
+		{
+			return channel;
+		}
+
+		/**
+		 * Get the subheader of the first sector of the stream. Audio coding info
+		 * (channels, bit depth, sample rate) can be read from it.
+		 * @return Subheader of first sector.
+		 */
+		public XASectorHeader getFirstHeader()
+		{
+			return header;
+		}
+
+		public int getSectorCount()
+		{
+			return count;
+		}
+
+		/**
+		 * @param i Index of sector within stream.
+		 * @return Relative (to image start) index of sector, or -1 if i is invalid.
+		 */
+		public int getSector(int i)
+		{
+			if (i < 0 || i >= count) return -1;
+			return sectors[i];
+		}
+
+		/**
+		 * @return Total size of the stream's sector payloads.
+		 */
+		public long getDataSize()
+		{
+			return dataSize;
+		}
+
+		public int getAudioSectorCount()
+		{
+			return audioSectors;
+		}
+
+		public int getVideoSectorCount()
+		{
+			return videoSectors;
+		}
+
+		public int getDataSectorCount()
+		{
+			return dataSectors;
+		}
+
+		/**
+		 * @return Whether most of the stream's sectors are flagged as audio.
+		 */
+		public boolean isAudio()
+		{
+			return audioSectors > (count >> 1);
+		}
+
+		/**
+		 * @return Whether most of the stream's sectors are flagged as video.
+		 */
+		public boolean isVideo()
+		{
+			return videoSectors > (count >> 1);
+		}
+
+		/**
+		 * Get a read-only view of the stream's payloads, in sector order.
+		 * The view reads the source image directly.
+		 * @return View of stream data.
+		 * @throws IOException If the view can't be created.
+		 */
+		public FileBuffer getData() throws IOException
+		{
+			FileBuffer src = parent.source;
+			if (parent.secSize == ISO.F1SIZE)
+			{
+				if (count == 0) return src.createReadOnlyCopy(parent.srcStart, parent.srcStart);
+				//No subheaders - everything is in one stream, so sectors are consecutive
+				long st = parent.srcStart + ((long)sectors[0] * ISO.F1SIZE);
+				return src.createReadOnlyCopy(st, st + dataSize);
+			}
+			return RawSectorBuffer.createGatherView(src, parent.srcStart, sectors, headers, payloads, count);
+		}
+
+		public String toString()
+		{
+			return "File " + fileNumber + " Channel " + channel + " (" + count + " sectors)";
+		}
+	}
+
+	/**
+	 * Streams and sector index from one demux pass.
+	 * @author Blythe Hospelhorn
+	 * @version 1.0.0
+	 * @since October 19, 2026
+	 */
+	public static class DemuxResult
+	{
+		private FileBuffer source;
+		private long srcStart;
+		private int secSize;
+
+		private int firstSector;
+		private int[] sectorStream;
+		private List<XAStream> streams;
+		private Map<Integer, XAStream> keyMap;
+		private long scanTime;
+
+		private DemuxResult(FileBuffer src, long start, int ssize, int first, int nSecs)
+		{
+			source = src;
+			srcStart = start;
+			secSize = ssize;
+			firstSector = first;
+			sectorStream = new int[nSecs];
+			streams = new ArrayList<XAStream>();
+			keyMap = new HashMap<Integer, XAStream>();
+		}
+
+		private XAStream getOrCreate(int key, int subheader)
+		{
+			XAStream st = keyMap.get(key);
+			if (st != null) return st;
+			st = new XAStream(this, streams.size(), key >>> 8, key & 0xFF, new XASectorHeader(subheader));
+			streams.add(st);
+			keyMap.put(key, st);
+			return st;
+		}
+
+		/**
+		 * @return Relative index of the first sector scanned.
+		 */
+		public int getFirstSector()
+		{
+			return firstSector;
+		}
+
+		/**
+		 * @return Number of sectors scanned.
+		 */
+		public int getSectorCount()
+		{
+			return sectorStream.length;
+		}
+
+		public int getStreamCount()
+		{
+			return streams.size();
+		}
+
+		public XAStream getStream(int index)
+		{
+			if (index < 0 || index >= streams.size()) return null;
+			return streams.get(index);
+		}
+
+		/**
+		 * @param fileNumber Subheader file number.
+		 * @param channel Subheader channel number.
+		 * @return Stream, or null if no sectors had that file/channel pair.
+		 */
+		public XAStream getStream(int fileNumber, int channel)
+		{
+			return keyMap.get(((fileNumber & 0xFF) << 8) | (channel & 0xFF));
+		}
+
+		public List<XAStream> getStreams()
+		{
+			return Collections.unmodifiableList(streams);
+		}
+
+		/**
+		 * Look up which stream a sector was routed to.
+		 * @param relSector Relative (to image start) index of sector.
+		 * @return Index of stream, or -1 if the sector was not part of the pass.
+		 */
+		public int getStreamIndex(int relSector)
+		{
+			int i = relSector - firstSector;
+			if (i < 0 || i >= sectorStream.length) return -1;
+			return sectorStream[i];
+		}
+
+		/**
+		 * @return Wall time of the pass in nanoseconds.
+		 */
+		public long getScanTime()
+		{
+			return scanTime;
+		}
+	}
+
+	/* Per-sector routing for one chunk, filled by a worker */
+	private static class Chunk
+	{
+		public int first;
+		public int count;
+		public int[] keys;
+		public int[] subheaders;
+		public int[] hdr;
+		public int[] pay;
+
+		//Only when writing to channels - payloads of each key in the chunk, concatenated
+		public List<Integer> dataKeys;
+		public List<byte[]> data;
+
+		public Chunk(int st, int n)
+		{
+			first = st;
+			count = n;
+			keys = new int[n];
+			subheaders = new int[n];
+			hdr = new int[n];
+			pay = new int[n];
+		}
+	}
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "XADemuxer.Scanner" + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/* ----- Construction ----- */
+
+	/**
+	 * @param img Image to demux files from. It must have been parsed from a source image.
+	 */
+	public XADemuxer(ISOXAImage img)
+	{
+		image = img;
+		threads = Runtime.getRuntime().availableProcessors();
+		chunkSectors = DEFO_CHUNK_SECTORS;
+	}
+
+	/* ----- Settings ----- */
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	public int getChunkSize()
+	{
+		return chunkSectors;
+	}
+
+	/**
+	 * @param n Number of scanning threads. 1 or less scans on the calling thread.
+	 */
+	public void setThreads(int n)
+	{
+		if (n < 1) n = 1;
+		threads = n;
+	}
+
+	/**
+	 * @param sectors Number of sectors each scanning job covers.
+	 */
+	public void setChunkSize(int sectors)
+	{
+		if (sectors < 1) sectors = 1;
+		chunkSectors = sectors;
+	}
+
+	/**
+	 * Set a monitor to report progress to and check for cancellation during demux passes.
+	 * Passes report an XA_DEMUX phase counted in sectors, once per merged chunk.
+	 * @param mon Monitor, or null for none.
+	 */
+	public void setMonitor(ProgressMonitor mon)
+	{
+		monitor = mon;
+	}
+
+	/* ----- Scanning ----- */
+
+	private Chunk scanChunk(int first, int count, boolean keepData)
+	{
+		Chunk c = new Chunk(first, count);
+		FileBuffer src = image.getSourceImage();
+		long base = image.getSourceStart();
+		int ssize = image.getSourceSectorSize();
+
+		if (ssize != ISO.SECSIZE)
+		{
+			//No subheaders - all file 0, channel 0, data
+			for (int i = 0; i < count; i++)
+			{
+				c.subheaders[i] = 0x00000800;
+				c.pay[i] = ISO.F1SIZE;
+			}
+			if (keepData)
+			{
+				long st = base + ((long)first * ssize);
+				c.dataKeys = new ArrayList<Integer>(1);
+				c.data = new ArrayList<byte[]>(1);
+				c.dataKeys.add(0);
+				c.data.add(src.getBytes(st, st + ((long)count * ssize)));
+			}
+			return c;
+		}
+
+		long st = base + ((long)first * ISO.SECSIZE);
+		byte[] raw = null;
+		if (keepData) raw = src.getBytes(st, st + ((long)count * ISO.SECSIZE));
+		for (int i = 0; i < count; i++)
+		{
+			//Mode byte and first copy of the subheader
+			int mode;
+			int sh;
+			if (raw != null)
+			{
+				int off = (i * ISO.SECSIZE) + 0x0F;
+				mode = Byte.toUnsignedInt(raw[off]);
+				sh = ((raw[off + 1] & 0xFF) << 24) | ((raw[off + 2] & 0xFF) << 16) | ((raw[off + 3] & 0xFF) << 8) | (raw[off + 4] & 0xFF);
+			}
+			else
+			{
+				byte[] b = src.getBytes(st + ((long)i * ISO.SECSIZE) + 0x0F, st + ((long)i * ISO.SECSIZE) + 0x14);
+				mode = Byte.toUnsignedInt(b[0]);
+				sh = ((b[1] & 0xFF) << 24) | ((b[2] & 0xFF) << 16) | ((b[3] & 0xFF) << 8) | (b[4] & 0xFF);
+			}
+
+			if (mode == 2)
+			{
+				c.keys[i] = (sh >>> 16) & 0xFFFF;
+				c.subheaders[i] = sh;
+				c.hdr[i] = RawSectorBuffer.MODE2_HEADER;
+				c.pay[i] = ((sh & 0x2000) != 0) ? ISO.F2SIZE : ISO.F1SIZE;
+			}
+			else
+			{
+				c.subheaders[i] = 0x00000800;
+				c.hdr[i] = RawSectorBuffer.MODE1_HEADER;
+				c.pay[i] = (mode == 0) ? RawSectorBuffer.MODE0_PAYLOAD : ISO.F1SIZE;
+			}
+		}
+
+		if (raw != null)
+		{
+			//Group payloads by key, keys in order of first appearance
+			List<Integer> order = new ArrayList<Integer>();
+			Map<Integer, int[]> sizes = new HashMap<Integer, int[]>();
+			for (int i = 0; i < count; i++)
+			{
+				int[] sz = sizes.get(c.keys[i]);
+				if (sz == null)
+				{
+					sz = new int[]{0, 0, order.size()}; //{size, fill position, data index}
+					sizes.put(c.keys[i], sz);
+					order.add(c.keys[i]);
+				}
+				sz[0] += c.pay[i];
+			}
+			c.dataKeys = order;
+			c.data = new ArrayList<byte[]>(order.size());
+			for (Integer k : order) c.data.add(new byte[sizes.get(k)[0]]);
+			for (int i = 0; i < count; i++)
+			{
+				int[] sz = sizes.get(c.keys[i]);
+				byte[] dst = c.data.get(sz[2]);
+				System.arraycopy(raw, (i * ISO.SECSIZE) + c.hdr[i], dst, sz[1], c.pay[i]);
+				sz[1] += c.pay[i];
+			}
+		}
+		return c;
+	}
+
+	private void merge(DemuxResult res, Chunk c, StreamSink sink) throws IOException
+	{
+		int off = c.first - res.firstSector;
+		for (int i = 0; i < c.count; i++)
+		{
+			XAStream st = res.keyMap.get(c.keys[i]);
+			if (st == null)
+			{
+				st = res.getOrCreate(c.keys[i], c.subheaders[i]);
+				if (sink != null) st.out = sink.openStream(st);
+			}
+			st.addSector(c.first + i, c.hdr[i], c.pay[i], (byte)(c.subheaders[i] >>> 8));
+			res.sectorStream[off + i] = st.index;
+		}
+		if (monitor != null) monitor.step(c.count);
+
+		if (c.data == null) return;
+		int n = c.dataKeys.size();
+		for (int j = 0; j < n; j++)
+		{
+			XAStream st = res.keyMap.get(c.dataKeys.get(j));
+			if (st.out == null) continue;
+			ByteBuffer bb = ByteBuffer.wrap(c.data.get(j));
+			while (bb.hasRemaining()) st.out.write(bb);
+		}
+	}
+
+	private static Chunk await(Future<Chunk> f) throws IOException
+	{
+		try
+		{
+			return f.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("XADemuxer: Interrupted while waiting on scanner", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("XADemuxer: Scanner failed", e.getCause());
+		}
+	}
+
+	/* ----- Demux ----- */
+
+	/**
+	 * Demux a file, building views of each stream without copying any data.
+	 * @param path Path of the file in the image.
+	 * @return Streams and sector index.
+	 * <br>null if the file isn't in the image.
+	 * @throws IOException If the image can't be read.
+	 */
+	public DemuxResult demux(String path) throws IOException
+	{
+		return demux(path, null);
+	}
+
+	/**
+	 * Demux a file, writing each stream's data to a channel as it is scanned.
+	 * @param path Path of the file in the image.
+	 * @param sink Source of output channels. If null, data isn't copied anywhere and
+	 * only the index and views are built.
+	 * @return Streams and sector index.
+	 * <br>null if the file isn't in the image.
+	 * @throws IOException If the image can't be read or a channel can't be written to.
+	 */
+	public DemuxResult demux(String path, StreamSink sink) throws IOException
+	{
+		CDTable.CDTEntry ce = image.getTable().getEntry(path);
+		if (!(ce instanceof ISO9660Entry)) return null;
+		ISO9660Entry e = (ISO9660Entry)ce;
+		return demux(e.getStartBlock(), e.sizeInSectors(), sink);
+	}
+
+	/**
+	 * Demux an arbitrary run of sectors.
+	 * @param relSector Relative index of first sector.
+	 * @param nSectors Number of sectors to scan. Cut short if the image ends first.
+	 * @param sink Source of output channels, or null to only build the index and views.
+	 * @return Streams and sector index.
+	 * @throws IOException If the image has no source to scan, can't be read, or a channel can't be written to.
+	 */
+	public DemuxResult demux(int relSector, int nSectors, StreamSink sink) throws IOException
+	{
+		FileBuffer src = image.getSourceImage();
+		if (src == null) throw new IOException("XADemuxer: Image has no source to scan");
+		if (relSector < 0) relSector = 0;
+		int avail = image.getSourceSectorCount() - relSector;
+		if (nSectors > avail) nSectors = avail;
+		if (nSectors < 0) nSectors = 0;
+
+		long time = System.nanoTime();
+		DemuxResult res = new DemuxResult(src, image.getSourceStart(), image.getSourceSectorSize(), relSector, nSectors);
+		final boolean keepData = (sink != null);
+		int end = relSector + nSectors;
+		if (monitor != null) monitor.startPhase(Phase.XA_DEMUX, nSectors);
+
+		if (threads <= 1 || nSectors <= chunkSectors)
+		{
+			for (int s = relSector; s < end; s += chunkSectors)
+			{
+				merge(res, scanChunk(s, Math.min(chunkSectors, end - s), keepData), sink);
+			}
+			res.scanTime = System.nanoTime() - time;
+			if (monitor != null) monitor.endPhase();
+			return res;
+		}
+
+		//Keep a bounded number of chunks in flight so memory stays flat when copying data
+		int window = threads << 1;
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new DaemonFactory());
+		try
+		{
+			LinkedList<Future<Chunk>> pending = new LinkedList<Future<Chunk>>();
+			int next = relSector;
+			while (next < end || !pending.isEmpty())
+			{
+				while (next < end && pending.size() < window)
+				{
+					final int st = next;
+					final int n = Math.min(chunkSectors, end - next);
+					pending.add(pool.submit(new Callable<Chunk>(){
+						public Chunk call()
+						{
+							return scanChunk(st, n, keepData);
+						}
+					}));
+					next += n;
+				}
+				merge(res, await(pending.removeFirst()), sink);
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		res.scanTime = System.nanoTime() - time;
+		if (monitor != null) monitor.endPhase();
+		return res;
+	}
+
+	/**
+	 * Demux a file and write every stream out to its own file.
+	 * @param path Path of the file in the image.
+	 * @param outStem Output path prefix. Each stream is written to outStem_fFF_cCC.bin
+	 * @return Streams and sector index.
+	 * <br>null if the file isn't in the image.
+	 * @throws IOException If the image can't be read or an output can't be written.
+	 */
+	public DemuxResult extractAll(String path, final String outStem) throws IOException
+	{
+		final List<WritableByteChannel> opened = new LinkedList<WritableByteChannel>();
+		try
+		{
+			return demux(path, new StreamSink(){
+				public WritableByteChannel openStream(XAStream stream) throws IOException
+				{
+					String p = outStem + String.format("_f%02x_c%02x.bin", stream.getFileNumber(), stream.getChannelNumber());
+					WritableByteChannel ch = FileChannel.open(Paths.get(p), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+					opened.add(ch);
+					return ch;
+				}
+			});
+		}
+		finally
+		{
+			for (WritableByteChannel ch : opened) ch.close();
+		}
+	}
+
+}
@@ -1,9 +1,12 @@
 package waffleoRai_Containers;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import waffleoRai_Containers.ISO.Sector;
+import waffleoRai_Containers.ISOProgressEvents.Phase;
+import waffleoRai_Containers.ISOProgressEvents.ProgressMonitor;
 import waffleoRai_Containers.ISO.SectorM2;
 import waffleoRai_Utils.BitStreamer;
 import waffleoRai_Utils.FileBuffer;
@@ -16,13 +19,24 @@ import waffleoRai_Utils.FileBuffer;
  * 
  * 2017.11.05 | 1.2.0 -> 1.3.0
  * 	Allow checking of mode for sectors.
+ * 
+ * 2026.10.19 | 1.3.0 -> 1.4.0
+ * 	Directories spanning more than one sector are read in full
+ * 	Entry names are full paths (as in ISO9660Table), so image files and table lookups agree
+ * 
+ * 2026.10.19 | 1.4.0 -> 1.5.0
+ * 	Recorded subheaders can be listed (for CDIndexCache)
+ * 	XASectorHeader.serialize sets only the bit for its own submode
+ * 
+ * 2026.10.19 | 1.5.0 -> 1.6.0
+ * 	Optional progress reporting and cancellation while parsing
  */
 
 /**
  * A child class of the ISO9660Table for parsing a subtype of ISO9660 image - eXtended Architecture,
  * which utilizes Mode 2 sectors and real time streaming.
  * @author Blythe Hospelhorn
- * @version 1.2.0
+ * @version 1.6.0
  * @since November 2, 2017
  */
 public class XATable extends ISO9660Table{
@@ -337,11 +351,14 @@ public class XATable extends ISO9660Table{
 			
 			int me = 0;
 			
-			switch (this.submode)
+			if (this.submode != null)
 			{
-			case VIDEO: SM = BitStreamer.writeABit(SM, true, 1);
-			case AUDIO: SM = BitStreamer.writeABit(SM, true, 2);
-			case DATA: SM = BitStreamer.writeABit(SM, true, 3);
+				switch (this.submode)
+				{
+				case VIDEO: SM = BitStreamer.writeABit(SM, true, 1); break;
+				case AUDIO: SM = BitStreamer.writeABit(SM, true, 2); break;
+				case DATA: SM = BitStreamer.writeABit(SM, true, 3); break;
+				}
 			}
 			
 			if (this.EOF) SM = BitStreamer.writeABit(SM, true, 7);
@@ -921,9 +938,30 @@ public class XATable extends ISO9660Table{
 	 * @throws CDInvalidRecordException If there is an error reading a record in the table.
 	 */
 	public XATable(ISO myISO) throws CDInvalidRecordException
+	{
+		this(myISO, null);
+	}
+	
+	/**
+	 * Construct an XA table by parsing an ISO disk image, reporting progress as directory
+	 * sectors are read and sub-headers are scanned.
+	 * @param myISO Sector parsed ISO to parse table from.
+	 * @param mon Progress monitor for the TABLE_DIRECTORIES and TABLE_SUBHEADERS phases. May be null.
+	 * @throws CDInvalidRecordException If there is an error reading a record in the table.
+	 * @throws java.util.concurrent.CancellationException If the monitor's token is cancelled during the parse.
+	 */
+	public XATable(ISO myISO, ProgressMonitor mon) throws CDInvalidRecordException
 	{
 		this();
-		this.parseFromISO(myISO);
+		super.setMonitor(mon);
+		try
+		{
+			this.parseFromISO(myISO);
+		}
+		finally
+		{
+			super.setMonitor(null);
+		}
 	}
 	
 	/**
@@ -981,6 +1019,15 @@ public class XATable extends ISO9660Table{
 		return this.sectorSH_Map.get(sector);
 	}
 	
+	/**
+	 * Get all non-default sub-headers recorded for this image.
+	 * @return Read-only map of relative sector index to sub-header.
+	 */
+	protected Map<Integer, XASectorHeader> getSubHeaderMap()
+	{
+		return Collections.unmodifiableMap(this.sectorSH_Map);
+	}
+	
 	/**
 	 * Get a properly cast entry for easier access to XA specific fields.
 	 * @param sector Relative index of sector in question.
@@ -1046,9 +1093,12 @@ public class XATable extends ISO9660Table{
 		int rawoffset = 0;
 		if (vDesc.getMode() == -1) rawoffset = 0x18;
 		int rootDirSec = sDat.intFromFile(0x9C + 0x02 + 0x04 + rawoffset);
+		int rootDirSize = sDat.intFromFile(0x9C + 0x0A + 0x04 + rawoffset);
 		//System.err.println("XATable.parseFromISO || rootDirSec = " + rootDirSec);
 		
-		this.parseDirectory(myISO, rootDirSec, "");
+		ProgressMonitor mon = super.getMonitor();
+		if (mon != null) mon.startPhase(Phase.TABLE_DIRECTORIES, -1);
+		this.parseDirectory(myISO, rootDirSec, directorySectors(rootDirSize), "");
 		//System.err.println("XATable.parseFromISO || parseDirectory exited");
 		//Create "RAW" entries to cover any sectors not explicitly included in a file.
 		int us = super.nextUncoveredSector();
@@ -1070,8 +1120,10 @@ public class XATable extends ISO9660Table{
 		
 		//Scan image for "unusual" XA subheaders
 		//System.err.println("XATable.parseFromISO || subheader scan start ");
+		if (mon != null) mon.startPhase(Phase.TABLE_SUBHEADERS, super.getNumberSectors());
 		for (int s = 0; s < super.getNumberSectors(); s++)
 		{
+			if (mon != null) mon.tick();
 			//System.out.println("XATable.parseFromISO || s = " + s);
 			Sector sec = myISO.getSectorRelative(s);
 			//System.out.println("XATable.parseFromISO || sec is null?: " + (sec == null));
@@ -1091,15 +1143,27 @@ public class XATable extends ISO9660Table{
 				}
 			}
 		}
+		if (mon != null) mon.endPhase();
 		//System.out.println("XATable.parseFromISO || subheader scan end ");
 	}
 	
-	private void parseDirectory(ISO myISO, int secRel, String dName) throws CDInvalidRecordException
+	private void parseDirectory(ISO myISO, int secRel, int nSecs, String dName) throws CDInvalidRecordException
+	{
+		//Records never cross a sector boundary - a 0 length byte means the rest of the sector is padding
+		for (int s = 0; s < nSecs; s++)
+		{
+			Sector dirTable = myISO.getSectorRelative(secRel + s);
+			if (dirTable == null) break;
+			if (super.getMonitor() != null) super.getMonitor().tick();
+			parseDirectorySector(myISO, dirTable, dName);
+		}
+	}
+	
+	private void parseDirectorySector(ISO myISO, Sector dirTable, String dName) throws CDInvalidRecordException
 	{
 		//System.err.println("XATable.parseDirectory || -DEBUG- Called: secRel = " + secRel + ", dName = " + dName);
 		int cPos = 0;
 		boolean ignore = false;
-		Sector dirTable = myISO.getSectorRelative(secRel);
 		
 		while (cPos < dirTable.getData().getFileSize())
 		{
@@ -1114,11 +1178,13 @@ public class XATable extends ISO9660Table{
 			if (ignore) continue;
 			else
 			{
-				super.putInMainMap(e, dName + e.getName());
+				//Full path is set as the name, same as ISO9660Table
+				e.setName(dName + e.getName());
+				super.putInMainMap(e, e.getName());
 				super.putInSectorMap(e);
 				if (e.isDirectory())
 				{
-					parseDirectory(myISO, e.getStartBlock(), dName + e.getName() + "\\");
+					parseDirectory(myISO, e.getStartBlock(), directorySectors(e.getFileSize()), e.getName() + "\\");
 				}
 			}
 		}
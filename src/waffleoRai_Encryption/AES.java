@@ -1,12 +1,12 @@
 package waffleoRai_Encryption;
 
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 
-import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -21,18 +21,32 @@ public class AES {
 	
 	public static final String CIPHER_TRANSFORMATION = "AES/CBC/NoPadding";
 	public static final String CIPHER_TRANSFORMATION_PADDING = "AES/CBC/PKCS5Padding";
+	public static final String CIPHER_TRANSFORMATION_CTR = "AES/CTR/NoPadding";
 	
 	/* ----- Static Variables ----- */
 	
 	/* ----- Instance Variables ----- */
 	
 	private byte[] aes_key;
+	private SecretKeySpec skey;
+	
+	//Cipher objects aren't thread safe, so each thread gets its own pair.
+	//The provider lookup only happens once per thread, and re-initializing
+	//with the same key lets the provider skip the key expansion.
+	private ThreadLocal<Cipher> dec_cipher;
+	private ThreadLocal<Cipher> enc_cipher;
+	private ThreadLocal<Cipher> ctr_cipher;
+	
+	//The providers copy the input when it shares an array with the output,
+	//so in-place calls go through a per-thread scratch array instead.
+	private static final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>();
 	
 	/* ----- Construction ----- */
 	
 	public AES(byte[] key)
 	{
 		aes_key = key;
+		initCiphers();
 	}
 	
 	/**
@@ -47,95 +61,240 @@ public class AES {
 	{
 		aes_key = new byte[16];
 		for(int i = 0; i < key.length; i++) aes_key[i] = (byte)key[i];
+		initCiphers();
 	}
 	
-	/* ----- Static Tables ----- */
+	private void initCiphers()
+	{
+		skey = new SecretKeySpec(aes_key, "AES");
+		dec_cipher = new CipherLocal(CIPHER_TRANSFORMATION);
+		enc_cipher = new CipherLocal(CIPHER_TRANSFORMATION);
+		ctr_cipher = new CipherLocal(CIPHER_TRANSFORMATION_CTR);
+	}
 	
-	/* ----- Decryption ----- */
+	private static class CipherLocal extends ThreadLocal<Cipher>
+	{
+		private String transformation;
+		
+		public CipherLocal(String t)
+		{
+			transformation = t;
+		}
+		
+		protected Cipher initialValue()
+		{
+			try 
+			{
+				return Cipher.getInstance(transformation);
+			} 
+			catch (NoSuchAlgorithmException e) 
+			{
+				e.printStackTrace();
+				return null;
+			} 
+			catch (NoSuchPaddingException e) 
+			{
+				e.printStackTrace();
+				return null;
+			}
+		}
+	}
 	
-	public byte[] decrypt(byte[] iv, byte[] in)
+	private Cipher getCipher(int mode, byte[] iv) throws InvalidKeyException, InvalidAlgorithmParameterException, NoSuchAlgorithmException
 	{
-		try 
+		Cipher cipher = (mode == Cipher.DECRYPT_MODE) ? dec_cipher.get() : enc_cipher.get();
+		if (cipher == null) throw new NoSuchAlgorithmException(CIPHER_TRANSFORMATION);
+		cipher.init(mode, skey, new IvParameterSpec(iv));
+		return cipher;
+	}
+	
+	private Cipher getCTRCipher(byte[] iv) throws InvalidKeyException, InvalidAlgorithmParameterException, NoSuchAlgorithmException
+	{
+		Cipher cipher = ctr_cipher.get();
+		if (cipher == null) throw new NoSuchAlgorithmException(CIPHER_TRANSFORMATION_CTR);
+		cipher.init(Cipher.ENCRYPT_MODE, skey, new IvParameterSpec(iv));
+		return cipher;
+	}
+	
+	private static byte[] getScratch(int len)
+	{
+		byte[] buff = scratch.get();
+		if (buff == null || buff.length < len)
 		{
-			Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
-			SecretKeySpec skey = new SecretKeySpec(aes_key, "AES");
-			IvParameterSpec ivspec = new IvParameterSpec(iv);
-			cipher.init(Cipher.DECRYPT_MODE, skey, ivspec);
-			return cipher.doFinal(in);
-		} 
-		catch (NoSuchAlgorithmException e) 
+			buff = new byte[len];
+			scratch.set(buff);
+		}
+		return buff;
+	}
+	
+	private static int finishInPlace(Cipher cipher, byte[] data, int off, int len) throws GeneralSecurityException
+	{
+		byte[] buff = getScratch(len);
+		int n = cipher.doFinal(data, off, len, buff, 0);
+		System.arraycopy(buff, 0, data, off, n);
+		return n;
+	}
+	
+	private byte[] runArray(int mode, byte[] iv, byte[] in)
+	{
+		try 
 		{
-			e.printStackTrace();
-			return null;
+			return getCipher(mode, iv).doFinal(in);
 		} 
-		catch (NoSuchPaddingException e) 
+		catch (GeneralSecurityException e) 
 		{
 			e.printStackTrace();
 			return null;
-		} 
-		catch (InvalidKeyException e) 
+		}
+	}
+	
+	private int runInPlace(int mode, byte[] iv, byte[] data, int off, int len)
+	{
+		try 
 		{
-			e.printStackTrace();
-			return null;
+			return finishInPlace(getCipher(mode, iv), data, off, len);
 		} 
-		catch (InvalidAlgorithmParameterException e) 
+		catch (GeneralSecurityException e) 
 		{
 			e.printStackTrace();
-			return null;
-		} 
-		catch (IllegalBlockSizeException e) 
+			return -1;
+		}
+	}
+	
+	private int runBuffer(int mode, byte[] iv, ByteBuffer in, ByteBuffer out)
+	{
+		try 
 		{
-			e.printStackTrace();
-			return null;
+			return getCipher(mode, iv).doFinal(in, out);
 		} 
-		catch (BadPaddingException e) 
+		catch (GeneralSecurityException e) 
 		{
 			e.printStackTrace();
-			return null;
+			return -1;
 		}
 	}
+	
+	/* ----- Getters ----- */
+	
+	public byte[] getKey()
+	{
+		return aes_key;
+	}
+	
+	/* ----- Static Tables ----- */
+	
+	/* ----- Decryption ----- */
+	
+	public byte[] decrypt(byte[] iv, byte[] in)
+	{
+		return runArray(Cipher.DECRYPT_MODE, iv, in);
+	}
+	
+	/**
+	 * Decrypt data in place. The output goes through a per-thread scratch array
+	 * (grown to the largest len seen) and is copied back, so repeated calls don't allocate
+	 * apart from the IV spec.
+	 * @param iv Initialization vector (16 bytes).
+	 * @param data Array holding ciphertext. Plaintext is written over it.
+	 * @param off Offset in array of first byte to decrypt.
+	 * @param len Number of bytes to decrypt. Must be a multiple of 16.
+	 * @return Number of bytes written, or -1 if decryption failed.
+	 */
+	public int decryptInPlace(byte[] iv, byte[] data, int off, int len)
+	{
+		return runInPlace(Cipher.DECRYPT_MODE, iv, data, off, len);
+	}
+	
+	/**
+	 * Decrypt all remaining bytes in one ByteBuffer into another.
+	 * Direct buffers can be used on both ends.
+	 * @param iv Initialization vector (16 bytes).
+	 * @param in Ciphertext, from position to limit. Must be a multiple of 16 bytes.
+	 * @param out Buffer to write plaintext to, starting at its position.
+	 * in and out may be views of the same memory, in which case decryption happens in place.
+	 * @return Number of bytes written, or -1 if decryption failed.
+	 */
+	public int decrypt(byte[] iv, ByteBuffer in, ByteBuffer out)
+	{
+		return runBuffer(Cipher.DECRYPT_MODE, iv, in, out);
+	}
 
 	/* ----- Encryption ----- */
 	
 	public byte[] encrypt(byte[] iv, byte[] in)
+	{
+		return runArray(Cipher.ENCRYPT_MODE, iv, in);
+	}
+	
+	/**
+	 * Encrypt data in place. The output goes through a per-thread scratch array
+	 * (grown to the largest len seen) and is copied back, so repeated calls don't allocate
+	 * apart from the IV spec.
+	 * @param iv Initialization vector (16 bytes).
+	 * @param data Array holding plaintext. Ciphertext is written over it.
+	 * @param off Offset in array of first byte to encrypt.
+	 * @param len Number of bytes to encrypt. Must be a multiple of 16.
+	 * @return Number of bytes written, or -1 if encryption failed.
+	 */
+	public int encryptInPlace(byte[] iv, byte[] data, int off, int len)
+	{
+		return runInPlace(Cipher.ENCRYPT_MODE, iv, data, off, len);
+	}
+	
+	/**
+	 * Encrypt all remaining bytes in one ByteBuffer into another.
+	 * @param iv Initialization vector (16 bytes).
+	 * @param in Plaintext, from position to limit. Must be a multiple of 16 bytes.
+	 * @param out Buffer to write ciphertext to, starting at its position.
+	 * @return Number of bytes written, or -1 if encryption failed.
+	 */
+	public int encrypt(byte[] iv, ByteBuffer in, ByteBuffer out)
+	{
+		return runBuffer(Cipher.ENCRYPT_MODE, iv, in, out);
+	}
+	
+	/* ----- Counter Mode ----- */
+	
+	/**
+	 * Run AES-CTR over data in place. CTR encryption and decryption are the
+	 * same operation, so this does both.
+	 * @param iv Initial counter block (16 bytes). Incremented as a 128-bit big-endian value
+	 * for every 16 bytes processed.
+	 * @param data Array holding input. Output is written over it.
+	 * @param off Offset in array of first byte to process.
+	 * @param len Number of bytes to process. Does not need to be a multiple of 16.
+	 * @return Number of bytes written, or -1 if the operation failed.
+	 */
+	public int cryptCTRInPlace(byte[] iv, byte[] data, int off, int len)
 	{
 		try 
 		{
-			Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
-			SecretKeySpec skey = new SecretKeySpec(aes_key, "AES");
-			IvParameterSpec ivspec = new IvParameterSpec(iv);
-			cipher.init(Cipher.ENCRYPT_MODE, skey, ivspec);
-			return cipher.doFinal(in);
-		} 
-		catch (NoSuchAlgorithmException e) 
-		{
-			e.printStackTrace();
-			return null;
-		} 
-		catch (NoSuchPaddingException e) 
-		{
-			e.printStackTrace();
-			return null;
+			return finishInPlace(getCTRCipher(iv), data, off, len);
 		} 
-		catch (InvalidKeyException e) 
+		catch (GeneralSecurityException e) 
 		{
 			e.printStackTrace();
-			return null;
-		} 
-		catch (InvalidAlgorithmParameterException e) 
-		{
-			e.printStackTrace();
-			return null;
-		} 
-		catch (IllegalBlockSizeException e) 
+			return -1;
+		}
+	}
+	
+	/**
+	 * Run AES-CTR over all remaining bytes in one ByteBuffer into another.
+	 * @param iv Initial counter block (16 bytes).
+	 * @param in Input, from position to limit.
+	 * @param out Buffer to write output to, starting at its position.
+	 * @return Number of bytes written, or -1 if the operation failed.
+	 */
+	public int cryptCTR(byte[] iv, ByteBuffer in, ByteBuffer out)
+	{
+		try 
 		{
-			e.printStackTrace();
-			return null;
+			return getCTRCipher(iv).doFinal(in, out);
 		} 
-		catch (BadPaddingException e) 
+		catch (GeneralSecurityException e) 
 		{
 			e.printStackTrace();
-			return null;
+			return -1;
 		}
 	}
 	
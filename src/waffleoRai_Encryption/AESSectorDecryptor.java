@@ -0,0 +1,465 @@
+package waffleoRai_Encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import waffleoRai_Utils.FileBuffer;
+
+/**
+ * Decrypts data made up of independently encrypted sectors (disc images, packed archives)
+ * on a pool of worker threads.
+ * <br>Sectors are read in batches on the calling thread, decrypted in place by the workers,
+ * and written back out in order, so reading and writing overlap with decryption and
+ * memory use stays bounded by (batch size * batches in flight).
+ * <br>Each sector gets its own IV from a SectorIVFunction. The function also gets the last
+ * 16 ciphertext bytes of the preceding sector, so a single CBC chain over a whole image
+ * (IV of sector n = last cipher block of sector n-1) splits up the same way.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class AESSectorDecryptor {
+
+	/* ----- Constants ----- */
+
+	public static final int MODE_CBC = 0;
+	public static final int MODE_CTR = 1;
+
+	public static final int DEFO_BATCH_SECTORS = 256;
+
+	private static final int BLOCK_SIZE = 16;
+
+	/* ----- Instance Variables ----- */
+
+	private AES aes;
+	private int sectorSize;
+	private SectorIVFunction ivFunc;
+	private int mode;
+
+	private int threads;
+	private int batchSectors;
+
+	/* ----- Inner Classes ----- */
+
+	/**
+	 * Generates the IV for a sector.
+	 * Called from worker threads, so implementations need to be thread safe.
+	 */
+	public static interface SectorIVFunction
+	{
+		/**
+		 * @param sector Index of sector (as passed in as the first sector, plus offset into the data).
+		 * @param prevTail Last 16 ciphertext bytes of the preceding sector, or null if
+		 * this is the first sector of the data.
+		 * @param iv 16 byte array to write the IV into.
+		 */
+		public void getIV(long sector, byte[] prevTail, byte[] iv);
+	}
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "AESSectorDecryptor.Worker" + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	private static class Batch
+	{
+		public byte[] data;
+		public int len;
+		public long firstSector;
+		public byte[] prevTail;
+	}
+
+	/* ----- Construction ----- */
+
+	/**
+	 * @param key AES key to decrypt with.
+	 * @param sector_size Size in bytes of each independently encrypted sector.
+	 * Must be a positive multiple of 16.
+	 * @param ivs Function to derive the IV for each sector.
+	 * @throws IllegalArgumentException If sector size is invalid.
+	 */
+	public AESSectorDecryptor(AES key, int sector_size, SectorIVFunction ivs)
+	{
+		if (sector_size <= 0 || (sector_size % BLOCK_SIZE) != 0) throw new IllegalArgumentException("Sector size must be a positive multiple of 16");
+		aes = key;
+		sectorSize = sector_size;
+		ivFunc = ivs;
+		mode = MODE_CBC;
+		threads = Runtime.getRuntime().availableProcessors();
+		batchSectors = DEFO_BATCH_SECTORS;
+	}
+
+	/* ----- Getters ----- */
+
+	public int getSectorSize()
+	{
+		return sectorSize;
+	}
+
+	public int getMode()
+	{
+		return mode;
+	}
+
+	public int getThreadCount()
+	{
+		return threads;
+	}
+
+	public int getBatchSize()
+	{
+		return batchSectors;
+	}
+
+	/* ----- Setters ----- */
+
+	/**
+	 * Set the block mode sectors are encrypted with (MODE_CBC or MODE_CTR).
+	 * In CBC mode, bytes trailing the last whole 16 byte block of a sector are left as is.
+	 * @param m Mode to use.
+	 */
+	public void setMode(int m)
+	{
+		if (m != MODE_CBC && m != MODE_CTR) throw new IllegalArgumentException("Unknown mode: " + m);
+		mode = m;
+	}
+
+	/**
+	 * Set the number of worker threads. 1 decrypts on a single worker,
+	 * but I/O still overlaps with it.
+	 * @param n Number of workers.
+	 */
+	public void setThreadCount(int n)
+	{
+		if (n < 1) n = 1;
+		threads = n;
+	}
+
+	/**
+	 * Set how many sectors are handed to a worker at once.
+	 * @param sectors Sectors per batch.
+	 */
+	public void setBatchSize(int sectors)
+	{
+		if (sectors < 1) sectors = 1;
+		long max = 0x7FFFFFF0L / sectorSize;
+		if (sectors > max) sectors = (int)max;
+		batchSectors = sectors;
+	}
+
+	/* ----- Common IV Functions ----- */
+
+	/**
+	 * IV is the sector index as a 128-bit big-endian integer.
+	 * @return IV function.
+	 */
+	public static SectorIVFunction sectorNumberIV()
+	{
+		return new SectorIVFunction(){
+			public void getIV(long sector, byte[] prevTail, byte[] iv)
+			{
+				for (int i = 0; i < 8; i++) iv[i] = 0;
+				for (int i = 0; i < 8; i++) iv[15 - i] = (byte)(sector >>> (i << 3));
+			}
+		};
+	}
+
+	/**
+	 * IV is the sector index (as a little-endian 64-bit value) XOR'd into the
+	 * first 8 bytes of a base IV.
+	 * @param base Base IV. Copied.
+	 * @return IV function.
+	 */
+	public static SectorIVFunction xorSectorIV(byte[] base)
+	{
+		final byte[] b = new byte[BLOCK_SIZE];
+		System.arraycopy(base, 0, b, 0, BLOCK_SIZE);
+		return new SectorIVFunction(){
+			public void getIV(long sector, byte[] prevTail, byte[] iv)
+			{
+				System.arraycopy(b, 0, iv, 0, BLOCK_SIZE);
+				for (int i = 0; i < 8; i++) iv[i] ^= (byte)(sector >>> (i << 3));
+			}
+		};
+	}
+
+	/**
+	 * A single CBC chain over all sectors - the first sector uses the base IV, every sector
+	 * after that uses the last cipher block of the one before. Gives the same result as
+	 * decrypting everything in one go with AES.decrypt.
+	 * @param base IV for the first sector. Copied.
+	 * @return IV function.
+	 */
+	public static SectorIVFunction chainedCBCIV(byte[] base)
+	{
+		final byte[] b = new byte[BLOCK_SIZE];
+		System.arraycopy(base, 0, b, 0, BLOCK_SIZE);
+		return new SectorIVFunction(){
+			public void getIV(long sector, byte[] prevTail, byte[] iv)
+			{
+				if (prevTail == null) System.arraycopy(b, 0, iv, 0, BLOCK_SIZE);
+				else System.arraycopy(prevTail, 0, iv, 0, BLOCK_SIZE);
+			}
+		};
+	}
+
+	/* ----- Internal ----- */
+
+	private void decryptBatch(Batch b) throws IOException
+	{
+		byte[] iv = new byte[BLOCK_SIZE];
+		byte[] tailA = new byte[BLOCK_SIZE];
+		byte[] tailB = new byte[BLOCK_SIZE];
+		byte[] tail = b.prevTail;
+		int pos = 0;
+		long sec = b.firstSector;
+		while (pos < b.len)
+		{
+			int slen = sectorSize;
+			if (pos + slen > b.len) slen = b.len - pos;
+			ivFunc.getIV(sec, tail, iv);
+
+			//Keep the ciphertext tail around for the next sector before it's overwritten
+			byte[] save = (tail == tailA) ? tailB : tailA;
+			if (slen == sectorSize) System.arraycopy(b.data, pos + slen - BLOCK_SIZE, save, 0, BLOCK_SIZE);
+
+			int res = 0;
+			if (mode == MODE_CTR) res = aes.cryptCTRInPlace(iv, b.data, pos, slen);
+			else
+			{
+				int clen = slen - (slen % BLOCK_SIZE);
+				if (clen > 0) res = aes.decryptInPlace(iv, b.data, pos, clen);
+			}
+			if (res < 0) throw new IOException("AESSectorDecryptor: Decryption failed for sector " + sec);
+
+			tail = save;
+			pos += slen;
+			sec++;
+		}
+	}
+
+	private ExecutorService startPool()
+	{
+		return Executors.newFixedThreadPool(threads, new DaemonFactory());
+	}
+
+	private static interface BatchReader
+	{
+		/* Fill the array, returning the number of bytes read. 0 or less means no more data */
+		public int read(byte[] dst) throws IOException;
+	}
+
+	private static interface BatchWriter
+	{
+		public void write(byte[] src, int len) throws IOException;
+	}
+
+	/* Reader and writer both run on the calling thread. Up to 2x threads batches can be in
+	 * flight, so the workers keep busy while the caller waits on I/O. */
+	private void runPipeline(BatchReader reader, BatchWriter writer, long firstSector) throws IOException
+	{
+		final int bsize = batchSectors * sectorSize;
+		final int maxInFlight = threads * 2;
+		LinkedList<Future<Batch>> inflight = new LinkedList<Future<Batch>>();
+		LinkedList<byte[]> spare = new LinkedList<byte[]>();
+		ExecutorService pool = startPool();
+
+		try
+		{
+			long sector = firstSector;
+			byte[] prevTail = null;
+			while (true)
+			{
+				byte[] arr = spare.isEmpty() ? new byte[bsize] : spare.pop();
+				int read = reader.read(arr);
+				if (read <= 0) break;
+
+				final Batch b = new Batch();
+				b.data = arr;
+				b.len = read;
+				b.firstSector = sector;
+				b.prevTail = prevTail;
+
+				//Tail of last full sector in this batch, for the next batch's first sector
+				int fullSecs = read / sectorSize;
+				if (fullSecs > 0)
+				{
+					prevTail = new byte[BLOCK_SIZE];
+					System.arraycopy(arr, (fullSecs * sectorSize) - BLOCK_SIZE, prevTail, 0, BLOCK_SIZE);
+				}
+				sector += (read + sectorSize - 1) / sectorSize;
+
+				inflight.add(pool.submit(new Callable<Batch>(){
+					public Batch call() throws IOException
+					{
+						decryptBatch(b);
+						return b;
+					}
+				}));
+
+				if (inflight.size() >= maxInFlight)
+				{
+					Batch done = waitFor(inflight.pop());
+					writer.write(done.data, done.len);
+					spare.push(done.data);
+				}
+				if (read < bsize) break;
+			}
+			while (!inflight.isEmpty())
+			{
+				Batch done = waitFor(inflight.pop());
+				writer.write(done.data, done.len);
+			}
+		}
+		finally
+		{
+			for (Future<Batch> f : inflight) f.cancel(true);
+			pool.shutdown();
+		}
+	}
+
+	private static Batch waitFor(Future<Batch> f) throws IOException
+	{
+		try
+		{
+			return f.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("AESSectorDecryptor: Interrupted while waiting on worker", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("AESSectorDecryptor: Worker failed", e.getCause());
+		}
+	}
+
+	private static BatchReader bufferReader(final FileBuffer src, final long stPos, final long edPos)
+	{
+		return new BatchReader(){
+			private long pos = stPos;
+
+			public int read(byte[] dst)
+			{
+				long len = edPos - pos;
+				if (len <= 0) return 0;
+				if (len > dst.length) len = dst.length;
+				byte[] chunk = src.getBytes(pos, pos + len);
+				System.arraycopy(chunk, 0, dst, 0, (int)len);
+				pos += len;
+				return (int)len;
+			}
+		};
+	}
+
+	/* ----- Decryption ----- */
+
+	/**
+	 * Decrypt a region of a FileBuffer into a new in-memory FileBuffer.
+	 * @param src Buffer holding ciphertext. It is only read from the calling thread.
+	 * @param stPos Offset of first sector in src.
+	 * @param edPos End offset (exclusive) of data in src.
+	 * @param firstSector Sector index to pass to the IV function for the sector at stPos.
+	 * @return New FileBuffer of plaintext, with src's byte order.
+	 * @throws IOException If a worker fails, or the output would not fit in one array
+	 * (use decryptToFile for those).
+	 */
+	public FileBuffer decrypt(FileBuffer src, long stPos, long edPos, long firstSector) throws IOException
+	{
+		if (stPos < 0 || edPos > src.getFileSize() || edPos < stPos) throw new IndexOutOfBoundsException();
+		long total = edPos - stPos;
+		if (total > 0x7FFFFFF0L) throw new IOException("AESSectorDecryptor: Output too large for memory, decrypt to file instead");
+
+		final byte[] out = new byte[(int)total];
+		runPipeline(bufferReader(src, stPos, edPos), new BatchWriter(){
+			private int pos = 0;
+
+			public void write(byte[] arr, int len)
+			{
+				System.arraycopy(arr, 0, out, pos, len);
+				pos += len;
+			}
+		}, firstSector);
+
+		return FileBuffer.wrap(out, src.isBigEndian());
+	}
+
+	/**
+	 * Decrypt a region of a FileBuffer to a file on disk. There is no size limit.
+	 * @param src Buffer holding ciphertext.
+	 * @param stPos Offset of first sector in src.
+	 * @param edPos End offset (exclusive) of data in src.
+	 * @param firstSector Sector index to pass to the IV function for the sector at stPos.
+	 * @param outpath Path of file to write. Overwritten if it exists.
+	 * @throws IOException If the output file can't be written or a worker fails.
+	 */
+	public void decryptToFile(FileBuffer src, long stPos, long edPos, long firstSector, String outpath) throws IOException
+	{
+		if (stPos < 0 || edPos > src.getFileSize() || edPos < stPos) throw new IndexOutOfBoundsException();
+		FileChannel out = FileChannel.open(Paths.get(outpath), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try
+		{
+			runPipeline(bufferReader(src, stPos, edPos), channelWriter(out), firstSector);
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Decrypt everything readable from one channel to another.
+	 * Input is read a batch at a time, so this works on data of any length and
+	 * never holds more than a few batches in memory.
+	 * @param in Channel to read ciphertext from. Not closed.
+	 * @param out Channel to write plaintext to. Not closed.
+	 * @param firstSector Sector index to pass to the IV function for the first sector read.
+	 * @throws IOException If either channel fails or a worker fails.
+	 */
+	public void decrypt(final ReadableByteChannel in, WritableByteChannel out, long firstSector) throws IOException
+	{
+		runPipeline(new BatchReader(){
+			public int read(byte[] dst) throws IOException
+			{
+				ByteBuffer bb = ByteBuffer.wrap(dst);
+				while (bb.hasRemaining())
+				{
+					if (in.read(bb) < 0) break;
+				}
+				return bb.position();
+			}
+		}, channelWriter(out), firstSector);
+	}
+
+	private static BatchWriter channelWriter(final WritableByteChannel out)
+	{
+		return new BatchWriter(){
+			public void write(byte[] arr, int len) throws IOException
+			{
+				ByteBuffer bb = ByteBuffer.wrap(arr, 0, len);
+				while (bb.hasRemaining()) out.write(bb);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,372 @@
+package waffleoRai_Encryption;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import waffleoRai_Encryption.AESSectorDecryptor.SectorIVFunction;
+import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.ROSubFileBuffer;
+
+/**
+ * Read-only view of sector-encrypted data that decrypts on demand.
+ * <br>Nothing is decrypted up front. The first read that touches a sector decrypts it
+ * into a bounded LRU cache, so a parser can work directly over an encrypted image
+ * while only the sectors it actually looks at take up extra memory.
+ * <br>Sector layout, IVs and block modes work the same way as they do in AESSectorDecryptor.
+ * Reads are safe from multiple threads.
+ * <br>If a sector fails to decrypt, the read throws an UncheckedIOException (plain IOException for
+ * writeFile/appendToFile) rather than returning ciphertext.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class DecryptingSectorBuffer extends ROSubFileBuffer{
+
+	/* ----- Constants ----- */
+
+	public static final int DEFO_CACHE_SECTORS = 512;
+
+	private static final int BLOCK_SIZE = 16;
+
+	/* ----- Instance Variables ----- */
+
+	private FileBuffer source;
+	private long srcStart;
+
+	private AES aes;
+	private int sectorSize;
+	private SectorIVFunction ivFunc;
+	private long firstSector;
+	private int mode;
+
+	private SectorCache cache;
+	private volatile CachedSector last; //Fast path for byte-by-byte reads
+
+	/* ----- Inner Classes ----- */
+
+	private static class CachedSector
+	{
+		public long index;
+		public byte[] data;
+
+		public CachedSector(long i, byte[] d)
+		{
+			index = i;
+			data = d;
+		}
+	}
+
+	private static class SectorCache extends LinkedHashMap<Long, byte[]>
+	{
+		private static final long serialVersionUID = 4319283614930257712L;
+
+		private int maxSectors;
+
+		public SectorCache(int max)
+		{
+			super(max + (max >>> 1), 0.75f, true);
+			maxSectors = max;
+		}
+
+		protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest)
+		{
+			return size() > maxSectors;
+		}
+	}
+
+	private static class SubView extends ROSubFileBuffer
+	{
+		public SubView(FileBuffer parent, long stPos, long edPos)
+		{
+			super(parent, stPos, edPos);
+		}
+	}
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Wrap a whole FileBuffer. Sectors are decrypted in CBC mode.
+	 * @param src Buffer holding the encrypted data.
+	 * @param key AES key to decrypt with.
+	 * @param sector_size Size in bytes of each independently encrypted sector.
+	 * Must be a positive multiple of 16.
+	 * @param ivs Function to derive the IV for each sector.
+	 */
+	public DecryptingSectorBuffer(FileBuffer src, AES key, int sector_size, SectorIVFunction ivs)
+	{
+		this(src, 0, src.getFileSize(), key, sector_size, ivs, 0);
+	}
+
+	/**
+	 * Wrap a region of a FileBuffer.
+	 * @param src Buffer holding the encrypted data.
+	 * @param stPos Offset in src of the first sector.
+	 * @param edPos End of encrypted data in src (exclusive).
+	 * @param key AES key to decrypt with.
+	 * @param sector_size Size in bytes of each independently encrypted sector.
+	 * Must be a positive multiple of 16.
+	 * @param ivs Function to derive the IV for each sector.
+	 * @param first_sector Sector index to pass to the IV function for the sector at stPos.
+	 * @throws IllegalArgumentException If sector size is invalid.
+	 */
+	public DecryptingSectorBuffer(FileBuffer src, long stPos, long edPos, AES key, int sector_size, SectorIVFunction ivs, long first_sector)
+	{
+		super(src, stPos, edPos);
+		if (sector_size <= 0 || (sector_size % BLOCK_SIZE) != 0) throw new IllegalArgumentException("Sector size must be a positive multiple of 16");
+		source = src;
+		srcStart = stPos;
+		aes = key;
+		sectorSize = sector_size;
+		ivFunc = ivs;
+		firstSector = first_sector;
+		mode = AESSectorDecryptor.MODE_CBC;
+		cache = new SectorCache(DEFO_CACHE_SECTORS);
+	}
+
+	/* ----- Settings ----- */
+
+	/**
+	 * Set the block mode sectors are encrypted with (AESSectorDecryptor.MODE_CBC or MODE_CTR).
+	 * Clears the cache.
+	 * @param m Mode to use.
+	 */
+	public void setMode(int m)
+	{
+		if (m != AESSectorDecryptor.MODE_CBC && m != AESSectorDecryptor.MODE_CTR) throw new IllegalArgumentException("Unknown mode: " + m);
+		mode = m;
+		clearCache();
+	}
+
+	/**
+	 * Set how many decrypted sectors are kept around. Clears the cache.
+	 * @param sectors Maximum number of cached sectors.
+	 */
+	public void setCacheSize(int sectors)
+	{
+		if (sectors < 1) sectors = 1;
+		synchronized(this)
+		{
+			cache = new SectorCache(sectors);
+			last = null;
+		}
+	}
+
+	public synchronized void clearCache()
+	{
+		cache.clear();
+		last = null;
+	}
+
+	public int getSectorSize()
+	{
+		return sectorSize;
+	}
+
+	public synchronized int getCachedSectorCount()
+	{
+		return cache.size();
+	}
+
+	/* ----- Decryption ----- */
+
+	private byte[] decryptSector(long rel)
+	{
+		long st = srcStart + (rel * sectorSize);
+		long ed = st + sectorSize;
+		long srcEnd = srcStart + getFileSize();
+		if (ed > srcEnd) ed = srcEnd;
+		byte[] data = source.getBytes(st, ed);
+
+		byte[] prevTail = null;
+		if (rel > 0) prevTail = source.getBytes(st - BLOCK_SIZE, st);
+		byte[] iv = new byte[BLOCK_SIZE];
+		ivFunc.getIV(firstSector + rel, prevTail, iv);
+
+		int res = 0;
+		if (mode == AESSectorDecryptor.MODE_CTR) res = aes.cryptCTRInPlace(iv, data, 0, data.length);
+		else
+		{
+			int clen = data.length - (data.length % BLOCK_SIZE);
+			if (clen > 0) res = aes.decryptInPlace(iv, data, 0, clen);
+		}
+		if (res < 0) throw new UncheckedIOException(new IOException("DecryptingSectorBuffer: Decryption failed for sector " + (firstSector + rel)));
+		return data;
+	}
+
+	private byte[] getSector(long rel)
+	{
+		CachedSector l = last;
+		if (l != null && l.index == rel) return l.data;
+
+		byte[] data;
+		synchronized(this)
+		{
+			data = cache.get(rel);
+		}
+		if (data == null)
+		{
+			//Decrypt outside the lock so other threads can keep reading cached sectors
+			data = decryptSector(rel);
+			synchronized(this)
+			{
+				cache.put(rel, data);
+			}
+		}
+		last = new CachedSector(rel, data);
+		return data;
+	}
+
+	private void copyOut(long stPos, byte[] dst, int dstOff, int len)
+	{
+		long rel = stPos / sectorSize;
+		int secOff = (int)(stPos - (rel * sectorSize));
+		while (len > 0)
+		{
+			byte[] sec = getSector(rel);
+			int amt = sec.length - secOff;
+			if (amt > len) amt = len;
+			System.arraycopy(sec, secOff, dst, dstOff, amt);
+			dstOff += amt;
+			len -= amt;
+			secOff = 0;
+			rel++;
+		}
+	}
+
+	/* --- GETTER OVERRIDE --- */
+
+	public byte getByte(int position)
+	{
+		return getByte(Integer.toUnsignedLong(position));
+	}
+
+	public byte getByte(long position)
+	{
+		if (position < 0 || position >= getFileSize()) throw new IndexOutOfBoundsException();
+		long rel = position / sectorSize;
+		return getSector(rel)[(int)(position - (rel * sectorSize))];
+	}
+
+	public byte[] getBytes()
+	{
+		return getBytes(0, getFileSize());
+	}
+
+	public byte[] getBytes(long stpos, long edpos)
+	{
+		if (stpos < 0 || edpos > getFileSize() || edpos < stpos) throw new IndexOutOfBoundsException();
+		if (edpos - stpos > 0x7FFFFFFFL) throw new IndexOutOfBoundsException();
+		byte[] out = new byte[(int)(edpos - stpos)];
+		copyOut(stpos, out, 0, out.length);
+		return out;
+	}
+
+	/* --- READING OVERRIDE --- */
+
+	public String readEncoded_string(String charset, long stPos, long edPos)
+	{
+		if (charset == null) throw new NullPointerException();
+		if (stPos < 0 || edPos > getFileSize() || stPos >= edPos) throw new IndexOutOfBoundsException();
+		CharBuffer cb = Charset.forName(charset).decode(toByteBuffer(stPos, edPos));
+		return cb.toString();
+	}
+
+	/* --- OTHER OVERRIDE --- */
+
+	public ByteBuffer toByteBuffer()
+	{
+		return toByteBuffer(0, getFileSize());
+	}
+
+	public ByteBuffer toByteBuffer(int stPos, int edPos)
+	{
+		return toByteBuffer((long)stPos, (long)edPos);
+	}
+
+	public ByteBuffer toByteBuffer(long stPos, long edPos)
+	{
+		return ByteBuffer.wrap(getBytes(stPos, edPos));
+	}
+
+	public FileBuffer createCopy(long stPos, long edPos) throws IOException
+	{
+		return FileBuffer.wrap(getBytes(stPos, edPos), isBigEndian());
+	}
+
+	/**
+	 * Reference a piece of the decrypted data. The new buffer reads through this one,
+	 * so it shares the sector cache.
+	 */
+	public FileBuffer createReadOnlyCopy(long stPos, long edPos) throws IOException
+	{
+		if (stPos < 0 || edPos > getFileSize() || stPos >= edPos) throw new IndexOutOfBoundsException();
+		return new SubView(this, stPos, edPos);
+	}
+
+	private void writeOut(String path, long stPos, long edPos, boolean append) throws IOException
+	{
+		if (stPos < 0) stPos = 0;
+		if (edPos > getFileSize()) edPos = getFileSize();
+		if (stPos >= edPos) throw new IndexOutOfBoundsException();
+
+		//Written a sector run at a time so large images don't need to fit in memory
+		final int chunk = sectorSize * 64;
+		byte[] buff = new byte[chunk];
+		FileOutputStream out = new FileOutputStream(path, append);
+		try
+		{
+			long pos = stPos;
+			while (pos < edPos)
+			{
+				int amt = chunk;
+				if (edPos - pos < amt) amt = (int)(edPos - pos);
+				copyOut(pos, buff, 0, amt);
+				out.write(buff, 0, amt);
+				pos += amt;
+			}
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	public void writeFile(String path, long stPos, long edPos) throws IOException
+	{
+		if (path == null) throw new IOException();
+		writeOut(path, stPos, edPos, false);
+	}
+
+	public void appendToFile(String path, long stPos, long edPos) throws IOException, NoSuchFileException
+	{
+		if (!FileBuffer.fileExists(path)) throw new NoSuchFileException(path);
+		writeOut(path, stPos, edPos, true);
+	}
+
+	public long getMinimumMemoryUsage()
+	{
+		long tot = super.getMinimumMemoryUsage();
+		synchronized(this)
+		{
+			tot += (long)cache.size() * (sectorSize + 32);
+		}
+		return tot;
+	}
+
+	public String typeString()
+	{
+		return "Decrypting Sector FileBuffer";
+	}
+
+}
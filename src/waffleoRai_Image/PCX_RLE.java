@@ -1,55 +1,36 @@
 package waffleoRai_Image;
 
+import java.io.IOException;
+
 import waffleoRai_Compression.RLEncoder;
-import waffleoRai_Utils.BitStreamer;
 import waffleoRai_Utils.FileBuffer;
 
 public class PCX_RLE extends RLEncoder{
 
 	public PCX_RLE()
 	{
-		super(2, (short)0x11, 6, 8);
+		//Top two bits set (0xC0) marks a run length byte
+		super(2, (short)0x3, 6, 8);
 	}
 	
 	public int minimumRL()
 	{
-		return 1;
+		return 2;
 	}
 	
-	public FileBuffer RLE_Encode(FileBuffer in, int stPos, int edPos)
+	/**
+	 * Encode PCX image data. Bytes 0xC0 and above are always written
+	 * with a run length byte, even when they only occur once.
+	 * <br>PCX settings are byte-aligned, so this is handled by the
+	 * RLEncoder byte-aligned path.
+	 * @param in Buffer containing raw scanline data.
+	 * @param stPos Position of first byte to encode (inclusive).
+	 * @param edPos Position after last byte to encode (exclusive).
+	 * @return New FileBuffer containing the encoded data.
+	 * @throws IOException If there is an error reading the input.
+	 */
+	public FileBuffer RLE_Encode(FileBuffer in, int stPos, int edPos) throws IOException
 	{
-		int initCap = edPos - stPos;
-		FileBuffer out = new FileBuffer(initCap);
-		BitStreamer inStream = new BitStreamer(in, stPos, true);
-		BitStreamer outStream = new BitStreamer(out, false);
-		
-		int counter = 0;
-		byte rVal = 0;
-		
-		while (inStream.canMoveForward(8))
-		{
-			byte cVal = inStream.readToByte(8);
-			if (cVal == rVal && counter < this.maximumRL()) counter++;
-			else
-			{
-				/*Write rVal however needed, to output file*/
-				if (counter > 0)
-				{
-					if (counter >= 2 || Byte.toUnsignedInt(rVal) >= 192)
-					{
-						/*RL shortening - write marker/ run len byte*/
-						outStream.writeBits(0x11, 2);
-						outStream.writeBits(counter, 6);
-					}
-					/*Write byte*/
-					outStream.writeBits(rVal, 8);
-					counter = 0;
-				}
-				/*Set cVal as new counter reference*/
-				rVal = cVal;
-				counter = 1;
-			}
-		}
-		return out;
+		return super.RLE_EncodeBytes(in, stPos, edPos);
 	}
 }
@@ -0,0 +1,394 @@
+package waffleoRai_Sound;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Bulk converters between interleaved little-endian PCM (as in WAV data chunks) and
+ * per-channel int sample arrays.
+ * <br>Conversions run over whole blocks: 16 and 32-bit data is read through ShortBuffer/IntBuffer
+ * views, and 24-bit data is packed and unpacked by hand straight from the backing byte array.
+ * 8-bit samples are unsigned (0 - 255), as in WAV. Wider samples are signed.
+ * <br>The channel read/write methods move data through a FileChannel in blocks of
+ * DEFO_BLOCK_FRAMES frames, so memory use doesn't depend on the length of the sound.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class PCMCodec {
+
+	/* ----- Constants ----- */
+
+	public static final int DEFO_BLOCK_FRAMES = 0x10000;
+
+	/* ----- Decode ----- */
+
+	/**
+	 * De-interleave a block of little-endian PCM frames into channel arrays.
+	 * @param src Source data, starting at its current position. Its position is advanced past the frames read.
+	 * Byte order of the buffer itself is ignored.
+	 * @param bytesPerSample 1, 2, 3 or 4.
+	 * @param dst Destination arrays, one per channel. The number of arrays is the number of interleaved channels.
+	 * @param dstPos Index in the destination arrays of the first frame.
+	 * @param frames Number of frames to convert.
+	 * @throws IllegalArgumentException If the sample size isn't supported.
+	 */
+	public static void deinterleave(ByteBuffer src, int bytesPerSample, int[][] dst, int dstPos, int frames)
+	{
+		int nch = dst.length;
+		int nbytes = frames * nch * bytesPerSample;
+		ByteBuffer in = src.slice().order(ByteOrder.LITTLE_ENDIAN);
+		switch(bytesPerSample)
+		{
+		case 1: decode8(in, dst, dstPos, frames); break;
+		case 2: decode16(in.asShortBuffer(), dst, dstPos, frames); break;
+		case 3: decode24(in, dst, dstPos, frames); break;
+		case 4: decode32(in.asIntBuffer(), dst, dstPos, frames); break;
+		default: throw new IllegalArgumentException("PCMCodec: Unsupported sample size: " + bytesPerSample);
+		}
+		src.position(src.position() + nbytes);
+	}
+
+	private static void decode8(ByteBuffer in, int[][] dst, int pos, int frames)
+	{
+		int nch = dst.length;
+		int end = pos + frames;
+		if (in.hasArray())
+		{
+			byte[] arr = in.array();
+			int i = in.arrayOffset();
+			if (nch == 1)
+			{
+				int[] d0 = dst[0];
+				for (int f = pos; f < end; f++) d0[f] = arr[i++] & 0xFF;
+				return;
+			}
+			for (int f = pos; f < end; f++)
+			{
+				for (int c = 0; c < nch; c++) dst[c][f] = arr[i++] & 0xFF;
+			}
+			return;
+		}
+		int i = 0;
+		for (int f = pos; f < end; f++)
+		{
+			for (int c = 0; c < nch; c++) dst[c][f] = in.get(i++) & 0xFF;
+		}
+	}
+
+	private static void decode16(ShortBuffer in, int[][] dst, int pos, int frames)
+	{
+		int nch = dst.length;
+		int end = pos + frames;
+		int i = 0;
+		if (nch == 1)
+		{
+			int[] d0 = dst[0];
+			for (int f = pos; f < end; f++) d0[f] = in.get(i++);
+			return;
+		}
+		if (nch == 2)
+		{
+			int[] d0 = dst[0];
+			int[] d1 = dst[1];
+			for (int f = pos; f < end; f++)
+			{
+				d0[f] = in.get(i++);
+				d1[f] = in.get(i++);
+			}
+			return;
+		}
+		for (int f = pos; f < end; f++)
+		{
+			for (int c = 0; c < nch; c++) dst[c][f] = in.get(i++);
+		}
+	}
+
+	private static void decode24(ByteBuffer in, int[][] dst, int pos, int frames)
+	{
+		int nch = dst.length;
+		int end = pos + frames;
+		byte[] arr = null;
+		int i = 0;
+		if (in.hasArray())
+		{
+			arr = in.array();
+			i = in.arrayOffset();
+		}
+		else
+		{
+			arr = new byte[frames * nch * 3];
+			in.duplicate().get(arr);
+		}
+
+		if (nch == 2)
+		{
+			int[] d0 = dst[0];
+			int[] d1 = dst[1];
+			for (int f = pos; f < end; f++)
+			{
+				//Top byte is left signed so the sample is sign extended
+				d0[f] = (arr[i] & 0xFF) | ((arr[i+1] & 0xFF) << 8) | (arr[i+2] << 16);
+				d1[f] = (arr[i+3] & 0xFF) | ((arr[i+4] & 0xFF) << 8) | (arr[i+5] << 16);
+				i += 6;
+			}
+			return;
+		}
+		for (int f = pos; f < end; f++)
+		{
+			for (int c = 0; c < nch; c++)
+			{
+				dst[c][f] = (arr[i] & 0xFF) | ((arr[i+1] & 0xFF) << 8) | (arr[i+2] << 16);
+				i += 3;
+			}
+		}
+	}
+
+	private static void decode32(IntBuffer in, int[][] dst, int pos, int frames)
+	{
+		int nch = dst.length;
+		int end = pos + frames;
+		int i = 0;
+		if (nch == 1)
+		{
+			in.get(dst[0], pos, frames);
+			return;
+		}
+		for (int f = pos; f < end; f++)
+		{
+			for (int c = 0; c < nch; c++) dst[c][f] = in.get(i++);
+		}
+	}
+
+	/* ----- Encode ----- */
+
+	/**
+	 * Interleave channel arrays into a block of little-endian PCM frames.
+	 * Samples are cut to the sample size (8-bit samples should be unsigned).
+	 * @param src Source arrays, one per channel.
+	 * @param srcPos Index in the source arrays of the first frame.
+	 * @param frames Number of frames to convert.
+	 * @param bytesPerSample 1, 2, 3 or 4.
+	 * @param dst Destination buffer, written from its current position. Its position is advanced past the frames written.
+	 * @throws IllegalArgumentException If the sample size isn't supported.
+	 * @throws BufferOverflowException If there isn't enough space in the destination.
+	 */
+	public static void interleave(int[][] src, int srcPos, int frames, int bytesPerSample, ByteBuffer dst)
+	{
+		int nch = src.length;
+		int nbytes = frames * nch * bytesPerSample;
+		if (dst.remaining() < nbytes) throw new BufferOverflowException();
+		ByteBuffer out = dst.slice().order(ByteOrder.LITTLE_ENDIAN);
+		switch(bytesPerSample)
+		{
+		case 1: encode8(src, srcPos, frames, out); break;
+		case 2: encode16(src, srcPos, frames, out.asShortBuffer()); break;
+		case 3: encode24(src, srcPos, frames, out); break;
+		case 4: encode32(src, srcPos, frames, out.asIntBuffer()); break;
+		default: throw new IllegalArgumentException("PCMCodec: Unsupported sample size: " + bytesPerSample);
+		}
+		dst.position(dst.position() + nbytes);
+	}
+
+	private static void encode8(int[][] src, int pos, int frames, ByteBuffer out)
+	{
+		int nch = src.length;
+		int end = pos + frames;
+		int i = 0;
+		if (out.hasArray())
+		{
+			byte[] arr = out.array();
+			i = out.arrayOffset();
+			for (int f = pos; f < end; f++)
+			{
+				for (int c = 0; c < nch; c++) arr[i++] = (byte)src[c][f];
+			}
+			return;
+		}
+		for (int f = pos; f < end; f++)
+		{
+			for (int c = 0; c < nch; c++) out.put(i++, (byte)src[c][f]);
+		}
+	}
+
+	private static void encode16(int[][] src, int pos, int frames, ShortBuffer out)
+	{
+		int nch = src.length;
+		int end = pos + frames;
+		int i = 0;
+		if (nch == 2)
+		{
+			int[] s0 = src[0];
+			int[] s1 = src[1];
+			for (int f = pos; f < end; f++)
+			{
+				out.put(i++, (short)s0[f]);
+				out.put(i++, (short)s1[f]);
+			}
+			return;
+		}
+		for (int f = pos; f < end; f++)
+		{
+			for (int c = 0; c < nch; c++) out.put(i++, (short)src[c][f]);
+		}
+	}
+
+	private static void encode24(int[][] src, int pos, int frames, ByteBuffer out)
+	{
+		int nch = src.length;
+		int end = pos + frames;
+		byte[] arr = null;
+		int i = 0;
+		boolean direct = !out.hasArray();
+		if (direct) arr = new byte[frames * nch * 3];
+		else
+		{
+			arr = out.array();
+			i = out.arrayOffset();
+		}
+
+		if (nch == 2)
+		{
+			int[] s0 = src[0];
+			int[] s1 = src[1];
+			for (int f = pos; f < end; f++)
+			{
+				int a = s0[f];
+				int b = s1[f];
+				arr[i] = (byte)a;
+				arr[i+1] = (byte)(a >>> 8);
+				arr[i+2] = (byte)(a >>> 16);
+				arr[i+3] = (byte)b;
+				arr[i+4] = (byte)(b >>> 8);
+				arr[i+5] = (byte)(b >>> 16);
+				i += 6;
+			}
+		}
+		else
+		{
+			for (int f = pos; f < end; f++)
+			{
+				for (int c = 0; c < nch; c++)
+				{
+					int s = src[c][f];
+					arr[i] = (byte)s;
+					arr[i+1] = (byte)(s >>> 8);
+					arr[i+2] = (byte)(s >>> 16);
+					i += 3;
+				}
+			}
+		}
+		if (direct) out.duplicate().put(arr);
+	}
+
+	private static void encode32(int[][] src, int pos, int frames, IntBuffer out)
+	{
+		int nch = src.length;
+		if (nch == 1)
+		{
+			out.put(src[0], pos, frames);
+			return;
+		}
+		int end = pos + frames;
+		int i = 0;
+		for (int f = pos; f < end; f++)
+		{
+			for (int c = 0; c < nch; c++) out.put(i++, src[c][f]);
+		}
+	}
+
+	/* ----- Channel I/O ----- */
+
+	/**
+	 * Read and de-interleave PCM frames from a file channel.
+	 * Reads are positional - the channel's own position isn't used or changed.
+	 * @param ch Channel to read from.
+	 * @param pos Position in the channel of the first frame.
+	 * @param bytesPerSample 1, 2, 3 or 4.
+	 * @param dst Destination arrays, one per channel.
+	 * @param dstPos Index in the destination arrays of the first frame.
+	 * @param frames Number of frames to read.
+	 * @return Number of frames read. Less than requested if the channel ends first.
+	 * @throws IOException If the channel can't be read.
+	 */
+	public static int readPCM(FileChannel ch, long pos, int bytesPerSample, int[][] dst, int dstPos, int frames) throws IOException
+	{
+		int frameSize = bytesPerSample * dst.length;
+		int blockFrames = Math.min(frames, DEFO_BLOCK_FRAMES);
+		ByteBuffer buff = ByteBuffer.allocate(Math.max(blockFrames, 1) * frameSize);
+		int done = 0;
+		while (done < frames)
+		{
+			int n = Math.min(blockFrames, frames - done);
+			buff.clear();
+			buff.limit(n * frameSize);
+			try
+			{
+				readFully(ch, buff, pos);
+			}
+			catch (EOFException e)
+			{
+				//Use whatever whole frames did make it in
+				n = buff.position() / frameSize;
+				buff.flip();
+				deinterleave(buff, bytesPerSample, dst, dstPos + done, n);
+				return done + n;
+			}
+			buff.flip();
+			deinterleave(buff, bytesPerSample, dst, dstPos + done, n);
+			pos += n * frameSize;
+			done += n;
+		}
+		return done;
+	}
+
+	/**
+	 * Interleave and write PCM frames to a file channel at its current position.
+	 * @param ch Channel to write to.
+	 * @param bytesPerSample 1, 2, 3 or 4.
+	 * @param src Source arrays, one per channel.
+	 * @param srcPos Index in the source arrays of the first frame.
+	 * @param frames Number of frames to write.
+	 * @return Number of bytes written.
+	 * @throws IOException If the channel can't be written to.
+	 */
+	public static long writePCM(FileChannel ch, int bytesPerSample, int[][] src, int srcPos, int frames) throws IOException
+	{
+		int frameSize = bytesPerSample * src.length;
+		int blockFrames = Math.min(frames, DEFO_BLOCK_FRAMES);
+		ByteBuffer buff = ByteBuffer.allocate(Math.max(blockFrames, 1) * frameSize);
+		long written = 0;
+		int done = 0;
+		while (done < frames)
+		{
+			int n = Math.min(blockFrames, frames - done);
+			buff.clear();
+			interleave(src, srcPos + done, n, bytesPerSample, buff);
+			buff.flip();
+			while (buff.hasRemaining()) written += ch.write(buff);
+			done += n;
+		}
+		return written;
+	}
+
+	/**
+	 * Fill a buffer from a channel with positional reads.
+	 * @throws EOFException If the channel ends before the buffer is full. The buffer holds what was read.
+	 */
+	static void readFully(FileChannel ch, ByteBuffer buff, long pos) throws IOException
+	{
+		while (buff.hasRemaining())
+		{
+			int r = ch.read(buff, pos);
+			if (r < 0) throw new EOFException();
+			pos += r;
+		}
+	}
+
+}
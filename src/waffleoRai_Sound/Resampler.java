@@ -0,0 +1,730 @@
+package waffleoRai_Sound;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+/**
+ * Polyphase FIR sample rate converter.
+ * <br>The rate ratio is reduced to L/M (output rate over input rate, divided by their GCD). Each output
+ * sample is the dot product of the input around its position with one phase of a Kaiser windowed
+ * sinc low pass filter that cuts off just under the lower of the two Nyquist frequencies.
+ * <br>When L is at most MAX_EXACT_PHASES, the filter bank has a phase for each of the L places an output
+ * can fall between two input samples. Otherwise it has INTERP_PHASES phases and each output is
+ * interpolated between the two nearest.
+ * <br>Filter banks depend only on the ratio and quality. They are built once, cached, and shared
+ * by every converter on every thread.
+ * <br>An instance converts one (multichannel) stream: feed it blocks of input with process(),
+ * then call flush() for the tail. The static methods convert whole sounds, sets of sounds, and
+ * AudioInputStreams.
+ * <br>Filtering is done in float. Samples are moved to and from float by SampleConverter.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class Resampler {
+
+	/* ----- Constants ----- */
+
+	public static final int MAX_EXACT_PHASES = 1024;
+	public static final int INTERP_PHASES = 512;
+
+	public static final int DEFO_BLOCK_FRAMES = 0x1000;
+
+	/**
+	 * Filter length and window. Each step up roughly doubles the cost per sample,
+	 * adds about 20 dB of stopband attenuation, and widens the passband.
+	 */
+	public static enum Quality
+	{
+		FAST(8, 5.0, 0.80), //~50 dB
+		MEDIUM(16, 7.0, 0.86), //~70 dB
+		HIGH(32, 9.0, 0.91), //~90 dB
+		BEST(64, 11.5, 0.94); //~110 dB
+
+		private int halfTaps;
+		private double beta;
+		private double cutoff;
+
+		private Quality(int zeroCrossings, double kaiserBeta, double fc)
+		{
+			halfTaps = zeroCrossings;
+			beta = kaiserBeta;
+			cutoff = fc;
+		}
+
+		/**
+		 * @return Taps on each side of the output position when not downsampling.
+		 */
+		public int getHalfTaps(){return halfTaps;}
+
+		/**
+		 * @return Kaiser window shape parameter.
+		 */
+		public double getKaiserBeta(){return beta;}
+
+		/**
+		 * @return Cutoff (-6 dB) as a fraction of the lower Nyquist frequency.
+		 */
+		public double getCutoff(){return cutoff;}
+	}
+
+	/* ----- Filter Banks ----- */
+
+	private static final ConcurrentHashMap<String, FilterBank> banks = new ConcurrentHashMap<String, FilterBank>();
+
+	private static class FilterBank
+	{
+		private int L;
+		private int M;
+		private int mStep; //M / L
+		private int mRem; //M % L
+
+		private boolean exact;
+		private int phases; //Rows in coefs are phases + 1 when interpolating
+		private int halfTaps;
+		private int taps;
+		private float[] coefs;
+
+		private FilterBank(int l, int m, Quality q)
+		{
+			L = l;
+			M = m;
+			mStep = M / L;
+			mRem = M % L;
+
+			//Downsampling lowers the cutoff and stretches the filter to keep the same transition band at the output rate
+			double scale = Math.min(1.0, (double)L / (double)M);
+			double fc = q.cutoff * scale;
+			halfTaps = (int)Math.ceil((double)q.halfTaps / scale);
+			halfTaps += (halfTaps & 1); //Taps a multiple of 4 for the dot product
+			taps = halfTaps << 1;
+
+			exact = (L <= MAX_EXACT_PHASES);
+			phases = exact ? L : INTERP_PHASES;
+			int rows = exact ? phases : phases + 1;
+			coefs = new float[rows * taps];
+
+			double i0b = besselI0(q.beta);
+			double[] row = new double[taps];
+			for (int p = 0; p < rows; p++)
+			{
+				double frac = (double)p / (double)phases;
+				double sum = 0.0;
+				for (int j = 0; j < taps; j++)
+				{
+					//Distance in input samples from output position to tap
+					double t = (double)(j - (halfTaps - 1)) - frac;
+					double x = t / (double)halfTaps;
+					double w = (x <= -1.0 || x >= 1.0) ? 0.0 : besselI0(q.beta * Math.sqrt(1.0 - x*x)) / i0b;
+					double h = fc * sinc(fc * t) * w;
+					row[j] = h;
+					sum += h;
+				}
+				//Unity gain at DC for every phase
+				int off = p * taps;
+				for (int j = 0; j < taps; j++) coefs[off + j] = (float)(row[j] / sum);
+			}
+		}
+
+		private static double sinc(double x)
+		{
+			if (x == 0.0) return 1.0;
+			double px = Math.PI * x;
+			return Math.sin(px) / px;
+		}
+
+		private static double besselI0(double x)
+		{
+			double sum = 1.0;
+			double term = 1.0;
+			double hx = x / 2.0;
+			for (int k = 1; k < 64; k++)
+			{
+				term *= hx / (double)k;
+				double t2 = term * term;
+				sum += t2;
+				if (t2 < sum * 1e-17) break;
+			}
+			return sum;
+		}
+	}
+
+	private static int gcd(int a, int b)
+	{
+		while (b != 0)
+		{
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	private static FilterBank getFilterBank(int inRate, int outRate, final Quality q)
+	{
+		int g = gcd(inRate, outRate);
+		final int l = outRate / g;
+		final int m = inRate / g;
+		String key = q.name() + ":" + l + "/" + m;
+		FilterBank b = banks.get(key);
+		if (b != null) return b;
+		b = new FilterBank(l, m, q);
+		FilterBank prev = banks.putIfAbsent(key, b);
+		return (prev != null) ? prev : b;
+	}
+
+	/**
+	 * Drop all cached filter banks. Converters already created keep theirs.
+	 */
+	public static void clearFilterCache()
+	{
+		banks.clear();
+	}
+
+	/**
+	 * @return Number of bytes of filter coefficients currently cached.
+	 */
+	public static long getFilterCacheSize()
+	{
+		long total = 0;
+		for (FilterBank b : banks.values()) total += (long)b.coefs.length << 2;
+		return total;
+	}
+
+	/* ----- Instance Variables ----- */
+
+	private FilterBank bank;
+	private boolean passthrough;
+	private int channels;
+	private BitDepth inDepth;
+	private BitDepth outDepth;
+
+	private float[][] hist; //Input history per channel, in float
+	private int histLen;
+	private int ipos; //Index in hist of input sample at or before the next output
+	private int num; //Next output is at ipos + (num / L)
+
+	private long inCount;
+	private long outCount;
+
+	private float[] fout;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Create a streaming converter.
+	 * @param channels Number of channels.
+	 * @param inRate Input sample rate.
+	 * @param outRate Output sample rate.
+	 * @param q Filter quality.
+	 * @param bitDepth Format of input and output samples.
+	 */
+	public Resampler(int channels, int inRate, int outRate, Quality q, BitDepth bitDepth)
+	{
+		this(channels, inRate, outRate, q, bitDepth, bitDepth);
+	}
+
+	/**
+	 * Create a streaming converter.
+	 * @param channels Number of channels.
+	 * @param inRate Input sample rate.
+	 * @param outRate Output sample rate.
+	 * @param q Filter quality.
+	 * @param inBitDepth Format of input samples.
+	 * @param outBitDepth Format of output samples.
+	 */
+	public Resampler(int channels, int inRate, int outRate, Quality q, BitDepth inBitDepth, BitDepth outBitDepth)
+	{
+		if (channels < 1 || inRate < 1 || outRate < 1) throw new IllegalArgumentException("Resampler: Invalid channel count or sample rate");
+		if (q == null) q = Quality.HIGH;
+		this.channels = channels;
+		inDepth = inBitDepth;
+		outDepth = outBitDepth;
+		bank = getFilterBank(inRate, outRate, q);
+		passthrough = (bank.L == bank.M);
+		if (!passthrough)
+		{
+			hist = new float[channels][DEFO_BLOCK_FRAMES + bank.taps];
+			fout = new float[DEFO_BLOCK_FRAMES];
+		}
+		reset();
+	}
+
+	/**
+	 * Clear the input history and counters to start a new stream.
+	 */
+	public void reset()
+	{
+		inCount = 0;
+		outCount = 0;
+		num = 0;
+		if (passthrough) return;
+		//Zeros before the first input sample
+		histLen = bank.halfTaps - 1;
+		ipos = histLen;
+		for (int c = 0; c < channels; c++)
+		{
+			for (int i = 0; i < histLen; i++) hist[c][i] = 0f;
+		}
+	}
+
+	/* ----- Getters ----- */
+
+	public int getChannelCount(){return channels;}
+	public int getUpsampleFactor(){return bank.L;}
+	public int getDownsampleFactor(){return bank.M;}
+
+	/**
+	 * @return Number of filter taps applied per output sample.
+	 */
+	public int getTapCount(){return bank.taps;}
+
+	/**
+	 * @return Whether the rate ratio needs more phases than are stored, so phases are interpolated.
+	 */
+	public boolean interpolatesPhases(){return !bank.exact;}
+
+	/**
+	 * @return Total input frames taken so far.
+	 */
+	public long getInputFrames(){return inCount;}
+
+	/**
+	 * @return Total output frames made so far.
+	 */
+	public long getOutputFrames(){return outCount;}
+
+	/**
+	 * Get the number of output frames a stream of the given length converts to.
+	 * @param inFrames Input length.
+	 * @return Output length.
+	 */
+	public long getOutputLength(long inFrames)
+	{
+		return ((inFrames * bank.L) + bank.M - 1) / bank.M;
+	}
+
+	/**
+	 * Get the most frames the next call to process (or flush, with 0) can write.
+	 * @param inFrames Frames to be passed to process.
+	 * @return Output space needed.
+	 */
+	public int getMaxOutputFrames(int inFrames)
+	{
+		return (int)(getOutputLength(inCount + inFrames) - outCount);
+	}
+
+	/* ----- Conversion ----- */
+
+	/**
+	 * Convert a block of input. All of it is taken; output lags the input by half the filter length,
+	 * so the last of it comes out of later calls or flush.
+	 * @param in Input samples, one array per channel.
+	 * @param inPos Index in input arrays of first frame.
+	 * @param frames Number of input frames.
+	 * @param out Output arrays, one per channel, with room for getMaxOutputFrames(frames) frames.
+	 * @param outPos Index in output arrays to write first frame at.
+	 * @return Number of frames written.
+	 */
+	public int process(int[][] in, int inPos, int frames, int[][] out, int outPos)
+	{
+		if (passthrough)
+		{
+			for (int c = 0; c < channels; c++) SampleConverter.convert(in[c], inPos, out[c], outPos, frames, inDepth, outDepth);
+			inCount += frames;
+			outCount += frames;
+			return frames;
+		}
+
+		int written = 0;
+		while (frames > 0)
+		{
+			compact();
+			int n = Math.min(frames, hist[0].length - histLen);
+			for (int c = 0; c < channels; c++) SampleConverter.toFloat(in[c], inPos, hist[c], histLen, n, inDepth);
+			histLen += n;
+			inCount += n;
+			inPos += n;
+			frames -= n;
+			written += filterAvailable(out, outPos + written);
+		}
+		return written;
+	}
+
+	/**
+	 * Write the outputs still held back at the end of the input.
+	 * Call once after the last process; reset before reusing.
+	 * @param out Output arrays, one per channel, with room for getMaxOutputFrames(0) frames.
+	 * @param outPos Index in output arrays to write first frame at.
+	 * @return Number of frames written.
+	 */
+	public int flush(int[][] out, int outPos)
+	{
+		if (passthrough) return 0;
+		compact();
+		int pad = bank.halfTaps;
+		for (int c = 0; c < channels; c++)
+		{
+			for (int i = 0; i < pad; i++) hist[c][histLen + i] = 0f;
+		}
+		histLen += pad;
+		return filterAvailable(out, outPos);
+	}
+
+	private void compact()
+	{
+		int drop = ipos - (bank.halfTaps - 1);
+		if (drop <= 0) return;
+		int keep = histLen - drop;
+		for (int c = 0; c < channels; c++) System.arraycopy(hist[c], drop, hist[c], 0, keep);
+		histLen = keep;
+		ipos -= drop;
+	}
+
+	private int filterAvailable(int[][] out, int outPos)
+	{
+		//Outputs whose last tap is in the history, and no more than the input length accounts for
+		long d = (long)(histLen - bank.halfTaps - 1 - ipos);
+		if (d < 0) return 0;
+		long count = (((d + 1) * bank.L) - num + bank.M - 1) / bank.M;
+		count = Math.min(count, getOutputLength(inCount) - outCount);
+		if (count <= 0) return 0;
+
+		int n = (int)count;
+		if (fout.length < n) fout = new float[n];
+		for (int c = 0; c < channels; c++)
+		{
+			filter(bank, hist[c], ipos, num, fout, n);
+			SampleConverter.fromFloat(fout, 0, out[c], outPos, n, outDepth);
+		}
+
+		long adv = (long)num + count * bank.M;
+		ipos += (int)(adv / bank.L);
+		num = (int)(adv % bank.L);
+		outCount += n;
+		return n;
+	}
+
+	private static void filter(FilterBank b, float[] x, int ipos, int num, float[] y, int count)
+	{
+		int taps = b.taps;
+		int back = b.halfTaps - 1;
+		float[] h = b.coefs;
+		int L = b.L;
+		int step = b.mStep;
+		int rem = b.mRem;
+		if (b.exact)
+		{
+			for (int n = 0; n < count; n++)
+			{
+				y[n] = dot(x, ipos - back, h, num * taps, taps);
+				ipos += step;
+				num += rem;
+				if (num >= L)
+				{
+					num -= L;
+					ipos++;
+				}
+			}
+		}
+		else
+		{
+			long P = b.phases;
+			float invL = 1.0f / (float)L;
+			for (int n = 0; n < count; n++)
+			{
+				long pp = (long)num * P;
+				int p = (int)(pp / L);
+				float f = (float)(pp - (long)p * L) * invL;
+				int xo = ipos - back;
+				float d0 = dot(x, xo, h, p * taps, taps);
+				float d1 = dot(x, xo, h, (p + 1) * taps, taps);
+				y[n] = d0 + f * (d1 - d0);
+				ipos += step;
+				num += rem;
+				if (num >= L)
+				{
+					num -= L;
+					ipos++;
+				}
+			}
+		}
+	}
+
+	private static float dot(float[] x, int xo, float[] h, int ho, int n)
+	{
+		//Four sums to break the add dependency chain
+		float a0 = 0f, a1 = 0f, a2 = 0f, a3 = 0f;
+		for (int j = 0; j < n; j += 4)
+		{
+			a0 += x[xo + j] * h[ho + j];
+			a1 += x[xo + j + 1] * h[ho + j + 1];
+			a2 += x[xo + j + 2] * h[ho + j + 2];
+			a3 += x[xo + j + 3] * h[ho + j + 3];
+		}
+		return (a0 + a1) + (a2 + a3);
+	}
+
+	/* ----- Whole Sounds ----- */
+
+	/**
+	 * Convert a whole sound to a new sample rate.
+	 * <br>Channel data is pulled through the converter DEFO_BLOCK_FRAMES frames at a time.
+	 * Loop points are moved to the new rate. Unity note and fine tune are kept.
+	 * @param src Sound to convert.
+	 * @param outRate New sample rate.
+	 * @param q Filter quality.
+	 * @return New WAV at the new rate and the same bit depth (16-bit unsigned sounds become 16-bit signed),
+	 * or null if the sound's bit depth isn't known.
+	 */
+	public static WAV resample(Sound src, int outRate, Quality q)
+	{
+		BitDepth bd = src.getBitDepth();
+		if (bd == null) return null;
+		BitDepth obd = WAV.toBitDepth(bd.getBitCount());
+		if (obd == null) return null;
+
+		int nch = src.totalChannels();
+		int frames = src.totalFrames();
+		Resampler r = new Resampler(nch, src.getSampleRate(), outRate, q, bd, obd);
+		int outFrames = (int)r.getOutputLength(frames);
+
+		WAV out = new WAV(obd.getBitCount(), nch, Math.max(outFrames, 1));
+		out.setSampleRate(outRate);
+		out.setSMPL_tune(src.getUnityNote(), src.getFineTune());
+		if (src.loops())
+		{
+			out.setLoop(WAV.LoopType.Forward, r.mapFrame(src.getLoopFrame()), r.mapFrame(src.getLoopEndFrame()));
+		}
+
+		SampleChannel[] ich = new SampleChannel[nch];
+		SampleChannel[] och = new SampleChannel[nch];
+		for (int c = 0; c < nch; c++)
+		{
+			ich[c] = src.getSampleChannel(c);
+			och[c] = out.getSampleChannel(c);
+		}
+
+		int block = DEFO_BLOCK_FRAMES;
+		int[][] ibuff = new int[nch][block];
+		int[][] obuff = new int[nch][(int)r.getOutputLength(block + r.getTapCount()) + 1];
+		int opos = 0;
+		for (int f = 0; f < frames; f += block)
+		{
+			int n = Math.min(block, frames - f);
+			for (int c = 0; c < nch; c++) ich[c].getSamples(f, ibuff[c], 0, n);
+			int w = r.process(ibuff, 0, n, obuff, 0);
+			for (int c = 0; c < nch; c++) och[c].setSamples(opos, obuff[c], 0, w);
+			opos += w;
+		}
+		int w = r.flush(obuff, 0);
+		for (int c = 0; c < nch; c++) och[c].setSamples(opos, obuff[c], 0, w);
+
+		return out;
+	}
+
+	private int mapFrame(int frame)
+	{
+		if (frame < 0) return frame;
+		return (int)((((long)frame * bank.L) + (bank.M >> 1)) / bank.M);
+	}
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "Resampler.Worker" + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Convert a set of sounds (such as all of a bank's samples) to one sample rate,
+	 * one sound per task on a pool of worker threads. Sounds already at the rate are passed through as is.
+	 * @param sounds Sounds to convert.
+	 * @param outRate New sample rate.
+	 * @param q Filter quality.
+	 * @param threads Number of worker threads. Values below 1 use one per processor.
+	 * @return Converted sounds, in the same order. A sound that failed to convert is null.
+	 * @throws InterruptedException If interrupted while waiting on workers.
+	 */
+	public static Sound[] resample(Sound[] sounds, final int outRate, final Quality q, int threads) throws InterruptedException
+	{
+		if (threads < 1) threads = Runtime.getRuntime().availableProcessors();
+		Sound[] out = new Sound[sounds.length];
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new DaemonFactory());
+		List<Future<WAV>> results = new LinkedList<Future<WAV>>();
+		try
+		{
+			for (int i = 0; i < sounds.length; i++)
+			{
+				final Sound s = sounds[i];
+				if (s == null || s.getSampleRate() == outRate)
+				{
+					out[i] = s;
+					results.add(null);
+					continue;
+				}
+				results.add(pool.submit(new Callable<WAV>(){
+					public WAV call()
+					{
+						return resample(s, outRate, q);
+					}
+				}));
+			}
+			int i = 0;
+			for (Future<WAV> f : results)
+			{
+				if (f != null)
+				{
+					try
+					{
+						out[i] = f.get();
+					}
+					catch (ExecutionException e)
+					{
+						e.printStackTrace();
+					}
+				}
+				i++;
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		return out;
+	}
+
+	/* ----- Streams ----- */
+
+	/**
+	 * Wrap an audio stream in a converter to a new sample rate.
+	 * <br>The input must be little-endian PCM, 8-bit unsigned or 16, 24 or 32-bit signed (as WAV data is).
+	 * Output has the same format apart from the sample rate.
+	 * @param in Stream to convert.
+	 * @param outRate New sample rate.
+	 * @param q Filter quality.
+	 * @return Converted stream, or null if the input format isn't supported.
+	 */
+	public static AudioInputStream resample(AudioInputStream in, int outRate, Quality q)
+	{
+		AudioFormat fmt = in.getFormat();
+		if (fmt.isBigEndian() && fmt.getSampleSizeInBits() > 8) return null;
+		BitDepth bd = WAV.toBitDepth(fmt.getSampleSizeInBits());
+		if (bd == null) return null;
+		AudioFormat.Encoding enc = fmt.getEncoding();
+		if (!AudioFormat.Encoding.PCM_SIGNED.equals(enc) && !AudioFormat.Encoding.PCM_UNSIGNED.equals(enc)) return null;
+		//Signedness has to match what WAV uses for the sample size (eg. no 8-bit signed or 16-bit unsigned)
+		if (bd.isSigned() != AudioFormat.Encoding.PCM_SIGNED.equals(enc)) return null;
+
+		int nch = fmt.getChannels();
+		Resampler r = new Resampler(nch, (int)fmt.getSampleRate(), outRate, q, bd);
+		AudioFormat ofmt = new AudioFormat(enc, (float)outRate, fmt.getSampleSizeInBits(), nch,
+				fmt.getFrameSize(), (float)outRate, fmt.isBigEndian());
+		long len = in.getFrameLength();
+		if (len != AudioSystem.NOT_SPECIFIED) len = r.getOutputLength(len);
+		return new AudioInputStream(new ResampledStream(in, r, bd.getBitCount() >>> 3), ofmt, len);
+	}
+
+	private static class ResampledStream extends InputStream
+	{
+		private AudioInputStream src;
+		private Resampler conv;
+		private int byS;
+		private int frameSize;
+
+		private byte[] ibytes;
+		private int ileft; //Partial frame left over from the last read
+		private int[][] ibuff;
+		private int[][] obuff;
+		private ByteBuffer obytes;
+		private boolean done;
+
+		public ResampledStream(AudioInputStream in, Resampler r, int bytesPerSample)
+		{
+			src = in;
+			conv = r;
+			byS = bytesPerSample;
+			int nch = r.getChannelCount();
+			frameSize = byS * nch;
+			ibytes = new byte[DEFO_BLOCK_FRAMES * frameSize];
+			ibuff = new int[nch][DEFO_BLOCK_FRAMES];
+			obuff = new int[nch][(int)r.getOutputLength(DEFO_BLOCK_FRAMES + r.getTapCount()) + 1];
+			obytes = ByteBuffer.allocate(obuff[0].length * frameSize);
+			obytes.limit(0);
+		}
+
+		private boolean fill() throws IOException
+		{
+			while (!obytes.hasRemaining())
+			{
+				if (done) return false;
+				int n = src.read(ibytes, ileft, ibytes.length - ileft);
+				obytes.clear();
+				if (n < 0)
+				{
+					int w = conv.flush(obuff, 0);
+					PCMCodec.interleave(obuff, 0, w, byS, obytes);
+					done = true;
+				}
+				else
+				{
+					n += ileft;
+					int frames = n / frameSize;
+					PCMCodec.deinterleave(ByteBuffer.wrap(ibytes, 0, frames * frameSize), byS, ibuff, 0, frames);
+					ileft = n - (frames * frameSize);
+					if (ileft > 0) System.arraycopy(ibytes, frames * frameSize, ibytes, 0, ileft);
+					int w = conv.process(ibuff, 0, frames, obuff, 0);
+					PCMCodec.interleave(obuff, 0, w, byS, obytes);
+				}
+				obytes.flip();
+			}
+			return true;
+		}
+
+		public int read() throws IOException
+		{
+			if (!fill()) return -1;
+			return obytes.get() & 0xFF;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0) return 0;
+			if (!fill()) return -1;
+			int n = Math.min(len, obytes.remaining());
+			obytes.get(b, off, n);
+			return n;
+		}
+
+		public int available()
+		{
+			return obytes.remaining();
+		}
+
+		public void close() throws IOException
+		{
+			src.close();
+		}
+	}
+
+}
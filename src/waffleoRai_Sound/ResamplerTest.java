@@ -0,0 +1,182 @@
+package waffleoRai_Sound;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioInputStream;
+
+public class ResamplerTest {
+
+	public static final int WARMUP_REPS = 3;
+	public static final int TIMED_REPS = 5;
+
+	public static final int[][] RATES = {{44100, 48000}, {48000, 44100}, {22050, 44100}, {32000, 44100}, {44100, 44101}, {96000, 22050}};
+
+	private static long sink;
+
+	private interface Kernel
+	{
+		public void run() throws Exception;
+	}
+
+	private static long time(Kernel k) throws Exception
+	{
+		for (int i = 0; i < WARMUP_REPS; i++) k.run();
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < TIMED_REPS; i++)
+		{
+			long t = System.nanoTime();
+			k.run();
+			t = System.nanoTime() - t;
+			if (t < best) best = t;
+		}
+		return best;
+	}
+
+	private static String rate(long nanos, long samples)
+	{
+		return String.format("%8.2f Msamples/s", (double)samples / ((double)nanos / 1000.0));
+	}
+
+	private static WAV makeTone(int sampleRate, int channels, double seconds, double freq, double amp)
+	{
+		int frames = (int)(sampleRate * seconds);
+		WAV w = new WAV(24, channels, frames);
+		w.setSampleRate(sampleRate);
+		int[] x = new int[frames];
+		for (int c = 0; c < channels; c++)
+		{
+			double f = freq * (c + 1);
+			for (int i = 0; i < frames; i++) x[i] = (int)Math.round(amp * Math.sin(2.0 * Math.PI * f * i / sampleRate));
+			w.copyData(c, x);
+		}
+		return w;
+	}
+
+	/**
+	 * Signal to error ratio against the ideal tone at the output rate, leaving out the edges.
+	 */
+	private static double snr(int[] y, int sampleRate, double freq, double amp)
+	{
+		int skip = sampleRate / 50;
+		double sig = 0.0;
+		double err = 0.0;
+		for (int n = skip; n < y.length - skip; n++)
+		{
+			double ref = amp * Math.sin(2.0 * Math.PI * freq * n / sampleRate);
+			double e = y[n] - ref;
+			sig += ref * ref;
+			err += e * e;
+		}
+		return 10.0 * Math.log10(sig / err);
+	}
+
+	/**
+	 * Level of whatever is left of a tone above the output Nyquist frequency, relative to the tone.
+	 */
+	private static double rejection(int[] y, double amp)
+	{
+		int skip = y.length / 50;
+		double err = 0.0;
+		for (int n = skip; n < y.length - skip; n++) err += (double)y[n] * (double)y[n];
+		err /= (double)(y.length - (skip << 1));
+		return 10.0 * Math.log10(err / (amp * amp / 2.0));
+	}
+
+	private static void benchAccuracy()
+	{
+		System.out.println("Accuracy (24-bit, 1 kHz tone at -0.5 dBFS):");
+		double amp = 0.94 * (double)0x7FFFFF;
+		for (int[] rr : RATES)
+		{
+			WAV w = makeTone(rr[0], 1, 1.0, 1000.0, amp);
+			String line = "\t" + String.format("%6d -> %6d", rr[0], rr[1]);
+			for (Resampler.Quality q : Resampler.Quality.values())
+			{
+				int[] y = Resampler.resample(w, rr[1], q).getRawSamples(0);
+				line += String.format(" | %s %6.1f dB", q, snr(y, rr[1], 1000.0, amp));
+			}
+			System.out.println(line);
+		}
+
+		System.out.println("Alias rejection (18 kHz tone, 48000 -> 22050):");
+		WAV w = makeTone(48000, 1, 1.0, 18000.0, amp);
+		String line = "\t";
+		for (Resampler.Quality q : Resampler.Quality.values())
+		{
+			int[] y = Resampler.resample(w, 22050, q).getRawSamples(0);
+			line += String.format(" | %s %7.1f dB", q, rejection(y, amp));
+		}
+		System.out.println(line);
+	}
+
+	private static void benchThroughput() throws Exception
+	{
+		System.out.println("Throughput (stereo 16-bit, 4 s, output samples):");
+		for (int[] rr : RATES)
+		{
+			final int outRate = rr[1];
+			final WAV w = makeTone(rr[0], 2, 4.0, 440.0, 20000.0);
+			w.adjustBitDepth(16);
+			String line = "\t" + String.format("%6d -> %6d", rr[0], rr[1]);
+			for (final Resampler.Quality q : Resampler.Quality.values())
+			{
+				final long outSamples = new Resampler(2, rr[0], outRate, q, BitDepth.SIXTEEN_BIT_SIGNED).getOutputLength(w.totalFrames()) * 2;
+				long t = time(new Kernel(){public void run(){sink += Resampler.resample(w, outRate, q).totalFrames();}});
+				line += " | " + q + rate(t, outSamples);
+			}
+			System.out.println(line);
+		}
+
+		System.out.println("Stream stage (stereo 16-bit, 4 s, 44100 -> 48000, HIGH):");
+		final WAV w = makeTone(44100, 2, 4.0, 440.0, 20000.0);
+		w.adjustBitDepth(16);
+		final byte[] buff = new byte[0x4000];
+		long t = time(new Kernel(){public void run() throws IOException{
+			AudioInputStream in = Resampler.resample(w.getStream(), 48000, Resampler.Quality.HIGH);
+			int n = 0;
+			while ((n = in.read(buff)) > 0) sink += n;
+			in.close();
+		}});
+		long samples = (long)Math.ceil(w.totalFrames() * 48000.0 / 44100.0) * 2;
+		System.out.println("\t" + rate(t, samples));
+	}
+
+	private static void benchBank(final int count) throws Exception
+	{
+		System.out.println("Bank (" + count + " mono 16-bit 2 s samples, 22050 -> 44100, HIGH):");
+		final Sound[] sounds = new Sound[count];
+		for (int i = 0; i < count; i++)
+		{
+			WAV w = makeTone(22050, 1, 2.0, 110.0 * (i + 1), 20000.0);
+			w.adjustBitDepth(16);
+			sounds[i] = w;
+		}
+		long samples = (long)count * 44100L * 2L;
+		int ncpu = Runtime.getRuntime().availableProcessors();
+		for (final int threads : new int[]{1, 2, 4, ncpu})
+		{
+			long t = time(new Kernel(){public void run() throws InterruptedException{
+				Sound[] out = Resampler.resample(sounds, 44100, Resampler.Quality.HIGH, threads);
+				sink += out.length;
+			}});
+			System.out.println("\t" + threads + " thread(s) " + rate(t, samples));
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		try
+		{
+			benchAccuracy();
+			benchThroughput();
+			benchBank(32);
+			System.out.println("Filter cache: " + Resampler.getFilterCacheSize() + " bytes");
+			if (sink == 42) System.out.println();
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+}
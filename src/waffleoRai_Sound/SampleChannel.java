@@ -1,53 +1,512 @@
 package waffleoRai_Sound;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.NoSuchElementException;
 
-public class SampleChannel implements Iterable<Integer>{
-	
-	private List<Integer> samples;
-	
-	private SampleChannel(){}
-	
-	public SampleChannel(SampleChannel src)
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 2.0.0
+ * 	Samples stored in primitive arrays sized to the bit depth instead of a List of boxed Integers
+ * 		8-bit in a byte[], 16-bit in a short[], 24-bit packed three bytes to a sample in a byte[], 32-bit in an int[]
+ * 	Optional off-heap (direct ByteBuffer) storage
+ * 	Random access setters, resizing, and bulk get/set
+ * 	Copy constructor replaced with copy()
+ * 	createLinkedChannel now makes a growable 32-bit array channel
+ */
+
+/**
+ * A single channel of PCM samples, stored as compactly as its bit depth allows.
+ * <br>Samples go in and come out as ints, in the same form WAV uses: 8-bit samples are unsigned (0 - 255),
+ * 16 and 24-bit samples are signed and sign extended. Only the low bits of a sample that fit in the
+ * channel's bit depth are kept.
+ * <br>Channels grow as samples are added, like an ArrayList.
+ * @author Blythe Hospelhorn
+ * @version 2.0.0
+ */
+public abstract class SampleChannel implements Iterable<Integer>{
+
+	/* ----- Instance Variables ----- */
+
+	protected int size;
+
+	/* ----- Construction ----- */
+
+	protected SampleChannel()
 	{
-		samples = new ArrayList<Integer>(src.samples.size() + 2);
-		samples.addAll(src.samples);
+		size = 0;
 	}
-	
+
+	/**
+	 * Create a growable channel of 32-bit samples.
+	 * @param initSize Number of samples to allocate space for. The channel starts empty.
+	 * @return New channel.
+	 */
 	public static SampleChannel createArrayChannel(int initSize)
 	{
-		SampleChannel c = new SampleChannel();
-		c.samples = new ArrayList<Integer>(initSize+1);
-		return c;
+		return new IntChannel(initSize);
 	}
-	
+
+	/**
+	 * Create a growable channel of 32-bit samples.
+	 * <br>There is no longer a linked list channel - array channels are cheaper for every use.
+	 * @return New channel.
+	 */
 	public static SampleChannel createLinkedChannel()
 	{
-		SampleChannel c = new SampleChannel();
-		c.samples = new LinkedList<Integer>();
+		return new IntChannel(16);
+	}
+
+	/**
+	 * Create a channel with the smallest heap storage that holds samples of the given bit depth.
+	 * @param bitDepth Bits per sample. Up to 8 is stored in a byte, up to 16 in a short,
+	 * up to 24 in three bytes, and anything larger in an int.
+	 * @param length Number of samples. The channel starts at this length, all samples zero.
+	 * @return New channel.
+	 */
+	public static SampleChannel createChannel(int bitDepth, int length)
+	{
+		return createChannel(bitDepth, length, false);
+	}
+
+	/**
+	 * Create a channel with the smallest storage that holds samples of the given bit depth.
+	 * @param bitDepth Bits per sample. Up to 8 is stored in a byte, up to 16 in a short,
+	 * up to 24 in three bytes, and anything larger in an int.
+	 * @param length Number of samples. The channel starts at this length, all samples zero.
+	 * @param offHeap Whether to store the samples in a direct buffer outside the Java heap.
+	 * @return New channel.
+	 */
+	public static SampleChannel createChannel(int bitDepth, int length, boolean offHeap)
+	{
+		if (length < 0) throw new IllegalArgumentException();
+		SampleChannel c = null;
+		if (offHeap) c = new DirectChannel(bytesForBitDepth(bitDepth), length);
+		else
+		{
+			switch(bytesForBitDepth(bitDepth))
+			{
+			case 1: c = new ByteChannel(length); break;
+			case 2: c = new ShortChannel(length); break;
+			case 3: c = new Int24Channel(length); break;
+			default: c = new IntChannel(length); break;
+			}
+		}
+		c.setLength(length);
 		return c;
 	}
-	
-	@Override
-	public Iterator<Integer> iterator() 
+
+	private static int bytesForBitDepth(int bitDepth)
+	{
+		if (bitDepth <= 8) return 1;
+		if (bitDepth <= 16) return 2;
+		if (bitDepth <= 24) return 3;
+		return 4;
+	}
+
+	/**
+	 * @return A copy of this channel with the same storage type.
+	 */
+	public abstract SampleChannel copy();
+
+	/* ----- Storage ----- */
+
+	protected abstract int capacity();
+
+	/**
+	 * Resize storage. New space must be zeroed.
+	 */
+	protected abstract void reallocate(int newCapacity);
+
+	protected abstract int get(int index);
+
+	protected abstract void set(int index, int sample);
+
+	private void ensureCapacity(int min)
 	{
-		return samples.iterator();
+		int cap = capacity();
+		if (min <= cap) return;
+		long ncap = (long)cap + (cap >> 1) + 1;
+		if (ncap < min) ncap = min;
+		if (ncap > Integer.MAX_VALUE - 8) ncap = Integer.MAX_VALUE - 8;
+		reallocate((int)ncap);
+	}
+
+	protected final void checkRange(int index, int len)
+	{
+		if (index < 0 || len < 0 || index > size - len) throw new IndexOutOfBoundsException();
+	}
+
+	/* ----- Getters ----- */
+
+	public int countSamples(){return size;}
+
+	public int getSample(int index)
+	{
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException();
+		return get(index);
+	}
+
+	/**
+	 * Copy a run of samples out into an int array.
+	 * @param index Index of first sample to copy.
+	 * @param dst Destination array.
+	 * @param dstPos Position in destination array to start writing at.
+	 * @param len Number of samples to copy.
+	 */
+	public void getSamples(int index, int[] dst, int dstPos, int len)
+	{
+		checkRange(index, len);
+		for (int i = 0; i < len; i++) dst[dstPos + i] = get(index + i);
 	}
 
-	public void addSample(int sample){samples.add(sample);}
-	public void clearSamples(){samples.clear();}
-	public int countSamples(){return samples.size();}
-	public int getSample(int index){return samples.get(index);}
-	
 	public int[] toArray()
 	{
-		int[] arr = new int[samples.size()];
-		int i = 0;
-		for(Integer s : samples) {arr[i] = s; i++;}
+		int[] arr = new int[size];
+		getSamples(0, arr, 0, size);
 		return arr;
 	}
-	
+
+	/**
+	 * @return Number of bits each sample is stored in.
+	 */
+	public abstract int getBitDepth();
+
+	/**
+	 * @return Number of bytes of storage allocated for samples.
+	 */
+	public abstract long getStorageSize();
+
+	/**
+	 * @return Whether samples are stored outside the Java heap.
+	 */
+	public boolean isOffHeap(){return false;}
+
+	@Override
+	public Iterator<Integer> iterator()
+	{
+		return new Iterator<Integer>()
+		{
+			private int i = 0;
+
+			public boolean hasNext()
+			{
+				return i < size;
+			}
+
+			public Integer next()
+			{
+				if (i >= size) throw new NoSuchElementException();
+				return get(i++);
+			}
+		};
+	}
+
+	/* ----- Setters ----- */
+
+	public void addSample(int sample)
+	{
+		ensureCapacity(size + 1);
+		set(size++, sample);
+	}
+
+	public void clearSamples(){size = 0;}
+
+	public void setSample(int index, int sample)
+	{
+		if (index < 0 || index >= size) throw new IndexOutOfBoundsException();
+		set(index, sample);
+	}
+
+	/**
+	 * Copy a run of samples in from an int array.
+	 * @param index Index of first sample to overwrite.
+	 * @param src Source array.
+	 * @param srcPos Position in source array to start reading at.
+	 * @param len Number of samples to copy.
+	 */
+	public void setSamples(int index, int[] src, int srcPos, int len)
+	{
+		checkRange(index, len);
+		for (int i = 0; i < len; i++) set(index + i, src[srcPos + i]);
+	}
+
+	/**
+	 * Change the number of samples in the channel. Samples added at the end are zero.
+	 * @param length New length.
+	 */
+	public void setLength(int length)
+	{
+		if (length < 0) throw new IllegalArgumentException();
+		if (length > size)
+		{
+			//Clear anything left past the end from before
+			int cap = capacity();
+			int end = Math.min(length, cap);
+			for (int i = size; i < end; i++) set(i, 0);
+			if (length > cap) reallocate(length);
+		}
+		size = length;
+	}
+
+	/**
+	 * Release unused space at the end of the storage.
+	 */
+	public void trimToSize()
+	{
+		if (capacity() > size) reallocate(size);
+	}
+
+	/* ----- Storage Types ----- */
+
+	private static class IntChannel extends SampleChannel
+	{
+		private int[] samples;
+
+		public IntChannel(int cap){samples = new int[Math.max(cap, 0)];}
+
+		public SampleChannel copy()
+		{
+			IntChannel c = new IntChannel(0);
+			c.samples = Arrays.copyOf(samples, size);
+			c.size = size;
+			return c;
+		}
+
+		protected int capacity(){return samples.length;}
+		protected void reallocate(int newCapacity){samples = Arrays.copyOf(samples, newCapacity);}
+		protected int get(int index){return samples[index];}
+		protected void set(int index, int sample){samples[index] = sample;}
+
+		public int getBitDepth(){return 32;}
+		public long getStorageSize(){return (long)samples.length << 2;}
+
+		public void getSamples(int index, int[] dst, int dstPos, int len)
+		{
+			checkRange(index, len);
+			System.arraycopy(samples, index, dst, dstPos, len);
+		}
+
+		public void setSamples(int index, int[] src, int srcPos, int len)
+		{
+			checkRange(index, len);
+			System.arraycopy(src, srcPos, samples, index, len);
+		}
+	}
+
+	private static class ShortChannel extends SampleChannel
+	{
+		private short[] samples;
+
+		public ShortChannel(int cap){samples = new short[Math.max(cap, 0)];}
+
+		public SampleChannel copy()
+		{
+			ShortChannel c = new ShortChannel(0);
+			c.samples = Arrays.copyOf(samples, size);
+			c.size = size;
+			return c;
+		}
+
+		protected int capacity(){return samples.length;}
+		protected void reallocate(int newCapacity){samples = Arrays.copyOf(samples, newCapacity);}
+		protected int get(int index){return samples[index];}
+		protected void set(int index, int sample){samples[index] = (short)sample;}
+
+		public int getBitDepth(){return 16;}
+		public long getStorageSize(){return (long)samples.length << 1;}
+
+		public void getSamples(int index, int[] dst, int dstPos, int len)
+		{
+			checkRange(index, len);
+			for (int i = 0; i < len; i++) dst[dstPos + i] = samples[index + i];
+		}
+
+		public void setSamples(int index, int[] src, int srcPos, int len)
+		{
+			checkRange(index, len);
+			for (int i = 0; i < len; i++) samples[index + i] = (short)src[srcPos + i];
+		}
+	}
+
+	private static class ByteChannel extends SampleChannel
+	{
+		private byte[] samples;
+
+		public ByteChannel(int cap){samples = new byte[Math.max(cap, 0)];}
+
+		public SampleChannel copy()
+		{
+			ByteChannel c = new ByteChannel(0);
+			c.samples = Arrays.copyOf(samples, size);
+			c.size = size;
+			return c;
+		}
+
+		protected int capacity(){return samples.length;}
+		protected void reallocate(int newCapacity){samples = Arrays.copyOf(samples, newCapacity);}
+		protected int get(int index){return Byte.toUnsignedInt(samples[index]);}
+		protected void set(int index, int sample){samples[index] = (byte)sample;}
+
+		public int getBitDepth(){return 8;}
+		public long getStorageSize(){return samples.length;}
+
+		public void getSamples(int index, int[] dst, int dstPos, int len)
+		{
+			checkRange(index, len);
+			for (int i = 0; i < len; i++) dst[dstPos + i] = samples[index + i] & 0xFF;
+		}
+
+		public void setSamples(int index, int[] src, int srcPos, int len)
+		{
+			checkRange(index, len);
+			for (int i = 0; i < len; i++) samples[index + i] = (byte)src[srcPos + i];
+		}
+	}
+
+	/**
+	 * 24-bit samples packed little-endian, three bytes to a sample.
+	 */
+	private static class Int24Channel extends SampleChannel
+	{
+		private byte[] samples;
+
+		public Int24Channel(int cap){samples = new byte[Math.max(cap, 0) * 3];}
+
+		public SampleChannel copy()
+		{
+			Int24Channel c = new Int24Channel(0);
+			c.samples = Arrays.copyOf(samples, size * 3);
+			c.size = size;
+			return c;
+		}
+
+		protected int capacity(){return samples.length / 3;}
+		protected void reallocate(int newCapacity){samples = Arrays.copyOf(samples, newCapacity * 3);}
+
+		protected int get(int index)
+		{
+			int p = index * 3;
+			return (samples[p] & 0xFF) | ((samples[p+1] & 0xFF) << 8) | (samples[p+2] << 16);
+		}
+
+		protected void set(int index, int sample)
+		{
+			int p = index * 3;
+			samples[p] = (byte)sample;
+			samples[p+1] = (byte)(sample >>> 8);
+			samples[p+2] = (byte)(sample >>> 16);
+		}
+
+		public int getBitDepth(){return 24;}
+		public long getStorageSize(){return samples.length;}
+
+		public void getSamples(int index, int[] dst, int dstPos, int len)
+		{
+			checkRange(index, len);
+			int p = index * 3;
+			for (int i = 0; i < len; i++)
+			{
+				dst[dstPos + i] = (samples[p] & 0xFF) | ((samples[p+1] & 0xFF) << 8) | (samples[p+2] << 16);
+				p += 3;
+			}
+		}
+
+		public void setSamples(int index, int[] src, int srcPos, int len)
+		{
+			checkRange(index, len);
+			int p = index * 3;
+			for (int i = 0; i < len; i++)
+			{
+				int s = src[srcPos + i];
+				samples[p] = (byte)s;
+				samples[p+1] = (byte)(s >>> 8);
+				samples[p+2] = (byte)(s >>> 16);
+				p += 3;
+			}
+		}
+	}
+
+	/**
+	 * Samples packed little-endian in a direct buffer, 1 to 4 bytes to a sample.
+	 */
+	private static class DirectChannel extends SampleChannel
+	{
+		private ByteBuffer samples;
+		private int bytesPerSample;
+
+		public DirectChannel(int bytesPerSample, int cap)
+		{
+			this.bytesPerSample = bytesPerSample;
+			samples = allocate(Math.max(cap, 0));
+		}
+
+		private ByteBuffer allocate(int cap)
+		{
+			ByteBuffer buff = ByteBuffer.allocateDirect(cap * bytesPerSample);
+			buff.order(ByteOrder.LITTLE_ENDIAN);
+			return buff;
+		}
+
+		public SampleChannel copy()
+		{
+			DirectChannel c = new DirectChannel(bytesPerSample, size);
+			ByteBuffer src = samples.duplicate();
+			src.position(0);
+			src.limit(size * bytesPerSample);
+			c.samples.put(src);
+			c.samples.clear();
+			c.size = size;
+			return c;
+		}
+
+		protected int capacity(){return samples.capacity() / bytesPerSample;}
+
+		protected void reallocate(int newCapacity)
+		{
+			ByteBuffer nbuff = allocate(newCapacity);
+			ByteBuffer src = samples.duplicate();
+			src.position(0);
+			src.limit(Math.min(size, newCapacity) * bytesPerSample);
+			nbuff.put(src);
+			nbuff.clear();
+			samples = nbuff;
+		}
+
+		protected int get(int index)
+		{
+			int p = index * bytesPerSample;
+			switch(bytesPerSample)
+			{
+			case 1: return Byte.toUnsignedInt(samples.get(p));
+			case 2: return samples.getShort(p);
+			case 3: return (samples.get(p) & 0xFF) | ((samples.get(p+1) & 0xFF) << 8) | (samples.get(p+2) << 16);
+			default: return samples.getInt(p);
+			}
+		}
+
+		protected void set(int index, int sample)
+		{
+			int p = index * bytesPerSample;
+			switch(bytesPerSample)
+			{
+			case 1: samples.put(p, (byte)sample); break;
+			case 2: samples.putShort(p, (short)sample); break;
+			case 3:
+				samples.put(p, (byte)sample);
+				samples.put(p+1, (byte)(sample >>> 8));
+				samples.put(p+2, (byte)(sample >>> 16));
+				break;
+			default: samples.putInt(p, sample); break;
+			}
+		}
+
+		public int getBitDepth(){return bytesPerSample << 3;}
+		public long getStorageSize(){return samples.capacity();}
+		public boolean isOffHeap(){return true;}
+	}
+
 }
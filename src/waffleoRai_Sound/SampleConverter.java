@@ -0,0 +1,281 @@
+package waffleoRai_Sound;
+
+/**
+ * Bulk conversions between PCM sample formats: bit depth, signedness, byte order, interleaving,
+ * and normalized float.
+ * <br>Every conversion runs over a run of a primitive array with all format decisions made once
+ * up front, so the inner loops are straight-line integer arithmetic with no per-sample branches
+ * or calls - the form HotSpot's loop optimizer unrolls and, for most of them, vectorizes.
+ * <br>Conventions:
+ * <br>- Signed samples are sign extended ints. Unsigned samples are offset binary (zero at half scale).
+ * <br>- Bit depth is changed by shifting. Narrowing rounds to nearest (halves up) and clamps at full scale.
+ * <br>- Converting the signedness of a sample moves it by half scale.
+ * <br>- Float samples run from -1.0 to just under 1.0.
+ * <br>Conversions between int arrays may be done in place (same array and position for source and destination).
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class SampleConverter {
+
+	/* ----- Bit Depth & Signedness ----- */
+
+	/**
+	 * Convert samples between bit depths/signedness.
+	 * @param src Source samples.
+	 * @param srcPos Index of first source sample.
+	 * @param dst Destination array. May be the source.
+	 * @param dstPos Index in destination to write first sample at.
+	 * @param len Number of samples to convert.
+	 * @param from Format of source samples.
+	 * @param to Format to convert to.
+	 */
+	public static void convert(int[] src, int srcPos, int[] dst, int dstPos, int len, BitDepth from, BitDepth to)
+	{
+		convert(src, srcPos, dst, dstPos, len, from.getBitCount(), from.isSigned(), to.getBitCount(), to.isSigned());
+	}
+
+	/**
+	 * Convert samples between bit depths/signedness.
+	 * @param src Source samples.
+	 * @param from Format of source samples.
+	 * @param to Format to convert to.
+	 * @return New array of converted samples.
+	 */
+	public static int[] convert(int[] src, BitDepth from, BitDepth to)
+	{
+		int[] dst = new int[src.length];
+		convert(src, 0, dst, 0, src.length, from, to);
+		return dst;
+	}
+
+	/**
+	 * Convert samples between bit depths/signedness.
+	 * @param src Source samples.
+	 * @param srcPos Index of first source sample.
+	 * @param dst Destination array. May be the source.
+	 * @param dstPos Index in destination to write first sample at.
+	 * @param len Number of samples to convert.
+	 * @param fromBits Bits per source sample (1 - 32).
+	 * @param fromSigned Whether source samples are signed.
+	 * @param toBits Bits per destination sample (1 - 32).
+	 * @param toSigned Whether destination samples are signed.
+	 */
+	public static void convert(int[] src, int srcPos, int[] dst, int dstPos, int len, int fromBits, boolean fromSigned, int toBits, boolean toSigned)
+	{
+		if (fromBits < 1 || fromBits > 32 || toBits < 1 || toBits > 32) throw new IllegalArgumentException("SampleConverter: Unsupported bit depth");
+		if (len <= 0) return;
+
+		//Unsigned samples are moved to signed first and back after. (1 << 31) wraps to MIN_VALUE, which still works.
+		int inOff = fromSigned ? 0 : (1 << (fromBits - 1));
+		int outOff = toSigned ? 0 : (1 << (toBits - 1));
+		if (toBits == fromBits)
+		{
+			int d = outOff - inOff;
+			if (d == 0)
+			{
+				if (src != dst || srcPos != dstPos) System.arraycopy(src, srcPos, dst, dstPos, len);
+				return;
+			}
+			for (int i = 0; i < len; i++) dst[dstPos + i] = src[srcPos + i] + d;
+		}
+		else if (toBits > fromBits) widen(src, srcPos, dst, dstPos, len, toBits - fromBits, inOff, outOff);
+		else narrow(src, srcPos, dst, dstPos, len, fromBits - toBits, inOff, outOff, toBits);
+	}
+
+	private static void widen(int[] src, int srcPos, int[] dst, int dstPos, int len, int shift, int inOff, int outOff)
+	{
+		for (int i = 0; i < len; i++)
+		{
+			dst[dstPos + i] = ((src[srcPos + i] - inOff) << shift) + outOff;
+		}
+	}
+
+	private static void narrow(int[] src, int srcPos, int[] dst, int dstPos, int len, int shift, int inOff, int outOff, int toBits)
+	{
+		//Round half up without overflowing: floor(s / 2^k) plus the bit just below the cut
+		int max = (toBits == 32) ? Integer.MAX_VALUE : (1 << (toBits - 1)) - 1;
+		int rshift = shift - 1;
+		for (int i = 0; i < len; i++)
+		{
+			int s = src[srcPos + i] - inOff;
+			int r = (s >> shift) + ((s >> rshift) & 1);
+			dst[dstPos + i] = Math.min(r, max) + outOff;
+		}
+	}
+
+	/* ----- Float ----- */
+
+	/**
+	 * Convert samples to floats from -1.0 to just under 1.0.
+	 * @param src Source samples.
+	 * @param srcPos Index of first source sample.
+	 * @param dst Destination array.
+	 * @param dstPos Index in destination to write first sample at.
+	 * @param len Number of samples to convert.
+	 * @param from Format of source samples.
+	 */
+	public static void toFloat(int[] src, int srcPos, float[] dst, int dstPos, int len, BitDepth from)
+	{
+		int bits = from.getBitCount();
+		int off = from.isSigned() ? 0 : (1 << (bits - 1));
+		float scale = (float)(1.0 / (double)(1L << (bits - 1)));
+		for (int i = 0; i < len; i++)
+		{
+			dst[dstPos + i] = (float)(src[srcPos + i] - off) * scale;
+		}
+	}
+
+	/**
+	 * Convert floats from -1.0 to 1.0 to samples. Values outside that range are clamped.
+	 * @param src Source samples.
+	 * @param srcPos Index of first source sample.
+	 * @param dst Destination array.
+	 * @param dstPos Index in destination to write first sample at.
+	 * @param len Number of samples to convert.
+	 * @param to Format to convert to.
+	 */
+	public static void fromFloat(float[] src, int srcPos, int[] dst, int dstPos, int len, BitDepth to)
+	{
+		int bits = to.getBitCount();
+		int off = to.isSigned() ? 0 : (1 << (bits - 1));
+		if (bits == 32)
+		{
+			//Math.round(float) already clamps to int range
+			for (int i = 0; i < len; i++)
+			{
+				dst[dstPos + i] = Math.round(src[srcPos + i] * 2147483648.0f) + off;
+			}
+			return;
+		}
+		int max = (1 << (bits - 1)) - 1;
+		int min = -(1 << (bits - 1));
+		float scale = (float)(1 << (bits - 1));
+		for (int i = 0; i < len; i++)
+		{
+			int r = Math.round(src[srcPos + i] * scale);
+			dst[dstPos + i] = Math.max(min, Math.min(max, r)) + off;
+		}
+	}
+
+	/* ----- Byte Order ----- */
+
+	/**
+	 * Reverse the byte order of each sample in a byte array, in place.
+	 * @param buff Sample data.
+	 * @param off Offset of first sample.
+	 * @param len Number of bytes. Only whole samples are swapped.
+	 * @param bytesPerSample 1 - 4. 1 does nothing.
+	 */
+	public static void swapBytes(byte[] buff, int off, int len, int bytesPerSample)
+	{
+		int end = off + (len - (len % bytesPerSample));
+		switch(bytesPerSample)
+		{
+		case 1: return;
+		case 2:
+			for (int i = off; i < end; i += 2)
+			{
+				byte b = buff[i]; buff[i] = buff[i+1]; buff[i+1] = b;
+			}
+			return;
+		case 3:
+			for (int i = off; i < end; i += 3)
+			{
+				byte b = buff[i]; buff[i] = buff[i+2]; buff[i+2] = b;
+			}
+			return;
+		case 4:
+			for (int i = off; i < end; i += 4)
+			{
+				byte b0 = buff[i]; byte b1 = buff[i+1];
+				buff[i] = buff[i+3]; buff[i+1] = buff[i+2];
+				buff[i+2] = b1; buff[i+3] = b0;
+			}
+			return;
+		default: throw new IllegalArgumentException("SampleConverter: Unsupported sample size: " + bytesPerSample);
+		}
+	}
+
+	/* ----- Interleaving ----- */
+
+	/**
+	 * Interleave channel arrays into a single array of frames.
+	 * @param src Source arrays, one per channel.
+	 * @param srcPos Index in source arrays of first frame.
+	 * @param dst Destination array.
+	 * @param dstPos Index in destination to write first sample of first frame at.
+	 * @param frames Number of frames.
+	 */
+	public static void interleave(int[][] src, int srcPos, int[] dst, int dstPos, int frames)
+	{
+		int nch = src.length;
+		if (nch == 1)
+		{
+			System.arraycopy(src[0], srcPos, dst, dstPos, frames);
+			return;
+		}
+		if (nch == 2)
+		{
+			int[] l = src[0];
+			int[] r = src[1];
+			for (int f = 0; f < frames; f++)
+			{
+				dst[dstPos + (f << 1)] = l[srcPos + f];
+				dst[dstPos + (f << 1) + 1] = r[srcPos + f];
+			}
+			return;
+		}
+		//One channel at a time keeps the reads sequential
+		for (int c = 0; c < nch; c++)
+		{
+			int[] ch = src[c];
+			int o = dstPos + c;
+			for (int f = 0; f < frames; f++)
+			{
+				dst[o] = ch[srcPos + f];
+				o += nch;
+			}
+		}
+	}
+
+	/**
+	 * Split a single array of frames into channel arrays.
+	 * @param src Source array.
+	 * @param srcPos Index in source of first sample of first frame.
+	 * @param dst Destination arrays, one per channel.
+	 * @param dstPos Index in destination arrays to write first frame at.
+	 * @param frames Number of frames.
+	 */
+	public static void deinterleave(int[] src, int srcPos, int[][] dst, int dstPos, int frames)
+	{
+		int nch = dst.length;
+		if (nch == 1)
+		{
+			System.arraycopy(src, srcPos, dst[0], dstPos, frames);
+			return;
+		}
+		if (nch == 2)
+		{
+			int[] l = dst[0];
+			int[] r = dst[1];
+			for (int f = 0; f < frames; f++)
+			{
+				l[dstPos + f] = src[srcPos + (f << 1)];
+				r[dstPos + f] = src[srcPos + (f << 1) + 1];
+			}
+			return;
+		}
+		for (int c = 0; c < nch; c++)
+		{
+			int[] ch = dst[c];
+			int o = srcPos + c;
+			for (int f = 0; f < frames; f++)
+			{
+				ch[dstPos + f] = src[o];
+				o += nch;
+			}
+		}
+	}
+
+}
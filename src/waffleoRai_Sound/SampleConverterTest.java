@@ -0,0 +1,175 @@
+package waffleoRai_Sound;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+public class SampleConverterTest {
+
+	public static final int DEFO_SAMPLES = 1 << 22;
+	public static final int WARMUP_REPS = 10;
+	public static final int TIMED_REPS = 10;
+
+	private static int sink;
+
+	private interface Kernel
+	{
+		public void run();
+	}
+
+	private static long time(Kernel k)
+	{
+		for (int i = 0; i < WARMUP_REPS; i++) k.run();
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < TIMED_REPS; i++)
+		{
+			long t = System.nanoTime();
+			k.run();
+			t = System.nanoTime() - t;
+			if (t < best) best = t;
+		}
+		return best;
+	}
+
+	private static String rate(long nanos, int samples)
+	{
+		return String.format("%8.1f Msamples/s", (double)samples / ((double)nanos / 1000.0));
+	}
+
+	private static int[] makeSamples(int n, BitDepth bd, Random r)
+	{
+		int[] arr = new int[n];
+		int bits = bd.getBitCount();
+		for (int i = 0; i < n; i++)
+		{
+			int s = r.nextInt();
+			if (bits < 32)
+			{
+				if (bd.isSigned()) s = (s << (32 - bits)) >> (32 - bits);
+				else s = s >>> (32 - bits);
+			}
+			arr[i] = s;
+		}
+		return arr;
+	}
+
+	/**
+	 * The per-sample chains WAV used before SampleConverter.
+	 */
+	private static int legacyScale(int s, BitDepth from, BitDepth to)
+	{
+		if (from == BitDepth.EIGHT_BIT_UNSIGNED)
+		{
+			s = Sound.scaleSampleUp8Bits(s, BitDepth.EIGHT_BIT_UNSIGNED);
+			s = Sound.scaleSampleToSigned(s, BitDepth.SIXTEEN_BIT_UNSIGNED);
+			if (to == BitDepth.TWENTYFOUR_BIT_SIGNED) s = Sound.scaleSampleUp8Bits(s, BitDepth.SIXTEEN_BIT_SIGNED);
+			return s;
+		}
+		if (from == BitDepth.THIRTYTWO_BIT_SIGNED)
+		{
+			s = Sound.scaleSampleDown8Bits(s, BitDepth.THIRTYTWO_BIT_SIGNED);
+			if (to == BitDepth.SIXTEEN_BIT_SIGNED) s = Sound.scaleSampleDown8Bits(s, BitDepth.TWENTYFOUR_BIT_SIGNED);
+			return s;
+		}
+		if (from == BitDepth.TWENTYFOUR_BIT_SIGNED) return Sound.scaleSampleDown8Bits(s, BitDepth.TWENTYFOUR_BIT_SIGNED);
+		return Sound.scaleSampleUp8Bits(s, BitDepth.SIXTEEN_BIT_SIGNED);
+	}
+
+	private static void benchConvert(int n, Random r)
+	{
+		System.out.println("Bit depth/signedness (" + n + " samples):");
+		BitDepth[] all = BitDepth.values();
+		final int[] dst = new int[n];
+		for (final BitDepth from : all)
+		{
+			final int[] src = makeSamples(n, from, r);
+			for (final BitDepth to : all)
+			{
+				if (from == to) continue;
+				long t = time(new Kernel(){public void run(){SampleConverter.convert(src, 0, dst, 0, src.length, from, to);}});
+				String line = "\t" + String.format("%-22s -> %-22s", from, to) + rate(t, n);
+
+				boolean hasLegacy = (to == BitDepth.SIXTEEN_BIT_SIGNED && from != BitDepth.SIXTEEN_BIT_UNSIGNED)
+						|| (to == BitDepth.TWENTYFOUR_BIT_SIGNED && (from == BitDepth.EIGHT_BIT_UNSIGNED || from == BitDepth.SIXTEEN_BIT_SIGNED || from == BitDepth.THIRTYTWO_BIT_SIGNED));
+				if (hasLegacy)
+				{
+					long tl = time(new Kernel(){public void run(){
+						for (int i = 0; i < src.length; i++) dst[i] = legacyScale(src[i], from, to);
+					}});
+					line += " | per-sample " + rate(tl, n);
+				}
+				System.out.println(line);
+			}
+		}
+	}
+
+	private static void benchFloat(int n, Random r)
+	{
+		System.out.println("Float:");
+		final float[] f = new float[n];
+		final int[] dst = new int[n];
+		for (final BitDepth bd : new BitDepth[]{BitDepth.EIGHT_BIT_UNSIGNED, BitDepth.SIXTEEN_BIT_SIGNED, BitDepth.TWENTYFOUR_BIT_SIGNED, BitDepth.THIRTYTWO_BIT_SIGNED})
+		{
+			final int[] src = makeSamples(n, bd, r);
+			long t0 = time(new Kernel(){public void run(){SampleConverter.toFloat(src, 0, f, 0, src.length, bd);}});
+			long t1 = time(new Kernel(){public void run(){SampleConverter.fromFloat(f, 0, dst, 0, f.length, bd);}});
+			System.out.println("\t" + String.format("%-22s", bd) + " to float " + rate(t0, n) + " | from float " + rate(t1, n));
+		}
+	}
+
+	private static void benchSwap(int n, Random r)
+	{
+		System.out.println("Byte swap:");
+		for (final int byS : new int[]{2, 3, 4})
+		{
+			final byte[] buff = new byte[n * byS];
+			r.nextBytes(buff);
+			long t = time(new Kernel(){public void run(){SampleConverter.swapBytes(buff, 0, buff.length, byS);}});
+
+			//What writeAsWAV did before: a read() per byte, reversed per sample
+			long tl = time(new Kernel(){public void run(){
+				ByteArrayInputStream in = new ByteArrayInputStream(buff);
+				ByteArrayOutputStream out = new ByteArrayOutputStream(buff.length);
+				byte[] smp = new byte[byS];
+				int b = -1;
+				while ((b = in.read()) != -1)
+				{
+					smp[0] = (byte)b;
+					for (int i = 1; i < byS; i++) smp[i] = (byte)in.read();
+					for (int i = byS - 1; i >= 0; i--) out.write(smp[i]);
+				}
+				sink += out.size();
+			}});
+			System.out.println("\t" + (byS * 8) + "-bit " + rate(t, n) + " | per-byte stream " + rate(tl, n));
+		}
+	}
+
+	private static void benchInterleave(int n, Random r)
+	{
+		System.out.println("Interleave:");
+		for (int nch : new int[]{1, 2, 6})
+		{
+			final int frames = n / nch;
+			final int[][] chans = new int[nch][];
+			for (int c = 0; c < nch; c++) chans[c] = makeSamples(frames, BitDepth.SIXTEEN_BIT_SIGNED, r);
+			final int[] inter = new int[frames * nch];
+			long t0 = time(new Kernel(){public void run(){SampleConverter.interleave(chans, 0, inter, 0, frames);}});
+			long t1 = time(new Kernel(){public void run(){SampleConverter.deinterleave(inter, 0, chans, 0, frames);}});
+			System.out.println("\t" + nch + " ch: interleave " + rate(t0, frames * nch) + " | deinterleave " + rate(t1, frames * nch));
+		}
+	}
+
+	public static void main(String[] args)
+	{
+		int n = DEFO_SAMPLES;
+		if (args.length > 0) n = Integer.parseInt(args[0]);
+		Random r = new Random(47);
+
+		benchConvert(n, r);
+		benchFloat(n, r);
+		benchSwap(n, r);
+		benchInterleave(n, r);
+		if (sink == 42) System.out.println();
+	}
+
+}
@@ -3,6 +3,17 @@ package waffleoRai_Sound;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Added getSampleChannel for compact access to a channel's samples
+ */
+
+/**
+ * @author Blythe Hospelhorn
+ * @version 1.1.0
+ */
 public interface Sound {
 
 	public AudioFormat getFormat();
@@ -24,6 +35,25 @@ public interface Sound {
 	public BitDepth getBitDepth();
 	public int getSampleRate();
 	
+	/**
+	 * Get one channel's samples in compact storage, in the same form as getRawSamples.
+	 * <br>Sounds that store their samples in SampleChannels return the channel itself,
+	 * so changes to it show up in the sound. By default the channel is a new copy.
+	 * @param channel Index of channel.
+	 * @return Channel samples.
+	 */
+	public default SampleChannel getSampleChannel(int channel)
+	{
+		int[] raw = getRawSamples(channel);
+		BitDepth bd = getBitDepth();
+		int bits = (bd != null) ? bd.getBitCount() : 32;
+		//Only 8-bit storage reads back unsigned, so give wider unsigned samples room for the top bit
+		if (bd != null && !bd.isSigned() && bits > 8) bits++;
+		SampleChannel c = SampleChannel.createChannel(bits, raw.length);
+		c.setSamples(0, raw, 0, raw.length);
+		return c;
+	}
+	
 	public boolean loops();
 	public int getLoopFrame();
 	public int getLoopEndFrame();
@@ -0,0 +1,488 @@
+package waffleoRai_Sound;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.FileBuffer.UnsupportedFileTypeException;
+
+/**
+ * PCM WAV file read from disk as it is played instead of loaded into memory.
+ * <br>Only the chunk layout is kept in memory. Samples are decoded a window of frames at a time
+ * straight from a FileChannel, and seeking is frame arithmetic on the data chunk position, so
+ * files of any length can be played or scanned in constant memory.
+ * <br>Like WAV, each channel has its own read position, and sounds with a smpl loop loop back to the
+ * loop start when a channel reaches the loop end.
+ * <br>Reads that fail part way through playback throw an UncheckedIOException, since the
+ * Sound interface doesn't declare IOException.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class StreamingWAV implements Sound, Closeable{
+
+	/* ----- Constants ----- */
+
+	public static final int DEFO_WINDOW_FRAMES = 0x4000;
+
+	/* ----- Instance Variables ----- */
+
+	private String path;
+	private FileChannel file;
+	private WAVLayout layout;
+
+	private int frameCount;
+	private int channelCount;
+	private int bytesPerSample;
+
+	//Channel of the file each exposed channel reads (all for a full view, one for a single channel view)
+	private int[] channelMap;
+	private int[] position;
+
+	private int windowFrames;
+	private int windowStart;
+	private int windowLength;
+	private int[][] window;
+
+	private int loopStart;
+	private int loopEnd;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * Open a WAV file for streaming. Only the chunk layout is read.
+	 * @param filepath Path to WAV file.
+	 * @throws IOException If the file can't be opened or read.
+	 * @throws UnsupportedFileTypeException If the file isn't an 8/16/24/32-bit PCM WAV.
+	 */
+	public StreamingWAV(String filepath) throws IOException, UnsupportedFileTypeException
+	{
+		path = filepath;
+		file = FileChannel.open(Paths.get(filepath), StandardOpenOption.READ);
+		try
+		{
+			layout = WAVLayout.read(file);
+		}
+		catch (UnsupportedFileTypeException e)
+		{
+			file.close();
+			throw e;
+		}
+		long frames = layout.getFrameCount();
+		if (frames > Integer.MAX_VALUE)
+		{
+			file.close();
+			throw new FileBuffer.UnsupportedFileTypeException();
+		}
+		frameCount = (int)frames;
+		channelCount = layout.getChannelCount();
+		bytesPerSample = layout.getBytesPerSample();
+
+		channelMap = new int[channelCount];
+		for (int c = 0; c < channelCount; c++) channelMap[c] = c;
+		initPlayback(DEFO_WINDOW_FRAMES);
+	}
+
+	private StreamingWAV(StreamingWAV src, int channel) throws IOException
+	{
+		path = src.path;
+		file = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		layout = src.layout;
+		frameCount = src.frameCount;
+		channelCount = src.channelCount;
+		bytesPerSample = src.bytesPerSample;
+		channelMap = new int[]{channel};
+		initPlayback(src.windowFrames);
+	}
+
+	private void initPlayback(int winFrames)
+	{
+		position = new int[channelMap.length];
+		windowFrames = winFrames;
+		windowStart = 0;
+		windowLength = 0;
+		window = null;
+
+		loopStart = -1;
+		loopEnd = -1;
+		List<WAVLayout.Loop> loops = layout.getLoops();
+		if (!loops.isEmpty())
+		{
+			loopStart = loops.get(0).getStart();
+			loopEnd = loops.get(0).getEnd();
+		}
+	}
+
+	/**
+	 * Close the underlying file. Sample reads after closing fail.
+	 */
+	public void close() throws IOException
+	{
+		file.close();
+	}
+
+	/* ----- Settings ----- */
+
+	/**
+	 * @param frames Number of frames decoded at a time. The current window is dropped.
+	 */
+	public void setWindowSize(int frames)
+	{
+		if (frames < 1) frames = 1;
+		windowFrames = frames;
+		flushBuffer();
+	}
+
+	public int getWindowSize()
+	{
+		return windowFrames;
+	}
+
+	/* ----- Reading ----- */
+
+	/**
+	 * Read a run of frames from every channel of the file into arrays.
+	 * @param frame First frame to read.
+	 * @param dst Destination arrays, one for every channel in the file.
+	 * @param dstPos Position in destination arrays to start writing at.
+	 * @param frames Number of frames to read.
+	 * @return Number of frames read. Less than requested at the end of the data.
+	 * @throws IOException If the file can't be read.
+	 */
+	public int readFrames(int frame, int[][] dst, int dstPos, int frames) throws IOException
+	{
+		if (frame < 0 || frame >= frameCount) return 0;
+		if (frames > frameCount - frame) frames = frameCount - frame;
+		return PCMCodec.readPCM(file, layout.getFramePosition(frame), bytesPerSample, dst, dstPos, frames);
+	}
+
+	private void loadWindow(int frame)
+	{
+		if (window == null) window = new int[channelCount][windowFrames];
+		try
+		{
+			windowLength = readFrames(frame, window, 0, windowFrames);
+		}
+		catch (IOException e)
+		{
+			windowLength = 0;
+			throw new UncheckedIOException(e);
+		}
+		windowStart = frame;
+	}
+
+	private int sampleAt(int channel, int frame)
+	{
+		if (frame < windowStart || frame >= windowStart + windowLength) loadWindow(frame);
+		return window[channelMap[channel]][frame - windowStart];
+	}
+
+	private int[] readChannel(int channel)
+	{
+		int[] out = new int[frameCount];
+		int[][] buff = new int[channelCount][];
+		int fc = channelMap[channel];
+		for (int c = 0; c < channelCount; c++) buff[c] = (c == fc) ? out : new int[frameCount];
+		try
+		{
+			readFrames(0, buff, 0, frameCount);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return out;
+	}
+
+	private void checkChannel(int channel)
+	{
+		if (channel < 0) throw new IndexOutOfBoundsException();
+		if (channel >= channelMap.length) throw new IndexOutOfBoundsException();
+	}
+
+	/* ----- Sound Interface ----- */
+
+	@Override
+	public AudioFormat getFormat()
+	{
+		int ch = channelMap.length;
+		int bitDepth = layout.getBitDepth();
+		AudioFormat wavformat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, (float)layout.getSampleRate(),
+				bitDepth,
+				ch, (bitDepth/8) * ch,
+				(float)layout.getSampleRate(), false);
+		return wavformat;
+	}
+
+	/**
+	 * Data stream over the file's data chunk. Full views pass the chunk through as is,
+	 * single channel views pick out one channel's bytes from each frame.
+	 */
+	private class DataStream extends InputStream
+	{
+		private FileChannel src;
+		private ByteBuffer buff;
+		private int frame;
+
+		private DataStream() throws IOException
+		{
+			src = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+			int frameSize = layout.getBytesPerFrame();
+			buff = ByteBuffer.allocate(windowFrames * frameSize);
+			buff.limit(0);
+			frame = 0;
+		}
+
+		private boolean fill() throws IOException
+		{
+			if (frame >= frameCount)
+			{
+				if (loopStart < 0 || loopStart >= frameCount) return false;
+				frame = loopStart;
+			}
+			int n = Math.min(windowFrames, frameCount - frame);
+			int frameSize = layout.getBytesPerFrame();
+			buff.clear();
+			buff.limit(n * frameSize);
+			PCMCodec.readFully(src, buff, layout.getFramePosition(frame));
+			buff.flip();
+			if (channelMap.length != channelCount)
+			{
+				//Pull one channel out in place
+				byte[] arr = buff.array();
+				int off = channelMap[0] * bytesPerSample;
+				for (int f = 0; f < n; f++)
+				{
+					System.arraycopy(arr, (f * frameSize) + off, arr, f * bytesPerSample, bytesPerSample);
+				}
+				buff.limit(n * bytesPerSample);
+			}
+			frame += n;
+			return true;
+		}
+
+		public int read() throws IOException
+		{
+			if (!buff.hasRemaining() && !fill()) return -1;
+			return Byte.toUnsignedInt(buff.get());
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0) return 0;
+			if (!buff.hasRemaining() && !fill()) return -1;
+			int n = Math.min(len, buff.remaining());
+			buff.get(b, off, n);
+			return n;
+		}
+
+		public int available()
+		{
+			return buff.remaining();
+		}
+
+		public void close() throws IOException
+		{
+			src.close();
+		}
+	}
+
+	@Override
+	public AudioInputStream getStream()
+	{
+		try
+		{
+			return new AudioInputStream(new DataStream(), getFormat(), totalFrames());
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	@Override
+	public void jumpToFrame(int frame)
+	{
+		if (frame < 0) return;
+		if (frame > frameCount) return;
+		for (int c = 0; c < position.length; c++) position[c] = frame;
+	}
+
+	@Override
+	public void rewind()
+	{
+		for (int c = 0; c < position.length; c++) position[c] = 0;
+	}
+
+	@Override
+	public int nextSample(int channel)
+	{
+		checkChannel(channel);
+		int fi = position[channel];
+		if (fi >= frameCount)
+		{
+			//End of channel
+			throw new IndexOutOfBoundsException();
+		}
+		int sample = sampleAt(channel, fi);
+		fi++;
+		if (loops() && fi == loopEnd && loopStart >= 0) fi = loopStart;
+		position[channel] = fi;
+		return sample;
+	}
+
+	@Override
+	public int samplesLeft(int channel)
+	{
+		if (loops()) return -1;
+		checkChannel(channel);
+		return frameCount - position[channel];
+	}
+
+	@Override
+	public boolean hasSamplesLeft(int channel)
+	{
+		if (loops()) return true;
+		checkChannel(channel);
+		return position[channel] < frameCount;
+	}
+
+	@Override
+	public int totalFrames()
+	{
+		return frameCount;
+	}
+
+	@Override
+	public int totalChannels()
+	{
+		return channelMap.length;
+	}
+
+	/**
+	 * Get a view of one channel. The view opens its own handle on the file, so it can be
+	 * read independently of this one (and should be closed separately).
+	 */
+	@Override
+	public Sound getSingleChannel(int channel)
+	{
+		if (channelMap.length == 1) return this;
+		if (channel < 0 || channel >= channelMap.length) return null;
+		try
+		{
+			return new StreamingWAV(this, channelMap[channel]);
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Reads the whole channel from disk.
+	 */
+	@Override
+	public int[] getRawSamples(int channel)
+	{
+		checkChannel(channel);
+		return readChannel(channel);
+	}
+
+	/**
+	 * Reads the whole channel from disk.
+	 */
+	@Override
+	public int[] getSamples_16Signed(int channel)
+	{
+		checkChannel(channel);
+		return WAV.scaleTo16Signed(readChannel(channel), getBitDepth());
+	}
+
+	/**
+	 * Reads the whole channel from disk.
+	 */
+	@Override
+	public int[] getSamples_24Signed(int channel)
+	{
+		checkChannel(channel);
+		return WAV.scaleTo24Signed(readChannel(channel), getBitDepth());
+	}
+
+	@Override
+	public BitDepth getBitDepth()
+	{
+		return WAV.toBitDepth(layout.getBitDepth());
+	}
+
+	public int getRawBitDepth()
+	{
+		return layout.getBitDepth();
+	}
+
+	@Override
+	public int getSampleRate()
+	{
+		return layout.getSampleRate();
+	}
+
+	@Override
+	public boolean loops()
+	{
+		return loopStart >= 0;
+	}
+
+	@Override
+	public int getLoopFrame()
+	{
+		return loopStart;
+	}
+
+	@Override
+	public int getLoopEndFrame()
+	{
+		return loopEnd;
+	}
+
+	@Override
+	public int getUnityNote()
+	{
+		return layout.getUnityNote();
+	}
+
+	@Override
+	public int getFineTune()
+	{
+		return layout.getPitchTune();
+	}
+
+	/**
+	 * Drops the decoded window. It is reloaded on the next sample read.
+	 */
+	@Override
+	public void flushBuffer()
+	{
+		window = null;
+		windowLength = 0;
+	}
+
+	/**
+	 * @return Layout of the underlying file.
+	 */
+	public WAVLayout getLayout()
+	{
+		return layout;
+	}
+
+}
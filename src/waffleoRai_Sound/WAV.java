@@ -1,13 +1,16 @@
 package waffleoRai_Sound;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -19,6 +22,37 @@ import javax.sound.sampled.AudioSystem;
 import waffleoRai_Utils.FileBuffer;
 import waffleoRai_Utils.FileBuffer.UnsupportedFileTypeException;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Sample data is decoded and encoded in bulk through PCMCodec, read and written through a FileChannel
+ * 	Chunks are found by walking the RIFF chunk list instead of searching for their IDs
+ * 	Block align and average bytes per second in fmt are now correct for multichannel data
+ * 	RIFF size counts the WAVE ID and leaves out the smpl chunk when there isn't one
+ * 	Odd sized data chunks are padded
+ * 2026.10.19 | 1.1.0 -> 1.2.0
+ * 	Chunk layout parsing moved to WAVLayout (shared with StreamingWAV)
+ * 2026.10.19 | 1.2.0 -> 1.2.1
+ * 	Package level access to channel sample arrays for WAVInputStream
+ * 2026.10.19 | 1.2.1 -> 1.3.0
+ * 	Channels store samples in SampleChannels sized to the bit depth instead of int arrays
+ * 	Optional off-heap sample storage
+ * 	getSampleChannel returns a channel's storage directly
+ * 	Channel data is read and written in blocks, and handed to WAVInputStream through getFrames
+ * 	adjustBitDepth updates the bit depth
+ * 2026.10.19 | 1.3.0 -> 1.4.0
+ * 	Bit depth and signedness conversion done in bulk by SampleConverter
+ * 	adjustBitDepth treats 8-bit data as unsigned and wider data as signed (it had these backwards)
+ * 	writeAsWAV copies and byte swaps in blocks instead of a byte at a time
+ * 	writeAsWAV block align and RIFF size fixed
+ */
+
+/**
+ * Uncompressed PCM WAV file, held fully in memory.
+ * @author Blythe Hospelhorn
+ * @version 1.4.0
+ */
 public class WAV implements Sound{
 	
 	/* ----- Constants ----- */
@@ -31,6 +65,7 @@ public class WAV implements Sound{
 	public static final String MAG_SMPL = "smpl";
 	
 	public static final int DEFAULT_BUFFERED_FRAME = 44100;
+	public static final int COPY_BLOCK_SIZE = 0x10000;
 	
 	/* ----- Instance Variables ----- */
 	
@@ -41,6 +76,7 @@ public class WAV implements Sound{
 	
 		//data
 	private Channel[] data;
+	private boolean offHeap;
 		
 		//smpl
 	private boolean useSMPL;
@@ -83,172 +119,46 @@ public class WAV implements Sound{
 	
 	private static class Channel
 	{
-		private int[] samples;
+		private SampleChannel samples;
 		private int currentFrame;
 		
-		public Channel(int frameCount)
+		public Channel(SampleChannel store)
 		{
-			samples = new int[frameCount];
+			samples = store;
 			currentFrame = 0;
 		}
 		
 		public int getSample(int framei)
 		{
-			return samples[framei];
+			return samples.getSample(framei);
 		}
 		
 		public void setSample(int framei, int sample)
 		{
-			samples[framei] = sample;
-		}
-		
-		private void scaleSigned(int nBD, int tBD)
-		{
-			if (nBD < 32 && tBD < 32)
-			{
-				int nmax = (1 << (nBD - 1));	
-				int tmax = (1 << (tBD - 1));
-				
-				double factor = (double)tmax/(double)nmax;
-				for (int i = 0; i < samples.length; i++)
-				{
-					int s = samples[i];
-					double p = (double)s * factor;
-					samples[i] = (int)Math.round(p);
-				}
-			}
-			else
-			{
-				long nmax = (1L << (nBD - 1L));	
-				long tmax = (1L << (tBD - 1L));
-				
-				double factor = (double)tmax/(double)nmax;
-				
-				for (int i = 0; i < samples.length; i++)
-				{
-					long s = (long)samples[i];
-					double p = (double)s * factor;
-					samples[i] = (int)Math.round(p);
-				}
-			}
-		}
-		
-		private void scaleUnsigned(int nBD, int tBD)
-		{
-			if (nBD < 32 && tBD < 32)
-			{
-				int nmax = (1 << nBD) - 1;	
-				int tmax = (1 << tBD) - 1;
-				
-				double factor = (double)tmax/(double)nmax;
-				for (int i = 0; i < samples.length; i++)
-				{
-					int s = samples[i];
-					double p = (double)s * factor;
-					samples[i] = (int)Math.round(p);
-				}
-			}
-			else
-			{
-				long nmax = (1L << nBD) - 1L;	
-				long tmax = (1L << tBD) - 1L;
-				
-				double factor = (double)tmax/(double)nmax;
-				
-				for (int i = 0; i < samples.length; i++)
-				{
-					long s = Integer.toUnsignedLong(samples[i]);
-					double p = (double)s * factor;
-					samples[i] = (int)Math.round(p);
-				}
-			}
-		}
-		
-		private void signedToUnsigned(int BD)
-		{
-			long centerl = 1L << (BD - 1);
-			int centeri = 1 << (BD - 1);
-			
-			for (int i = 0; i < samples.length; i++)
-			{
-				int s = samples[i];
-				if(BD >= 32)
-				{
-					long l = (long)s;
-					l += centerl;
-					s = (int)l;
-				}
-				else s += centeri;
-				samples[i] = s;
-			}
-		}
-		
-		private void unsignedToSigned(int BD)
-		{
-			long centerl = 1L << BD;
-			int centeri = 1 << BD;
-			
-			for (int i = 0; i < samples.length; i++)
-			{
-				int s = samples[i];
-				if(BD >= 32)
-				{
-					long l = (long)s;
-					l -= centerl;
-					s = (int)l;
-				}
-				else s -= centeri;
-				samples[i] = s;
-			}
+			samples.setSample(framei, sample);
 		}
 		
 		public void scaleBitDepth(int initBD, int targetBD, boolean initSigned, boolean targetSigned)
 		{
-			//Unsigned -> signed | subtract max signed positive
-			//long centerl = 1L << targetBD;
-			//int centeri = 1 << targetBD;
-			
-			if (targetBD == initBD)
-			{
-				if (initSigned == targetSigned) return;
-				if (initSigned) signedToUnsigned(targetBD);
-				else unsignedToSigned(targetBD);
-			}
-			else
-			{
-				//Scale up
-				if (initSigned)
-				{
-					scaleSigned(initBD, targetBD);
-					if (!targetSigned) signedToUnsigned(targetBD);
-				}
-				else
-				{
-					scaleUnsigned(initBD, targetBD);
-					if (targetSigned) unsignedToSigned(targetBD);
-				}
-			}
+			if (targetBD == initBD && initSigned == targetSigned) return;
+			int[] arr = samples.toArray();
+			SampleConverter.convert(arr, 0, arr, 0, arr.length, initBD, initSigned, targetBD, targetSigned);
+			//Storage changes with the bit depth
+			if (targetBD != initBD) samples = SampleChannel.createChannel(targetBD, arr.length, samples.isOffHeap());
+			samples.setSamples(0, arr, 0, arr.length);
 		}
 		
 		public void changeLength(int nlen)
 		{
 			if (nlen < 1) return;
-			if (nlen == samples.length) return;
-			int[] oldsamps = samples;
-			samples = new int[nlen];
-			if (oldsamps.length <= samples.length)
-			{
-				for (int i = 0; i < oldsamps.length; i++) samples[i] = oldsamps[i];
-			}
-			else
-			{
-				for (int i = 0; i < samples.length; i++) samples[i] = oldsamps[i];
-			}
+			if (nlen == samples.countSamples()) return;
+			samples.setLength(nlen);
+			samples.trimToSize();
 		}
 		
 		public int countSamples()
 		{
-			return samples.length;
+			return samples.countSamples();
 		}
 		
 		public int getCurrentFrameIndex()
@@ -258,7 +168,7 @@ public class WAV implements Sound{
 		
 		public void setCurrentFrameIndex(int fi)
 		{
-			if (fi > samples.length) return;
+			if (fi > samples.countSamples()) return;
 			currentFrame = fi;
 		}
 		
@@ -304,19 +214,40 @@ public class WAV implements Sound{
 	
 	public WAV(String file) throws IOException, UnsupportedFileTypeException
 	{
-		FileBuffer wavfile = FileBuffer.createBuffer(file, false);
 		smpl_loops = new LinkedList<SampleLoop>();
-		parseWAV(wavfile);
+		FileChannel ch = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+		try
+		{
+			parseWAV(ch);
+		}
+		finally
+		{
+			ch.close();
+		}
 	}
 	
 	public WAV(int bitdepth, int channels, int frames)
+	{
+		this(bitdepth, channels, frames, false);
+	}
+	
+	/**
+	 * Create an empty (silent) WAV.
+	 * <br>Samples are stored in the smallest type that holds the bit depth (see SampleChannel).
+	 * @param bitdepth Bits per sample.
+	 * @param channels Number of channels.
+	 * @param frames Number of frames.
+	 * @param offHeap Whether to store samples outside the Java heap in direct buffers.
+	 */
+	public WAV(int bitdepth, int channels, int frames, boolean offHeap)
 	{
 		if (channels < 1 || frames < 1 || bitdepth < 1) throw new IllegalArgumentException();
 		bitDepth = bitdepth;
+		this.offHeap = offHeap;
 		//bd_signed = false;
 		//if (bitDepth <= 8) bd_signed = true;
 		data = new Channel[channels];
-		for (int i = 0; i < channels; i++) data[i] = new Channel(frames);
+		for (int i = 0; i < channels; i++) data[i] = new Channel(SampleChannel.createChannel(bitdepth, frames, offHeap));
 		sampleRate = 44100; //Default
 		
 		useSMPL = false;
@@ -327,101 +258,47 @@ public class WAV implements Sound{
 	
 	/* ----- Parsing ----- */
 	
-	private void parseWAV(FileBuffer mywav) throws UnsupportedFileTypeException
+	private void parseWAV(FileChannel ch) throws IOException, UnsupportedFileTypeException
 	{
-		if (mywav == null) throw new FileBuffer.UnsupportedFileTypeException();
-		
-		//Check for magics
-		long m0 = mywav.findString(0, 0x10, MAG0);
-		long m1 = mywav.findString(0, 0x10, MAG1);
+		WAVLayout layout = WAVLayout.read(ch);
+		sampleRate = layout.getSampleRate();
+		bitDepth = layout.getBitDepth();
 		
-		if (m0 != 0) throw new FileBuffer.UnsupportedFileTypeException();
-		if (m1 != 8) throw new FileBuffer.UnsupportedFileTypeException();
-		mywav.setEndian(false);
-		
-		long cPos = m1 + 4;
-		long sz = mywav.getFileSize();
-		
-		//Find fmt
-		cPos = mywav.findString(m1, sz, MAG_FMT);
-		if (cPos < 0) throw new FileBuffer.UnsupportedFileTypeException(); //Mandatory chunk
-		cPos += 8; //Skip magic and chunk size
-		short compCode = mywav.shortFromFile(cPos); cPos += 2;
-		//Right now, we'll only deal with uncompressed PCM. Maybe add more later.
-		if (compCode != 1) throw new FileBuffer.UnsupportedFileTypeException();
-		short chNum = mywav.shortFromFile(cPos); cPos += 2;
-		sampleRate = mywav.intFromFile(cPos); cPos += 4;
-		cPos += 4; //Skip average bytes per second.
-		cPos += 2; //Skip block align
-		bitDepth = Short.toUnsignedInt(mywav.shortFromFile(cPos)); cPos += 2;
-		
-		//Find data
-		cPos = mywav.findString(m1, sz, MAG_DATA);
-		if (cPos < 0) throw new FileBuffer.UnsupportedFileTypeException(); //Mandatory chunk
-		cPos += 4; //Skip magic
-		int datSz = mywav.intFromFile(cPos); cPos += 4;
-		int bdBytes = bitDepth/8;
-		int fCount = (datSz/bdBytes)/chNum;
+		int chNum = layout.getChannelCount();
+		long fCountL = layout.getFrameCount();
+		if (fCountL > Integer.MAX_VALUE) throw new FileBuffer.UnsupportedFileTypeException();
+		int fCount = (int)fCountL;
 		data = new Channel[chNum];
-		for (int c = 0; c < chNum; c++) data[c] = new Channel(fCount);
-		for (int f = 0; f < fCount; f++)
+		for (int c = 0; c < chNum; c++) data[c] = new Channel(SampleChannel.createChannel(bitDepth, fCount, offHeap));
+		
+		//Decode a block at a time into the channels' own storage
+		int bps = layout.getBytesPerSample();
+		int block = Math.max(1, Math.min(PCMCodec.DEFO_BLOCK_FRAMES, fCount));
+		int[][] buff = new int[chNum][block];
+		for (int f = 0; f < fCount; f += block)
 		{
-			for (int c = 0; c < chNum; c++)
-			{
-				Channel ch = data[c];
-				switch(bdBytes)
-				{
-				case 1:
-					byte sBY = mywav.getByte(cPos); cPos++;
-					ch.setSample(f, Byte.toUnsignedInt(sBY));
-					break;
-				case 2:
-					short sSH = mywav.shortFromFile(cPos); cPos += 2;
-					ch.setSample(f, (int)sSH);
-					break;
-				case 3:
-					int sSI = mywav.shortishFromFile(cPos); cPos += 3;
-					//Sign extend
-					sSI = sSI << 8;
-					sSI = sSI >> 8;
-					ch.setSample(f, sSI);
-					break;
-				case 4:
-					int sIN = mywav.intFromFile(cPos); cPos += 4;
-					ch.setSample(f, sIN);
-					break;
-				default: throw new FileBuffer.UnsupportedFileTypeException();
-				}
-			}
+			int n = Math.min(block, fCount - f);
+			int r = PCMCodec.readPCM(ch, layout.getFramePosition(f), bps, buff, 0, n);
+			for (int c = 0; c < chNum; c++) data[c].samples.setSamples(f, buff[c], 0, r);
+			if (r < n) break;
 		}
 		
-		//Find smpl
-		useSMPL = false;
-		cPos = mywav.findString(m1, sz, MAG_SMPL);
-		if (cPos < 0) return;
-		useSMPL = true;
+		//smpl
+		useSMPL = layout.hasSMPL();
+		if (!useSMPL) return;
 		smpl_loops = new LinkedList<SampleLoop>();
-		cPos += (4+4+4+4+4); //Skip to unity note
-		smpl_unityNote = mywav.intFromFile(cPos); cPos+=4;
-		smpl_pitchTune = mywav.intFromFile(cPos); cPos+=4;
-		cPos += (4+4); //Skip SMPTE stuff
-		int loopCount = mywav.intFromFile(cPos); cPos += 4;
-		cPos += 4; //Skip sampler data
-		
-		//Read sample loops
-		for (int i = 0; i < loopCount; i++)
-		{
-			int ID = mywav.intFromFile(cPos); cPos+=4;
-			SampleLoop loop = new SampleLoop(ID);
-			loop.type = LoopType.getType(mywav.intFromFile(cPos)); cPos+=4;
-			loop.start = mywav.intFromFile(cPos); cPos += 4;
-			loop.end = mywav.intFromFile(cPos); cPos += 4;
-			loop.fraction = mywav.intFromFile(cPos); cPos += 4;
-			loop.playCount = mywav.intFromFile(cPos); cPos += 4;
-			
+		smpl_unityNote = layout.getUnityNote();
+		smpl_pitchTune = layout.getPitchTune();
+		for (WAVLayout.Loop l : layout.getLoops())
+		{
+			SampleLoop loop = new SampleLoop(l.getID());
+			loop.type = LoopType.getType(l.getType());
+			loop.start = l.getStart();
+			loop.end = l.getEnd();
+			loop.fraction = l.getFraction();
+			loop.playCount = l.getPlayCount();
 			smpl_loops.add(loop);
 		}
-		
 	}
 	
 	/* ----- Serialization ----- */
@@ -431,16 +308,16 @@ public class WAV implements Sound{
 		return 16;
 	}
 	
-	private int dataChunkSize()
+	private long dataChunkSize()
 	{
+		if (data == null) return -1;
 		int byS = bitDepth/8;
 		int chN = data.length;
-		if (data == null) return -1;
 		Channel c = data[0];
 		if (c == null) return -1;
 		int fc = c.countSamples();
 		
-		return (byS * chN * fc);
+		return ((long)byS * (long)chN * (long)fc);
 	}
 	
 	private int smplChunkSize()
@@ -449,176 +326,151 @@ public class WAV implements Sound{
 		return (9 * 4) + (smpl_loops.size() * 24);
 	}
 	
-	private int serializeFMT(BufferedOutputStream stream)
+	private static void putChunkID(ByteBuffer buff, String id)
+	{
+		for (int i = 0; i < 4; i++) buff.put((byte)id.charAt(i));
+	}
+	
+	private static void writeAll(FileChannel ch, ByteBuffer buff) throws IOException
+	{
+		buff.flip();
+		while (buff.hasRemaining()) ch.write(buff);
+	}
+	
+	private int serializeFMT(ByteBuffer buff)
 	{
 		int fmt_sz = fmtChunkSize(); //Fixed at 16 for now since only one format
-		FileBuffer fmt = new FileBuffer(fmt_sz + 8, false);
 		
-		fmt.printASCIIToFile(MAG_FMT);
-		fmt.addToFile(fmt_sz); //Chunk size. Fixed for now since only handle one format
-		fmt.addToFile((short)1); //Compression code. Fixed for now since only handle one format
-		fmt.addToFile((short)data.length); //Number of channels
-		fmt.addToFile(sampleRate); //Sample rate
-		int ba = (bitDepth/8)/data.length;
+		putChunkID(buff, MAG_FMT);
+		buff.putInt(fmt_sz); //Chunk size. Fixed for now since only handle one format
+		buff.putShort((short)1); //Compression code. Fixed for now since only handle one format
+		buff.putShort((short)data.length); //Number of channels
+		buff.putInt(sampleRate); //Sample rate
+		int ba = (bitDepth/8) * data.length;
 		int abps = sampleRate * ba;
-		fmt.addToFile(abps);
-		fmt.addToFile((short)ba);
-		fmt.addToFile((short)bitDepth);
-		
-		try{stream.write(fmt.getBytes());}
-		catch(IOException e){return 0;}
+		buff.putInt(abps);
+		buff.putShort((short)ba);
+		buff.putShort((short)bitDepth);
 		
-		return (int)fmt.getFileSize();
+		return fmt_sz + 8;
 	}
 	
-	private int serializeDATA(BufferedOutputStream stream)
+	private long serializeDATA(FileChannel ch) throws IOException
 	{
-		int csz = dataChunkSize();
+		long csz = dataChunkSize();
 		
-		FileBuffer datHeader = new FileBuffer(8, false);
-		datHeader.printASCIIToFile(MAG_DATA);
-		datHeader.addToFile(csz);
-		try{stream.write(datHeader.getBytes());}
-		catch(IOException e){return 0;}
-		int written = 8;
+		ByteBuffer datHeader = ByteBuffer.allocate(8);
+		datHeader.order(ByteOrder.LITTLE_ENDIAN);
+		putChunkID(datHeader, MAG_DATA);
+		datHeader.putInt((int)csz);
+		writeAll(ch, datHeader);
+		long written = 8;
 		
 		int byS = bitDepth/8;
-		int chN = data.length;
 		if (data == null) return written;
-		Channel ch = data[0];
-		if (ch == null) return written;
-		int fc = ch.countSamples();
-		
-		//We'll write one second at a time.
-		int bytesPerSecond = sampleRate * byS * chN;
-		int samplesRemaining = fc;
-		int samplePos = 0;
-		
-		while(samplesRemaining >= sampleRate)
+		int chN = data.length;
+		for (int c = 0; c < chN; c++)
 		{
-			//Dump samples to disk one second at a time
-			FileBuffer second = new FileBuffer(bytesPerSecond, false);
-			for (int f = 0; f < sampleRate; f++)
-			{
-				for (int c = 0; c < chN; c++)
-				{
-					int s = data[c].getSample(samplePos);
-					switch(byS)
-					{
-					case 1:
-						second.addToFile((byte)s);
-						break;
-					case 2:
-						second.addToFile((short)s);
-						break;
-					case 3:
-						second.add24ToFile(s);
-						break;
-					case 4:
-						second.addToFile(s);
-						break;
-					}
-				}
-				samplePos++;
-			}
-			samplesRemaining = fc - samplePos;
-			try{stream.write(second.getBytes()); written += second.getFileSize();}
-			catch(IOException e){return written;}
+			if (data[c] == null) return written;
+		}
+		int fCount = data[0].countSamples();
+		int block = Math.max(1, Math.min(PCMCodec.DEFO_BLOCK_FRAMES, fCount));
+		int[][] buff = new int[chN][block];
+		for (int f = 0; f < fCount; f += block)
+		{
+			int n = Math.min(block, fCount - f);
+			getFrames(f, buff, n);
+			written += PCMCodec.writePCM(ch, byS, buff, 0, n);
 		}
 		
-		//Write remaining partial second (if present)
-		if(samplesRemaining > 0)
+		//Chunks are word aligned
+		if ((csz & 1) != 0)
 		{
-			int bytesLeft = samplesRemaining * byS * chN;
-			FileBuffer part = new FileBuffer(bytesLeft, false);
-			for (int f = 0; f < samplesRemaining; f++)
-			{
-				for (int c = 0; c < chN; c++)
-				{
-					int s = data[c].getSample(samplePos);
-					switch(byS)
-					{
-					case 1:
-						part.addToFile((byte)s);
-						break;
-					case 2:
-						part.addToFile((short)s);
-						break;
-					case 3:
-						part.add24ToFile(s);
-						break;
-					case 4:
-						part.addToFile(s);
-						break;
-					}
-				}
-				samplePos++;
-			}
-			try{stream.write(part.getBytes()); written += part.getFileSize();}
-			catch(IOException e){return written;}
+			ByteBuffer pad = ByteBuffer.allocate(1);
+			pad.put((byte)0);
+			writeAll(ch, pad);
+			written++;
 		}
 		
 		return written;
 	}
 	
-	private int serializeSMPL(BufferedOutputStream stream)
+	private int serializeSMPL(FileChannel ch) throws IOException
 	{
 		if(!useSMPL) return 0;
 		int smplsize = smplChunkSize();
 		
-		FileBuffer smpl = new FileBuffer(smplsize+8, false);
-		smpl.printASCIIToFile(MAG_SMPL);
-		smpl.addToFile(smplsize);
-		smpl.addToFile(0); //Manufacturer 
-		smpl.addToFile(0); //Product
+		ByteBuffer smpl = ByteBuffer.allocate(smplsize+8);
+		smpl.order(ByteOrder.LITTLE_ENDIAN);
+		putChunkID(smpl, MAG_SMPL);
+		smpl.putInt(smplsize);
+		smpl.putInt(0); //Manufacturer 
+		smpl.putInt(0); //Product
 		int sper = 1000000000/sampleRate; //Sample period (time passed for one sample in ns)
-		smpl.addToFile(sper);
-		smpl.addToFile(smpl_unityNote); //Unity note
-		smpl.addToFile(smpl_pitchTune); //Pitch Fraction
-		smpl.addToFile(0); //SMPTE Format
-		smpl.addToFile(0); //SMPTE Offset
-		smpl.addToFile(smpl_loops.size()); //Loop count
-		smpl.addToFile(0); //Sampler data
+		smpl.putInt(sper);
+		smpl.putInt(smpl_unityNote); //Unity note
+		smpl.putInt(smpl_pitchTune); //Pitch Fraction
+		smpl.putInt(0); //SMPTE Format
+		smpl.putInt(0); //SMPTE Offset
+		smpl.putInt(smpl_loops.size()); //Loop count
+		smpl.putInt(0); //Sampler data
 		
 		//Loops
 		for (SampleLoop l : smpl_loops)
 		{
-			smpl.addToFile(l.ID);
-			smpl.addToFile(l.type.typecode);
-			smpl.addToFile(l.start);
-			smpl.addToFile(l.end);
-			smpl.addToFile(l.fraction);
-			smpl.addToFile(l.playCount);
+			smpl.putInt(l.ID);
+			smpl.putInt(l.type.typecode);
+			smpl.putInt(l.start);
+			smpl.putInt(l.end);
+			smpl.putInt(l.fraction);
+			smpl.putInt(l.playCount);
 		}
 		
-		try{stream.write(smpl.getBytes());}
-		catch(IOException e){return 0;}
-		
-		return (int)smpl.getFileSize();
+		writeAll(ch, smpl);
+		return smplsize + 8;
 	}
 	
 	public void writeFile(String filepath) throws IOException
 	{
-		BufferedOutputStream os = new BufferedOutputStream(new FileOutputStream(filepath));
-		long fmt_sz = fmtChunkSize() + 8;
-		long data_sz = dataChunkSize() + 8;
-		long smpl_sz = smplChunkSize() + 8;
-		
-		long wavSz = fmt_sz + data_sz + smpl_sz;
-		
-		//Make header.
-		FileBuffer wavhead = new FileBuffer(12, false);
-		wavhead.printASCIIToFile(MAG0);
-		wavhead.addToFile((int)wavSz);
-		wavhead.printASCIIToFile(MAG1);
-		os.write(wavhead.getBytes());
-				
-		//Write the rest
-		serializeFMT(os);
-		serializeDATA(os);
-		serializeSMPL(os);
-		
-		os.close();
+		FileChannel ch = FileChannel.open(Paths.get(filepath), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try
+		{
+			long fmt_sz = fmtChunkSize() + 8;
+			long data_sz = dataChunkSize();
+			data_sz += 8 + (data_sz & 1);
+			long smpl_sz = useSMPL ? (smplChunkSize() + 8) : 0;
+			
+			long wavSz = 4 + fmt_sz + data_sz + smpl_sz;
+			
+			//Make header.
+			ByteBuffer wavhead = ByteBuffer.allocate(12 + (int)fmt_sz);
+			wavhead.order(ByteOrder.LITTLE_ENDIAN);
+			putChunkID(wavhead, MAG0);
+			wavhead.putInt((int)wavSz);
+			putChunkID(wavhead, MAG1);
+			serializeFMT(wavhead);
+			writeAll(ch, wavhead);
+			
+			//Write the rest
+			serializeDATA(ch);
+			serializeSMPL(ch);
+		}
+		finally
+		{
+			ch.close();
+		}
+	}
+	
+	private static int readBlock(InputStream in, byte[] buff) throws IOException
+	{
+		int n = 0;
+		while (n < buff.length)
+		{
+			int r = in.read(buff, n, buff.length - n);
+			if (r <= 0) break;
+			n += r;
+		}
+		return n;
 	}
 	
 	public static void writeAsWAV(AudioInputStream data, String path) throws UnsupportedFileTypeException, IOException
@@ -626,6 +478,16 @@ public class WAV implements Sound{
 		AudioFormat srcFormat = data.getFormat();
 		if(srcFormat.getEncoding() != Encoding.PCM_SIGNED) throw new UnsupportedFileTypeException("WAV.writeWAV || Data encoding must be PCM signed.");
 		
+		int bitDepth = srcFormat.getSampleSizeInBits();
+		int sampleRate = (int)srcFormat.getSampleRate();
+		int chCount = srcFormat.getChannels();
+		int byS = Math.max(bitDepth/8, 1);
+		boolean swap = srcFormat.isBigEndian() && byS > 1;
+		
+		//Copy buffer holds whole frames so samples can be swapped in place (and AudioInputStream only reads whole frames)
+		int frameSize = Math.max(byS * chCount, 1);
+		byte[] buff = new byte[COPY_BLOCK_SIZE - (COPY_BLOCK_SIZE % frameSize)];
+		
 		//Calculate data size
 		long frameCount = data.getFrameLength();
 		long datSize = 0;
@@ -635,25 +497,21 @@ public class WAV implements Sound{
 		{
 			//Well, we'll just have to write the data out first and stream back in...
 			tempfile = FileBuffer.generateTemporaryPath("wav_writer");
-			BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(tempfile));
-			int b = -1;
-			while((b = data.read()) != -1)
+			FileOutputStream tos = new FileOutputStream(tempfile);
+			int n = 0;
+			while((n = data.read(buff)) != -1)
 			{
-				bos.write(b);
-				datSize++;
+				tos.write(buff, 0, n);
+				datSize += n;
 			}
-			bos.close();
+			tos.close();
 			
 			//Read back in
-			src = new BufferedInputStream(new FileInputStream(tempfile));
+			src = new FileInputStream(tempfile);
 		}
 		else{datSize = frameCount * srcFormat.getFrameSize(); src = data;}
 		
-		int bitDepth = srcFormat.getSampleSizeInBits();
-		int sampleRate = (int)srcFormat.getSampleRate();
-		int chCount = srcFormat.getChannels();
-		
-		int wavSize = (int)(8L + 24L + 8L + datSize);
+		int wavSize = (int)(4L + 24L + 8L + datSize);
 		
 		BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(path));
 		
@@ -673,7 +531,7 @@ public class WAV implements Sound{
 		fmt.addToFile((short)1); //Compression code. Fixed for now since only handle one format
 		fmt.addToFile((short)chCount); //Number of channels
 		fmt.addToFile(sampleRate); //Sample rate
-		int ba = (bitDepth/8)/(int)datSize;
+		int ba = (bitDepth/8) * chCount;
 		int abps = sampleRate * ba;
 		fmt.addToFile(abps);
 		fmt.addToFile((short)ba);
@@ -686,99 +544,21 @@ public class WAV implements Sound{
 		datHead.addToFile((int)datSize);
 		bos.write(datHead.getBytes());
 		
-		if(srcFormat.isBigEndian())
+		//Copy a block at a time, reversing the bytes of each sample if big-endian
+		int n = 0;
+		while((n = readBlock(src, buff)) > 0)
 		{
-			//We'll have to reverse the bytes >>
-			int b = -1;
-			switch(bitDepth)
+			if(swap)
 			{
-			case 8:
-				while((b = src.read()) != -1) bos.write(b);
-				break;
-			case 16:
-				while((b = src.read()) != -1)
+				//A cut off last sample is padded with zeroes as its low bytes
+				int tail = n % byS;
+				if(tail != 0)
 				{
-					int b0 = b;
-					int b1 = src.read();
-					if(b1 == -1)
-					{
-						bos.write(0);
-						bos.write(b0);
-						break;
-					}
-					bos.write(b1);
-					bos.write(b0);
+					for (int i = 0; i < byS - tail; i++) buff[n++] = 0;
 				}
-				break;
-			case 24:
-				while((b = src.read()) != -1)
-				{
-					int b0 = b;
-					int b1 = src.read();
-					if(b1 == -1)
-					{
-						bos.write(0);
-						bos.write(0);
-						bos.write(b0);
-						break;
-					}
-					int b2 = src.read();
-					if(b2 == -1)
-					{
-						bos.write(0);
-						bos.write(b1);
-						bos.write(b0);
-						break;
-					}
-					bos.write(b2);
-					bos.write(b1);
-					bos.write(b0);
-				}
-				break;
-			case 32:
-				while((b = src.read()) != -1)
-				{
-					int b0 = b;
-					int b1 = src.read();
-					if(b1 == -1)
-					{
-						bos.write(0);
-						bos.write(0);
-						bos.write(0);
-						bos.write(b0);
-						break;
-					}
-					int b2 = src.read();
-					if(b2 == -1)
-					{
-						bos.write(0);
-						bos.write(0);
-						bos.write(b1);
-						bos.write(b0);
-						break;
-					}
-					int b3 = src.read();
-					if(b3 == -1)
-					{
-						bos.write(0);
-						bos.write(b2);
-						bos.write(b1);
-						bos.write(b0);
-						break;
-					}
-					bos.write(b3);
-					bos.write(b2);
-					bos.write(b1);
-					bos.write(b0);
-				}
-				break;
+				SampleConverter.swapBytes(buff, 0, n, byS);
 			}
-		}
-		else
-		{
-			//Just copy as is
-			int b = -1;
-			while((b = src.read()) != -1) bos.write(b);
+			bos.write(buff, 0, n);
 		}
 		
 		bos.close();
@@ -811,7 +591,26 @@ public class WAV implements Sound{
 		Channel c = data[channel];
 		return c.getSample(frame);
 	}
+
+	/**
+	 * Copy a run of frames out of every channel, for bulk encoding.
+	 * @param frame First frame.
+	 * @param dst Destination arrays, one per channel.
+	 * @param frames Number of frames.
+	 */
+	void getFrames(int frame, int[][] dst, int frames)
+	{
+		for (int c = 0; c < data.length; c++) data[c].samples.getSamples(frame, dst[c], 0, frames);
+	}
 	
+	/**
+	 * @return Whether samples are stored outside the Java heap.
+	 */
+	public boolean isOffHeap()
+	{
+		return offHeap;
+	}
+
 	public int getSampleRate()
 	{
 		return this.sampleRate;
@@ -833,7 +632,7 @@ public class WAV implements Sound{
 		Channel c = this.data[targetChannel];
 		if (c == null) return;
 		c.changeLength(dlen);
-		for (int i = 0; i < dlen; i++) c.setSample(i, copydata[i]);
+		c.samples.setSamples(0, copydata, 0, Math.min(dlen, c.countSamples()));
 		
 	}
 	
@@ -856,10 +655,12 @@ public class WAV implements Sound{
 		{
 			Channel ch = data[c];
 			if (ch == null) continue;
-			boolean nowsigned = bitDepth <= 8;
-			boolean tsigned = newBitDepth <= 8;
+			//8-bit WAV data is unsigned, the rest is signed
+			boolean nowsigned = bitDepth > 8;
+			boolean tsigned = newBitDepth > 8;
 			ch.scaleBitDepth(bitDepth, newBitDepth, nowsigned, tsigned);
 		}
+		bitDepth = newBitDepth;
 	}
 
 	public void setSMPL_tune(int unityKey, int finetune)
@@ -1001,18 +802,29 @@ public class WAV implements Sound{
 		if (channel < 0) throw new IndexOutOfBoundsException();
 		if (channel >= data.length) throw new IndexOutOfBoundsException();
 		
-		Channel c = data[channel];
-		int frames = c.countSamples();
-		
-		int[] rawsamp = new int[frames];
-		for (int i = 0; i < frames; i++) rawsamp[i] = c.getSample(i);
+		return data[channel].samples.toArray();
+	}
+	
+	/**
+	 * Returns the channel's own storage, not a copy.
+	 */
+	@Override
+	public SampleChannel getSampleChannel(int channel)
+	{
+		if (channel < 0) throw new IndexOutOfBoundsException();
+		if (channel >= data.length) throw new IndexOutOfBoundsException();
 		
-		return rawsamp;
+		return data[channel].samples;
 	}
 
 	public BitDepth getBitDepth()
 	{
-		switch(bitDepth)
+		return toBitDepth(bitDepth);
+	}
+	
+	static BitDepth toBitDepth(int bits)
+	{
+		switch(bits)
 		{
 		case 8: return BitDepth.EIGHT_BIT_UNSIGNED;
 		case 16: return BitDepth.SIXTEEN_BIT_SIGNED;
@@ -1027,47 +839,17 @@ public class WAV implements Sound{
 		if (channel < 0) throw new IndexOutOfBoundsException();
 		if (channel >= data.length) throw new IndexOutOfBoundsException();
 		
-		Channel c = data[channel];
-		int frames = c.countSamples();
-		
-		int[] scaled = new int[frames];
-		
-		BitDepth bd = getBitDepth();
-		
-		switch(bd)
-		{
-		case EIGHT_BIT_UNSIGNED:
-			for (int i = 0; i < frames; i++) 
-			{
-				int samp = c.getSample(i);
-				samp = Sound.scaleSampleUp8Bits(samp, BitDepth.EIGHT_BIT_UNSIGNED);
-				samp = Sound.scaleSampleToSigned(samp, BitDepth.SIXTEEN_BIT_UNSIGNED);
-				scaled[i] = samp;
-			}
-			break;
-		case THIRTYTWO_BIT_SIGNED:
-			for (int i = 0; i < frames; i++) 
-			{
-				int samp = c.getSample(i);
-				samp = Sound.scaleSampleDown8Bits(samp, BitDepth.THIRTYTWO_BIT_SIGNED);
-				samp = Sound.scaleSampleDown8Bits(samp, BitDepth.TWENTYFOUR_BIT_SIGNED);
-				scaled[i] = samp;
-			}
-			break;
-		case TWENTYFOUR_BIT_SIGNED:
-			for (int i = 0; i < frames; i++) 
-			{
-				int samp = c.getSample(i);
-				samp = Sound.scaleSampleDown8Bits(samp, BitDepth.TWENTYFOUR_BIT_SIGNED);
-				scaled[i] = samp;
-			}
-			break;
-		default:
-			for (int i = 0; i < frames; i++) scaled[i] = c.getSample(i);
-			break;
-		}
-		
-		return scaled;
+		return scaleTo16Signed(data[channel].samples.toArray(), getBitDepth());
+	}
+	
+	/**
+	 * Scales the samples in place.
+	 * @return The same array.
+	 */
+	static int[] scaleTo16Signed(int[] raw, BitDepth bd)
+	{
+		if (bd != null) SampleConverter.convert(raw, 0, raw, 0, raw.length, bd, BitDepth.SIXTEEN_BIT_SIGNED);
+		return raw;
 	}
 	
 	public int[] getSamples_24Signed(int channel)
@@ -1075,47 +857,17 @@ public class WAV implements Sound{
 		if (channel < 0) throw new IndexOutOfBoundsException();
 		if (channel >= data.length) throw new IndexOutOfBoundsException();
 		
-		Channel c = data[channel];
-		int frames = c.countSamples();
-		
-		int[] scaled = new int[frames];
-		
-		BitDepth bd = getBitDepth();
-		
-		switch(bd)
-		{
-		case EIGHT_BIT_UNSIGNED:
-			for (int i = 0; i < frames; i++) 
-			{
-				int samp = c.getSample(i);
-				samp = Sound.scaleSampleUp8Bits(samp, BitDepth.EIGHT_BIT_UNSIGNED);
-				samp = Sound.scaleSampleToSigned(samp, BitDepth.SIXTEEN_BIT_UNSIGNED);
-				samp = Sound.scaleSampleUp8Bits(samp, BitDepth.SIXTEEN_BIT_SIGNED);
-				scaled[i] = samp;
-			}
-			break;
-		case THIRTYTWO_BIT_SIGNED:
-			for (int i = 0; i < frames; i++) 
-			{
-				int samp = c.getSample(i);
-				samp = Sound.scaleSampleDown8Bits(samp, BitDepth.THIRTYTWO_BIT_SIGNED);
-				scaled[i] = samp;
-			}
-			break;
-		case SIXTEEN_BIT_SIGNED:
-			for (int i = 0; i < frames; i++) 
-			{
-				int samp = c.getSample(i);
-				samp = Sound.scaleSampleUp8Bits(samp, BitDepth.SIXTEEN_BIT_SIGNED);
-				scaled[i] = samp;
-			}
-			break;
-		default:
-			for (int i = 0; i < frames; i++) scaled[i] = c.getSample(i);
-			break;
-		}
-		
-		return scaled;
+		return scaleTo24Signed(data[channel].samples.toArray(), getBitDepth());
+	}
+	
+	/**
+	 * Scales the samples in place.
+	 * @return The same array.
+	 */
+	static int[] scaleTo24Signed(int[] raw, BitDepth bd)
+	{
+		if (bd != null) SampleConverter.convert(raw, 0, raw, 0, raw.length, bd, BitDepth.TWENTYFOUR_BIT_SIGNED);
+		return raw;
 	}
 	
 	public int totalChannels()
@@ -1139,9 +891,9 @@ public class WAV implements Sound{
 		if (channel < 0) return null;
 		if (channel >= data.length) return null;
 		
-		WAV ch = new WAV(bitDepth, 1, totalFrames());
+		WAV ch = new WAV(bitDepth, 1, 1, offHeap);
 		ch.sampleRate = this.sampleRate;
-		ch.copyData(channel, this.data[channel].samples);
+		ch.data[0] = new Channel(this.data[channel].samples.copy());
 		
 		ch.useSMPL = this.useSMPL;
 		ch.smpl_unityNote = this.smpl_unityNote;
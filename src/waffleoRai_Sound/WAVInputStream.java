@@ -2,361 +2,372 @@ package waffleoRai_Sound;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.nio.ByteBuffer;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 2.0.0
+ * 	Synchronized ByteQueue of 64-byte rows replaced with a preallocated single-producer/single-consumer ring
+ * 	Buffer thread serializes blocks of frames through PCMCodec instead of one frame at a time
+ * 	Buffer thread and reader park and wake each other instead of polling with sleep
+ * 	Bulk reads copy straight out of the ring, and return what's buffered instead of waiting to fill the array
+ * 	mark/reset re-seek the source instead of copying the buffer (the copy was never implemented)
+ * 	advanceMarker is no longer public
+ * 2026.10.19 | 2.0.0 -> 2.0.1
+ * 	Frames are copied out of the WAV's channel storage a block at a time
+ */
+
+/**
+ * InputStream serving the little-endian PCM data of a WAV held in memory, for AudioInputStream.
+ * <br>A daemon thread serializes frames ahead of the reader into a fixed size ring. There is exactly
+ * one writer (the buffer thread) and one reader (whoever calls read), so the ring only needs its
+ * two counters to be volatile - no locks are taken on either side.
+ * <br>Looping WAVs wrap back to the loop frame at the end of the data and never end.
+ * @author Blythe Hospelhorn
+ * @version 2.0.1
+ */
 public class WAVInputStream extends InputStream{
-	
+
+	/* ----- Constants ----- */
+
+	public static final int MIN_BUFFERED_FRAMES = 64;
+	public static final int MAX_BLOCK_FRAMES = 4096;
+
+	//Longest a side parks before checking again, in case a wakeup is missed
+	private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
 	/* ----- Instance Variables ----- */
-	
+
 	private WAV iSource;
-	
+
 	private int iChannels;
 	private int iBytesPerSample;
 	private int iBytesPerFrame;
-	
+
 	private int iCurrentByte;
 	private int iCurrentFrame;
 	private int iLoopFrame;
 	private boolean bEndReached;
-	
-	private int iBufferSize;
-	private int iBufferFrame;
-	private boolean bBufferReachedEnd;
-	
-	private ByteQueue iBuffer;
+
+	private int iBlockFrames;
+
+	private ByteRing iBuffer;
 	private BufferThread iBufferThread;
-	
+
 	private int iNumberFrames;
 	private boolean bLoops;
-	
+
 	private boolean bIsOpen;
-	
+
 	private boolean bMarkSet;
 	private int iMarkedByte;
 	private int iMarkedFrame;
-	private ByteQueue iSavedBuffer;
-	private int iMarkedBufferFrame;
-	private boolean bMarkedBufferReachedEnd;
 	private int iMarkedBytesLeft;
-	
+
+	private byte[] iOneByte;
+
 	/* ----- Construction ----- */
-	
+
 	public WAVInputStream(WAV source, int bufferedFrames)
 	{
 		if (source == null) throw new IllegalArgumentException();
 		iSource = source;
-		
+
 		iChannels = iSource.numberChannels();
 		iBytesPerSample = iSource.getRawBitDepth()/8;
 		iBytesPerFrame = iBytesPerSample * iChannels;
-		iLoopFrame = iSource.getLoopFrame();
-		if (iLoopFrame >= 0) bLoops = true;
-		else bLoops = false;
 		iNumberFrames = iSource.totalFrames();
-		
+		iLoopFrame = iSource.getLoopFrame();
+		bLoops = (iLoopFrame >= 0 && iLoopFrame < iNumberFrames);
+
 		iCurrentByte = 0;
 		iCurrentFrame = 0;
 		bEndReached = false;
-		
-		if (bufferedFrames < 64) bufferedFrames = 64;
-		iBufferSize = bufferedFrames * iBytesPerFrame;
-		iBufferFrame = 0;
-		bBufferReachedEnd = false;
-		
-		iBuffer = new ByteQueue();
-		iBufferThread = new BufferThread();
-		
-		bMarkSet = false;
-		iMarkedByte = -1;
-		iMarkedFrame = -1;
-		iSavedBuffer = null;
-		iMarkedBytesLeft = 0;
-		
+
+		if (bufferedFrames < MIN_BUFFERED_FRAMES) bufferedFrames = MIN_BUFFERED_FRAMES;
+		iBuffer = new ByteRing(bufferedFrames * iBytesPerFrame);
+		//A few blocks fit in the ring so the thread can work ahead of the reader
+		iBlockFrames = Math.min(MAX_BLOCK_FRAMES, (iBuffer.capacity() / iBytesPerFrame) / 4);
+		if (iBlockFrames < 1) iBlockFrames = 1;
+
+		disposeMark();
+		iOneByte = new byte[1];
+
 		//Start
+		iBufferThread = new BufferThread(0, 0);
 		iBufferThread.start();
 		bIsOpen = true;
 	}
-	
+
 	/* ----- Buffer ----- */
-	
-	private static class ByteQueue
+
+	/**
+	 * Fixed size byte ring for exactly one writing thread and one reading thread.
+	 * <br>The counters only ever increase. Each is written by one side only, and read by the
+	 * other to see how much it may use. Data is copied before the counter moving past it is
+	 * published, so the volatile write/read pair orders the copy for the other side.
+	 */
+	private static final class ByteRing
 	{
-		private static final int rowsize = 64;
-		
-		private byte[] readrow;
-		private byte[] writerow;
-		
-		private Deque<byte[]> bytes;
-		
-		private int readpos;
-		private int writepos;
-		
-		public ByteQueue()
+		private final byte[] ring;
+		private final int mask;
+
+		private volatile long written;
+		private volatile long read;
+
+		public ByteRing(int minCapacity)
 		{
-			bytes = new LinkedList<byte[]>();
-			readrow = null;
-			writerow = new byte[rowsize];
-			readpos = 0;
-			writepos = 0;
+			int cap = Integer.highestOneBit(Math.max(minCapacity, 64) - 1) << 1;
+			if (cap <= 0) cap = 1 << 30;
+			ring = new byte[cap];
+			mask = cap - 1;
+			written = 0;
+			read = 0;
 		}
-		
-		public synchronized void writeByte(byte b)
+
+		public int capacity()
 		{
-			if (writepos < rowsize)
-			{
-				writerow[writepos] = b;
-				writepos++;
-			}
-			else
-			{
-				addRow();
-				writepos = 0;
-				writerow[writepos] = b;
-				writepos++;
-			}
+			return ring.length;
 		}
-		
-		public synchronized byte popByte() throws EmptyBufferException
+
+		public int size()
 		{
-			if (readrow == null) popRow();
-			if (readrow == null) throw new EmptyBufferException();
-			if (readpos < rowsize)
-			{
-				byte b = readrow[readpos];
-				readpos++;
-				return b;
-			}
-			else
-			{
-				readpos = 0;
-				popRow();
-				byte b = readrow[readpos];
-				readpos++;
-				return b;
-			}
+			return (int)(written - read);
 		}
-		
-		private void popRow() throws EmptyBufferException
+
+		public int free()
 		{
-			try
-			{
-				readrow = bytes.pop();
-			}
-			catch (Exception e)
-			{
-				throw new EmptyBufferException();
-			}
+			return ring.length - (int)(written - read);
 		}
-		
-		private void addRow()
+
+		/**
+		 * Writer side. Copies as much as fits.
+		 * @return Number of bytes written.
+		 */
+		public int write(byte[] src, int off, int len)
 		{
-			bytes.addLast(writerow);
-			writerow = new byte[rowsize];
+			long w = written;
+			int n = Math.min(len, ring.length - (int)(w - read));
+			if (n <= 0) return 0;
+			int pos = (int)w & mask;
+			int first = Math.min(n, ring.length - pos);
+			System.arraycopy(src, off, ring, pos, first);
+			if (first < n) System.arraycopy(src, off + first, ring, 0, n - first);
+			written = w + n;
+			return n;
 		}
-		
-		public synchronized int size()
+
+		/**
+		 * Reader side. Copies as much as is buffered.
+		 * @return Number of bytes read.
+		 */
+		public int read(byte[] dst, int off, int len)
 		{
-			int nrows = bytes.size();
-			int sz = nrows * rowsize;
-			sz += readpos;
-			sz += rowsize - writepos;
-			return sz;
+			long r = read;
+			int n = Math.min(len, (int)(written - r));
+			if (n <= 0) return 0;
+			int pos = (int)r & mask;
+			int first = Math.min(n, ring.length - pos);
+			System.arraycopy(ring, pos, dst, off, first);
+			if (first < n) System.arraycopy(ring, 0, dst, off + first, n - first);
+			read = r + n;
+			return n;
 		}
-		
-		public synchronized ByteQueue copy()
+
+		/**
+		 * Reader side. Drops as much as is buffered.
+		 * @return Number of bytes dropped.
+		 */
+		public int skip(int len)
 		{
-			return null;
+			long r = read;
+			int n = Math.min(len, (int)(written - r));
+			if (n <= 0) return 0;
+			read = r + n;
+			return n;
 		}
-		
+
+		/**
+		 * Drop everything. Only safe while the writer is stopped.
+		 */
+		public void clear()
+		{
+			read = written;
+		}
+
 	}
 
 	private class BufferThread extends Thread
 	{
-		private boolean bKill;
-		
-		private boolean bPaused;
-		private boolean bPauseRequest;
-		private boolean bUnpauseRequest;
-		
-		public BufferThread()
+		private volatile boolean bKill;
+		private volatile boolean bDone;
+		private volatile boolean bWaiting;
+
+		private int iFrame;
+		private int iSkipBytes;
+
+		public BufferThread(int startFrame, int skipBytes)
 		{
 			Random r = new Random();
 			super.setName("WAVInputStream_BufferDaemon_" + Long.toHexString(r.nextLong()));
 			super.setDaemon(true);
 			bKill = false;
-			bPaused = false;
-			bPauseRequest = false;
-			bUnpauseRequest = false;
+			bDone = false;
+			bWaiting = false;
+			iFrame = startFrame;
+			iSkipBytes = skipBytes;
 		}
-		
+
 		public void run()
 		{
-			while (!killSet())
+			int[][] src = new int[iChannels][iBlockFrames];
+			byte[] block = new byte[iBlockFrames * iBytesPerFrame];
+			ByteBuffer bb = ByteBuffer.wrap(block);
+			int blockPos = 0;
+			int blockLen = 0;
+			while (!bKill)
 			{
-				//Process pause requests
-				if (bPauseRequest) pause();
-				if (bUnpauseRequest) unpause();
-				if(!isPaused())
+				//Serialize the next block
+				if (blockPos >= blockLen)
 				{
-					//Fill buffer to capacity or until end reached
-					while(iBuffer.size() < iBufferSize && !bBufferReachedEnd)
+					if (iFrame >= iNumberFrames)
 					{
-						if (iBufferFrame >= iNumberFrames)
-						{
-							if (bLoops) iBufferFrame = iLoopFrame;
-							else {
-								bBufferReachedEnd = true;
-								break;
-							}
-						}
-						byte[] fullframe = getSerializedFrame(iBufferFrame);
-						for (int i = 0; i < fullframe.length; i++)
-						{
-							iBuffer.writeByte(fullframe[i]);
-						}
-						iBufferFrame++;
+						if (bLoops) iFrame = iLoopFrame;
+						else break;
 					}
+					int n = Math.min(iBlockFrames, iNumberFrames - iFrame);
+					bb.clear();
+					iSource.getFrames(iFrame, src, n);
+					PCMCodec.interleave(src, 0, n, iBytesPerSample, bb);
+					iFrame += n;
+					blockLen = n * iBytesPerFrame;
+					blockPos = Math.min(iSkipBytes, blockLen);
+					iSkipBytes = 0;
 				}
-				//Sleep
-				try 
+
+				//Move as much of it into the ring as fits
+				int w = iBuffer.write(block, blockPos, blockLen - blockPos);
+				blockPos += w;
+				if (w > 0) wakeReader();
+				else
 				{
-					Thread.sleep(100);
-				} 
-				catch (InterruptedException e) {
-					Thread.interrupted();
-					//e.printStackTrace();
+					//Full - wait for the reader to make room
+					bWaiting = true;
+					if (iBuffer.free() == 0 && !bKill) LockSupport.parkNanos(this, PARK_NANOS);
+					bWaiting = false;
 				}
 			}
+			bDone = true;
+			wakeReader();
 		}
-		
-		public synchronized boolean killSet()
-		{
-			return bKill;
-		}
-		
-		public synchronized boolean isPaused()
-		{
-			return bPaused;
-		}
-		
-		private synchronized void pause()
-		{
-			bPauseRequest = false;
-			bPaused = true;
-		}
-		
-		private synchronized void unpause()
-		{
-			bUnpauseRequest = false;
-			bPaused = false;
-		}
-		
-		public synchronized void requestPause()
+
+		public boolean isDone()
 		{
-			bPauseRequest = true;
-			this.interrupt();
+			return bDone;
 		}
-		
-		public synchronized void requestUnpause()
+
+		/**
+		 * Called by the reader after it frees space.
+		 */
+		public void wakeIfWaiting()
 		{
-			bUnpauseRequest = true;
-			this.interrupt();
+			//Let a few frames' worth collect first so the thread fills in bulk
+			if (bWaiting && iBuffer.free() >= iBlockFrames * iBytesPerFrame) LockSupport.unpark(this);
 		}
-		
-		public synchronized void kill()
+
+		public void kill()
 		{
 			bKill = true;
-			this.interrupt();
+			LockSupport.unpark(this);
 		}
-		
-		public synchronized void interruptMe()
+
+		public void killAndWait()
 		{
-			this.interrupt();
+			kill();
+			boolean interrupted = false;
+			while (isAlive())
+			{
+				try
+				{
+					join();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+			}
+			if (interrupted) Thread.currentThread().interrupt();
 		}
 
 	}
-	
-	public byte[] getSerializedFrame(int frameindex)
+
+	private volatile Thread iReaderWaiting;
+
+	private void wakeReader()
+	{
+		Thread t = iReaderWaiting;
+		if (t != null) LockSupport.unpark(t);
+	}
+
+	/**
+	 * Block until there is data in the ring or the buffer thread has finished.
+	 * @return False if the end of the data has been reached.
+	 */
+	private boolean awaitData()
 	{
-		int[] samples = new int[iChannels];
-		for (int c = 0; c < iChannels; c++) samples[c] = iSource.getSample(c, frameindex);
-		byte[] bytes = new byte[samples.length * iBytesPerSample];
-		int i = 0;
-		for (int c = 0; c < iChannels; c++)
+		while (iBuffer.size() == 0)
 		{
-			int s = samples[c];
-			int b0 = s & 0xFF;
-			int b1 = (s >>> 8);
-			int b2 = (s >>> 16);
-			int b3 = (s >>> 24);
-			bytes[i] = (byte)b0; i++;
-			if (iBytesPerSample >= 2) {
-				bytes[i] = (byte)b1; i++; 
-			}
-			if (iBytesPerSample >= 3) {
-				bytes[i] = (byte)b2; i++; 
-			}
-			if (iBytesPerSample == 4) {
-				bytes[i] = (byte)b3; i++; 
-			}
+			//Check done before rechecking size - the thread publishes its last bytes before finishing
+			if (iBufferThread.isDone()) return iBuffer.size() > 0;
+			iReaderWaiting = Thread.currentThread();
+			if (iBuffer.size() == 0 && !iBufferThread.isDone()) LockSupport.parkNanos(this, PARK_NANOS);
+			iReaderWaiting = null;
 		}
+		return true;
+	}
+
+	public byte[] getSerializedFrame(int frameindex)
+	{
+		byte[] bytes = new byte[iBytesPerFrame];
+		int[][] samples = new int[iChannels][1];
+		iSource.getFrames(frameindex, samples, 1);
+		PCMCodec.interleave(samples, 0, 1, iBytesPerSample, ByteBuffer.wrap(bytes));
 		return bytes;
 	}
-	
+
 	public static class EmptyBufferException extends Exception
 	{
 		private static final long serialVersionUID = -7406741361835372063L;
 	}
-	
+
 	/* ----- Mark ----- */
-	
+
 	public void disposeMark()
 	{
 		bMarkSet = false;
-		iSavedBuffer = null;
 		iMarkedByte = -1;
 		iMarkedFrame = -1;
 		iMarkedBytesLeft = 0;
-		iMarkedBufferFrame = -1;
-		bMarkedBufferReachedEnd = false;
 	}
-	
+
 	/* ----- Advancing Marker ----- */
-	
-	public void advanceMarker()
-	{
-		iCurrentByte++;
-		if (iCurrentByte >= iBytesPerFrame)
-		{
-			iCurrentByte = 0;
-			iCurrentFrame++;
-		}
-		
-		if (bMarkSet)
-		{
-			iMarkedBytesLeft--;
-			if (iMarkedBytesLeft <= 0)
-			{
-				disposeMark();
-			}
-		}
-	}
-	
-	public void advanceMarker(int bytes)
+
+	private void advanceMarker(int bytes)
 	{
-		int mod = bytes % iBytesPerFrame;
-		int frames = bytes/iBytesPerFrame;
-		iCurrentFrame += frames;
-		
-		iCurrentByte += mod;
-		if (iCurrentByte >= iBytesPerFrame)
+		long dataBytes = (long)iNumberFrames * iBytesPerFrame;
+		long pos = ((long)iCurrentFrame * iBytesPerFrame) + iCurrentByte + bytes;
+		if (bLoops && pos >= dataBytes)
 		{
-			iCurrentByte = iCurrentByte - iBytesPerFrame;
-			iCurrentFrame++;
+			long loopPos = (long)iLoopFrame * iBytesPerFrame;
+			pos = loopPos + ((pos - dataBytes) % (dataBytes - loopPos));
 		}
-		
+		iCurrentFrame = (int)(pos / iBytesPerFrame);
+		iCurrentByte = (int)(pos % iBytesPerFrame);
+
 		if (bMarkSet)
 		{
 			iMarkedBytesLeft -= bytes;
@@ -366,230 +377,109 @@ public class WAVInputStream extends InputStream{
 			}
 		}
 	}
-	
+
 	/* ----- InputStream Methods ----- */
-	
+
 	public int available()
 	{
 		if (!bIsOpen) return 0;
 		if (bEndReached) return 0;
 		return iBuffer.size();
 	}
-	
+
 	public void close()
 	{
 		if (!bIsOpen) return;
 		iBufferThread.kill();
 		bIsOpen = false;
 	}
-	
+
 	public void mark(int readlimit)
 	{
 		if (!bIsOpen) return;
-		iBufferThread.requestPause();
 		bMarkSet = true;
 		iMarkedByte = iCurrentByte;
 		iMarkedFrame = iCurrentFrame;
 		iMarkedBytesLeft = readlimit;
-		while (!iBufferThread.isPaused())
-		{
-			//Wait
-			try 
-			{
-				Thread.sleep(100);
-			} 
-			catch (InterruptedException e) 
-			{
-				e.printStackTrace();
-			}
-		}
-		
-		iSavedBuffer = iBuffer.copy();
-		iMarkedBufferFrame = iBufferFrame;
-		bMarkedBufferReachedEnd = bBufferReachedEnd;
-		
-		iBufferThread.requestUnpause();
 	}
-	
+
 	public boolean markSupported()
 	{
 		return (bIsOpen && !bEndReached);
 	}
-	
-	private byte getNextByte()
-	{
-		boolean got = false;
-		byte b = -1;
-		while (!got)
-		{
-			try
-			{
-				b = iBuffer.popByte();
-				got = true;
-			}
-			catch (EmptyBufferException e)
-			{
-				//Wait and try again
-				iBufferThread.interruptMe();
-				try 
-				{
-					Thread.sleep(10);
-				} 
-				catch (InterruptedException e1) 
-				{
-					e1.printStackTrace();
-				}
-			}
-		}
-		return b;
-	}
-	
+
 	@Override
-	public int read() throws IOException 
+	public int read() throws IOException
 	{
 		if (!bIsOpen) return -1;
 		if (bEndReached) return -1;
-		if (iCurrentFrame >= iNumberFrames)
-		{
-			if (bLoops) {
-				iCurrentFrame = iLoopFrame;
-				iCurrentByte = 0;
-			}
-			else
-			{
-				bEndReached = true;
-				return -1;
-			}
-		}
-		byte b = getNextByte();
-		advanceMarker();
-		iBufferThread.interruptMe();
-		return Byte.toUnsignedInt(b);
+		if (read(iOneByte, 0, 1) <= 0) return -1;
+		return Byte.toUnsignedInt(iOneByte[0]);
 	}
-	
+
 	public int read(byte[] b)
 	{
-		if (!bIsOpen) return 0;
 		if (b == null) return 0;
-		if (b.length == 0) return 0;
-		int len = b.length;
-		int remaining = len;
-		int read = 0;
-		
-		int i = 0;
-		while (remaining > 0 && !bEndReached)
-		{
-			if (iCurrentFrame >= iNumberFrames)
-			{
-				if (bLoops) {
-					iCurrentFrame = iLoopFrame;
-					iCurrentByte = 0;
-				}
-				else
-				{
-					bEndReached = true;
-					continue;
-				}
-			}
-			
-			b[i] = getNextByte();
-			advanceMarker();
-			remaining--;
-			read++;
-			i++;
-		}
-		
-		iBufferThread.interruptMe();
-		return read;
+		return read(b, 0, b.length);
 	}
-	
+
+	/**
+	 * Copies up to len bytes from the buffer, waiting only if nothing is buffered yet.
+	 */
 	public int read(byte[] b, int off, int len)
 	{
-		if (!bIsOpen) return 0;
+		if (!bIsOpen) return -1;
 		if (b == null) return 0;
-		if (b.length == 0) return 0;
+		if (len <= 0) return 0;
+		if (bEndReached) return -1;
 
-		int remaining = len;
-		int read = 0;
-		
-		int bi = off;
-		while (remaining > 0 && !bEndReached)
+		if (!awaitData())
 		{
-			if (iCurrentFrame >= iNumberFrames)
-			{
-				if (bLoops) {
-					iCurrentFrame = iLoopFrame;
-					iCurrentByte = 0;
-				}
-				else
-				{
-					bEndReached = true;
-					continue;
-				}
-			}
-			
-			b[bi] = getNextByte();
-			advanceMarker();
-			remaining--;
-			read++;
-			bi++;
+			bEndReached = true;
+			return -1;
 		}
-		
-		iBufferThread.interruptMe();
+		int read = iBuffer.read(b, off, len);
+		iBufferThread.wakeIfWaiting();
+		advanceMarker(read);
 		return read;
 	}
-	
+
 	public void reset()
 	{
 		if (!bIsOpen) return;
 		if (!bMarkSet) return;
-		iBufferThread.requestPause();
-		
+
+		//Stop the thread, drop what it buffered, and restart it at the mark
+		iBufferThread.killAndWait();
+		iBuffer.clear();
 		iCurrentByte = iMarkedByte;
 		iCurrentFrame = iMarkedFrame;
-		
-		while (!iBufferThread.isPaused())
-		{
-			//Wait
-			try 
-			{
-				Thread.sleep(100);
-			} 
-			catch (InterruptedException e) 
-			{
-				e.printStackTrace();
-			}
-		}
-		
-		iBuffer = iSavedBuffer;
-		iBufferFrame = iMarkedBufferFrame;
-		bBufferReachedEnd = bMarkedBufferReachedEnd;
-		
-		iBufferThread.requestUnpause();
+		bEndReached = false;
+		iBufferThread = new BufferThread(iCurrentFrame, iCurrentByte);
+		iBufferThread.start();
 	}
-	
+
 	public long skip(long n)
 	{
 		if (!bIsOpen) return 0;
 		if (n <= 0) return 0;
 		long skipped = 0;
-		
-		try 
+
+		while (skipped < n && !bEndReached)
 		{
-			int i = read();
-			while ((i != -1) && (skipped < n))
+			if (!awaitData())
 			{
-				i = read();
-				skipped++;
+				bEndReached = true;
+				break;
 			}
-		} 
-		catch (IOException e) 
-		{
-			return skipped;
+			int s = iBuffer.skip((int)Math.min(n - skipped, Integer.MAX_VALUE));
+			iBufferThread.wakeIfWaiting();
+			advanceMarker(s);
+			skipped += s;
 		}
-		
+
 		return skipped;
 	}
 
-	
+
 }
@@ -0,0 +1,256 @@
+package waffleoRai_Sound;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import waffleoRai_Utils.FileBuffer;
+import waffleoRai_Utils.FileBuffer.UnsupportedFileTypeException;
+
+/**
+ * Chunk layout of a PCM WAV file - format, where the sample data is, and the smpl chunk if
+ * there is one - read without touching the sample data.
+ * <br>Chunks are found by walking the RIFF chunk list. Only the fmt and smpl chunks are read.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+public class WAVLayout {
+
+	/* ----- Instance Variables ----- */
+
+	private int sampleRate;
+	private int channels;
+	private int bitDepth;
+
+	private long dataPos;
+	private long dataSize;
+
+	private boolean hasSMPL;
+	private int unityNote;
+	private int pitchTune;
+	private List<Loop> loops;
+
+	/* ----- Inner Classes ----- */
+
+	/**
+	 * One loop record from a smpl chunk.
+	 */
+	public static class Loop
+	{
+		private int id;
+		private int type;
+		private int start;
+		private int end;
+		private int fraction;
+		private int playCount;
+
+		public int getID(){return id;}
+		public int getType(){return type;}
+		public int getStart(){return start;}
+		public int getEnd(){return end;}
+		public int getFraction(){return fraction;}
+		public int getPlayCount(){return playCount;}
+	}
+
+	/* ----- Parsing ----- */
+
+	private WAVLayout()
+	{
+		loops = new ArrayList<Loop>(1);
+	}
+
+	static String readChunkID(ByteBuffer buff, int pos)
+	{
+		char[] id = new char[4];
+		for (int i = 0; i < 4; i++) id[i] = (char)Byte.toUnsignedInt(buff.get(pos + i));
+		return new String(id);
+	}
+
+	private static ByteBuffer readBlock(FileChannel ch, long pos, int len) throws IOException
+	{
+		ByteBuffer buff = ByteBuffer.allocate(len);
+		buff.order(ByteOrder.LITTLE_ENDIAN);
+		try
+		{
+			PCMCodec.readFully(ch, buff, pos);
+		}
+		catch (EOFException e)
+		{
+			return null;
+		}
+		buff.flip();
+		return buff;
+	}
+
+	/**
+	 * Read the chunk layout of a WAV file.
+	 * @param ch Channel to read. Reads are positional, so the channel's position isn't changed.
+	 * @return Layout of the file.
+	 * @throws IOException If the channel can't be read.
+	 * @throws UnsupportedFileTypeException If the file isn't a WAV, has no fmt or data chunk, or isn't 8/16/24/32-bit PCM.
+	 */
+	public static WAVLayout read(FileChannel ch) throws IOException, UnsupportedFileTypeException
+	{
+		//Check for magics
+		long sz = ch.size();
+		ByteBuffer head = readBlock(ch, 0, 12);
+		if (head == null) throw new FileBuffer.UnsupportedFileTypeException();
+		if (!WAV.MAG0.equals(readChunkID(head, 0))) throw new FileBuffer.UnsupportedFileTypeException();
+		if (!WAV.MAG1.equals(readChunkID(head, 8))) throw new FileBuffer.UnsupportedFileTypeException();
+
+		//Walk chunks, only reading the small ones
+		WAVLayout l = new WAVLayout();
+		long cPos = 12;
+		ByteBuffer fmt = null;
+		ByteBuffer smpl = null;
+		l.dataPos = -1;
+		while (cPos + 8 <= sz)
+		{
+			ByteBuffer chead = readBlock(ch, cPos, 8);
+			String id = readChunkID(chead, 0);
+			long csz = Integer.toUnsignedLong(chead.getInt(4));
+			long body = cPos + 8;
+			if (body + csz > sz) csz = sz - body; //Truncated (or streamed with no size)
+			if (id.equals(WAV.MAG_FMT)) fmt = readBlock(ch, body, (int)Math.min(csz, 0x100));
+			else if (id.equals(WAV.MAG_DATA))
+			{
+				l.dataPos = body;
+				l.dataSize = csz;
+			}
+			else if (id.equals(WAV.MAG_SMPL)) smpl = readBlock(ch, body, (int)Math.min(csz, 0x10000));
+			cPos = body + csz + (csz & 1);
+		}
+
+		//fmt - Mandatory chunk
+		if (fmt == null || fmt.limit() < 16) throw new FileBuffer.UnsupportedFileTypeException();
+		short compCode = fmt.getShort(0);
+		//Right now, we'll only deal with uncompressed PCM. Maybe add more later.
+		if (compCode != 1) throw new FileBuffer.UnsupportedFileTypeException();
+		l.channels = Short.toUnsignedInt(fmt.getShort(2));
+		l.sampleRate = fmt.getInt(4);
+		//Skip average bytes per second and block align
+		l.bitDepth = Short.toUnsignedInt(fmt.getShort(14));
+		if (l.channels < 1) throw new FileBuffer.UnsupportedFileTypeException();
+		int bdBytes = l.bitDepth/8;
+		if (bdBytes < 1 || bdBytes > 4) throw new FileBuffer.UnsupportedFileTypeException();
+
+		//data - Mandatory chunk
+		if (l.dataPos < 0) throw new FileBuffer.UnsupportedFileTypeException();
+
+		//smpl
+		l.hasSMPL = false;
+		if (smpl == null || smpl.limit() < 36) return l;
+		l.hasSMPL = true;
+		//Skip manufacturer, product and sample period
+		l.unityNote = smpl.getInt(12);
+		l.pitchTune = smpl.getInt(16);
+		//Skip SMPTE stuff
+		int loopCount = smpl.getInt(28);
+		//Skip sampler data
+		int lPos = 36;
+
+		//Read sample loops
+		for (int i = 0; i < loopCount; i++)
+		{
+			if (lPos + 24 > smpl.limit()) break;
+			Loop loop = new Loop();
+			loop.id = smpl.getInt(lPos);
+			loop.type = smpl.getInt(lPos + 4);
+			loop.start = smpl.getInt(lPos + 8);
+			loop.end = smpl.getInt(lPos + 12);
+			loop.fraction = smpl.getInt(lPos + 16);
+			loop.playCount = smpl.getInt(lPos + 20);
+			lPos += 24;
+			l.loops.add(loop);
+		}
+
+		return l;
+	}
+
+	/* ----- Getters ----- */
+
+	public int getSampleRate()
+	{
+		return sampleRate;
+	}
+
+	public int getChannelCount()
+	{
+		return channels;
+	}
+
+	public int getBitDepth()
+	{
+		return bitDepth;
+	}
+
+	public int getBytesPerSample()
+	{
+		return bitDepth/8;
+	}
+
+	public int getBytesPerFrame()
+	{
+		return (bitDepth/8) * channels;
+	}
+
+	/**
+	 * @return Position in the file of the first sample.
+	 */
+	public long getDataPosition()
+	{
+		return dataPos;
+	}
+
+	/**
+	 * @return Size of the data chunk in bytes, cut to the end of the file if the chunk claims to run past it.
+	 */
+	public long getDataSize()
+	{
+		return dataSize;
+	}
+
+	/**
+	 * @return Number of whole frames in the data chunk.
+	 */
+	public long getFrameCount()
+	{
+		return dataSize / getBytesPerFrame();
+	}
+
+	/**
+	 * @param frame Frame index.
+	 * @return Position in the file of the frame.
+	 */
+	public long getFramePosition(long frame)
+	{
+		return dataPos + (frame * getBytesPerFrame());
+	}
+
+	public boolean hasSMPL()
+	{
+		return hasSMPL;
+	}
+
+	public int getUnityNote()
+	{
+		return unityNote;
+	}
+
+	public int getPitchTune()
+	{
+		return pitchTune;
+	}
+
+	public List<Loop> getLoops()
+	{
+		return Collections.unmodifiableList(loops);
+	}
+
+}
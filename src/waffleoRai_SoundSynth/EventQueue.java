@@ -0,0 +1,101 @@
+package waffleoRai_SoundSynth;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of packed MIDI channel messages, from any number of sending threads
+ * to one render thread.
+ * <br>Each slot has a sequence number. A sender claims a slot by moving the tail forward with a
+ * CAS, writes the message, then publishes it by advancing the slot's sequence; the reader
+ * frees the slot by advancing it again a lap ahead. Neither side locks or allocates.
+ * <br>Messages are packed as status | (data1 << 8) | (data2 << 16).
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+class EventQueue {
+
+	/* ----- Instance Variables ----- */
+
+	private int mask;
+	private int[] messages;
+	private AtomicLongArray seqs;
+
+	private AtomicLong tail;
+	private long head; //Reader only
+
+	private AtomicLong dropped;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * @param capacity Minimum number of messages held. Rounded up to a power of two.
+	 */
+	public EventQueue(int capacity)
+	{
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		mask = size - 1;
+		messages = new int[size];
+		seqs = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) seqs.set(i, i);
+		tail = new AtomicLong();
+		dropped = new AtomicLong();
+	}
+
+	/* ----- Getters ----- */
+
+	public int getCapacity(){return mask + 1;}
+
+	/**
+	 * @return Number of messages turned away because the queue was full.
+	 */
+	public long getDroppedCount(){return dropped.get();}
+
+	/* ----- Queue ----- */
+
+	/**
+	 * Add a message. Safe to call from any thread.
+	 * @param msg Packed message (non-negative).
+	 * @return False if the queue was full and the message was dropped.
+	 */
+	public boolean offer(int msg)
+	{
+		long t = tail.get();
+		while (true)
+		{
+			int idx = (int)t & mask;
+			long d = seqs.get(idx) - t;
+			if (d == 0)
+			{
+				if (tail.compareAndSet(t, t + 1))
+				{
+					messages[idx] = msg;
+					seqs.lazySet(idx, t + 1);
+					return true;
+				}
+			}
+			else if (d < 0)
+			{
+				dropped.incrementAndGet();
+				return false;
+			}
+			t = tail.get();
+		}
+	}
+
+	/**
+	 * Take the next message. Only the render thread may call this.
+	 * @return Packed message, or -1 if there isn't one.
+	 */
+	public int poll()
+	{
+		int idx = (int)head & mask;
+		if (seqs.get(idx) != head + 1) return -1;
+		int msg = messages[idx];
+		seqs.lazySet(idx, head + mask + 1);
+		head++;
+		return msg;
+	}
+
+}
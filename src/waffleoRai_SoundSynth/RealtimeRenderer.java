@@ -0,0 +1,184 @@
+package waffleoRai_SoundSynth;
+
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Render thread for live playback: pulls messages from an EventQueue at the start of each block,
+ * renders the block on a single preallocated VoiceGroup, and writes it to a SourceDataLine as
+ * 16-bit signed little-endian stereo. The line's blocking write paces the thread.
+ * <br>Everything the loop touches is allocated up front (samples must already be in the synth's
+ * cache), so the audio thread doesn't allocate once running.
+ * <br>Messages take effect at the start of the next block, so timing jitter is at most one block.
+ * <br>Statistics are written only by the render thread and read from anywhere.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+class RealtimeRenderer implements Runnable {
+
+	/* ----- Instance Variables ----- */
+
+	private SoundSynth synth;
+	private SourceDataLine line;
+	private EventQueue events;
+	private VoiceGroup group;
+
+	private int blockFrames;
+	private byte[] out;
+
+	private Thread thread;
+	private volatile boolean running;
+
+		//Stats
+	private volatile long blocks;
+	private volatile long underruns;
+	private volatile long lateBlocks;
+	private volatile long renderTotal;
+	private volatile long renderMax;
+	private volatile long renderLast;
+	private volatile int activeVoices;
+	private volatile boolean resetRequested;
+
+	/* ----- Construction ----- */
+
+	/**
+	 * @param parent Synth to render for. Its voice count is read here.
+	 * @param output Open line to write to.
+	 * @param frames Frames rendered and written per block.
+	 * @param queueSize Capacity of the event queue.
+	 */
+	public RealtimeRenderer(SoundSynth parent, SourceDataLine output, int frames, int queueSize)
+	{
+		synth = parent;
+		line = output;
+		blockFrames = frames;
+		events = new EventQueue(queueSize);
+		group = new VoiceGroup(parent, parent.getMaxVoices(), blockFrames);
+		out = new byte[blockFrames << 2];
+	}
+
+	/* ----- Control ----- */
+
+	public synchronized void start()
+	{
+		if (running) return;
+		running = true;
+		line.start();
+		thread = new Thread(this, "SoundSynth.Realtime");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	public synchronized void stop()
+	{
+		if (!running) return;
+		running = false;
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+		line.stop();
+		line.flush();
+	}
+
+	public boolean isRunning(){return running;}
+
+	public EventQueue getQueue(){return events;}
+	public SourceDataLine getLine(){return line;}
+
+	/* ----- Stats ----- */
+
+	public long getBlockCount(){return blocks;}
+	public long getUnderrunCount(){return underruns;}
+	public long getLateBlockCount(){return lateBlocks;}
+	public long getRenderNanosTotal(){return renderTotal;}
+	public long getRenderNanosMax(){return renderMax;}
+	public long getRenderNanosLast(){return renderLast;}
+	public int getActiveVoiceCount(){return activeVoices;}
+	public int getBlockFrames(){return blockFrames;}
+
+	/**
+	 * Ask the render thread to zero its counters before its next block.
+	 */
+	public void requestStatsReset()
+	{
+		resetRequested = true;
+	}
+
+	/* ----- Render ----- */
+
+	private void renderBlock()
+	{
+		int msg = 0;
+		while ((msg = events.poll()) >= 0) group.message(msg & 0xFF, (msg >>> 8) & 0xFF, (msg >>> 16) & 0xFF);
+
+		group.clear(blockFrames);
+		int pos = 0;
+		int sub = synth.getBlockSize();
+		while (pos < blockFrames)
+		{
+			//Envelope and gain updates stay as fine as offline however big the output block is
+			int n = Math.min(sub, blockFrames - pos);
+			group.render(pos, n);
+			pos += n;
+		}
+
+		//Straight to 16-bit little-endian bytes
+		float[] l = group.getLeft();
+		float[] r = group.getRight();
+		float gain = synth.getMasterVolume() * 32768f;
+		int j = 0;
+		for (int i = 0; i < blockFrames; i++)
+		{
+			int sl = Math.max(-32768, Math.min(32767, Math.round(l[i] * gain)));
+			int sr = Math.max(-32768, Math.min(32767, Math.round(r[i] * gain)));
+			out[j++] = (byte)sl;
+			out[j++] = (byte)(sl >>> 8);
+			out[j++] = (byte)sr;
+			out[j++] = (byte)(sr >>> 8);
+		}
+	}
+
+	public void run()
+	{
+		long period = ((long)blockFrames * 1000000000L) / (long)synth.getSampleRate();
+		int bufferSize = line.getBufferSize();
+		boolean primed = false;
+		while (running)
+		{
+			if (resetRequested)
+			{
+				resetRequested = false;
+				blocks = 0;
+				underruns = 0;
+				lateBlocks = 0;
+				renderTotal = 0;
+				renderMax = 0;
+			}
+
+			long t0 = System.nanoTime();
+			renderBlock();
+			long t = System.nanoTime() - t0;
+
+			blocks++;
+			renderLast = t;
+			renderTotal += t;
+			if (t > renderMax) renderMax = t;
+			if (t > period) lateBlocks++;
+			activeVoices = group.countActiveVoices();
+
+			//Once the line has been filled, finding it empty again means it ran dry
+			int avail = line.available();
+			if (primed && avail >= bufferSize) underruns++;
+			if (avail < out.length) primed = true;
+			line.write(out, 0, out.length);
+		}
+		group.reset();
+	}
+
+}
@@ -1,5 +1,882 @@
 package waffleoRai_SoundSynth;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import waffleoRai_SeqSound.MIDI;
+import waffleoRai_SeqSound.SortableMidiEvent;
+import waffleoRai_Sound.BitDepth;
+import waffleoRai_Sound.PCMCodec;
+import waffleoRai_Sound.SampleChannel;
+import waffleoRai_Sound.SampleConverter;
+import waffleoRai_Sound.WAV;
+import waffleoRai_soundbank.SimpleBank;
+import waffleoRai_soundbank.SimplePreset;
+import waffleoRai_soundbank.SingleBank;
+import waffleoRai_soundbank.SoundSample;
+
+/**
+ * Sample based synthesizer that plays MIDI through a SimpleBank.
+ * <br>Notes are matched against preset and instrument regions by key and velocity, and each match
+ * plays its sample on a voice from a fixed pool: interpolated, looped, shaped by the region's ADSR
+ * envelope, and panned and scaled by region, instrument, preset and channel volume/pan.
+ * <br>Rendering is done in blocks of at most getBlockSize() frames. Blocks are split at event times,
+ * so events land on the exact frame. The 16 MIDI channels are dealt out to a number of voice groups
+ * (one per thread); each group has its own voices and renders independently, and the groups are
+ * rendered in parallel a segment (DEFO_SEGMENT_FRAMES frames) at a time and mixed.
+ * <br>Samples are converted to float the first time they're played and cached.
+ * <br>The synth can also play live: startRealtime() starts a thread that renders small blocks
+ * straight to a SourceDataLine, and messages sent with sendMessage() (or through getReceiver())
+ * from any thread are queued without locking and applied at the start of the next block. Live
+ * mode uses a single voice group and allocates nothing once started.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
 public class SoundSynth {
 
+	/* ----- Constants ----- */
+
+	public static final int MIDI_CHANNELS = 16;
+
+	public static final int DEFO_SAMPLE_RATE = 44100;
+	public static final int DEFO_BLOCK_FRAMES = 64;
+	public static final int DEFO_SEGMENT_FRAMES = 0x2000;
+	public static final int DEFO_MAX_VOICES = 128;
+	public static final float DEFO_MASTER_GAIN = 0.5f;
+
+	public static final int MAX_TAIL_SECONDS = 10;
+
+	public static final int DEFO_RT_BLOCK_FRAMES = 256;
+	public static final int DEFO_RT_BUFFER_BLOCKS = 4;
+	public static final int RT_QUEUE_SIZE = 1024;
+
+	private static final int TEMPO_META = 0x51;
+	private static final int DEFO_TEMPO = 500000; //us per quarter note
+
+	public static enum Interpolation
+	{
+		NONE,
+		LINEAR,
+		CUBIC;
+	}
+
+	/* ----- Instance Variables ----- */
+
+	private SimpleBank bank;
+	private int sampleRate;
+
+	private int blockFrames;
+	private int maxVoices;
+	private int threads;
+	private volatile Interpolation interp;
+	private volatile float masterGain;
+
+	private ConcurrentHashMap<String, SynthSample> samples;
+
+	private volatile RealtimeRenderer live;
+	private boolean ownLine;
+
+	/* ----- Construction ----- */
+
+	public SoundSynth(SimpleBank soundbank)
+	{
+		this(soundbank, DEFO_SAMPLE_RATE);
+	}
+
+	/**
+	 * @param soundbank Bank to play.
+	 * @param outputRate Output sample rate.
+	 */
+	public SoundSynth(SimpleBank soundbank, int outputRate)
+	{
+		if (soundbank == null || outputRate < 1) throw new IllegalArgumentException();
+		bank = soundbank;
+		sampleRate = outputRate;
+		blockFrames = DEFO_BLOCK_FRAMES;
+		maxVoices = DEFO_MAX_VOICES;
+		threads = Runtime.getRuntime().availableProcessors();
+		interp = Interpolation.LINEAR;
+		masterGain = DEFO_MASTER_GAIN;
+		samples = new ConcurrentHashMap<String, SynthSample>();
+	}
+
+	/* ----- Getters ----- */
+
+	public SimpleBank getBank(){return bank;}
+	public int getSampleRate(){return sampleRate;}
+	public int getBlockSize(){return blockFrames;}
+	public int getMaxVoices(){return maxVoices;}
+	public int getThreadCount(){return threads;}
+	public Interpolation getInterpolation(){return interp;}
+	public float getMasterVolume(){return masterGain;}
+
+	/**
+	 * Get a bank sample prepared for playback, preparing it if this is the first time.
+	 * @param key Sample key in the bank.
+	 * @return Sample, or null if the bank doesn't have it.
+	 */
+	SynthSample getSample(String key)
+	{
+		if (key == null) return null;
+		SynthSample s = samples.get(key);
+		if (s != null) return s;
+		SoundSample ss = bank.getSample(key);
+		if (ss == null || ss.getSound() == null) return null;
+		s = new SynthSample(ss.getSound());
+		SynthSample prev = samples.putIfAbsent(key, s);
+		return (prev != null) ? prev : s;
+	}
+
+	/**
+	 * Look up a preset, falling back to the same program in bank 0.
+	 * @param bankIndex Bank index.
+	 * @param program Program number.
+	 * @return Preset, or null if there is none.
+	 */
+	SimplePreset findPreset(int bankIndex, int program)
+	{
+		SingleBank b = bank.getBank(bankIndex);
+		SimplePreset p = (b != null) ? b.getPreset(program) : null;
+		if (p != null || bankIndex == 0) return p;
+		b = bank.getBank(0);
+		return (b != null) ? b.getPreset(program) : null;
+	}
+
+	/* ----- Setters ----- */
+
+	/**
+	 * @param frames Longest run of frames rendered between envelope and gain updates.
+	 */
+	public void setBlockSize(int frames)
+	{
+		if (frames < 1) throw new IllegalArgumentException();
+		blockFrames = frames;
+	}
+
+	/**
+	 * @param count Voices shared by all channels. Each voice group gets an equal part.
+	 */
+	public void setMaxVoices(int count)
+	{
+		if (count < 1) throw new IllegalArgumentException();
+		maxVoices = count;
+	}
+
+	/**
+	 * @param count Number of threads (and voice groups) to render with. Values below 1 use one per processor.
+	 * No more than 16 are used.
+	 */
+	public void setThreadCount(int count)
+	{
+		if (count < 1) count = Runtime.getRuntime().availableProcessors();
+		threads = count;
+	}
+
+	public void setInterpolation(Interpolation i)
+	{
+		if (i == null) return;
+		interp = i;
+	}
+
+	/**
+	 * @param gain Linear gain applied to the final mix.
+	 */
+	public void setMasterVolume(float gain)
+	{
+		masterGain = gain;
+	}
+
+	/**
+	 * Drop cached sample data (for instance after samples in the bank are replaced).
+	 */
+	public void clearSampleCache()
+	{
+		samples.clear();
+	}
+
+	/**
+	 * Prepare every sample in the bank now rather than when it's first played.
+	 * @return Number of samples cached.
+	 */
+	public int preloadSamples()
+	{
+		int n = 0;
+		for (String k : bank.getAllSampleKeys())
+		{
+			if (getSample(k) != null) n++;
+		}
+		return n;
+	}
+
+	/* ----- Offline Rendering ----- */
+
+	private static class DaemonFactory implements ThreadFactory
+	{
+		private int count = 0;
+
+		public synchronized Thread newThread(Runnable r)
+		{
+			Thread t = new Thread(r, "SoundSynth.Renderer" + (count++));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * One pass through a sequence. Events are timed and split by group up front, then each
+	 * call to renderSegment renders every group's next segment (in parallel) and mixes them.
+	 */
+	private class OfflineRender
+	{
+		private VoiceGroup[] groups;
+		private long[][] evFrame;
+		private int[][] evMsg;
+		private int[] evPos;
+
+		private long frame;
+		private long endFrame;
+		private long maxFrame;
+		private boolean done;
+
+		private float[] outL;
+		private float[] outR;
+
+		private ExecutorService pool;
+		private List<Callable<Void>> tasks;
+
+		public OfflineRender(Sequence seq)
+		{
+			int ngroups = Math.max(1, Math.min(threads, MIDI_CHANNELS));
+			int gvoices = (maxVoices + ngroups - 1) / ngroups;
+			groups = new VoiceGroup[ngroups];
+			for (int g = 0; g < ngroups; g++) groups[g] = new VoiceGroup(SoundSynth.this, gvoices, DEFO_SEGMENT_FRAMES);
+			outL = new float[DEFO_SEGMENT_FRAMES];
+			outR = new float[DEFO_SEGMENT_FRAMES];
+			scheduleEvents(seq);
+			maxFrame = endFrame + ((long)MAX_TAIL_SECONDS * sampleRate);
+
+			if (ngroups > 1)
+			{
+				pool = Executors.newFixedThreadPool(ngroups, new DaemonFactory());
+				tasks = new ArrayList<Callable<Void>>(ngroups);
+				for (int g = 0; g < ngroups; g++)
+				{
+					final int gi = g;
+					tasks.add(new Callable<Void>(){
+						public Void call()
+						{
+							renderGroup(gi, segmentLength());
+							return null;
+						}
+					});
+				}
+			}
+		}
+
+		private void scheduleEvents(Sequence seq)
+		{
+			List<SortableMidiEvent> events = new ArrayList<SortableMidiEvent>();
+			for (Track t : seq.getTracks())
+			{
+				int n = t.size();
+				for (int i = 0; i < n; i++)
+				{
+					MidiEvent e = t.get(i);
+					MidiMessage m = e.getMessage();
+					if (m instanceof ShortMessage) events.add(new SortableMidiEvent(e));
+					else if (m instanceof MetaMessage && ((MetaMessage)m).getType() == TEMPO_META) events.add(new SortableMidiEvent(e));
+				}
+			}
+			Collections.sort(events);
+
+			//Ticks to frames, following tempo changes when timing is in quarter notes
+			boolean ppq = (seq.getDivisionType() == Sequence.PPQ);
+			double res = (double)seq.getResolution();
+			double usPerTick = ppq ? ((double)DEFO_TEMPO / res) : (1000000.0 / ((double)seq.getDivisionType() * res));
+			double framesPerUs = (double)sampleRate / 1000000.0;
+			long lastTick = 0;
+			double lastFrame = 0.0;
+
+			int ngroups = groups.length;
+			int[] counts = new int[ngroups];
+			long[] frames = new long[events.size()];
+			int i = 0;
+			for (SortableMidiEvent se : events)
+			{
+				MidiEvent e = se.getEvent();
+				double f = lastFrame + ((double)(e.getTick() - lastTick) * usPerTick * framesPerUs);
+				frames[i++] = Math.round(f);
+				MidiMessage m = e.getMessage();
+				if (m instanceof MetaMessage)
+				{
+					if (!ppq) continue;
+					byte[] d = ((MetaMessage)m).getData();
+					if (d.length < 3) continue;
+					int tempo = ((d[0] & 0xFF) << 16) | ((d[1] & 0xFF) << 8) | (d[2] & 0xFF);
+					if (tempo <= 0) continue;
+					lastTick = e.getTick();
+					lastFrame = f;
+					usPerTick = (double)tempo / res;
+				}
+				else counts[((ShortMessage)m).getChannel() % ngroups]++;
+			}
+
+			evFrame = new long[ngroups][];
+			evMsg = new int[ngroups][];
+			evPos = new int[ngroups];
+			for (int g = 0; g < ngroups; g++)
+			{
+				evFrame[g] = new long[counts[g]];
+				evMsg[g] = new int[counts[g]];
+				counts[g] = 0;
+			}
+			i = 0;
+			endFrame = 0;
+			for (SortableMidiEvent se : events)
+			{
+				long f = frames[i++];
+				MidiMessage m = se.getEvent().getMessage();
+				if (!(m instanceof ShortMessage)) continue;
+				ShortMessage sm = (ShortMessage)m;
+				int g = sm.getChannel() % ngroups;
+				evFrame[g][counts[g]] = f;
+				evMsg[g][counts[g]] = sm.getStatus() | (sm.getData1() << 8) | (sm.getData2() << 16);
+				counts[g]++;
+				if (f > endFrame) endFrame = f;
+			}
+		}
+
+		private int segmentLength()
+		{
+			return (int)Math.min(DEFO_SEGMENT_FRAMES, maxFrame - frame);
+		}
+
+		private void renderGroup(int gi, int frames)
+		{
+			VoiceGroup g = groups[gi];
+			long[] ef = evFrame[gi];
+			int[] em = evMsg[gi];
+			int p = evPos[gi];
+			g.clear(frames);
+			int pos = 0;
+			while (pos < frames)
+			{
+				long now = frame + pos;
+				while (p < ef.length && ef[p] <= now)
+				{
+					int msg = em[p++];
+					g.message(msg & 0xFF, (msg >>> 8) & 0xFF, (msg >>> 16) & 0xFF);
+				}
+				int n = Math.min(blockFrames, frames - pos);
+				if (p < ef.length && ef[p] < now + n) n = (int)(ef[p] - now);
+				g.render(pos, n);
+				pos += n;
+			}
+			evPos[gi] = p;
+		}
+
+		/**
+		 * @return Frames rendered into outL/outR, or 0 once the sequence and all voices have ended.
+		 */
+		public int renderSegment() throws InterruptedException
+		{
+			if (done) return 0;
+			int frames = segmentLength();
+			if (pool == null) renderGroup(0, frames);
+			else
+			{
+				for (Future<Void> f : pool.invokeAll(tasks))
+				{
+					try
+					{
+						f.get();
+					}
+					catch (ExecutionException e)
+					{
+						e.printStackTrace();
+					}
+				}
+			}
+
+			float[] l0 = groups[0].getLeft();
+			float[] r0 = groups[0].getRight();
+			for (int i = 0; i < frames; i++)
+			{
+				outL[i] = l0[i];
+				outR[i] = r0[i];
+			}
+			for (int g = 1; g < groups.length; g++)
+			{
+				float[] l = groups[g].getLeft();
+				float[] r = groups[g].getRight();
+				for (int i = 0; i < frames; i++)
+				{
+					outL[i] += l[i];
+					outR[i] += r[i];
+				}
+			}
+			float gain = masterGain;
+			for (int i = 0; i < frames; i++)
+			{
+				outL[i] *= gain;
+				outR[i] *= gain;
+			}
+
+			frame += frames;
+			if (frame >= maxFrame) done = true;
+			else if (frame > endFrame)
+			{
+				done = true;
+				for (VoiceGroup g : groups)
+				{
+					if (g.countActiveVoices() > 0)
+					{
+						done = false;
+						break;
+					}
+				}
+			}
+			return frames;
+		}
+
+		public long getEndFrame(){return endFrame;}
+		public float[] getLeft(){return outL;}
+		public float[] getRight(){return outR;}
+
+		public void close()
+		{
+			if (pool != null) pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Render a sequence to a stereo WAV.
+	 * <br>The WAV ends when the last voice has finished after the last event (or MAX_TAIL_SECONDS after it).
+	 * @param seq Sequence to play.
+	 * @param bitDepth Output bits per sample (8, 16, 24 or 32).
+	 * @return Rendered sound.
+	 * @throws InterruptedException If interrupted while waiting on render threads.
+	 */
+	public WAV render(Sequence seq, int bitDepth) throws InterruptedException
+	{
+		OfflineRender r = new OfflineRender(seq);
+		try
+		{
+			long est = Math.min(r.getEndFrame() + sampleRate, Integer.MAX_VALUE);
+			WAV wav = new WAV(bitDepth, 2, (int)Math.max(est, 1));
+			wav.setSampleRate(sampleRate);
+			BitDepth bd = wav.getBitDepth();
+			if (bd == null) throw new IllegalArgumentException("SoundSynth: Unsupported bit depth: " + bitDepth);
+			SampleChannel left = wav.getSampleChannel(0);
+			SampleChannel right = wav.getSampleChannel(1);
+
+			int[] ibuff = new int[DEFO_SEGMENT_FRAMES];
+			int pos = 0;
+			int n = 0;
+			while ((n = r.renderSegment()) > 0)
+			{
+				if (pos + n > left.countSamples())
+				{
+					int len = (int)Math.min((long)left.countSamples() << 1, Integer.MAX_VALUE);
+					left.setLength(len);
+					right.setLength(len);
+				}
+				SampleConverter.fromFloat(r.getLeft(), 0, ibuff, 0, n, bd);
+				left.setSamples(pos, ibuff, 0, n);
+				SampleConverter.fromFloat(r.getRight(), 0, ibuff, 0, n, bd);
+				right.setSamples(pos, ibuff, 0, n);
+				pos += n;
+			}
+			left.setLength(Math.max(pos, 1));
+			right.setLength(Math.max(pos, 1));
+			left.trimToSize();
+			right.trimToSize();
+			return wav;
+		}
+		finally
+		{
+			r.close();
+		}
+	}
+
+	/**
+	 * Render a MIDI file to a stereo WAV.
+	 * @param midi Sequence to play.
+	 * @param bitDepth Output bits per sample (8, 16, 24 or 32).
+	 * @return Rendered sound.
+	 * @throws InterruptedException If interrupted while waiting on render threads.
+	 */
+	public WAV render(MIDI midi, int bitDepth) throws InterruptedException
+	{
+		return render(midi.getSequence(), bitDepth);
+	}
+
+	/**
+	 * Get a stream that renders a sequence as it's read, as 16-bit signed little-endian stereo PCM.
+	 * Closing the stream stops its render threads.
+	 * @param seq Sequence to play.
+	 * @return Rendering stream. Its length isn't known ahead of time.
+	 */
+	public AudioInputStream getStream(Sequence seq)
+	{
+		return new AudioInputStream(new RenderStream(new OfflineRender(seq)), getOutputFormat(), AudioSystem.NOT_SPECIFIED);
+	}
+
+	/**
+	 * @return Format of streamed and live output: 16-bit signed little-endian stereo at the output rate.
+	 */
+	public AudioFormat getOutputFormat()
+	{
+		return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, (float)sampleRate, 16, 2, 4, (float)sampleRate, false);
+	}
+
+	private static class RenderStream extends InputStream
+	{
+		private OfflineRender src;
+		private int[][] ibuff;
+		private ByteBuffer obytes;
+		private boolean done;
+
+		public RenderStream(OfflineRender r)
+		{
+			src = r;
+			ibuff = new int[2][DEFO_SEGMENT_FRAMES];
+			obytes = ByteBuffer.allocate(DEFO_SEGMENT_FRAMES << 2);
+			obytes.limit(0);
+		}
+
+		private boolean fill() throws IOException
+		{
+			while (!obytes.hasRemaining())
+			{
+				if (done) return false;
+				int n = 0;
+				try
+				{
+					n = src.renderSegment();
+				}
+				catch (InterruptedException e)
+				{
+					throw new InterruptedIOException();
+				}
+				if (n <= 0)
+				{
+					done = true;
+					src.close();
+					return false;
+				}
+				SampleConverter.fromFloat(src.getLeft(), 0, ibuff[0], 0, n, BitDepth.SIXTEEN_BIT_SIGNED);
+				SampleConverter.fromFloat(src.getRight(), 0, ibuff[1], 0, n, BitDepth.SIXTEEN_BIT_SIGNED);
+				obytes.clear();
+				PCMCodec.interleave(ibuff, 0, n, 2, obytes);
+				obytes.flip();
+			}
+			return true;
+		}
+
+		public int read() throws IOException
+		{
+			if (!fill()) return -1;
+			return obytes.get() & 0xFF;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0) return 0;
+			if (!fill()) return -1;
+			int n = Math.min(len, obytes.remaining());
+			obytes.get(b, off, n);
+			return n;
+		}
+
+		public int available()
+		{
+			return obytes.remaining();
+		}
+
+		public void close()
+		{
+			done = true;
+			src.close();
+		}
+	}
+
+	/* ----- Real-time Playback ----- */
+
+	/**
+	 * Snapshot of live playback statistics.
+	 */
+	public static class RealtimeStats
+	{
+		private long blocks;
+		private long underruns;
+		private long lateBlocks;
+		private long dropped;
+		private long renderTotal;
+		private long renderMax;
+		private long renderLast;
+		private long blockPeriod;
+		private long latency;
+		private int voices;
+
+		/**
+		 * @return Blocks rendered.
+		 */
+		public long getBlockCount(){return blocks;}
+
+		/**
+		 * @return Times the output line was found empty before a block was written.
+		 */
+		public long getUnderrunCount(){return underruns;}
+
+		/**
+		 * @return Blocks that took longer to render than they take to play.
+		 */
+		public long getLateBlockCount(){return lateBlocks;}
+
+		/**
+		 * @return Messages lost because the event queue was full.
+		 */
+		public long getDroppedEventCount(){return dropped;}
+
+		public long getMaxRenderNanos(){return renderMax;}
+		public long getLastRenderNanos(){return renderLast;}
+
+		public long getAverageRenderNanos()
+		{
+			if (blocks <= 0) return 0;
+			return renderTotal / blocks;
+		}
+
+		/**
+		 * @return Playing time of one block in nanoseconds.
+		 */
+		public long getBlockPeriodNanos(){return blockPeriod;}
+
+		/**
+		 * @return Approximate time from a message being sent to it being heard (one block plus the line buffer).
+		 */
+		public long getLatencyNanos(){return latency;}
+
+		/**
+		 * @return Average render time as a fraction of the block period.
+		 */
+		public double getLoad()
+		{
+			if (blockPeriod <= 0) return 0.0;
+			return (double)getAverageRenderNanos() / (double)blockPeriod;
+		}
+
+		public int getActiveVoiceCount(){return voices;}
+
+		public String toString()
+		{
+			return String.format("blocks=%d underruns=%d late=%d dropped=%d voices=%d render(avg/max)=%.3f/%.3f ms load=%.1f%% latency=%.1f ms",
+					blocks, underruns, lateBlocks, dropped, voices,
+					(double)getAverageRenderNanos() / 1e6, (double)renderMax / 1e6, getLoad() * 100.0, (double)latency / 1e6);
+		}
+	}
+
+	/**
+	 * Start live playback on the default output line, with default block and buffer sizes.
+	 * @throws LineUnavailableException If no output line could be opened.
+	 */
+	public void startRealtime() throws LineUnavailableException
+	{
+		startRealtime(DEFO_RT_BLOCK_FRAMES, DEFO_RT_BUFFER_BLOCKS);
+	}
+
+	/**
+	 * Start live playback on the default output line.
+	 * @param frames Frames rendered per block. Smaller blocks mean lower latency and more overhead.
+	 * @param bufferBlocks Size of the line's buffer in blocks. Smaller means lower latency and more risk of underruns.
+	 * @throws LineUnavailableException If no output line could be opened.
+	 */
+	public synchronized void startRealtime(int frames, int bufferBlocks) throws LineUnavailableException
+	{
+		if (live != null) return;
+		if (frames < 1 || bufferBlocks < 1) throw new IllegalArgumentException();
+		AudioFormat fmt = getOutputFormat();
+		SourceDataLine line = AudioSystem.getSourceDataLine(fmt);
+		line.open(fmt, (frames << 2) * Math.max(bufferBlocks, 2));
+		try
+		{
+			startRealtime(line, frames);
+		}
+		catch (RuntimeException e)
+		{
+			line.close();
+			throw e;
+		}
+		ownLine = true;
+	}
+
+	/**
+	 * Start live playback on the given line. If the line isn't open yet, it's opened with a
+	 * buffer of DEFO_RT_BUFFER_BLOCKS blocks. The caller is responsible for closing it.
+	 * <br>All bank samples are cached before the render thread starts.
+	 * @param line Output line. Must take getOutputFormat().
+	 * @param frames Frames rendered per block.
+	 * @throws LineUnavailableException If the line couldn't be opened.
+	 */
+	public synchronized void startRealtime(SourceDataLine line, int frames) throws LineUnavailableException
+	{
+		if (live != null) return;
+		if (line == null || frames < 1) throw new IllegalArgumentException();
+		AudioFormat fmt = getOutputFormat();
+		if (!line.isOpen()) line.open(fmt, (frames << 2) * DEFO_RT_BUFFER_BLOCKS);
+		else if (!line.getFormat().matches(fmt)) throw new IllegalArgumentException("SoundSynth: Line format must be " + fmt);
+
+		preloadSamples();
+		ownLine = false;
+		RealtimeRenderer r = new RealtimeRenderer(this, line, frames, RT_QUEUE_SIZE);
+		r.start();
+		live = r;
+	}
+
+	/**
+	 * Stop live playback. Voices are cut off, and the line is closed if the synth opened it.
+	 */
+	public synchronized void stopRealtime()
+	{
+		RealtimeRenderer r = live;
+		if (r == null) return;
+		live = null;
+		r.stop();
+		if (ownLine) r.getLine().close();
+		ownLine = false;
+	}
+
+	public boolean isRealtimeRunning(){return live != null;}
+
+	/**
+	 * Queue a channel message for live playback. Safe to call from any thread; doesn't block.
+	 * @param status Status byte (command and channel).
+	 * @param d1 First data byte.
+	 * @param d2 Second data byte.
+	 * @return False if live playback isn't running or the queue is full.
+	 */
+	public boolean sendMessage(int status, int d1, int d2)
+	{
+		RealtimeRenderer r = live;
+		if (r == null) return false;
+		if ((status & 0xF0) < 0x80 || (status & 0xF0) == 0xF0) return false;
+		return r.getQueue().offer((status & 0xFF) | ((d1 & 0x7F) << 8) | ((d2 & 0x7F) << 16));
+	}
+
+	/**
+	 * Queue a message for live playback. Only channel messages (ShortMessage) are played.
+	 * @param msg Message.
+	 * @return False if the message wasn't queued.
+	 */
+	public boolean sendMessage(MidiMessage msg)
+	{
+		if (!(msg instanceof ShortMessage)) return false;
+		ShortMessage sm = (ShortMessage)msg;
+		return sendMessage(sm.getStatus(), sm.getData1(), sm.getData2());
+	}
+
+	/**
+	 * Queue messages (such as those from MidiMessageGenerator) for live playback, in order.
+	 * @param msgs Messages.
+	 * @return Number of messages queued.
+	 */
+	public int sendMessages(Collection<? extends MidiMessage> msgs)
+	{
+		if (msgs == null) return 0;
+		int n = 0;
+		for (MidiMessage m : msgs)
+		{
+			if (sendMessage(m)) n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Silence all channels and reset their controllers.
+	 */
+	public void panic()
+	{
+		for (int c = 0; c < MIDI_CHANNELS; c++)
+		{
+			sendMessage(0xB0 | c, SynthChannel.CC_SOUND_OFF, 0);
+			sendMessage(0xB0 | c, SynthChannel.CC_RESET, 0);
+		}
+	}
+
+	/**
+	 * Get a receiver that passes messages on to live playback, so the synth can be hooked up
+	 * to a Transmitter (a MIDI input device or a Sequencer). Timestamps are ignored.
+	 * @return Receiver.
+	 */
+	public Receiver getReceiver()
+	{
+		return new Receiver(){
+			public void send(MidiMessage message, long timeStamp)
+			{
+				sendMessage(message);
+			}
+
+			public void close(){}
+		};
+	}
+
+	/**
+	 * @return Current live playback statistics, or null if live playback isn't running.
+	 */
+	public RealtimeStats getRealtimeStats()
+	{
+		RealtimeRenderer r = live;
+		if (r == null) return null;
+		RealtimeStats st = new RealtimeStats();
+		st.blocks = r.getBlockCount();
+		st.underruns = r.getUnderrunCount();
+		st.lateBlocks = r.getLateBlockCount();
+		st.dropped = r.getQueue().getDroppedCount();
+		st.renderTotal = r.getRenderNanosTotal();
+		st.renderMax = r.getRenderNanosMax();
+		st.renderLast = r.getRenderNanosLast();
+		st.voices = r.getActiveVoiceCount();
+		st.blockPeriod = ((long)r.getBlockFrames() * 1000000000L) / (long)sampleRate;
+		long bufferFrames = r.getLine().getBufferSize() >>> 2;
+		st.latency = (((long)r.getBlockFrames() + bufferFrames) * 1000000000L) / (long)sampleRate;
+		return st;
+	}
+
+	/**
+	 * Zero the live playback counters (not including dropped events).
+	 */
+	public void resetRealtimeStats()
+	{
+		RealtimeRenderer r = live;
+		if (r != null) r.requestStatsReset();
+	}
+
 }
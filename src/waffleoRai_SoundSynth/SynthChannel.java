@@ -0,0 +1,190 @@
+package waffleoRai_SoundSynth;
+
+import waffleoRai_soundbank.SimplePreset;
+
+/**
+ * Controller state of one MIDI channel.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+class SynthChannel {
+
+	public static final int DRUM_CHANNEL = 9;
+	public static final int DRUM_BANK = 128;
+
+	public static final int CC_BANK_MSB = 0;
+	public static final int CC_DATA_MSB = 6;
+	public static final int CC_VOLUME = 7;
+	public static final int CC_PAN = 10;
+	public static final int CC_EXPRESSION = 11;
+	public static final int CC_BANK_LSB = 32;
+	public static final int CC_DATA_LSB = 38;
+	public static final int CC_SUSTAIN = 64;
+	public static final int CC_RPN_LSB = 100;
+	public static final int CC_RPN_MSB = 101;
+	public static final int CC_SOUND_OFF = 120;
+	public static final int CC_RESET = 121;
+	public static final int CC_NOTES_OFF = 123;
+
+	/* ----- Instance Variables ----- */
+
+	private int index;
+
+	private int program;
+	private int bankMSB;
+	private int bankLSB;
+	private SimplePreset preset;
+	private boolean presetValid;
+
+	private int volume;
+	private int expression;
+	private int pan;
+	private int bend; //-8192 - 8191
+	private int bendRange; //Cents, -1 to use region's
+	private boolean sustain;
+
+	private int rpnMSB;
+	private int rpnLSB;
+
+	/* ----- Construction ----- */
+
+	public SynthChannel(int idx)
+	{
+		index = idx;
+		reset();
+	}
+
+	/**
+	 * Return the channel to its power on state: program and bank 0, default controllers.
+	 */
+	public void reset()
+	{
+		program = 0;
+		bankMSB = 0;
+		bankLSB = 0;
+		preset = null;
+		presetValid = false;
+		resetControllers();
+	}
+
+	/**
+	 * Reset controllers to defaults (as for CC 121). Program and bank are kept.
+	 */
+	public void resetControllers()
+	{
+		volume = 100;
+		expression = 127;
+		pan = 64;
+		bend = 0;
+		bendRange = -1;
+		sustain = false;
+		rpnMSB = 127;
+		rpnLSB = 127;
+	}
+
+	/* ----- Getters ----- */
+
+	public int getIndex(){return index;}
+	public int getProgram(){return program;}
+	public int getBankLSB(){return bankLSB;}
+	public int getBend(){return bend;}
+	public int getBendRangeCents(){return bendRange;}
+	public boolean sustainHeld(){return sustain;}
+
+	/**
+	 * @return Bank index to look presets up in. The drum channel uses DRUM_BANK unless a bank is selected.
+	 */
+	public int getBankIndex()
+	{
+		if (index == DRUM_CHANNEL && bankMSB == 0) return DRUM_BANK;
+		return bankMSB;
+	}
+
+	/**
+	 * @return Channel volume and expression as a linear gain (both follow a squared curve).
+	 */
+	public float getGain()
+	{
+		float v = (float)volume / 127f;
+		float e = (float)expression / 127f;
+		return (v * v) * (e * e);
+	}
+
+	/**
+	 * @return Pan from -1 (left) to 1 (right).
+	 */
+	public float getPan()
+	{
+		if (pan <= 0) return -1f;
+		return (float)(pan - 64) / 63f;
+	}
+
+	/**
+	 * @return Preset last looked up for the channel's bank and program. May be null if there isn't one.
+	 */
+	public SimplePreset getPreset(){return preset;}
+
+	/**
+	 * @return False if the bank or program has changed since the preset was looked up.
+	 */
+	public boolean presetValid(){return presetValid;}
+
+	/* ----- Setters ----- */
+
+	public void setPreset(SimplePreset p)
+	{
+		preset = p;
+		presetValid = true;
+	}
+
+	public void setProgram(int p)
+	{
+		program = p;
+		presetValid = false;
+	}
+
+	public void setBend(int lsb, int msb)
+	{
+		bend = ((msb << 7) | lsb) - 8192;
+	}
+
+	/**
+	 * Apply a control change that only affects channel state.
+	 * @param cc Controller number.
+	 * @param value Value (0 - 127).
+	 */
+	public void control(int cc, int value)
+	{
+		switch(cc)
+		{
+		case CC_BANK_MSB: bankMSB = value; presetValid = false; return;
+		case CC_BANK_LSB: bankLSB = value; return;
+		case CC_VOLUME: volume = value; return;
+		case CC_PAN: pan = value; return;
+		case CC_EXPRESSION: expression = value; return;
+		case CC_SUSTAIN: sustain = (value >= 64); return;
+		case CC_RPN_LSB: rpnLSB = value; return;
+		case CC_RPN_MSB: rpnMSB = value; return;
+		case CC_DATA_MSB:
+			//RPN 0: pitch bend range, semitones
+			if (rpnMSB == 0 && rpnLSB == 0)
+			{
+				int cents = (bendRange < 0) ? 0 : bendRange % 100;
+				bendRange = (value * 100) + cents;
+				return;
+			}
+			return;
+		case CC_DATA_LSB:
+			if (rpnMSB == 0 && rpnLSB == 0)
+			{
+				int semis = (bendRange < 0) ? 2 : bendRange / 100;
+				bendRange = (semis * 100) + Math.min(value, 99);
+				return;
+			}
+			return;
+		case CC_RESET: resetControllers(); return;
+		}
+	}
+
+}
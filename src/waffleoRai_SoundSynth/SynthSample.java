@@ -0,0 +1,106 @@
+package waffleoRai_SoundSynth;
+
+import waffleoRai_Sound.BitDepth;
+import waffleoRai_Sound.SampleChannel;
+import waffleoRai_Sound.SampleConverter;
+import waffleoRai_Sound.Sound;
+
+/**
+ * A sound's samples prepared for playback by the synth: converted to float once and shared
+ * (read only) by every voice that plays it.
+ * <br>Each channel array has PAD_BEFORE samples ahead of the first sample and PAD_AFTER after the last
+ * playable one so the interpolators never need bounds checks. For looping sounds the playable part
+ * ends at the loop end and the padding after it repeats the start of the loop, so interpolation runs
+ * straight across the loop point.
+ * <br>Loop end is exclusive (the first sample after the loop), as in SF2.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+class SynthSample {
+
+	public static final int PAD_BEFORE = 1;
+	public static final int PAD_AFTER = 3;
+
+	private static final int READ_BLOCK = 0x4000;
+
+	/* ----- Instance Variables ----- */
+
+	private float[][] data;
+	private int length;
+
+	private boolean loops;
+	private int loopStart;
+
+	private int sampleRate;
+	private int unityKey;
+	private int fineTune;
+
+	/* ----- Construction ----- */
+
+	public SynthSample(Sound s)
+	{
+		int frames = s.totalFrames();
+		int nch = Math.min(Math.max(s.totalChannels(), 1), 2);
+		sampleRate = s.getSampleRate();
+		unityKey = s.getUnityNote();
+		fineTune = s.getFineTune();
+
+		int loopEnd = frames;
+		if (s.loops())
+		{
+			loopStart = s.getLoopFrame();
+			int le = s.getLoopEndFrame();
+			if (le > 0 && le <= frames) loopEnd = le;
+			loops = (loopStart >= 0 && loopStart < loopEnd);
+		}
+		length = loops ? loopEnd : frames;
+
+		data = new float[nch][PAD_BEFORE + length + PAD_AFTER];
+		BitDepth bd = s.getBitDepth();
+		for (int c = 0; c < nch; c++)
+		{
+			float[] d = data[c];
+			if (bd == null)
+			{
+				int[] raw = s.getSamples_16Signed(c);
+				SampleConverter.toFloat(raw, 0, d, PAD_BEFORE, Math.min(length, raw.length), BitDepth.SIXTEEN_BIT_SIGNED);
+			}
+			else
+			{
+				SampleChannel sc = s.getSampleChannel(c);
+				int[] buff = new int[READ_BLOCK];
+				for (int f = 0; f < length; f += READ_BLOCK)
+				{
+					int n = Math.min(READ_BLOCK, length - f);
+					sc.getSamples(f, buff, 0, n);
+					SampleConverter.toFloat(buff, 0, d, PAD_BEFORE + f, n, bd);
+				}
+			}
+			if (loops)
+			{
+				int loopLen = length - loopStart;
+				for (int k = 0; k < PAD_AFTER; k++) d[PAD_BEFORE + length + k] = d[PAD_BEFORE + loopStart + (k % loopLen)];
+			}
+		}
+	}
+
+	/* ----- Getters ----- */
+
+	/**
+	 * @return Sample arrays, one per channel (1 or 2), with padding.
+	 */
+	public float[][] getData(){return data;}
+
+	/**
+	 * @return Number of playable samples (up to the loop end for looping sounds).
+	 */
+	public int getLength(){return length;}
+
+	public boolean loops(){return loops;}
+	public int getLoopStart(){return loopStart;}
+	public int getSampleRate(){return sampleRate;}
+	public int getUnityKey(){return unityKey;}
+	public int getFineTune(){return fineTune;}
+
+}
@@ -0,0 +1,471 @@
+package waffleoRai_SoundSynth;
+
+import waffleoRai_soundbank.ADSRMode;
+import waffleoRai_soundbank.Region;
+
+/**
+ * One playing note: a sample played back at a pitch through an ADSR envelope.
+ * <br>Playback position is 32.32 fixed point in source samples. Envelope and gains are worked out
+ * once per block and ramped linearly across it; pitch is only recalculated when the channel's
+ * pitch bend changes.
+ * <br>Envelope times are for a full sweep (0 to 1, or 1 to 0). Linear envelope stages ramp the
+ * amplitude linearly; the dB modes ramp linearly in dB across FLOOR_DB.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+class SynthVoice {
+
+	/* ----- Constants ----- */
+
+	public static final double FLOOR_DB = -100.0;
+	private static final double FLOOR = Math.pow(10.0, FLOOR_DB / 20.0);
+	private static final double LN_FLOOR = Math.log(FLOOR);
+
+	private static final int ST_ATTACK = 0;
+	private static final int ST_HOLD = 1;
+	private static final int ST_DECAY = 2;
+	private static final int ST_SUSTAIN = 3;
+	private static final int ST_RELEASE = 4;
+	private static final int ST_DONE = 5;
+
+	private static final double FIX_ONE = 4294967296.0;
+	private static final float FRAC_SCALE = 1.0f / 4294967296.0f;
+	private static final float SQRT2 = (float)Math.sqrt(2.0);
+
+	/* ----- Instance Variables ----- */
+
+	private boolean active;
+	private boolean released;
+	private boolean held; //Note off came while sustain pedal was down
+
+	private int channel;
+	private int note;
+	private long serial;
+
+	private SynthSample sample;
+	private long pos;
+	private long step;
+	private double baseRatio;
+	private int bendUp; //Cents
+	private int bendDown;
+	private int lastBend;
+	private int lastRange;
+
+	private float volume;
+	private float pan;
+	private float curL;
+	private float curR;
+
+		//Envelope
+	private int attackFrames;
+	private int holdFrames;
+	private int decayFrames;
+	private int sustainFrames;
+	private int releaseFrames;
+	private ADSRMode attackMode;
+	private ADSRMode decayMode;
+	private ADSRMode sustainMode;
+	private ADSRMode releaseMode;
+	private double sustainLevel;
+	private boolean sustainUp;
+
+	private int stage;
+	private double level;
+	private long left;
+	private boolean expo;
+	private double rate;
+	private double target;
+
+	/* ----- Getters ----- */
+
+	public boolean isActive(){return active;}
+	public boolean isReleased(){return released;}
+	public boolean isHeld(){return held;}
+	public int getChannel(){return channel;}
+	public int getNote(){return note;}
+	public long getSerial(){return serial;}
+	public double getLevel(){return level;}
+
+	/* ----- Control ----- */
+
+	/**
+	 * Start a note.
+	 * @param s Sample to play.
+	 * @param ch MIDI channel.
+	 * @param key MIDI note.
+	 * @param serialNo Start order, for voice stealing.
+	 * @param ratio Source samples per output sample before pitch bend.
+	 * @param r Region holding envelope and pitch bend range.
+	 * @param gain Volume, linear.
+	 * @param panning Pan from -1 to 1.
+	 * @param outRate Output sample rate.
+	 */
+	public void start(SynthSample s, int ch, int key, long serialNo, double ratio, Region r, float gain, float panning, int outRate)
+	{
+		sample = s;
+		channel = ch;
+		note = key;
+		serial = serialNo;
+		baseRatio = ratio;
+		bendUp = r.getPitchBendMax() * 100;
+		bendDown = r.getPitchBendMin() * 100;
+		lastBend = 0;
+		lastRange = -1;
+		step = toStep(ratio);
+		pos = 0;
+		volume = gain;
+		pan = panning;
+
+		attackFrames = msToFrames(r.getAttack().getTime(), outRate);
+		attackMode = r.getAttack().getMode();
+		holdFrames = msToFrames(r.getHoldInMillis(), outRate);
+		decayFrames = msToFrames(r.getDecay().getTime(), outRate);
+		decayMode = r.getDecay().getMode();
+		sustainLevel = Math.min(Math.max((double)r.getSustain().getLevel() / (double)0x7FFFFFFF, 0.0), 1.0);
+		sustainFrames = msToFrames(r.getSustain().getTime(), outRate);
+		sustainMode = r.getSustain().getMode();
+		sustainUp = r.getSustain().rampUp();
+		releaseFrames = msToFrames(r.getRelease().getTime(), outRate);
+		releaseMode = r.getRelease().getMode();
+		//A millisecond of release at least, so notes don't click off
+		releaseFrames = Math.max(releaseFrames, outRate / 1000);
+
+		level = 0.0;
+		enterStage(ST_ATTACK);
+		curL = 0f;
+		curR = 0f;
+		active = true;
+		released = false;
+		held = false;
+	}
+
+	/**
+	 * Note off. The voice carries on through its release.
+	 */
+	public void release()
+	{
+		if (!active || released) return;
+		released = true;
+		held = false;
+		enterStage(ST_RELEASE);
+	}
+
+	/**
+	 * Note off while the sustain pedal is down.
+	 */
+	public void hold()
+	{
+		if (!active || released) return;
+		held = true;
+	}
+
+	/**
+	 * Stop immediately.
+	 */
+	public void kill()
+	{
+		active = false;
+		released = true;
+		held = false;
+		stage = ST_DONE;
+		level = 0.0;
+	}
+
+	private static int msToFrames(int ms, int rate)
+	{
+		if (ms <= 0) return 0;
+		return (int)Math.min(((long)ms * (long)rate) / 1000L, Integer.MAX_VALUE);
+	}
+
+	private static long toStep(double ratio)
+	{
+		return Math.max((long)(ratio * FIX_ONE), 1L);
+	}
+
+	/* ----- Envelope ----- */
+
+	private static boolean isDB(ADSRMode mode)
+	{
+		return mode != ADSRMode.LINEAR_ENVELOPE && mode != ADSRMode.STATIC;
+	}
+
+	private void ramp(ADSRMode mode, int fullFrames, double tgt)
+	{
+		target = tgt;
+		if (isDB(mode))
+		{
+			expo = true;
+			if (level < FLOOR) level = FLOOR;
+			double t = Math.max(tgt, FLOOR);
+			rate = ((t > level) ? -LN_FLOOR : LN_FLOOR) / (double)fullFrames;
+			left = (long)Math.ceil(Math.log(t / level) / rate);
+		}
+		else
+		{
+			expo = false;
+			rate = ((tgt > level) ? 1.0 : -1.0) / (double)fullFrames;
+			left = (long)Math.ceil((tgt - level) / rate);
+		}
+		if (left < 1) left = 1;
+	}
+
+	private void holdLevel(long frames)
+	{
+		expo = false;
+		rate = 0.0;
+		target = level;
+		left = frames;
+	}
+
+	private void enterStage(int st)
+	{
+		stage = st;
+		switch(st)
+		{
+		case ST_ATTACK:
+			if (attackFrames <= 0 || attackMode == ADSRMode.STATIC)
+			{
+				level = 1.0;
+				enterStage(ST_HOLD);
+				return;
+			}
+			ramp(attackMode, attackFrames, 1.0);
+			return;
+		case ST_HOLD:
+			if (holdFrames <= 0)
+			{
+				enterStage(ST_DECAY);
+				return;
+			}
+			holdLevel(holdFrames);
+			return;
+		case ST_DECAY:
+			if (decayFrames <= 0 || decayMode == ADSRMode.STATIC || level <= sustainLevel)
+			{
+				level = sustainLevel;
+				enterStage(ST_SUSTAIN);
+				return;
+			}
+			ramp(decayMode, decayFrames, sustainLevel);
+			return;
+		case ST_SUSTAIN:
+			if (sustainFrames <= 0 || sustainMode == ADSRMode.STATIC)
+			{
+				if (level <= FLOOR) enterStage(ST_DONE);
+				else holdLevel(Long.MAX_VALUE);
+				return;
+			}
+			ramp(sustainMode, sustainFrames, sustainUp ? 1.0 : 0.0);
+			return;
+		case ST_RELEASE:
+			if (level <= FLOOR)
+			{
+				enterStage(ST_DONE);
+				return;
+			}
+			ramp(releaseMode, releaseFrames, 0.0);
+			return;
+		case ST_DONE:
+			level = 0.0;
+			holdLevel(Long.MAX_VALUE);
+			return;
+		}
+	}
+
+	private void advanceEnvelope(int frames)
+	{
+		long n = frames;
+		while (n > 0 && stage != ST_DONE)
+		{
+			long k = Math.min(n, left);
+			if (rate != 0.0)
+			{
+				if (expo) level *= Math.exp(rate * (double)k);
+				else level += rate * (double)k;
+			}
+			left -= k;
+			n -= k;
+			if (left > 0) break;
+
+			level = target;
+			switch(stage)
+			{
+			case ST_ATTACK: enterStage(ST_HOLD); break;
+			case ST_HOLD: enterStage(ST_DECAY); break;
+			case ST_DECAY: enterStage(ST_SUSTAIN); break;
+			case ST_SUSTAIN:
+				if (level <= FLOOR) enterStage(ST_DONE);
+				else holdLevel(Long.MAX_VALUE);
+				break;
+			case ST_RELEASE: enterStage(ST_DONE); break;
+			}
+		}
+	}
+
+	/* ----- Render ----- */
+
+	/**
+	 * Mix the next frames of the voice into a block.
+	 * @param L Left mix buffer.
+	 * @param R Right mix buffer.
+	 * @param off Index in mix buffers of first frame.
+	 * @param n Number of frames.
+	 * @param ch State of the voice's channel.
+	 * @param interp Interpolation.
+	 */
+	public void render(float[] L, float[] R, int off, int n, SynthChannel ch, SoundSynth.Interpolation interp)
+	{
+		if (!active) return;
+
+		//Pitch
+		int bend = ch.getBend();
+		int range = ch.getBendRangeCents();
+		if (bend != lastBend || range != lastRange)
+		{
+			lastBend = bend;
+			lastRange = range;
+			int cents = (range >= 0) ? range : ((bend >= 0) ? bendUp : bendDown);
+			double semis = ((double)bend / 8192.0) * ((double)cents / 100.0);
+			step = toStep(baseRatio * Math.pow(2.0, semis / 12.0));
+		}
+
+		//Gains at end of block
+		advanceEnvelope(n);
+		float p = Math.max(-1f, Math.min(1f, pan + ch.getPan()));
+		double angle = (double)(p + 1f) * (Math.PI / 4.0);
+		float g = (float)(level * (double)volume * (double)ch.getGain());
+		float[][] data = sample.getData();
+		if (data.length > 1) g *= SQRT2;
+		float gl = g * (float)Math.cos(angle);
+		float gr = g * (float)Math.sin(angle);
+		float dl = (gl - curL) / (float)n;
+		float dr = (gr - curR) / (float)n;
+
+		int len = sample.getLength();
+		long endPos = (long)len << 32;
+		long loopLen = (long)(len - sample.getLoopStart()) << 32;
+		float l = curL;
+		float r = curR;
+		int i = 0;
+		while (i < n)
+		{
+			if (pos >= endPos)
+			{
+				if (!sample.loops())
+				{
+					kill();
+					break;
+				}
+				while (pos >= endPos) pos -= loopLen;
+			}
+			int k = (int)Math.min((long)(n - i), ((endPos - pos) + step - 1) / step);
+			if (data.length > 1)
+			{
+				mix(data[0], pos, step, k, L, off + i, l, dl, interp);
+				mix(data[1], pos, step, k, R, off + i, r, dr, interp);
+			}
+			else mix(data[0], pos, step, k, L, R, off + i, l, dl, r, dr, interp);
+			pos += step * (long)k;
+			l += dl * (float)k;
+			r += dr * (float)k;
+			i += k;
+		}
+		curL = gl;
+		curR = gr;
+		if (stage == ST_DONE) active = false;
+	}
+
+	private static void mix(float[] d, long pos, long step, int k, float[] out, int off, float g, float dg, SoundSynth.Interpolation interp)
+	{
+		switch(interp)
+		{
+		case NONE:
+			for (int i = 0; i < k; i++)
+			{
+				out[off + i] += d[(int)(pos >>> 32) + 1] * g;
+				g += dg;
+				pos += step;
+			}
+			return;
+		case LINEAR:
+			for (int i = 0; i < k; i++)
+			{
+				int x = (int)(pos >>> 32) + 1;
+				float f = (float)(pos & 0xFFFFFFFFL) * FRAC_SCALE;
+				float a = d[x];
+				out[off + i] += (a + f * (d[x + 1] - a)) * g;
+				g += dg;
+				pos += step;
+			}
+			return;
+		case CUBIC:
+			for (int i = 0; i < k; i++)
+			{
+				out[off + i] += cubic(d, pos) * g;
+				g += dg;
+				pos += step;
+			}
+			return;
+		}
+	}
+
+	private static void mix(float[] d, long pos, long step, int k, float[] L, float[] R, int off, float gl, float dl, float gr, float dr, SoundSynth.Interpolation interp)
+	{
+		switch(interp)
+		{
+		case NONE:
+			for (int i = 0; i < k; i++)
+			{
+				float s = d[(int)(pos >>> 32) + 1];
+				L[off + i] += s * gl;
+				R[off + i] += s * gr;
+				gl += dl;
+				gr += dr;
+				pos += step;
+			}
+			return;
+		case LINEAR:
+			for (int i = 0; i < k; i++)
+			{
+				int x = (int)(pos >>> 32) + 1;
+				float f = (float)(pos & 0xFFFFFFFFL) * FRAC_SCALE;
+				float a = d[x];
+				float s = a + f * (d[x + 1] - a);
+				L[off + i] += s * gl;
+				R[off + i] += s * gr;
+				gl += dl;
+				gr += dr;
+				pos += step;
+			}
+			return;
+		case CUBIC:
+			for (int i = 0; i < k; i++)
+			{
+				float s = cubic(d, pos);
+				L[off + i] += s * gl;
+				R[off + i] += s * gr;
+				gl += dl;
+				gr += dr;
+				pos += step;
+			}
+			return;
+		}
+	}
+
+	private static float cubic(float[] d, long pos)
+	{
+		//Catmull-Rom through the samples before and after the pair
+		int x = (int)(pos >>> 32);
+		float f = (float)(pos & 0xFFFFFFFFL) * FRAC_SCALE;
+		float ym1 = d[x];
+		float y0 = d[x + 1];
+		float y1 = d[x + 2];
+		float y2 = d[x + 3];
+		float c1 = 0.5f * (y1 - ym1);
+		float c2 = ym1 - 2.5f * y0 + 2f * y1 - 0.5f * y2;
+		float c3 = 0.5f * (y2 - ym1) + 1.5f * (y0 - y1);
+		return ((c3 * f + c2) * f + c1) * f + y0;
+	}
+
+}
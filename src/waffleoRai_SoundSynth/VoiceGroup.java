@@ -0,0 +1,243 @@
+package waffleoRai_SoundSynth;
+
+import waffleoRai_soundbank.Region;
+import waffleoRai_soundbank.SimpleInstrument;
+import waffleoRai_soundbank.SimpleInstrument.InstRegion;
+import waffleoRai_soundbank.SimplePreset;
+import waffleoRai_soundbank.SimplePreset.PresetRegion;
+
+/**
+ * A pool of voices and the MIDI channels that play through it, mixed into one stereo block.
+ * <br>Groups share nothing but the (read only) bank and sample cache, so separate groups can be
+ * rendered on separate threads without locking. Each group only ever receives messages for the
+ * channels assigned to it.
+ * @author Blythe Hospelhorn
+ * @version 1.0.0
+ * @since October 19, 2026
+ */
+class VoiceGroup {
+
+	/* ----- Instance Variables ----- */
+
+	private SoundSynth synth;
+	private SynthChannel[] channels;
+	private SynthVoice[] voices;
+	private long serial;
+
+	private float[] mixL;
+	private float[] mixR;
+
+	/* ----- Construction ----- */
+
+	public VoiceGroup(SoundSynth parent, int voiceCount, int bufferFrames)
+	{
+		synth = parent;
+		channels = new SynthChannel[SoundSynth.MIDI_CHANNELS];
+		for (int i = 0; i < channels.length; i++) channels[i] = new SynthChannel(i);
+		voices = new SynthVoice[Math.max(voiceCount, 1)];
+		for (int i = 0; i < voices.length; i++) voices[i] = new SynthVoice();
+		mixL = new float[bufferFrames];
+		mixR = new float[bufferFrames];
+	}
+
+	/* ----- Getters ----- */
+
+	public float[] getLeft(){return mixL;}
+	public float[] getRight(){return mixR;}
+
+	public int countActiveVoices()
+	{
+		int n = 0;
+		for (SynthVoice v : voices)
+		{
+			if (v.isActive()) n++;
+		}
+		return n;
+	}
+
+	/* ----- Messages ----- */
+
+	/**
+	 * Apply a MIDI channel message.
+	 * @param status Status byte (command and channel).
+	 * @param d1 First data byte.
+	 * @param d2 Second data byte.
+	 */
+	public void message(int status, int d1, int d2)
+	{
+		SynthChannel ch = channels[status & 0x0F];
+		switch(status & 0xF0)
+		{
+		case 0x80: noteOff(ch, d1); return;
+		case 0x90:
+			if (d2 == 0) noteOff(ch, d1);
+			else noteOn(ch, d1, d2);
+			return;
+		case 0xB0: control(ch, d1, d2); return;
+		case 0xC0: ch.setProgram(d1); return;
+		case 0xE0: ch.setBend(d1, d2); return;
+		}
+	}
+
+	private void control(SynthChannel ch, int cc, int value)
+	{
+		int idx = ch.getIndex();
+		switch(cc)
+		{
+		case SynthChannel.CC_SUSTAIN:
+			ch.control(cc, value);
+			if (!ch.sustainHeld())
+			{
+				for (SynthVoice v : voices)
+				{
+					if (v.isActive() && v.isHeld() && v.getChannel() == idx) v.release();
+				}
+			}
+			return;
+		case SynthChannel.CC_SOUND_OFF:
+			for (SynthVoice v : voices)
+			{
+				if (v.isActive() && v.getChannel() == idx) v.kill();
+			}
+			return;
+		case SynthChannel.CC_NOTES_OFF:
+			for (SynthVoice v : voices)
+			{
+				if (v.isActive() && v.getChannel() == idx) v.release();
+			}
+			return;
+		}
+		ch.control(cc, value);
+	}
+
+	private void noteOff(SynthChannel ch, int note)
+	{
+		int idx = ch.getIndex();
+		boolean pedal = ch.sustainHeld();
+		for (SynthVoice v : voices)
+		{
+			if (!v.isActive() || v.isReleased()) continue;
+			if (v.getChannel() != idx || v.getNote() != note) continue;
+			if (pedal) v.hold();
+			else v.release();
+		}
+	}
+
+	private static boolean inRange(Region r, int note, int vel)
+	{
+		return note >= r.getMinKey() && note <= r.getMaxKey() && vel >= r.getMinVelocity() && vel <= r.getMaxVelocity();
+	}
+
+	private static double volume(int v)
+	{
+		return (double)v / (double)Integer.MAX_VALUE;
+	}
+
+	private void noteOn(SynthChannel ch, int note, int vel)
+	{
+		if (!ch.presetValid()) ch.setPreset(synth.findPreset(ch.getBankIndex(), ch.getProgram()));
+		SimplePreset p = ch.getPreset();
+		if (p == null) return;
+
+		int outRate = synth.getSampleRate();
+		double v = (double)vel / 127.0;
+		double velGain = v * v;
+
+		int pcount = p.countRegions();
+		int found = 0;
+		for (int i = 0; found < pcount; i++)
+		{
+			PresetRegion pr = p.getRegion(i);
+			if (pr == null) continue;
+			found++;
+			if (!inRange(pr, note, vel)) continue;
+			SimpleInstrument inst = pr.getInstrument();
+			if (inst == null) continue;
+
+			int icount = inst.countRegions();
+			int ifound = 0;
+			for (int j = 0; ifound < icount; j++)
+			{
+				InstRegion ir = inst.getRegion(j);
+				if (ir == null) continue;
+				ifound++;
+				if (!inRange(ir, note, vel)) continue;
+				SynthSample s = synth.getSample(ir.getSampleKey());
+				if (s == null) continue;
+
+				int unity = (ir.getUnityKey() >= 0) ? ir.getUnityKey() : s.getUnityKey();
+				int cents = ((note - unity) * 100) + s.getFineTune() + ir.getFineTuneCents() + pr.getFineTuneCents();
+				double ratio = Math.pow(2.0, (double)cents / 1200.0) * (double)s.getSampleRate() / (double)outRate;
+
+				double gain = velGain * volume(ir.getVolume()) * volume(pr.getVolume());
+				gain *= volume(inst.getMasterVolume()) * volume(p.getMasterVolume());
+				double pan = ((double)ir.getPan() + (double)pr.getPan()) / (double)Short.MAX_VALUE;
+				pan += volume(inst.getMasterPan()) + volume(p.getMasterPan());
+
+				SynthVoice voice = allocate();
+				voice.start(s, ch.getIndex(), note, serial++, ratio, ir, (float)gain, (float)pan, outRate);
+			}
+		}
+	}
+
+	private SynthVoice allocate()
+	{
+		//Free voice, else the quietest released voice, else the oldest
+		SynthVoice quietest = null;
+		SynthVoice oldest = null;
+		for (SynthVoice v : voices)
+		{
+			if (!v.isActive()) return v;
+			if (v.isReleased() && (quietest == null || v.getLevel() < quietest.getLevel())) quietest = v;
+			if (oldest == null || v.getSerial() < oldest.getSerial()) oldest = v;
+		}
+		SynthVoice v = (quietest != null) ? quietest : oldest;
+		v.kill();
+		return v;
+	}
+
+	/**
+	 * Stop every voice and reset all channels.
+	 */
+	public void reset()
+	{
+		for (SynthVoice v : voices) v.kill();
+		for (SynthChannel ch : channels) ch.reset();
+	}
+
+	/* ----- Render ----- */
+
+	/**
+	 * Zero the start of the mix buffers.
+	 * @param frames Number of frames to clear.
+	 */
+	public void clear(int frames)
+	{
+		if (mixL.length < frames)
+		{
+			mixL = new float[frames];
+			mixR = new float[frames];
+			return;
+		}
+		for (int i = 0; i < frames; i++)
+		{
+			mixL[i] = 0f;
+			mixR[i] = 0f;
+		}
+	}
+
+	/**
+	 * Mix all active voices into the mix buffers.
+	 * @param off Index in the mix buffers of first frame.
+	 * @param n Number of frames.
+	 */
+	public void render(int off, int n)
+	{
+		SoundSynth.Interpolation interp = synth.getInterpolation();
+		for (SynthVoice v : voices)
+		{
+			if (v.isActive()) v.render(mixL, mixR, off, n, channels[v.getChannel()], interp);
+		}
+	}
+
+}
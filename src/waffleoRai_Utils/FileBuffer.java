@@ -272,7 +272,8 @@ public class FileBuffer
 	public FileBuffer(byte[] myBytes, boolean isBigEndian)
 	{	  
 		  this.newWriteCore(myBytes.length, true);
-		  for (int i = 0; i < myBytes.length; i++) this.addToFile(myBytes[i]);
+		  System.arraycopy(myBytes, 0, this.contents, 0, myBytes.length);
+		  this.fSize = myBytes.length;
 	}
   
 	/**
@@ -471,6 +472,23 @@ public class FileBuffer
 		else return new StreamBuffer(tempName, size, isBE, true);
 	}
 	
+	/**
+	 * Create a FileBuffer that uses the provided array as its contents.
+	 * Unlike Constructor #10, this does NOT copy the array - changes to either show up in both.
+	 * Useful for handing off a large freshly filled array without doubling memory use.
+	 * @param myBytes Array to wrap. The buffer's size and capacity are set to its length.
+	 * @param isBE Whether the byte order of file is Big-Endian
+	 * @return FileBuffer backed by myBytes.
+	 */
+	public static FileBuffer wrap(byte[] myBytes, boolean isBE)
+	{
+		FileBuffer fb = new FileBuffer(0, isBE);
+		fb.contents = myBytes;
+		fb.capacity = myBytes.length;
+		fb.fSize = myBytes.length;
+		return fb;
+	}
+	
 	/**
 	 * Set the threshold for automatic buffer creation - files on disk smaller than the threshold
 	 * will be read fully into memory.
@@ -2165,7 +2183,27 @@ public class FileBuffer
 	{
 		int nbytes = (int)(edOff - stOff);
 		byte[] arr = new byte[nbytes];
-		for(int i = 0; i < nbytes; i++) arr[i] = getByte(stOff + i);
+		if (contents == null || nbytes <= 0)
+		{
+			for(int i = 0; i < nbytes; i++) arr[i] = getByte(stOff + i);
+			return arr;
+		}
+		if (stOff < 0 || edOff > getFileSize()) throw new IndexOutOfBoundsException();
+		
+		//Copy straight out of the backing arrays, one array at a time
+		int pos = (int)stOff;
+		int copied = 0;
+		while (copied < nbytes)
+		{
+			int ai = pos / capacity;
+			int ao = pos % capacity;
+			byte[] src = (ai == 0) ? contents : overflow.get(ai - 1);
+			int amt = capacity - ao;
+			if (amt > nbytes - copied) amt = nbytes - copied;
+			System.arraycopy(src, ao, arr, copied, amt);
+			copied += amt;
+			pos += amt;
+		}
 		return arr;
 	}
 	
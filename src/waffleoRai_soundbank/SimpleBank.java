@@ -15,8 +15,20 @@ import javax.sound.midi.Patch;
 import javax.sound.midi.Soundbank;
 import javax.sound.midi.SoundbankResource;
 
+import waffleoRai_Sound.Resampler;
 import waffleoRai_Sound.Sound;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Added resampleSamples to convert all samples to one rate
+ */
+
+/**
+ * @author Blythe Hospelhorn
+ * @version 1.1.0
+ */
 public class SimpleBank implements Soundbank{
 
 	private String sName;
@@ -185,6 +197,30 @@ public class SimpleBank implements Soundbank{
 	{
 		samples.put(key, sample);
 	}
+	
+	/**
+	 * Convert every sample in the bank to one sample rate, in parallel.
+	 * Samples that fail to convert are left as they were.
+	 * @param sampleRate New sample rate.
+	 * @param q Resampling quality.
+	 * @param threads Number of worker threads. Values below 1 use one per processor.
+	 * @throws InterruptedException If interrupted while waiting on workers.
+	 */
+	public void resampleSamples(int sampleRate, Resampler.Quality q, int threads) throws InterruptedException
+	{
+		List<String> keys = getAllSampleKeys();
+		Sound[] in = new Sound[keys.size()];
+		int i = 0;
+		for (String k : keys) in[i++] = samples.get(k).getSound();
+		
+		Sound[] out = Resampler.resample(in, sampleRate, q, threads);
+		i = 0;
+		for (String k : keys)
+		{
+			if (out[i] != null && out[i] != in[i]) addSample(k, out[i]);
+			i++;
+		}
+	}
 
 	public Set<SimpleInstrument> getAllBaseInstruments()
 	{
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
+import waffleoRai_Sound.SampleChannel;
 import waffleoRai_Sound.Sound;
 import waffleoRai_Sound.WAV;
 import waffleoRai_Sound.WAV.LoopType;
@@ -12,6 +13,18 @@ import waffleoRai_Utils.CompositeBuffer;
 import waffleoRai_Utils.FileBuffer;
 import waffleoRai_Utils.FileBuffer.UnsupportedFileTypeException;
 
+/*
+ * UPDATES
+ *
+ * 2026.10.19 | 1.0.0 -> 1.1.0
+ * 	Sample data is decoded straight into each WAV's compact channel storage instead of through a temporary int array
+ * 	Optional off-heap sample storage
+ */
+
+/**
+ * @author Blythe Hospelhorn
+ * @version 1.1.0
+ */
 public class SF2SDTA {
 	
 	//Note: SHDRs go here!!
@@ -27,6 +40,7 @@ public class SF2SDTA {
 	/* ----- Instance Variables ----- */
 	
 	private boolean use_24bit;
+	private boolean offHeap;
 	
 	private List<SF2Sample> samples;
 	
@@ -40,6 +54,21 @@ public class SF2SDTA {
 	
 	public SF2SDTA(FileBuffer SHDR, FileBuffer SDTA) throws UnsupportedFileTypeException, IOException
 	{
+		this(SHDR, SDTA, false);
+	}
+	
+	/**
+	 * Parse the sample data of a soundfont.
+	 * <br>Samples are kept at 2 bytes each (3 with sm24 data), about the same as on disk.
+	 * @param SHDR Sample header chunk.
+	 * @param SDTA Sample data LIST chunk.
+	 * @param offHeap Whether to store samples outside the Java heap.
+	 * @throws UnsupportedFileTypeException If either chunk can't be read.
+	 * @throws IOException If there's an error reading the chunks.
+	 */
+	public SF2SDTA(FileBuffer SHDR, FileBuffer SDTA, boolean offHeap) throws UnsupportedFileTypeException, IOException
+	{
+		this.offHeap = offHeap;
 		samples = new LinkedList<SF2Sample>();
 		List<SF2SHDR> hlist = parseSHDRList(SHDR);
 		parseSDTA(SDTA, hlist);
@@ -102,7 +131,7 @@ public class SF2SDTA {
 			//Get number of frames
 			int frames = (int)(h.getEndSamplePoint() - h.getStartSamplePoint());
 			//Make WAV
-			WAV mysound = new WAV(bd, 1, frames);
+			WAV mysound = new WAV(bd, 1, frames, offHeap);
 			//Load in header information
 			mysound.setSampleRate(h.getSampleRate());
 			mysound.setSMPL_tune(h.getUnityNote(), h.getFineTuneCents());
@@ -110,7 +139,7 @@ public class SF2SDTA {
 			long loopend = h.getEndLoopPoint() - h.getStartSamplePoint();
 			mysound.setLoop(LoopType.Forward, (int)loopstart, (int)loopend);
 			//Copy sound data
-			int[] sounddat = new int[frames];
+			SampleChannel sounddat = mysound.getSampleChannel(0);
 			long spos = h.getStartSamplePoint()*2 + 8;
 			long epos = h.getStartSamplePoint() + 8;
 			for (int i = 0; i < frames; i++)
@@ -121,11 +150,10 @@ public class SF2SDTA {
 					int addsamp = Byte.toUnsignedInt(sm24_buf.getByte(epos));
 					basesamp = (basesamp << 8) | addsamp;
 				}
-				sounddat[i] = basesamp;
+				sounddat.setSample(i, basesamp);
 				spos += 2;
 				epos++;
 			}
-			mysound.copyData(0, sounddat);
 			
 			SF2Sample samp = new SF2Sample(h, mysound);
 			samples.add(samp);
@@ -297,6 +325,20 @@ public class SF2SDTA {
 		return use_24bit;
 	}
 	
+	/**
+	 * @return Bytes of storage held by the sample data.
+	 */
+	public long getSampleStorageSize()
+	{
+		long total = 0;
+		for (SF2Sample s : samples)
+		{
+			Sound snd = s.getSound();
+			for (int c = 0; c < snd.totalChannels(); c++) total += snd.getSampleChannel(c).getStorageSize();
+		}
+		return total;
+	}
+	
 	public List<SF2Sample> getSampleList()
 	{
 		//List<SF2Sample> copy = new LinkedList<SF2Sample>();